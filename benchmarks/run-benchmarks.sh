@@ -0,0 +1,13 @@
+#!/bin/sh
+# Builds the game and the benchmarks, then runs the benchmarks with the GC profiler.
+# Any arguments are passed on to JMH, for example:
+#   ./run-benchmarks.sh                      every benchmark, results in results.json
+#   ./run-benchmarks.sh GameState -p fleetSize=200
+#   ./run-benchmarks.sh -rff baseline.json   record a new baseline
+# Then compare against the baseline with:
+#   java -cp target/benchmarks.jar seng302.benchmarks.CompareResults baseline.json results.json
+set -e
+cd "$(dirname "$0")"
+(cd .. && mvn -B -q install -DskipTests)
+mvn -B -q package
+java -jar target/benchmarks.jar "$@"
@@ -0,0 +1,85 @@
+package seng302.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import seng302.gameServer.GameState;
+import seng302.model.ServerYacht;
+import seng302.utilities.CourseProjection;
+import seng302.utilities.GeoUtility;
+import seng302.utilities.SpatialGrid;
+
+/**
+ * Checking a whole fleet for yacht collisions, with the collision grid the server uses and with
+ * the all pairs check the grid replaced.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CollisionBenchmark {
+
+    // The cell size of the game's own collision grid
+    private static final double GRID_CELL_SIZE = 50d;
+
+    @Param({"10", "50", "200"})
+    public int fleetSize;
+
+    private List<ServerYacht> yachts;
+    private SpatialGrid<ServerYacht> grid;
+    private CourseProjection courseProjection;
+
+    @Setup
+    public void setup() {
+        GameState gameState = RaceFixture.createRace("default", fleetSize);
+        courseProjection = gameState.getCourseProjection();
+        yachts = RaceFixture.getYachts(gameState);
+        grid = new SpatialGrid<>(GRID_CELL_SIZE, yachts.get(0).getLocation().getLat());
+        for (ServerYacht yacht : yachts) {
+            grid.put(yacht, yacht.getLocation());
+        }
+    }
+
+    @Benchmark
+    public int grid() {
+        int collisions = 0;
+        for (ServerYacht yacht : yachts) {
+            for (ServerYacht other : grid.getNearby(
+                yacht.getLocation(), GameState.YACHT_COLLISION_DISTANCE)) {
+                if (other != yacht && courseProjection.getDistance(
+                    other.getLocation(), yacht.getLocation()) < GameState.YACHT_COLLISION_DISTANCE) {
+                    collisions++;
+                    break;
+                }
+            }
+        }
+        return collisions;
+    }
+
+    @Benchmark
+    public int allPairs() {
+        int collisions = 0;
+        for (ServerYacht yacht : yachts) {
+            for (ServerYacht other : yachts) {
+                if (other != yacht && GeoUtility.getDistance(
+                    other.getLocation(), yacht.getLocation()) < GameState.YACHT_COLLISION_DISTANCE) {
+                    collisions++;
+                    break;
+                }
+            }
+        }
+        return collisions;
+    }
+}
@@ -0,0 +1,128 @@
+package seng302.benchmarks;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Compares two JMH JSON result files, such as the checked in baseline and a run on a branch, and
+ * prints the change in score and allocation of every benchmark in both. Changes larger than the
+ * threshold and larger than the error of both scores are marked, so reviews can see at a glance
+ * what a change made slower or faster.
+ *
+ * Usage: CompareResults baseline.json results.json [threshold percent, 10 by default]
+ */
+public class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD = 10;
+    private static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+
+    /**
+     * The primary score of one benchmark run and its allocation per operation.
+     */
+    private static class Result {
+
+        private double score;
+        private double error;
+        private String unit;
+        private Double allocation;
+    }
+
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults baseline.json results.json [threshold %]");
+            System.exit(1);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, Result> baseline = readResults(args[0]);
+        Map<String, Result> results = readResults(args[1]);
+
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n",
+            "benchmark", "baseline", "result", "change", "B/op before", "B/op after");
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "new", after.score, "");
+                continue;
+            }
+            double change = (after.score - before.score) / before.score * 100;
+            boolean significant = Math.abs(change) > threshold
+                && Math.abs(after.score - before.score) > before.error + after.error;
+            String marker = "";
+            if (significant) {
+                // Every benchmark measures time per operation, so a higher score is slower
+                marker = change > 0 ? " slower" : " faster";
+                regressions += change > 0 ? 1 : 0;
+            }
+            System.out.printf("%-70s %14s %14s %+8.1f%% %12s %12s%s%n", entry.getKey(),
+                format(before), format(after), change, formatAllocation(before),
+                formatAllocation(after), marker);
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                System.out.printf("%-70s %14s %14s%n", name, format(baseline.get(name)), "missing");
+            }
+        }
+        System.out.printf("%d significantly slower at a %.0f%% threshold%n", regressions, threshold);
+    }
+
+    private static Map<String, Result> readResults(String path)
+        throws IOException, ParseException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        JSONArray runs;
+        try (Reader reader = new InputStreamReader(new FileInputStream(path),
+            StandardCharsets.UTF_8)) {
+            runs = (JSONArray) new JSONParser().parse(reader);
+        }
+        for (Object run : runs) {
+            JSONObject benchmark = (JSONObject) run;
+            JSONObject primary = (JSONObject) benchmark.get("primaryMetric");
+            Result result = new Result();
+            result.score = ((Number) primary.get("score")).doubleValue();
+            Object error = primary.get("scoreError");
+            // JMH writes NaN as a string when there were too few iterations for an error
+            result.error = error instanceof Number ? ((Number) error).doubleValue() : 0;
+            result.unit = (String) primary.get("scoreUnit");
+            JSONObject secondary = (JSONObject) benchmark.get("secondaryMetrics");
+            if (secondary != null && secondary.get(ALLOCATION_METRIC) != null) {
+                result.allocation = ((Number) ((JSONObject) secondary.get(ALLOCATION_METRIC))
+                    .get("score")).doubleValue();
+            }
+            results.put(name(benchmark), result);
+        }
+        return results;
+    }
+
+    private static String name(JSONObject benchmark) {
+        String name = ((String) benchmark.get("benchmark")).replace("seng302.benchmarks.", "");
+        JSONObject params = (JSONObject) benchmark.get("params");
+        if (params == null) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name);
+        for (Object param : new TreeMap<Object, Object>(params).entrySet()) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) param;
+            builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    private static String format(Result result) {
+        return String.format("%.3f %s", result.score, result.unit);
+    }
+
+    private static String formatAllocation(Result result) {
+        return result.allocation == null ? "" : String.format("%.0f", result.allocation);
+    }
+}
@@ -0,0 +1,93 @@
+package seng302.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import seng302.model.GeoPoint;
+import seng302.utilities.CourseProjection;
+import seng302.utilities.GeoUtility;
+
+/**
+ * The geometry the server runs for every yacht every tick, with the flat course projection it
+ * uses and with the spherical GeoUtility it replaced. Uses the same points as
+ * {@link GeoUtilityBenchmark}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CourseProjectionBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private GeoPoint[] points = new GeoPoint[SAMPLES];
+    private double[] bearings = new double[SAMPLES];
+    private double[] distances = new double[SAMPLES];
+    private CourseProjection projection;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        GeoPoint centre = new GeoPoint(57.670333, 11.827833);
+        Random random = new Random(302);
+        for (int i = 0; i < SAMPLES; i++) {
+            points[i] = GeoUtility.getGeoCoordinate(
+                centre, random.nextDouble() * 360, random.nextDouble() * 3000
+            );
+            bearings[i] = random.nextDouble() * 360;
+            distances[i] = random.nextDouble() * 50;
+        }
+        projection = new CourseProjection(centre);
+    }
+
+    private GeoPoint after(int offset) {
+        return points[(next + offset) & (SAMPLES - 1)];
+    }
+
+    @Benchmark
+    public double getDistance() {
+        next = (next + 1) & (SAMPLES - 1);
+        return projection.getDistance(points[next], after(1));
+    }
+
+    @Benchmark
+    public double getBearing() {
+        next = (next + 1) & (SAMPLES - 1);
+        return projection.getBearing(points[next], after(1));
+    }
+
+    @Benchmark
+    public Double getBearingGeoUtility() {
+        next = (next + 1) & (SAMPLES - 1);
+        return GeoUtility.getBearing(points[next], after(1));
+    }
+
+    @Benchmark
+    public GeoPoint getGeoCoordinate() {
+        next = (next + 1) & (SAMPLES - 1);
+        return projection.getGeoCoordinate(points[next], bearings[next], distances[next]);
+    }
+
+    @Benchmark
+    public int checkCrossedLine() {
+        next = (next + 1) & (SAMPLES - 1);
+        return projection.checkCrossedLine(points[next], after(1), after(2), after(3));
+    }
+
+    @Benchmark
+    public Integer checkCrossedLineGeoUtility() {
+        next = (next + 1) & (SAMPLES - 1);
+        return GeoUtility.checkCrossedLine(points[next], after(1), after(2), after(3));
+    }
+}
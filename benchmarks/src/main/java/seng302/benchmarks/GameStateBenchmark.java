@@ -0,0 +1,52 @@
+package seng302.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import seng302.gameServer.GameState;
+
+/**
+ * One tick of the server's physics, collisions and mark rounding for a fleet on each course.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameStateBenchmark {
+
+    private static final double TICK_SECONDS = 1.0 / 60;
+
+    @Param({"10", "50", "200"})
+    public int fleetSize;
+
+    @Param({"default", "horseshoe", "loop", "madagascar", "waiheke"})
+    public String course;
+
+    private GameState gameState;
+
+    /**
+     * A new race every iteration, so yachts never sail far from where the course put them.
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        gameState = RaceFixture.createRace(course, fleetSize);
+    }
+
+    @Benchmark
+    public GameState update() {
+        gameState.update(TICK_SECONDS);
+        return gameState;
+    }
+}
@@ -0,0 +1,108 @@
+package seng302.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import seng302.gameServer.MessageFactory;
+import seng302.gameServer.messages.BoatLocationBatchMessage;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.BoatState;
+import seng302.gameServer.messages.BoatStateDeltaMessage;
+import seng302.gameServer.messages.BoatStatus;
+import seng302.gameServer.messages.BoatSubMessage;
+import seng302.gameServer.messages.RaceStatus;
+import seng302.gameServer.messages.RaceStatusMessage;
+import seng302.gameServer.messages.RaceType;
+import seng302.gameServer.GameState;
+import seng302.model.ServerYacht;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+
+/**
+ * Encoding the messages the server sends every tick, for a whole fleet, and the race XML sent
+ * when a token is picked up.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageBenchmark {
+
+    @Param({"8", "50", "200"})
+    public int fleetSize;
+
+    private List<ServerYacht> yachts;
+    private List<BoatState> states;
+    private MessageFactory messageFactory;
+    private List<Token> tokens;
+    private List<Token> tokensAfterPickup;
+    private long pickups = 0;
+
+    @Setup
+    public void setup() {
+        GameState gameState = RaceFixture.createRace("default", fleetSize);
+        yachts = RaceFixture.getYachts(gameState);
+        states = new ArrayList<>();
+        for (ServerYacht yacht : yachts) {
+            states.add(MessageFactory.getBoatState(yacht));
+        }
+        messageFactory = RaceFixture.createMessageFactory(gameState, "default");
+        tokens = new ArrayList<>();
+        for (TokenType type : TokenType.values()) {
+            tokens.add(new Token(type, 57.67 + tokens.size() * 0.001, 11.84));
+        }
+        tokensAfterPickup = new ArrayList<>(tokens.subList(1, tokens.size()));
+    }
+
+    @Benchmark
+    public void boatLocations(Blackhole blackhole) {
+        for (ServerYacht yacht : yachts) {
+            blackhole.consume(MessageFactory.getBoatLocationMessage(yacht).getBuffer());
+        }
+    }
+
+    @Benchmark
+    public byte[] boatLocationBatch() {
+        List<BoatLocationMessage> locations = new ArrayList<>(yachts.size());
+        for (ServerYacht yacht : yachts) {
+            locations.add(MessageFactory.getBoatLocationMessage(yacht));
+        }
+        return new BoatLocationBatchMessage(locations).getBuffer();
+    }
+
+    @Benchmark
+    public byte[] boatStateKeyframe() {
+        return new BoatStateDeltaMessage(0, true, states, Collections.emptyMap()).getBuffer();
+    }
+
+    @Benchmark
+    public byte[] raceStatus() {
+        List<BoatSubMessage> boats = new ArrayList<>(yachts.size());
+        for (ServerYacht yacht : yachts) {
+            boats.add(new BoatSubMessage(yacht.getSourceId(), BoatStatus.RACING, 1, 0, 0, 0, 0));
+        }
+        return new RaceStatusMessage(1, RaceStatus.STARTED, 0, 90, 10000, yachts.size(),
+            RaceType.MATCH_RACE, 1, boats).getBuffer();
+    }
+
+    @Benchmark
+    public byte[] raceXmlAfterTokenPickup() {
+        messageFactory.updateTokens(pickups++ % 2 == 0 ? tokensAfterPickup : tokens);
+        return messageFactory.getRaceXML().getBuffer();
+    }
+}
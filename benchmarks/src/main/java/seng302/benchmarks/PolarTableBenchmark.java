@@ -0,0 +1,49 @@
+package seng302.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import seng302.model.PolarTable;
+
+/**
+ * Looking up boat speed in the polars, which the server does for every yacht every tick.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PolarTableBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private double[] windSpeeds = new double[SAMPLES];
+    private double[] windAngles = new double[SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        RaceFixture.loadPolars();
+        Random random = new Random(302);
+        for (int i = 0; i < SAMPLES; i++) {
+            windSpeeds[i] = 10 + random.nextDouble() * 20;
+            windAngles[i] = random.nextDouble() * 360;
+        }
+    }
+
+    @Benchmark
+    public double getBoatSpeed() {
+        next = (next + 1) & (SAMPLES - 1);
+        return PolarTable.getBoatSpeed(windSpeeds[next], windAngles[next]);
+    }
+}
@@ -0,0 +1,110 @@
+package seng302.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import seng302.gameServer.GameState;
+import seng302.gameServer.MessageFactory;
+import seng302.model.GeoPoint;
+import seng302.model.PolarTable;
+import seng302.model.ServerYacht;
+import seng302.model.mark.Mark;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.utilities.GeoUtility;
+import seng302.utilities.XMLGenerator;
+import seng302.utilities.XMLParser;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+/**
+ * A race on one of the courses in /maps with a fleet of yachts spread around its marks, set up
+ * the same way for every run so results can be compared.
+ */
+public class RaceFixture {
+
+    private static final double SPAWN_RADIUS = 400d;
+    private static final int MAX_COLOURS = 8;
+
+    private static boolean polarsLoaded = false;
+
+    private RaceFixture() {
+    }
+
+    /**
+     * Loads the polars the server races with, once per JVM.
+     */
+    public static synchronized void loadPolars() {
+        if (!polarsLoaded) {
+            PolarTable.parsePolarFile(
+                RaceFixture.class.getResourceAsStream("/server_config/acc_polars.csv")
+            );
+            polarsLoaded = true;
+        }
+    }
+
+    /**
+     * @param course The name of a map in /maps
+     * @param fleetSize The number of yachts to race
+     * @return A game state on the course with the yachts sailing
+     */
+    public static GameState createRace(String course, int fleetSize) {
+        loadPolars();
+        GameState gameState = new GameState();
+        XMLGenerator xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRaceTemplate(
+            XMLParser.parseRaceDef("/maps/" + course + ".xml", "bench", 2, null, false).getValue()
+        );
+        RaceXMLData race = XMLParser.parseRace(XMLParser.parseXmlString(xmlGenerator.getRaceAsXml()));
+        gameState.setRace(race);
+
+        // Seeded so every run places the yachts the same way
+        Random random = new Random(fleetSize);
+        List<Mark> marks = new ArrayList<>(gameState.getMarks());
+        for (int i = 1; i <= fleetSize; i++) {
+            // Yacht colours are picked by source id and there are only eight of them
+            ServerYacht yacht = new ServerYacht(BoatMeshType.DINGHY, (i - 1) % MAX_COLOURS + 1,
+                Integer.toString(i), "Y" + i, "Yacht" + i, "NZ");
+            GeoPoint near = marks.get(random.nextInt(marks.size()));
+            yacht.setLocation(GeoUtility.getGeoCoordinate(
+                near, random.nextDouble() * 360, 40 + random.nextDouble() * SPAWN_RADIUS
+            ));
+            yacht.setHeading(random.nextDouble() * 360);
+            yacht.toggleSailIn();
+            gameState.addYacht(i, yacht);
+        }
+        // Yachts join the collision grid on the next tick, which update alone does not run.
+        // Setting the course again indexes them straight away.
+        gameState.setRace(race);
+        return gameState;
+    }
+
+    /**
+     * Gives a race's message factory the XML of its course and yachts, as a race does when it
+     * opens.
+     *
+     * @param gameState A race made by {@link #createRace(String, int)}
+     * @param course The name of the map the race is on
+     * @return The message factory of the race
+     */
+    public static MessageFactory createMessageFactory(GameState gameState, String course) {
+        XMLGenerator xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRaceTemplate(
+            XMLParser.parseRaceDef("/maps/" + course + ".xml", "bench", 2, null, false).getValue()
+        );
+        RaceXMLData race = XMLParser.parseRace(XMLParser.parseXmlString(xmlGenerator.getRaceAsXml()));
+        MessageFactory messageFactory = gameState.getMessageFactory();
+        messageFactory.updateXMLGenerator(race,
+            XMLParser.parseRegatta(XMLParser.parseXmlString(xmlGenerator.getRegattaAsXml())));
+        messageFactory.updateBoats(getYachts(gameState));
+        return messageFactory;
+    }
+
+    /**
+     * @param gameState A race
+     * @return The yachts of the race in source id order
+     */
+    public static List<ServerYacht> getYachts(GameState gameState) {
+        List<ServerYacht> yachts = new ArrayList<>(gameState.getYachts().values());
+        yachts.sort((a, b) -> Integer.compare(a.getSourceId(), b.getSourceId()));
+        return yachts;
+    }
+}
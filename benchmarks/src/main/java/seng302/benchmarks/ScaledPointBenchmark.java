@@ -0,0 +1,59 @@
+package seng302.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import seng302.gameServer.GameState;
+import seng302.model.GeoPoint;
+import seng302.model.ScaledPoint;
+import seng302.model.ServerYacht;
+
+/**
+ * Projecting a frame of yacht positions onto the client's screen.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScaledPointBenchmark {
+
+    private static final int FLEET_SIZE = 8;
+
+    @Param({"default", "horseshoe", "loop", "madagascar", "waiheke"})
+    public String course;
+
+    private ScaledPoint scaledPoint;
+    private List<GeoPoint> positions = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        GameState gameState = RaceFixture.createRace(course, FLEET_SIZE);
+        scaledPoint = ScaledPoint.makeScaledPoint(1280, 720,
+            new ArrayList<>(gameState.getMarks()), false);
+        for (ServerYacht yacht : RaceFixture.getYachts(gameState)) {
+            positions.add(yacht.getLocation());
+        }
+        positions.addAll(gameState.getMarks());
+    }
+
+    @Benchmark
+    public void findScaledXY(Blackhole blackhole) {
+        for (GeoPoint position : positions) {
+            blackhole.consume(scaledPoint.findScaledXY(position));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package seng302.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import seng302.gameServer.MessageFactory;
+import seng302.gameServer.messages.BoatStatus;
+import seng302.gameServer.messages.BoatSubMessage;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RaceStatus;
+import seng302.gameServer.messages.RaceStatusMessage;
+import seng302.gameServer.messages.RaceType;
+import seng302.model.ServerYacht;
+import seng302.model.stream.decoder.BoatLocationDecoder;
+import seng302.model.stream.decoder.RaceStatusDecoder;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.utilities.StreamParser;
+
+/**
+ * Decoding a tick of boat locations and a race status for a whole fleet on the client, with the
+ * parsers and with the flyweight decoders the client uses.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreamParserBenchmark {
+
+    @Param({"8", "50", "200"})
+    public int fleetSize;
+
+    private List<StreamPacket> boatLocations = new ArrayList<>();
+    private StreamPacket raceStatus;
+    private BoatLocationDecoder boatLocationDecoder = new BoatLocationDecoder();
+    private RaceStatusDecoder raceStatusDecoder = new RaceStatusDecoder();
+
+    @Setup
+    public void setup() throws IOException {
+        List<ServerYacht> yachts = RaceFixture.getYachts(RaceFixture.createRace("default", fleetSize));
+        List<BoatSubMessage> boats = new ArrayList<>();
+        for (ServerYacht yacht : yachts) {
+            boatLocations.add(toPacket(MessageFactory.getBoatLocationMessage(yacht)));
+            boats.add(new BoatSubMessage(yacht.getSourceId(), BoatStatus.RACING, 1, 0, 0, 0, 0));
+        }
+        raceStatus = toPacket(new RaceStatusMessage(1, RaceStatus.STARTED, 0, 90, 10000,
+            yachts.size(), RaceType.MATCH_RACE, 1, boats));
+    }
+
+    /**
+     * Frames an encoded message the way the client reads it off the wire.
+     */
+    private static StreamPacket toPacket(Message message) throws IOException {
+        return new PacketFramer(new ByteArrayInputStream(message.getBuffer())).readPacket();
+    }
+
+    @Benchmark
+    public void extractBoatLocation(Blackhole blackhole) {
+        for (StreamPacket packet : boatLocations) {
+            blackhole.consume(StreamParser.extractBoatLocation(packet));
+        }
+    }
+
+    @Benchmark
+    public Object extractRaceStatus() {
+        return StreamParser.extractRaceStatus(raceStatus);
+    }
+
+    @Benchmark
+    public void decodeBoatLocation(Blackhole blackhole) {
+        for (StreamPacket packet : boatLocations) {
+            BoatLocationDecoder location = boatLocationDecoder.wrap(packet);
+            blackhole.consume(location.getSourceId());
+            blackhole.consume(location.getLat());
+            blackhole.consume(location.getLon());
+            blackhole.consume(location.getHeading());
+            blackhole.consume(location.getGroundSpeed());
+        }
+    }
+
+    @Benchmark
+    public void decodeRaceStatus(Blackhole blackhole) {
+        RaceStatusDecoder status = raceStatusDecoder.wrap(raceStatus);
+        blackhole.consume(status.getWindDirection());
+        blackhole.consume(status.getWindSpeed());
+        for (int i = 0; i < status.getNumberOfBoats(); i++) {
+            blackhole.consume(status.getBoatSourceId(i));
+            blackhole.consume(status.getBoatEstTimeAtNextMark(i));
+            blackhole.consume(status.getBoatEstTimeAtFinish(i));
+            blackhole.consume(status.getBoatStatus(i));
+        }
+    }
+}
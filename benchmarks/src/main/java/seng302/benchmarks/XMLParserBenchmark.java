@@ -0,0 +1,95 @@
+package seng302.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import seng302.gameServer.GameState;
+import seng302.gameServer.MessageFactory;
+import seng302.gameServer.messages.Message;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.utilities.StreamParser;
+import seng302.utilities.XMLParser;
+import seng302.utilities.XMLStreamParser;
+
+/**
+ * Parsing the race, regatta and boat XML packets a client is sent on joining, with the DOM
+ * parser and with the streaming parser, on every course.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XMLParserBenchmark {
+
+    private static final int FLEET_SIZE = 8;
+
+    @Param({"default", "horseshoe", "loop", "madagascar", "waiheke"})
+    public String course;
+
+    private StreamPacket raceXML;
+    private StreamPacket regattaXML;
+    private StreamPacket boatXML;
+
+    @Setup
+    public void setup() throws IOException {
+        GameState gameState = RaceFixture.createRace(course, FLEET_SIZE);
+        MessageFactory messageFactory = RaceFixture.createMessageFactory(gameState, course);
+        raceXML = toPacket(messageFactory.getRaceXML());
+        regattaXML = toPacket(messageFactory.getRegattaXML());
+        boatXML = toPacket(messageFactory.getBoatXML());
+    }
+
+    /**
+     * Frames an encoded message the way the client reads it off the wire.
+     */
+    private static StreamPacket toPacket(Message message) throws IOException {
+        return new PacketFramer(new ByteArrayInputStream(message.getBuffer())).readPacket();
+    }
+
+    @Benchmark
+    public Object parseRaceDOM() {
+        return XMLParser.parseRace(XMLParser.extractXmlMessage(raceXML));
+    }
+
+    @Benchmark
+    public Object parseRaceStreaming() {
+        return XMLStreamParser.parseRace(raceXML);
+    }
+
+    @Benchmark
+    public Object parseRegattaDOM() {
+        return XMLParser.parseRegatta(XMLParser.extractXmlMessage(regattaXML));
+    }
+
+    @Benchmark
+    public Object parseRegattaStreaming() {
+        return XMLStreamParser.parseRegatta(regattaXML);
+    }
+
+    /**
+     * Only builds the document, so is less than the DOM path took to make the yachts too.
+     */
+    @Benchmark
+    public Object extractBoatsDOM() {
+        return XMLParser.extractXmlMessage(boatXML);
+    }
+
+    @Benchmark
+    public Object parseBoatsStreaming() {
+        return StreamParser.parseBoats(boatXML);
+    }
+}
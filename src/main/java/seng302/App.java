@@ -11,12 +11,16 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.discoveryServer.DiscoveryServer;
+import seng302.gameServer.DedicatedServer;
+import seng302.gameServer.GameState;
+import seng302.gameServer.MainServerThread;
 import seng302.visualiser.controllers.ViewManager;
 
 public class App extends Application {
 
     private static Logger logger = LoggerFactory.getLogger(App.class);
     private static boolean isRunningAsCache = false;
+    private static DedicatedServer dedicatedServer = null;
 
     public static void parseArgs(String[] args) throws ParseException {
         Options options = new Options();
@@ -28,7 +32,11 @@ public class App extends Application {
 
         options.addOption("debugLevel", true, "Set the application debug level");
         options.addOption("runAsDiscoveryServer", false, "Run as a discovery server");
+        options.addOption("runAsDedicatedServer", false, "Run as a headless game server");
+        DedicatedServer.addOptions(options);
         options.addOption("discoveryDevMode", false, "Use a local discovery server");
+        options.addOption("nioServer", false, "Host games on a single selector thread");
+        options.addOption("tickRate", true, "Set the number of game state updates per second");
 
         cmd = parser.parse(options, args);
 
@@ -38,10 +46,22 @@ public class App extends Application {
             return;
         }
 
+        if (cmd.hasOption("runAsDedicatedServer")) {
+            dedicatedServer = DedicatedServer.fromCommandLine(cmd);
+        }
+
         if (cmd.hasOption("discoveryDevMode")) {
             DiscoveryServer.DISCOVERY_SERVER = "localhost";
         }
 
+        if (cmd.hasOption("nioServer")) {
+            MainServerThread.setUseSelectorTransport(true);
+        }
+
+        if (cmd.hasOption("tickRate")) {
+            GameState.setTickRate(Integer.parseInt(cmd.getOptionValue("tickRate")));
+        }
+
         if (cmd.hasOption("debugLevel")) {
 
         switch (cmd.getOptionValue("debugLevel")) {
@@ -105,11 +125,12 @@ public class App extends Application {
             logger.error("Could not parse command line arguments");
         }
 
-        if (!isRunningAsCache){
-            launch(args);
-        }
-        else{
+        if (isRunningAsCache) {
             runDiscoveryServer();
+        } else if (dedicatedServer != null) {
+            dedicatedServer.run();
+        } else {
+            launch(args);
         }
     }
 }
@@ -0,0 +1,271 @@
+package seng302.discoveryServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.discoveryServer.util.ServerListing;
+import seng302.discoveryServer.util.ServerRepoStreamParser;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RoomCodeRequest;
+import seng302.gameServer.messages.ServerHeartbeatMessage;
+import seng302.gameServer.messages.ServerRegistrationMessage;
+import seng302.model.stream.packets.PacketType;
+import seng302.utilities.Housekeeping;
+
+/**
+ * One connection to the discovery server shared by everything in this process. A registered game
+ * server sends its full listing once and then only a heartbeat with its room code to keep the
+ * listing alive, and room code lookups are sent down the same connection rather than opening one
+ * each. The discovery server answers requests in the order they are sent, so each lookup waits
+ * for the next listing to come back.
+ *
+ * Responses are read on a thread of their own. If the connection drops, pending lookups fail and
+ * the next request reconnects, waiting longer after each failed attempt.
+ */
+class DiscoveryConnection {
+
+    static final long HEARTBEAT_INTERVAL_MS = 1000;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long QUERY_TIMEOUT_MS = 5000;
+    private static final long MIN_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    private static DiscoveryConnection instance = null;
+
+    private final String host;
+    private final int port;
+    private final Logger logger = LoggerFactory.getLogger(DiscoveryConnection.class);
+
+    // Guarded by this
+    private Socket socket;
+    private final Queue<CompletableFuture<ServerListing>> pendingQueries = new ArrayDeque<>();
+    private long nextAttemptTime = 0;
+    private long backoff = MIN_BACKOFF_MS;
+    private ServerListing registration;
+    private Integer registeredPlayers;
+    private ScheduledFuture<?> heartbeat;
+
+    DiscoveryConnection(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * @return The connection to the discovery server, which connects when it is first used
+     */
+    static synchronized DiscoveryConnection getInstance() {
+        if (instance == null) {
+            instance = new DiscoveryConnection(
+                DiscoveryServer.DISCOVERY_SERVER, DiscoveryServer.PORT_NUMBER
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a game server and keeps its listing alive until it is unregistered. Replaces any
+     * listing registered before.
+     *
+     * @param serverListing The listing to register
+     */
+    synchronized void register(ServerListing serverListing) {
+        stopHeartbeat();
+        registration = serverListing;
+        registeredPlayers = null;
+        DiscoveryServerClient.setRoomCode(null);
+        heartbeat = Housekeeping.getExecutor().scheduleAtFixedRate(
+            this::sendHeartbeat, 0, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Stops keeping the registered listing alive and closes the connection. The discovery server
+     * drops the listing once its TTL runs out.
+     */
+    synchronized void unregister() {
+        stopHeartbeat();
+        registration = null;
+        close();
+    }
+
+    private void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+    }
+
+    /**
+     * Sends the full listing until the discovery server has given it a room code, or when the
+     * number of players has changed, otherwise just the room code. The full listing is also sent
+     * on a new connection as the room code may have expired while disconnected.
+     */
+    synchronized void sendHeartbeat() {
+        if (registration == null) {
+            return;
+        }
+        String roomCode = DiscoveryServerClient.getRoomCode();
+        int players = registration.getNumberOfPlayers();
+        Message message;
+        if (socket == null || roomCode == null || registeredPlayers == null
+            || registeredPlayers != players) {
+            message = new ServerRegistrationMessage(registration);
+            registeredPlayers = players;
+        } else {
+            message = new ServerHeartbeatMessage(roomCode);
+        }
+        try {
+            send(message);
+        } catch (IOException e) {
+            logger.debug("Could not update server listing");
+        }
+    }
+
+    /**
+     * Asks the discovery server for the listing with a room code.
+     *
+     * @param roomCode The room code, or the random room code for any server with space
+     * @return The listing sent back, which is empty if no server was found
+     * @throws Exception if the discovery server could not be reached or did not answer in time
+     */
+    ServerListing query(String roomCode) throws Exception {
+        CompletableFuture<ServerListing> response = new CompletableFuture<>();
+        Socket socket;
+        synchronized (this) {
+            send(new RoomCodeRequest(roomCode));
+            socket = this.socket;
+            pendingQueries.add(response);
+        }
+        try {
+            return response.get(QUERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A late answer would be taken as the answer to the next lookup, so start again
+            synchronized (this) {
+                fail(socket);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a message to the discovery server, connecting first if there is no connection.
+     */
+    private void send(Message message) throws IOException {
+        Socket socket = connect();
+        try {
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(message.getBuffer());
+            outputStream.flush();
+        } catch (IOException e) {
+            fail(socket);
+            throw e;
+        }
+    }
+
+    private Socket connect() throws IOException {
+        if (socket != null) {
+            return socket;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptTime) {
+            throw new IOException("Waiting to reconnect to the discovery server");
+        }
+        Socket newSocket = new Socket();
+        try {
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            newSocket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            newSocket.close();
+            nextAttemptTime = now + backoff;
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            throw e;
+        }
+        socket = newSocket;
+        ServerRepoStreamParser parser = new ServerRepoStreamParser(newSocket.getInputStream());
+        Thread reader = new Thread(() -> read(newSocket, parser), "DiscoveryConnection");
+        reader.setDaemon(true);
+        reader.start();
+        return newSocket;
+    }
+
+    /**
+     * Reads responses until the connection closes.
+     */
+    private void read(Socket socket, ServerRepoStreamParser parser) {
+        try {
+            while (true) {
+                PacketType packetType = parser.parse();
+                if (packetType == PacketType.ROOM_CODE_REQUEST) {
+                    receiveRoomCode(parser.getRoomCode());
+                } else if (packetType == PacketType.SERVER_REGISTRATION) {
+                    receiveListing(socket, parser.getServerListing());
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Connection to the discovery server closed");
+        }
+        synchronized (this) {
+            fail(socket);
+        }
+    }
+
+    private synchronized void receiveRoomCode(String roomCode) {
+        backoff = MIN_BACKOFF_MS;
+        if (roomCode.isEmpty()) {
+            // The discovery server has forgotten this server, register it again
+            DiscoveryServerClient.setRoomCode(null);
+        } else if (registration != null) {
+            DiscoveryServerClient.setRoomCode(roomCode);
+        }
+    }
+
+    private synchronized void receiveListing(Socket socket, ServerListing serverListing) {
+        if (socket != this.socket) {
+            return;
+        }
+        backoff = MIN_BACKOFF_MS;
+        CompletableFuture<ServerListing> response = pendingQueries.poll();
+        if (response != null) {
+            response.complete(serverListing);
+        }
+    }
+
+    /**
+     * Closes a connection that has failed and fails every lookup still waiting on it. Does
+     * nothing if the connection has already been replaced.
+     */
+    private void fail(Socket socket) {
+        if (socket != this.socket) {
+            return;
+        }
+        close();
+        nextAttemptTime = System.currentTimeMillis() + backoff;
+        backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+    }
+
+    private synchronized void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Could not close the connection to the discovery server");
+            }
+            socket = null;
+        }
+        CompletableFuture<ServerListing> response;
+        while ((response = pendingQueries.poll()) != null) {
+            response.completeExceptionally(
+                new IOException("Connection to the discovery server closed")
+            );
+        }
+    }
+}
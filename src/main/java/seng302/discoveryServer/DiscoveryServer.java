@@ -5,34 +5,70 @@ import org.slf4j.LoggerFactory;
 import seng302.gameServer.messages.Message;
 import seng302.gameServer.messages.RoomCodeRequest;
 import seng302.gameServer.messages.ServerRegistrationMessage;
-import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.StreamPacket;
 import seng302.discoveryServer.util.ServerListing;
 import seng302.discoveryServer.util.ServerRepoStreamParser;
 import seng302.discoveryServer.util.ServerTable;
-import seng302.visualiser.ServerListener;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Iterator;
+import java.util.Queue;
 import java.util.Random;
-import java.util.Timer;
-
-public class DiscoveryServer {
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the table of game servers advertised on the internet, and finds a server for players
+ * joining by room code or looking for any game with space. Every connection is served by a single
+ * selector thread. Requests are answered from the indexes of the {@link ServerTable} as soon as
+ * they are read, and a connection can send any number of requests before it closes. Game servers
+ * keep one connection open and refresh their listing with small heartbeats, see
+ * {@link DiscoveryConnection}.
+ */
+public class DiscoveryServer implements Runnable {
     public static final String ANSI_GREEN = "\u001B[32m";
     public static final String ANSI_YELLOW = "\u001B[33m";
     public static final String ANSI_BLUE = "\u001B[34m";
     public static final String ANSI_RESET = "\u001B[0m";
-    private static final int MAX_SERVER_TRIES = 10;
+    private static final String RANDOM_ROOM_CODE = "0000";
+    private static final int SELECT_TIMEOUT = 1000;
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    // A client this far behind is not reading its responses, drop it rather than queueing forever
+    private static final int MAX_OUTBOUND_MESSAGES = 1024;
     public static String DISCOVERY_SERVER = "party.sydney.srv.michaelrausch.nz";
 
     private ServerTable serverTable;
     public static final Integer PORT_NUMBER = 9969;
-    private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private volatile boolean terminated = false;
 
     private final Logger logger = LoggerFactory.getLogger(DiscoveryServer.class);
 
+    /**
+     * A client of the discovery server, only touched on the selector thread.
+     */
+    private static class Connection {
+        private final SocketChannel channel;
+        private final PacketFramer packetFramer = new PacketFramer();
+        private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+        private long lastActive;
+
+        private Connection(SocketChannel channel, long now) {
+            this.channel = channel;
+            this.lastActive = now;
+        }
+    }
+
     private void displayHeader(){
         String selectedColor = Arrays.asList(ANSI_BLUE, ANSI_GREEN, ANSI_YELLOW).get(new Random().nextInt(2));
         System.out.println(selectedColor);
@@ -55,114 +91,249 @@ public class DiscoveryServer {
         System.out.println(ANSI_RESET);
     }
 
+    /**
+     * Starts the discovery server on PORT_NUMBER and serves requests on this thread until it
+     * fails or is terminated.
+     */
     public DiscoveryServer() throws Exception {
         displayHeader();
-        serverTable = new ServerTable();
 
         try{
-            serverSocket = new ServerSocket(PORT_NUMBER);
+            open(PORT_NUMBER, new ServerTable());
         }
-        catch(java.net.BindException e){
+        catch(BindException e){
             logger.error("FATAL - Could not bind socket, are you sure there isn't already an instance running?");
             System.exit(1);
             return;
         }
 
         logger.info("Started successfully - Now accepting connections");
-
-        try{
-            while (true){
-                Socket clientSocket = serverSocket.accept();
-
-                parseRequest(clientSocket);
-
-                clientSocket.close();
-            }
-        }
-        catch (Exception e){
-            close();
-        }
+        run();
     }
 
+    /**
+     * Opens a discovery server without serving any requests, call {@link #run()} on a thread of
+     * its own to start it.
+     *
+     * @param port The port to listen on, 0 for any free port
+     * @param serverTable The table of servers to serve
+     * @throws IOException If the port can not be listened on
+     */
+    public DiscoveryServer(int port, ServerTable serverTable) throws IOException {
+        open(port, serverTable);
+    }
 
-    private void parseRequest(Socket clientSocket) throws Exception {
-        ServerRepoStreamParser parser = new ServerRepoStreamParser(clientSocket.getInputStream());
-
-        if (clientSocket.isConnected() && !clientSocket.isClosed()){
-            PacketType parsePacketResult = parser.parse();
-
-            switch (parsePacketResult){
-                case SERVER_REGISTRATION:
-                    ServerListing listing = parser.getServerListing();
-
-                    if (!serverTable.getAllServers().contains(listing)){
-                        listing.setRoomCode(serverTable.getNextRoomCode().toString());
-                    }
-
-                    serverTable.addServer(listing);
-
-                    Message serverRegMessage = new RoomCodeRequest(listing.getRoomCode());
-                    clientSocket.getOutputStream().write(serverRegMessage.getBuffer());
-                    break;
+    private void open(int port, ServerTable serverTable) throws IOException {
+        this.serverTable = serverTable;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
 
-                case ROOM_CODE_REQUEST:
-                    String desiredRoomCode = parser.getRoomCode();
-                    ServerListing serverListing;
+    /**
+     * Serves requests until the server is terminated. Expired listings are removed and idle
+     * connections closed between selects.
+     */
+    public void run() {
+        long nextIdleCheck = System.currentTimeMillis() + IDLE_TIMEOUT;
+        while (!terminated) {
+            try {
+                selector.select(SELECT_TIMEOUT);
+            } catch (IOException e) {
+                logger.error("Discovery server selector failed", e);
+                break;
+            }
 
-                    if (desiredRoomCode.equals("0000")){
-                        serverListing = getRandomFreeServer();
-                    }
-                    else {
-                        serverListing = serverTable.getServerByRoomCode(desiredRoomCode);
-                    }
+            long now = System.currentTimeMillis();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                handleKey(key, now);
+            }
 
-                    Message response;
+            serverTable.removeExpiredServers(now);
+            if (now >= nextIdleCheck) {
+                closeIdleConnections(now);
+                nextIdleCheck = now + IDLE_TIMEOUT;
+            }
+        }
+        close();
+    }
 
-                    if (serverListing != null){
-                        response = new ServerRegistrationMessage(serverListing.getServerName(), serverListing.getMapName(), serverListing.getAddress(), serverListing.getPortNumber(), 0, 0, desiredRoomCode);
-                    }
-                    else{
-                        response = ServerRegistrationMessage.getEmptyRegistration();
-                    }
+    private void handleKey(SelectionKey key, long now) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            acceptConnection(now);
+            return;
+        }
 
-                    clientSocket.getOutputStream().write(response.getBuffer());
-                    break;
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                readRequests(key, connection, now);
+            }
+            if (key.isValid() && key.isWritable()) {
+                writeResponses(key, connection);
             }
+        } catch (IOException | RuntimeException e) {
+            // Includes requests too short for what they say they hold
+            logger.debug("Closing discovery connection - " + e);
+            closeConnection(key);
         }
     }
 
-    public ServerListing getRandomFreeServer() {
-        ServerListing serverToJoin;
-
-        List<ServerListing> servers = serverTable.getAllServers();
+    private void acceptConnection(long now) {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel, now));
+        } catch (IOException e) {
+            logger.warn("Could not accept discovery connection");
+        }
+    }
 
-        if (servers.size() <= 0){
-            return null;
+    /**
+     * Reads whatever the client has sent and queues a response to every complete request.
+     */
+    private void readRequests(SelectionKey key, Connection connection, long now)
+        throws IOException {
+        if (connection.packetFramer.readFrom(connection.channel) == -1) {
+            closeConnection(key);
+            return;
         }
+        connection.lastActive = now;
 
-        if (servers.size() == 1){
-            return servers.get(0);
+        StreamPacket packet;
+        while ((packet = connection.packetFramer.nextPacket()) != null) {
+            Message response = handleRequest(packet);
+            if (response != null) {
+                connection.outbound.add(ByteBuffer.wrap(response.getBuffer()));
+            }
+        }
+        if (connection.outbound.size() > MAX_OUTBOUND_MESSAGES) {
+            logger.debug("Discovery client is not reading its responses, closing it");
+            closeConnection(key);
+            return;
         }
+        writeResponses(key, connection);
+    }
 
-        serverToJoin = servers.get(new Random().nextInt(servers.size()));
+    /**
+     * Writes as many queued responses as the channel accepts, waiting to be writable again if
+     * some are left over.
+     */
+    private void writeResponses(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = connection.outbound.peek()) != null) {
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            connection.outbound.poll();
+        }
+        key.interestOps(connection.outbound.isEmpty()
+            ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
 
-        int tries = 0;
+    /**
+     * @param packet A request from a client
+     * @return The response to the request, null if the request is not understood
+     */
+    private Message handleRequest(StreamPacket packet) {
+        switch (packet.getType()){
+            case SERVER_REGISTRATION:
+                ServerListing listing = serverTable.register(
+                    ServerRepoStreamParser.parseServerRegistration(packet.getPayload())
+                );
+                return new RoomCodeRequest(listing.getRoomCode());
+
+            case SERVER_HEARTBEAT:
+                // Heartbeats are not answered unless the server has to register again
+                String roomCode = ServerRepoStreamParser.parseRoomCodeRequest(packet.getPayload());
+                if (serverTable.refreshServer(roomCode)){
+                    return null;
+                }
+                return new RoomCodeRequest("");
+
+            case ROOM_CODE_REQUEST:
+                String desiredRoomCode =
+                    ServerRepoStreamParser.parseRoomCodeRequest(packet.getPayload());
+                ServerListing serverListing;
+
+                if (desiredRoomCode.equals(RANDOM_ROOM_CODE)){
+                    serverListing = getRandomFreeServer();
+                }
+                else {
+                    serverListing = serverTable.getServerByRoomCode(desiredRoomCode);
+                }
+
+                if (serverListing == null){
+                    return ServerRegistrationMessage.getEmptyRegistration();
+                }
+                return new ServerRegistrationMessage(serverListing.getServerName(), serverListing.getMapName(), serverListing.getAddress(), serverListing.getPortNumber(), 0, 0, desiredRoomCode);
+
+            default:
+                return null;
+        }
+    }
 
-        while (serverToJoin != null && serverToJoin.isMaxPlayersReached() && tries < MAX_SERVER_TRIES){
-            serverToJoin = servers.get(new Random().nextInt(servers.size()));
-            tries++;
+    private void closeIdleConnections(long now) {
+        for (SelectionKey key : selector.keys()) {
+            Object connection = key.attachment();
+            if (connection instanceof Connection
+                && now - ((Connection) connection).lastActive > IDLE_TIMEOUT) {
+                closeConnection(key);
+            }
         }
+    }
 
-        if (serverToJoin != null && serverToJoin.isMaxPlayersReached()){
-            return null;
+    private void closeConnection(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            ;
         }
+    }
+
+    /**
+     * @return A random server with space for another player, or null if there is none
+     */
+    public ServerListing getRandomFreeServer() {
+        return serverTable.getRandomFreeServer();
+    }
 
-        return serverToJoin;
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops serving requests, the server is closed by the thread running it. Can be called from
+     * any thread.
+     */
+    public void terminate() {
+        terminated = true;
+        selector.wakeup();
     }
 
     public void close(){
         try {
-            serverSocket.close();
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
         } catch (IOException ignored) {
             ;
         }
@@ -10,7 +10,7 @@ public class ServerListing {
     private int capacity = 0;
     private int players = 0;
     private String roomCode = "";
-    private int ttl = SERVER_TTL_DEFAULT;
+    private volatile long expiryTime = 0;
 
 
     public ServerListing(String serverName, String mapName, String address, int portNumber, int capacity){
@@ -31,16 +31,25 @@ public class ServerListing {
         return this;
     }
 
-    public void refreshTtl(){
-        ttl = SERVER_TTL_DEFAULT;
+    /**
+     * Keeps the listing for another TTL from now
+     * @param now The current time in milliseconds
+     * @param ttlMillis How long the listing lasts without another refresh
+     */
+    public void refreshTtl(long now, long ttlMillis){
+        expiryTime = now + ttlMillis;
     }
 
-    public void decrementTtl(){
-        ttl--;
+    /**
+     * @param now The current time in milliseconds
+     * @return true if the listing has not been refreshed within its TTL
+     */
+    public boolean hasTtlExpired(long now){
+        return expiryTime <= now;
     }
 
-    public boolean hasTtlExpired(){
-        return ttl < 0;
+    public long getExpiryTime() {
+        return expiryTime;
     }
 
     @Override
@@ -107,8 +116,8 @@ public class ServerListing {
         return address;
     }
 
-    public void setTtl(Integer ttl){
-        this.ttl = ttl;
+    public int getNumberOfPlayers() {
+        return players;
     }
 
     public boolean isMaxPlayersReached() {
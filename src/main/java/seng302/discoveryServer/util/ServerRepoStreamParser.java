@@ -2,50 +2,45 @@ package seng302.discoveryServer.util;
 
 
 import seng302.gameServer.messages.Message;
+import seng302.model.stream.packets.PacketFramer;
 import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
 
 import java.io.InputStream;
 import java.util.Arrays;
 
 public class ServerRepoStreamParser {
-    private ReadableByteInputStream inputStream;
+    private PacketFramer packetFramer;
 
     private String roomCode;
     private String mapName;
     private ServerListing serverListing;
 
     public ServerRepoStreamParser(InputStream is){
-        inputStream = new ReadableByteInputStream(is);
+        packetFramer = new PacketFramer(is);
     }
 
     public PacketType parse() throws Exception {
-        int sync1 = inputStream.readByte();
-        int sync2 = inputStream.readByte();
-
-        PacketType packetType = null;
-
-        if (sync1 == 0x47 && sync2 == 0x83) {
-            int type = inputStream.readByte();
-            inputStream.skipBytes(10);
-            long payloadLength = Message.bytesToLong(inputStream.getBytes(2));
-            byte[] payload = inputStream.getBytes((int) payloadLength);
-            inputStream.skipBytes(4);
-
-            packetType = PacketType.assignPacketType(type, payload);
+        StreamPacket packet = packetFramer.readPacket();
+        if (packet == null) {
+            throw new Exception();
+        }
 
-            switch (packetType) {
-                case ROOM_CODE_REQUEST:
-                    roomCode = parseRoomCodeRequest(payload);
-                    break;
+        PacketType packetType = packet.getType();
+        byte[] payload = packet.getPayload();
 
-                case LOBBY_REQUEST:
-                    mapName = parseLobbyRequest(payload);
+        switch (packetType) {
+            case ROOM_CODE_REQUEST:
+            case SERVER_HEARTBEAT:
+                roomCode = parseRoomCodeRequest(payload);
+                break;
 
-                case SERVER_REGISTRATION:
-                    serverListing = parseServerRegistration(payload);
-                    break;
-            }
+            case LOBBY_REQUEST:
+                mapName = parseLobbyRequest(payload);
 
+            case SERVER_REGISTRATION:
+                serverListing = parseServerRegistration(payload);
+                break;
         }
 
         return packetType;
@@ -56,7 +51,7 @@ public class ServerRepoStreamParser {
         return new String(Arrays.copyOfRange(payload, 4, 4+mapNameLength));
     }
 
-    private String parseRoomCodeRequest(byte[] payload) {
+    public static String parseRoomCodeRequest(byte[] payload) {
         int roomCodeLength = (int) Message.bytesToLong(Arrays.copyOfRange(payload, 0 ,6));
 
         return new String(Arrays.copyOfRange(payload, 6, 6+roomCodeLength));
@@ -4,62 +4,159 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * The game servers known to the discovery server. Listings are indexed by room code, and the
+ * servers with space left are kept in a list of their own so a random one can be picked without
+ * searching. A listing expires if it is not refreshed within its TTL, expiries are queued in the
+ * order they were set so removing expired listings only looks at the ones that are due.
+ *
+ * Lookups are safe from any thread, changes to the table are serialised.
+ */
 public class ServerTable {
-    private List<ServerListing> servers;
-    private int lastRoomCode = 4020;
+    public static final long DEFAULT_TTL_MILLIS =
+        TimeUnit.SECONDS.toMillis(ServerListing.SERVER_TTL_DEFAULT);
+    private static final int FIRST_ROOM_CODE = 4020;
+
+    private final long ttlMillis;
+    private final Map<ServerListing, ServerListing> servers = new ConcurrentHashMap<>();
+    private final Map<String, ServerListing> serversByRoomCode = new ConcurrentHashMap<>();
+    private final Queue<Expiry> expiryQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger lastRoomCode = new AtomicInteger(FIRST_ROOM_CODE);
+
+    // Servers with space left, and where each is in the list so it can be removed in place
+    private final List<ServerListing> freeServers = new ArrayList<>();
+    private final Map<ServerListing, Integer> freeServerIndexes = new IdentityHashMap<>();
+
     private Logger logger = LoggerFactory.getLogger(ServerTable.class);
 
-    public ServerTable(){
-        servers = new ArrayList<>();
+    /**
+     * The time a listing was due to expire when it was last refreshed. Refreshing a listing
+     * queues a new expiry rather than moving the old one, old expiries are skipped when they
+     * come due.
+     */
+    private static class Expiry {
+        private final ServerListing server;
+        private final long expiryTime;
 
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                updateServers();
-            }
-        }, 0, 1000);
+        private Expiry(ServerListing server, long expiryTime) {
+            this.server = server;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    public ServerTable(){
+        this(DEFAULT_TTL_MILLIS);
     }
 
     /**
-     * Update the servers TTL values, and then remove expired servers
+     * @param ttlMillis How long a listing lasts without being refreshed
      */
-    private void updateServers() {
-        List<ServerListing> serversToRemove = new ArrayList<>();
-
-        for (ServerListing server : servers){
-            server.decrementTtl();
+    public ServerTable(long ttlMillis){
+        this.ttlMillis = ttlMillis;
+    }
 
-            if (server.hasTtlExpired()){
+    /**
+     * Removes every listing that has not been refreshed within its TTL
+     * @param now The current time in milliseconds
+     */
+    public synchronized void removeExpiredServers(long now) {
+        Expiry expiry;
+        while ((expiry = expiryQueue.peek()) != null && expiry.expiryTime <= now) {
+            expiryQueue.poll();
+            ServerListing server = expiry.server;
+            if (server.hasTtlExpired(now) && servers.remove(server, server)) {
+                serversByRoomCode.remove(server.getRoomCode(), server);
+                removeFreeServer(server);
                 logger.debug("Removed expired server - " + server.getServerName());
-                serversToRemove.add(server);
             }
         }
-
-        servers.removeAll(serversToRemove);
     }
 
     /**
-     * Add a server to the table
+     * Add a server to the table, or refresh its TTL and number of players if it is already in the
+     * table
      * @param server The server to add
      */
-    public void addServer(ServerListing server){
-        if (servers.contains(server)){
-           updateTtlForServer(server);
-           return;
+    public synchronized void addServer(ServerListing server){
+        ServerListing existing = servers.get(server);
+        if (existing != null){
+            existing.setNumberOfPlayers(server.getNumberOfPlayers());
+            refresh(existing);
+            return;
         }
         logger.debug("Added new server - " + server.getServerName() + " at address: " + server.getAddress() + ":" + server.getPortNumber());
-        servers.add(server);
+        servers.put(server, server);
+        if (!server.getRoomCode().isEmpty()) {
+            serversByRoomCode.put(server.getRoomCode(), server);
+        }
+        refresh(server);
+    }
+
+    /**
+     * Add a server to the table with a new room code, or refresh it if it is already in the table
+     * @param server The server to register
+     * @return The listing held in the table, with its room code
+     */
+    public synchronized ServerListing register(ServerListing server){
+        if (!servers.containsKey(server)){
+            server.setRoomCode(getNextRoomCode().toString());
+        }
+        addServer(server);
+        return servers.get(server);
     }
 
     /**
-     * Update the TTL for a given server to the default TTL value
-     * @param server The server to update
+     * Refresh the TTL of a server already in the table
+     * @param roomCode The room code of the server
+     * @return false if there is no server with the room code, it may have expired
      */
-    private void updateTtlForServer(ServerListing server) {
-        for (ServerListing serverListing : servers){
-            if (server.equals(serverListing)){
-                serverListing.refreshTtl();
+    public synchronized boolean refreshServer(String roomCode){
+        ServerListing server = serversByRoomCode.get(roomCode);
+        if (server == null){
+            return false;
+        }
+        refresh(server);
+        return true;
+    }
+
+    private void refresh(ServerListing server) {
+        server.refreshTtl(System.currentTimeMillis(), ttlMillis);
+        expiryQueue.add(new Expiry(server, server.getExpiryTime()));
+        if (server.isMaxPlayersReached()) {
+            removeFreeServer(server);
+        } else {
+            addFreeServer(server);
+        }
+    }
+
+    private void addFreeServer(ServerListing server) {
+        synchronized (freeServers) {
+            if (!freeServerIndexes.containsKey(server)) {
+                freeServerIndexes.put(server, freeServers.size());
+                freeServers.add(server);
+            }
+        }
+    }
+
+    /**
+     * Removes a server from the free servers by moving the last free server into its place
+     */
+    private void removeFreeServer(ServerListing server) {
+        synchronized (freeServers) {
+            Integer index = freeServerIndexes.remove(server);
+            if (index == null) {
+                return;
+            }
+            ServerListing last = freeServers.remove(freeServers.size() - 1);
+            if (last != server) {
+                freeServers.set(index, last);
+                freeServerIndexes.put(last, index);
             }
         }
     }
@@ -68,7 +165,14 @@ public class ServerTable {
      * @return All the servers in the table
      */
     public List<ServerListing> getAllServers(){
-        return Collections.unmodifiableList(servers);
+        return Collections.unmodifiableList(new ArrayList<>(servers.values()));
+    }
+
+    /**
+     * @return The number of servers in the table
+     */
+    public int size(){
+        return servers.size();
     }
 
     /**
@@ -78,20 +182,25 @@ public class ServerTable {
      *         the server wasn't found
      */
     public ServerListing getServerByRoomCode(String roomCode){
-        for (ServerListing serverListing : servers){
-            if (serverListing.getRoomCode().equals(roomCode)){
-                return serverListing;
+        return serversByRoomCode.get(roomCode);
+    }
+
+    /**
+     * @return A random server with space for another player, or null if every server is full
+     */
+    public ServerListing getRandomFreeServer(){
+        synchronized (freeServers) {
+            if (freeServers.isEmpty()) {
+                return null;
             }
+            return freeServers.get(ThreadLocalRandom.current().nextInt(freeServers.size()));
         }
-
-        return null;
     }
 
     /**
      * @return The next available room code
      */
     public Integer getNextRoomCode(){
-        lastRoomCode += 1;
-        return lastRoomCode;
+        return lastRoomCode.incrementAndGet();
     }
 }
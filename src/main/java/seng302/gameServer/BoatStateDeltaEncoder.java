@@ -0,0 +1,58 @@
+package seng302.gameServer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import seng302.gameServer.messages.BoatState;
+import seng302.gameServer.messages.BoatStateDeltaMessage;
+import seng302.model.ServerYacht;
+
+/**
+ * Builds the boat state delta stream shared by every client with the delta capability. The
+ * baseline is the state sent in the previous frame; as frames go over TCP every subscribed client
+ * holds that same baseline, so each frame is only encoded once. A client that subscribes late
+ * waits for a keyframe, which is sent periodically and as soon as one is requested.
+ */
+class BoatStateDeltaEncoder {
+
+    private static final int KEYFRAME_INTERVAL_TICKS = 60;
+
+    private Map<Integer, BoatState> baseline = new HashMap<>();
+    private long tickSequence = 0;
+    private volatile boolean keyframeRequested = true;
+
+    /**
+     * Encodes the next frame of the stream and makes it the new baseline.
+     *
+     * @param yachts The yachts in the race
+     * @return The frame to send to every delta client
+     */
+    synchronized BoatStateDeltaMessage nextFrame(Collection<ServerYacht> yachts) {
+        List<BoatState> states = new ArrayList<>(yachts.size());
+        for (ServerYacht yacht : yachts) {
+            states.add(MessageFactory.getBoatState(yacht));
+        }
+
+        boolean keyframe = keyframeRequested || tickSequence % KEYFRAME_INTERVAL_TICKS == 0;
+        keyframeRequested = false;
+        BoatStateDeltaMessage frame = new BoatStateDeltaMessage(
+            tickSequence, keyframe, states, baseline
+        );
+
+        baseline.clear();
+        for (BoatState state : states) {
+            baseline.put(state.getSourceId(), state);
+        }
+        tickSequence++;
+        return frame;
+    }
+
+    /**
+     * Makes the next frame a keyframe, for clients which have just subscribed.
+     */
+    void requestKeyframe() {
+        keyframeRequested = true;
+    }
+}
@@ -0,0 +1,291 @@
+package seng302.gameServer;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.messages.ChatterMessage;
+import seng302.gameServer.messages.ClientCapability;
+import seng302.gameServer.messages.ClientType;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RegistrationResponseMessage;
+import seng302.gameServer.messages.RegistrationResponseStatus;
+import seng302.gameServer.metrics.ClientMetrics;
+import seng302.model.Player;
+import seng302.model.ServerYacht;
+import seng302.model.stream.decoder.BoatActionDecoder;
+import seng302.model.stream.decoder.CustomizeRequestDecoder;
+import seng302.model.stream.decoder.RegistrationRequestDecoder;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.model.stream.xml.parser.RegattaXMLData;
+import seng302.utilities.XMLStreamParser;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+/**
+ * A single client connected to the game server. Holds everything the server knows about the
+ * client and handles the packets it sends, independent of how bytes get on and off the wire.
+ * Subclasses provide the transport, either a blocking thread per client or a connection owned by
+ * the selector server.
+ */
+public abstract class ClientConnection {
+
+    /**
+     * Called to notify listeners when this connection receives a registration correctly.
+     */
+    @FunctionalInterface
+    interface ConnectionListener {
+        void notifyConnection ();
+    }
+
+    // TODO: 17/08/17 this is only temporary disconnects should be handled consistently
+    @FunctionalInterface
+    interface DisconnectListener {
+        void notifyDisconnect (Player player);
+    }
+
+    /**
+     * Called to notify listeners when the host sends a race or regatta XML.
+     */
+    @FunctionalInterface
+    interface XMLListener<T> {
+        void notifyXML (T xmlData);
+    }
+
+    private Logger logger = LoggerFactory.getLogger(ClientConnection.class);
+
+    protected final GameState gameState;
+    protected final ClientMetrics metrics = new ClientMetrics(this);
+    private Integer sourceId;
+    private ClientType clientType;
+    private int capabilities = 0;
+    private Boolean isRegistered = false;
+    private Boolean isHost = false;
+
+    private List<ConnectionListener> connectionListeners = new ArrayList<>();
+    private DisconnectListener disconnectListener;
+
+    private Player player;
+
+    private XMLListener<RaceXMLData> raceXMLListener;
+    private XMLListener<RegattaXMLData> regattaXMLListener;
+
+    // Reused for every packet from this client, packets are processed one at a time
+    private final BoatActionDecoder boatActionDecoder = new BoatActionDecoder();
+    private final RegistrationRequestDecoder registrationDecoder = new RegistrationRequestDecoder();
+    private final CustomizeRequestDecoder customizeDecoder = new CustomizeRequestDecoder();
+
+    /**
+     * @param gameState The game this client has joined
+     */
+    protected ClientConnection(GameState gameState) {
+        this.gameState = gameState;
+    }
+
+    /**
+     * Queue a message to be sent to this client.
+     *
+     * @param message The message to send
+     * @return false if the message could not be sent because the connection is broken
+     */
+    public abstract boolean sendMessage(Message message);
+
+    /**
+     * Queue a group of messages, such as everything produced in one tick, to be sent to this client
+     * together. The same encoded messages are shared by every client they are broadcast to.
+     *
+     * @param messages The messages to send, in order
+     * @return false if the messages could not be sent because the connection is broken
+     */
+    public boolean sendMessages(List<Message> messages) {
+        for (Message message : messages) {
+            if (!sendMessage(message)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Close the connection to this client.
+     */
+    public abstract void terminate();
+
+    /**
+     * @return the socket this client is connected on
+     */
+    public abstract Socket getSocket();
+
+    public Boolean isSocketOpen() {
+        return !getSocket().isClosed();
+    }
+
+    /**
+     * @return the number of bytes queued for this client but not yet written to its socket
+     */
+    public long getOutboundBacklog() {
+        return 0;
+    }
+
+    /**
+     * Handles a single packet that has been read from this client and passed its CRC check.
+     *
+     * @param packet The packet sent by the client
+     * @throws Exception if the packet could not be handled
+     */
+    void processPacket(StreamPacket packet) throws Exception {
+        metrics.packetReceived();
+        switch (packet.getType()) {
+            case BOAT_ACTION:
+                // Clients have no boat until they register
+                if (isRegistered) {
+                    gameState.updateBoat(sourceId, boatActionDecoder.wrap(packet).getAction());
+                }
+                break;
+
+            case RACE_REGISTRATION_REQUEST:
+                RegistrationRequestDecoder registration = registrationDecoder.wrap(packet);
+                capabilities = registration.getCapabilities();
+                completeRegistration(registration.getClientType());
+                break;
+            case CHATTER_TEXT:
+                ChatterMessage chatterMessage = ServerPacketParser
+                    .extractChatterText(packet);
+                gameState.processChatter(chatterMessage, isHost);
+                break;
+            case RACE_CUSTOMIZATION_REQUEST:
+                CustomizeRequestDecoder customization = customizeDecoder.wrap(packet);
+                gameState.customizePlayer(customization.getSourceId(),
+                    customization.getRequestType(), customization.getData()
+                );
+                // TODO: 17/08/2017 ajm412: Send a response packet here, not really necessary until we do shapes.
+                break;
+            case RACE_XML:
+                RaceXMLData race = XMLStreamParser.parseRace(packet);
+                if (race == null) {
+                    break;
+                }
+                // Set before the race so the game is advertised with the right capacity
+                gameState.setMaxPlayers(race.getMaxPlayers());
+                gameState.setTokensEnabled(race.getTokensEnabled());
+                if (raceXMLListener != null) {
+                    raceXMLListener.notifyXML(race);
+                }
+                break;
+            case REGATTA_XML:
+                if (regattaXMLListener != null) {
+                    regattaXMLListener.notifyXML(XMLStreamParser.parseRegatta(packet));
+                }
+                break;
+        }
+    }
+
+    private void setUpPlayer(){
+        String shortName = "P" + sourceId;
+        String longName = "Player " + sourceId;
+
+        ServerYacht yacht = new ServerYacht(
+            BoatMeshType.DINGHY, sourceId, sourceId.toString(), shortName, longName, "NZ");
+
+        player = new Player(getSocket(), yacht);
+        gameState.addYacht(sourceId, yacht);
+        gameState.addPlayer(player);
+    }
+
+    private void completeRegistration(ClientType clientType) {
+        // Fail if not a player
+        if (!clientType.equals(ClientType.PLAYER)){
+            sendMessage(new RegistrationResponseMessage(0, RegistrationResponseStatus.FAILURE_GENERAL));
+            return;
+        }
+
+        if (gameState.getPlayers().size() >= gameState.getCapacity()){
+            sendMessage(new RegistrationResponseMessage(0, RegistrationResponseStatus.FAILURE_FULL));
+            return;
+        }
+
+        Integer sourceId = gameState.getUniquePlayerID();
+        RegistrationResponseMessage responseMessage = new RegistrationResponseMessage(sourceId, RegistrationResponseStatus.SUCCESS_PLAYING);
+
+        this.clientType = clientType;
+        this.sourceId = sourceId;
+        isRegistered = true;
+        sendMessage(responseMessage);
+
+        setUpPlayer();
+
+        for (ConnectionListener listener : connectionListeners) {
+            listener.notifyConnection();
+        }
+    }
+
+    public void sendSetupMessages() {
+        sendMessages(Arrays.asList(
+            gameState.getMessageFactory().getRegattaXML(),
+            gameState.getMessageFactory().getBoatXML(),
+            gameState.getMessageFactory().getRaceXML()
+        ));
+    }
+
+    /**
+     * Tells the disconnect listener this client has gone, if it ever registered as a player.
+     */
+    void notifyDisconnect() {
+        if (disconnectListener != null && player != null) {
+            disconnectListener.notifyDisconnect(player);
+        }
+    }
+
+    public Integer getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * @return the packets and bytes sent to and read from this client
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public Boolean isRegistered() {
+        return isRegistered;
+    }
+
+    /**
+     * @param capability An optional protocol feature
+     * @return true if the client asked for the feature when it registered
+     */
+    public boolean hasCapability(ClientCapability capability) {
+        return capability.isSetIn(capabilities);
+    }
+
+    public void addConnectionListener(ConnectionListener listener) {
+        connectionListeners.add(listener);
+    }
+
+    public void removeConnectionListener(ConnectionListener listener) {
+        connectionListeners.remove(listener);
+    }
+
+    public void addDisconnectListener(DisconnectListener disconnectListener) {
+        this.disconnectListener = disconnectListener;
+    }
+
+    public void setAsHost() {
+        isHost = true;
+    }
+
+    public void setRaceXMLListener(XMLListener<RaceXMLData> raceXMLListener) {
+        this.raceXMLListener = raceXMLListener;
+    }
+
+    public void setRegattaXMLListener(XMLListener<RegattaXMLData> regattaXMLListener) {
+        this.regattaXMLListener = regattaXMLListener;
+    }
+}
@@ -4,10 +4,16 @@ import seng302.model.Player;
 
 public interface ClientConnectionDelegate {
     /**
-     * A player has connected to the server
-     * @param serverToClientThread The player that has connected
+     * @return The game clients connecting to this delegate join
      */
-    void clientConnected(ServerToClientThread serverToClientThread);
+    GameState getGameState();
+
+    /**
+     * A player has connected to the server. Called on the thread accepting connections, so should
+     * not block
+     * @param clientConnection The player that has connected
+     */
+    void clientConnected(ClientConnection clientConnection);
 
     /**
      * A player has disconnected from the server
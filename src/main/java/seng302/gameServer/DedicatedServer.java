@@ -0,0 +1,292 @@
+package seng302.gameServer;
+
+import ch.qos.logback.classic.Level;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.metrics.MetricsRegistry;
+import seng302.model.stream.xml.generator.RaceXMLTemplate;
+import seng302.model.stream.xml.generator.RegattaXMLTemplate;
+import seng302.utilities.XMLGenerator;
+import seng302.utilities.XMLParser;
+
+/**
+ * A headless game server with no players of its own. Keeps a number of races open on a
+ * {@link RaceHost}, each on its own port and with a course loaded from a map, starts them once
+ * they are full or their lobby time is up, and opens a new race in place of each one that ends.
+ *
+ * Nothing on this path uses JavaFX, so it can be run from the slim jar built by the server
+ * profile as well as from the game with App -runAsDedicatedServer.
+ */
+public class DedicatedServer implements Runnable {
+
+    private static final int DEFAULT_PORT = 4942;
+    private static final String DEFAULT_MAP = "default";
+    private static final long DEFAULT_LOBBY_TIME = 30;
+    private static final long DEFAULT_METRICS_INTERVAL = 10;
+    private static final long CHECK_PERIOD = 1000;
+    private static final String SERVER_NAME = "Dedicated Server";
+
+    private static Logger logger = LoggerFactory.getLogger(DedicatedServer.class);
+
+    private final int firstPort;
+    private final int numberOfRaces;
+    private final int threads;
+    private final String mapName;
+    private final boolean tokensEnabled;
+    private final long lobbyTime;
+    private long metricsInterval = DEFAULT_METRICS_INTERVAL;
+    private File recordingDirectory;
+
+    private String raceXML;
+    private String regattaXML;
+    private final List<RaceInstance> races = new CopyOnWriteArrayList<>();
+    private final Map<RaceInstance, Long> firstPlayerJoined = new HashMap<>();
+    private RaceHost raceHost;
+    private volatile boolean terminated = false;
+
+    /**
+     * @param firstPort The port of the first race, each race after it is on the next port. 0 to
+     * use any free ports
+     * @param numberOfRaces The number of races to keep open
+     * @param threads The number of threads shared between the races
+     * @param mapName The name of the map in /maps to race on
+     * @param tokensEnabled true to put tokens on the course
+     * @param lobbyTime Seconds to wait after the first player joins a race before starting it
+     */
+    public DedicatedServer(int firstPort, int numberOfRaces, int threads, String mapName,
+        boolean tokensEnabled, long lobbyTime) {
+        this.firstPort = firstPort;
+        this.numberOfRaces = numberOfRaces;
+        this.threads = threads;
+        this.mapName = mapName;
+        this.tokensEnabled = tokensEnabled;
+        this.lobbyTime = TimeUnit.SECONDS.toMillis(lobbyTime);
+    }
+
+    /**
+     * Adds the options of a dedicated server to a set of command line options.
+     *
+     * @param options The options to add to
+     */
+    public static void addOptions(Options options) {
+        options.addOption("port", true, "Port of the first race, the rest use the next ports");
+        options.addOption("races", true, "Number of races to keep open");
+        options.addOption("threads", true, "Number of threads shared by the races");
+        options.addOption("map", true, "Map to race on, one of the maps in /maps");
+        options.addOption("tokens", false, "Put tokens on the course");
+        options.addOption("lobbyTime", true,
+            "Seconds after the first player joins a race until it starts");
+        options.addOption("metricsInterval", true,
+            "Seconds between logs of every race's metrics, 0 to not log them");
+        options.addOption("record", true,
+            "Directory to record every race into, each race in a directory of its own");
+    }
+
+    /**
+     * Creates a dedicated server from parsed command line options.
+     *
+     * @param cmd Command line parsed with the options from {@link #addOptions(Options)}
+     * @return The server, not yet running
+     */
+    public static DedicatedServer fromCommandLine(CommandLine cmd) {
+        DedicatedServer server = new DedicatedServer(
+            Integer.parseInt(cmd.getOptionValue("port", String.valueOf(DEFAULT_PORT))),
+            Integer.parseInt(cmd.getOptionValue("races", "1")),
+            Integer.parseInt(cmd.getOptionValue("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))),
+            cmd.getOptionValue("map", DEFAULT_MAP),
+            cmd.hasOption("tokens"),
+            Long.parseLong(cmd.getOptionValue("lobbyTime", String.valueOf(DEFAULT_LOBBY_TIME)))
+        );
+        server.setMetricsInterval(Long.parseLong(
+            cmd.getOptionValue("metricsInterval", String.valueOf(DEFAULT_METRICS_INTERVAL))));
+        if (cmd.hasOption("record")) {
+            server.setRecordingDirectory(new File(cmd.getOptionValue("record")));
+        }
+        return server;
+    }
+
+    /**
+     * @param seconds Time between logs of every race's metrics while the server runs, 0 to not
+     * log them. Metrics are published over JMX either way.
+     */
+    public void setMetricsInterval(long seconds) {
+        this.metricsInterval = seconds;
+    }
+
+    /**
+     * @param directory Directory to record every race into from when it opens, each race in a
+     * directory named after its port and opening time. null to not record races
+     */
+    public void setRecordingDirectory(File directory) {
+        this.recordingDirectory = directory;
+    }
+
+    /**
+     * Runs the server until {@link #terminate()} is called or the JVM shuts down.
+     */
+    @Override
+    public void run() {
+        if (!loadCourse()) {
+            return;
+        }
+        try {
+            raceHost = new RaceHost(threads);
+        } catch (IOException e) {
+            logger.error("Could not start the race host", e);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::terminate, "DedicatedServerShutdown"));
+        MetricsRegistry.getInstance().startLogging(metricsInterval, TimeUnit.SECONDS);
+
+        for (int i = 0; i < numberOfRaces; i++) {
+            races.add(openRace(firstPort == 0 ? 0 : firstPort + i));
+        }
+
+        while (!terminated) {
+            for (int i = 0; i < races.size(); i++) {
+                RaceInstance race = races.get(i);
+                if (race == null || race.isTerminated()) {
+                    firstPlayerJoined.remove(race);
+                    races.set(i, openRace(firstPort == 0 ? 0 : firstPort + i));
+                } else if (!race.hasStarted()) {
+                    startRaceIfReady(race);
+                }
+            }
+            try {
+                Thread.sleep(CHECK_PERIOD);
+            } catch (InterruptedException e) {
+                logger.trace("Interrupted exception in dedicated server thread sleep");
+            }
+        }
+    }
+
+    /**
+     * Closes every race and stops the server.
+     */
+    public void terminate() {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        MetricsRegistry.getInstance().stopLogging();
+        if (raceHost != null) {
+            raceHost.shutdown();
+        }
+    }
+
+    /**
+     * @return The races the server has open, null where a race could not be opened
+     */
+    public List<RaceInstance> getRaces() {
+        return new ArrayList<>(races);
+    }
+
+    /**
+     * Generates the race and regatta XML of the map, which every race is given.
+     *
+     * @return false if there is no map with the name of the server's map
+     */
+    private boolean loadCourse() {
+        String path = "/maps/" + mapName + ".xml";
+        if (DedicatedServer.class.getResource(path) == null) {
+            logger.error("No map called " + mapName);
+            return false;
+        }
+        Map.Entry<RegattaXMLTemplate, RaceXMLTemplate> regattaRace = XMLParser.parseRaceDef(
+            path, SERVER_NAME, 1, null, tokensEnabled
+        );
+        XMLGenerator xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRegattaTemplate(regattaRace.getKey());
+        xmlGenerator.setRaceTemplate(regattaRace.getValue());
+        regattaXML = xmlGenerator.getRegattaAsXml();
+        raceXML = xmlGenerator.getRaceAsXml();
+        return true;
+    }
+
+    private RaceInstance openRace(int port) {
+        try {
+            RaceInstance race = raceHost.openRace(port);
+            // Each race parses its own copy so no course data is shared between races
+            race.setCourse(XMLParser.parseXmlString(raceXML),
+                XMLParser.parseXmlString(regattaXML));
+            if (recordingDirectory != null) {
+                startRecording(race);
+            }
+            logger.info("Race open on port " + race.getPortNumber());
+            return race;
+        } catch (IOException e) {
+            logger.warn("Could not open a race on port " + port + ", trying again shortly");
+            return null;
+        }
+    }
+
+    private void startRecording(RaceInstance race) {
+        File directory = new File(recordingDirectory,
+            "race-" + race.getPortNumber() + "-" + System.currentTimeMillis());
+        try {
+            race.startRecording(directory);
+        } catch (IOException e) {
+            logger.warn("Could not record race on port " + race.getPortNumber() + " to "
+                + directory);
+        }
+    }
+
+    private void startRaceIfReady(RaceInstance race) {
+        int players = race.getGameState().getPlayers().size();
+        if (players == 0) {
+            firstPlayerJoined.remove(race);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        firstPlayerJoined.putIfAbsent(race, now);
+        if (players >= race.getGameState().getCapacity()
+            || now - firstPlayerJoined.get(race) >= lobbyTime) {
+            logger.info(String.format("Starting race on port %d with %d players",
+                race.getPortNumber(), players));
+            firstPlayerJoined.remove(race);
+            race.startGame();
+        }
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        addOptions(options);
+        options.addOption("tickRate", true, "Set the number of game state updates per second");
+        options.addOption("debugLevel", true, "Set the server log level");
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine cmd;
+        try {
+            cmd = parser.parse(options, args);
+        } catch (ParseException e) {
+            logger.error("Could not parse command line arguments");
+            new HelpFormatter().printHelp("DedicatedServer", options);
+            return;
+        }
+
+        ch.qos.logback.classic.Logger rootLogger = (ch.qos.logback.classic.Logger) LoggerFactory
+            .getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.toLevel(cmd.getOptionValue("debugLevel"), Level.INFO));
+
+        if (cmd.hasOption("tickRate")) {
+            GameState.setTickRate(Integer.parseInt(cmd.getOptionValue("tickRate")));
+        }
+
+        fromCommandLine(cmd).run();
+    }
+}
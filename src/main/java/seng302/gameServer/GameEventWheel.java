@@ -0,0 +1,167 @@
+package seng302.gameServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs events a number of game ticks in the future, such as power ups wearing off or the wind
+ * changing. Events are kept in a hashed wheel of slots, one slot per tick, so scheduling an event
+ * and moving on a tick only look at a single slot however many events are waiting. Events further
+ * away than the size of the wheel wait in their slot for later turns.
+ *
+ * The wheel is moved on by the thread running the game, so its events run on that thread and
+ * need no locking. Not safe to use from any other thread.
+ */
+public class GameEventWheel {
+
+    private Logger logger = LoggerFactory.getLogger(GameEventWheel.class);
+
+    /**
+     * An event waiting on the wheel.
+     */
+    public static class GameEvent {
+
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private boolean cancelled;
+
+        private GameEvent(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Stops the event from running again. Does nothing if it has already run.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final List<List<GameEvent>> slots;
+    private final int mask;
+    private final List<GameEvent> dueEvents = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * @param slotCount The number of slots in the wheel, rounded up to a power of two. Should
+     * cover most delays so few events wait for more than one turn.
+     */
+    public GameEventWheel(int slotCount) {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive");
+        }
+        int size = Integer.highestOneBit(slotCount);
+        if (size < slotCount) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Runs a task once after a number of ticks.
+     *
+     * @param delayTicks Ticks to wait, the task runs on the next tick if less than one
+     * @param task The task to run
+     * @return The event, which can be cancelled
+     */
+    public GameEvent schedule(long delayTicks, Runnable task) {
+        return add(new GameEvent(task, currentTick + Math.max(1, delayTicks), 0));
+    }
+
+    /**
+     * Runs a task every period ticks until it is cancelled or the wheel is cleared.
+     *
+     * @param initialDelayTicks Ticks to wait before the first run, at least one
+     * @param periodTicks Ticks between each run
+     * @param task The task to run
+     * @return The event, which can be cancelled
+     */
+    public GameEvent scheduleAtFixedRate(long initialDelayTicks, long periodTicks, Runnable task) {
+        if (periodTicks <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return add(
+            new GameEvent(task, currentTick + Math.max(1, initialDelayTicks), periodTicks)
+        );
+    }
+
+    private GameEvent add(GameEvent event) {
+        slots.get((int) (event.deadline & mask)).add(event);
+        return event;
+    }
+
+    /**
+     * Moves the wheel on one tick and runs every event that has come due, in the order they were
+     * scheduled.
+     */
+    public void advance() {
+        currentTick++;
+        List<GameEvent> slot = slots.get((int) (currentTick & mask));
+        int kept = 0;
+        for (GameEvent event : slot) {
+            if (event.cancelled) {
+                continue;
+            }
+            if (event.deadline <= currentTick) {
+                dueEvents.add(event);
+            } else {
+                slot.set(kept++, event);
+            }
+        }
+        slot.subList(kept, slot.size()).clear();
+
+        // Run after the slot is tidied as events may schedule more into it
+        for (int i = 0; i < dueEvents.size(); i++) {
+            GameEvent event = dueEvents.get(i);
+            if (event.cancelled) {
+                continue;
+            }
+            try {
+                event.task.run();
+            } catch (RuntimeException e) {
+                // One broken event must not stop the others or the game
+                logger.error("Game event failed", e);
+            }
+            if (event.period > 0 && !event.cancelled) {
+                event.deadline += event.period;
+                add(event);
+            }
+        }
+        dueEvents.clear();
+    }
+
+    /**
+     * Cancels every event waiting on the wheel.
+     */
+    public void clear() {
+        for (List<GameEvent> slot : slots) {
+            for (GameEvent event : slot) {
+                event.cancel();
+            }
+            slot.clear();
+        }
+        for (GameEvent event : dueEvents) {
+            event.cancel();
+        }
+    }
+
+    /**
+     * @return The number of ticks the wheel has moved on
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+}
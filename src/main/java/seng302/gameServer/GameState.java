@@ -1,19 +1,17 @@
 package seng302.gameServer;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import javafx.beans.property.ReadOnlyDoubleWrapper;
-import javafx.scene.paint.Color;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.gameServer.messages.BoatAction;
@@ -24,6 +22,7 @@ import seng302.gameServer.messages.MarkRoundingMessage;
 import seng302.gameServer.messages.MarkType;
 import seng302.gameServer.messages.Message;
 import seng302.gameServer.messages.RoundingBoatStatus;
+import seng302.gameServer.messages.TokenUpdateMessage;
 import seng302.model.GeoPoint;
 import seng302.model.Limit;
 import seng302.model.Player;
@@ -35,13 +34,21 @@ import seng302.model.mark.MarkOrder;
 import seng302.model.stream.xml.parser.RaceXMLData;
 import seng302.model.token.Token;
 import seng302.model.token.TokenType;
+import seng302.utilities.CourseProjection;
 import seng302.utilities.GeoUtility;
 import seng302.utilities.RandomSpawn;
+import seng302.utilities.SpatialGrid;
 import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
 
 /**
- * A Static class to hold information about the current state of the game (model)
- * Also contains logic for updating itself on regular time intervals on its own thread
+ * Holds information about the current state of a single game (model). Also contains logic for
+ * updating itself on regular time intervals, either on its own thread or driven by a
+ * {@link RaceHost}
+ * Inputs from clients are queued by the threads reading them and applied at the start of the next
+ * tick, so only the thread running the game changes the yachts. Yachts joining and leaving are
+ * seen in the yacht map straight away but only move in or out of the collision grid on the next
+ * tick. The map and player list can be read from any thread. Timed events in the race, such as
+ * power ups wearing off, run on the same thread from a {@link GameEventWheel}.
  * Created by wmu16 on 10/07/17.
  */
 public class GameState implements Runnable {
@@ -51,10 +58,22 @@ public class GameState implements Runnable {
         void notify(Message message);
     }
 
+    /**
+     * Called to notify listeners when the game moves from one stage to another.
+     */
+    @FunctionalInterface
+    public interface StageListener {
+        void stageChanged(GameStages from, GameStages to);
+    }
+
     private static Logger logger = LoggerFactory.getLogger(GameState.class);
 
 
-    private static final Integer STATE_UPDATES_PER_SECOND = 60;
+    //Tick constants. Acceleration values in updateVelocity were tuned for 60 updates a second
+    private static final int DEFAULT_TICK_RATE = 60;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long TICK_STATS_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+    private static final int EVENT_WHEEL_SLOTS = 512;
 
     //Scheduling constants
     static final int WARNING_TIME = 10 * -1000;
@@ -74,6 +93,7 @@ public class GameState implements Runnable {
     private static final Double BOUNCE_DISTANCE_MARK = 20.0;
     public static final Double BOUNCE_DISTANCE_YACHT = 30.0;
     private static final Double COLLISION_VELOCITY_PENALTY = 0.3;
+    private static final double COLLISION_GRID_CELL_SIZE = 50d;
 
     //Powerup Constants
     public static final Double VELOCITY_BOOST_MULTIPLIER = 2d;
@@ -81,136 +101,270 @@ public class GameState implements Runnable {
     private static final Double BAD_RANDOM_SPEED_PENALTY = 0.3;
     public static final Long BUMPER_DISABLE_TIME = 5_000L;
     private static final Long TOKEN_SPAWN_TIME = 30_000L;
-
-    private static Long previousUpdateTime;
-    public static Double windDirection;
-    public static ReadOnlyDoubleWrapper windDirectionProperty = new ReadOnlyDoubleWrapper();
-    private static Double windSpeed;
-    private static Double serverSpeedMultiplier;
-
-    private static Boolean customizationFlag; // dirty flag to tell if a player has customized their boat.
-    private static Boolean playerHasLeftFlag;
-
-    private static String hostIpAddress;
-    private static List<Player> players;
-    private static Map<Integer, ServerYacht> yachts;
-    private static GameStages currentStage;
-    private static MarkOrder markOrder;
-    private static long startTime;
-    private static Set<Mark> marks = new HashSet<>();
-    private static List<Limit> courseLimit = new ArrayList<>();
-    private static Integer maxPlayers = 12;
-
-    private static List<Token> tokensInPlay;
-    private static RandomSpawn randomSpawn;
-
-    private static List<NewMessageListener> newMessageListeners;
-
-    private static Map<Player, String> playerStringMap = new HashMap<>();
-    private static boolean tokensEnabled = false;
+    private static final Long WIND_UPDATE_TIME = 500L;
+
+    private static int tickRate = DEFAULT_TICK_RATE;
+    private final long tickNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+    private final TickStats tickStats = new TickStats(tickNanos);
+    private long nextTick;
+    private long nextStatsLog;
+    private final GameEventWheel events = new GameEventWheel(EVENT_WHEEL_SLOTS);
+
+    private final MessageFactory messageFactory = new MessageFactory(this);
+    private Double windDirection;
+    private Double windSpeed;
+    private Double serverSpeedMultiplier;
+
+    private volatile Boolean customizationFlag; // dirty flag to tell if a player has customized their boat.
+    private Boolean playerHasLeftFlag;
+
+    private String hostIpAddress;
+    private List<Player> players;
+    private Map<Integer, ServerYacht> yachts;
+    private volatile GameStages currentStage;
+    private MarkOrder markOrder;
+    private long startTime;
+    private Set<Mark> marks = new HashSet<>();
+    private List<Limit> courseLimit = new ArrayList<>();
+    private Integer maxPlayers = 12;
+
+    private List<Token> tokensInPlay;
+    private int nextTokenId = 0;
+    private RandomSpawn randomSpawn;
+
+    //Flat geometry around the course, replaced when the course is set
+    private CourseProjection courseProjection = new CourseProjection(new GeoPoint(0, 0));
+
+    //Spatial indexes so collision checks only look at nearby objects
+    private SpatialGrid<ServerYacht> yachtGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, 0);
+    private SpatialGrid<Mark> markGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, 0);
+    private SpatialGrid<Token> tokenGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, 0);
+    private SpatialGrid<Integer> boundaryGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, 0);
+
+    private List<NewMessageListener> newMessageListeners;
+    private List<StageListener> stageListeners = new CopyOnWriteArrayList<>();
+
+    private Map<Player, String> playerStringMap = new ConcurrentHashMap<>();
+    private boolean tokensEnabled = false;
+
+    //Client inputs waiting for the next tick, added to by any thread and only drained by the game
+    private final ConcurrentLinkedQueue<Runnable> pendingInputs = new ConcurrentLinkedQueue<>();
 
     public GameState() {
         windDirection = 180d;
-        windDirectionProperty.set(windDirection);
         windSpeed = 10000d;
-        yachts = new HashMap<>();
+        yachts = new ConcurrentHashMap<>();
         tokensInPlay = new CopyOnWriteArrayList<>();
-        players = new ArrayList<>();
+        players = new CopyOnWriteArrayList<>();
         customizationFlag = false;
         playerHasLeftFlag = false;
         serverSpeedMultiplier = 1.0;
         currentStage = GameStages.LOBBYING;
-        previousUpdateTime = System.currentTimeMillis();
         newMessageListeners = new ArrayList<>();
 
         resetStartTime();
+        nextTick = System.nanoTime() + tickNanos;
+        nextStatsLog = System.nanoTime() + TICK_STATS_LOG_INTERVAL;
+    }
 
-        new Thread(this, "GameState").start();   //Run the auto updates on the game state
+    /**
+     * @return The factory for the messages describing this game
+     */
+    public MessageFactory getMessageFactory() {
+        return messageFactory;
     }
 
-    public static void setRace(RaceXMLData raceXMLData) {
+    public void setRace(RaceXMLData raceXMLData) {
         markOrder = new MarkOrder(raceXMLData);
         for (CompoundMark compoundMark : raceXMLData.getCompoundMarks().values()){
             marks.addAll(compoundMark.getMarks());
         }
         randomSpawn = new RandomSpawn(markOrder.getOrderedUniqueCompoundMarks());
         courseLimit = raceXMLData.getCourseLimit();
+        courseProjection = new CourseProjection(getCourseCentre());
+        buildSpatialIndexes();
+    }
+
+    /**
+     * @return The centre of the bounding box of the course limits, or of the marks if there are no
+     * limits
+     */
+    private GeoPoint getCourseCentre() {
+        List<GeoPoint> points = new ArrayList<>(courseLimit.isEmpty() ? marks : courseLimit);
+        if (points.isEmpty()) {
+            return new GeoPoint(0, 0);
+        }
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (GeoPoint point : points) {
+            minLat = Math.min(minLat, point.getLat());
+            maxLat = Math.max(maxLat, point.getLat());
+            minLng = Math.min(minLng, point.getLng());
+            maxLng = Math.max(maxLng, point.getLng());
+        }
+        return new GeoPoint((minLat + maxLat) / 2, (minLng + maxLng) / 2);
     }
 
-    public static List<Player> getPlayers() {
+    /**
+     * @return The flat earth geometry used for the physics of the current course
+     */
+    public CourseProjection getCourseProjection() {
+        return courseProjection;
+    }
+
+    /**
+     * Creates the collision grids for the course, with cells sized for the latitude of the course.
+     * Marks and the boundary are fixed so are only indexed here, yachts and tokens are moved in
+     * their grid as they change.
+     */
+    private void buildSpatialIndexes() {
+        double referenceLat = getCourseCentre().getLat();
+
+        markGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, referenceLat);
+        for (Mark mark : marks) {
+            markGrid.put(mark, mark);
+        }
+
+        boundaryGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, referenceLat);
+        for (int i = 0; i < courseLimit.size(); i++) {
+            boundaryGrid.putSegment(
+                i, courseLimit.get(i), courseLimit.get((i + 1) % courseLimit.size())
+            );
+        }
+
+        SpatialGrid<ServerYacht> newYachtGrid =
+            new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, referenceLat);
+        for (ServerYacht yacht : yachts.values()) {
+            newYachtGrid.put(yacht, yacht.getLocation());
+        }
+        yachtGrid = newYachtGrid;
+
+        SpatialGrid<Token> newTokenGrid = new SpatialGrid<>(COLLISION_GRID_CELL_SIZE, referenceLat);
+        for (Token token : tokensInPlay) {
+            newTokenGrid.put(token, token);
+        }
+        tokenGrid = newTokenGrid;
+    }
+
+    public List<Player> getPlayers() {
         return players;
     }
 
-    public static List<Token> getTokensInPlay() {
+    public List<Token> getTokensInPlay() {
         return tokensInPlay;
     }
 
-    public static Set<Mark> getMarks() {
+    public Set<Mark> getMarks() {
         return Collections.unmodifiableSet(marks);
     }
 
-    public static void addPlayer(Player player) {
+    public void addPlayer(Player player) {
         players.add(player);
         String playerText = player.getYacht().getSourceId() + " " + player.getYacht().getBoatName()
             + " " + player.getYacht().getCountry();
         playerStringMap.put(player, playerText);
     }
 
-    public static void removePlayer(Player player) {
+    public void removePlayer(Player player) {
         players.remove(player);
         playerStringMap.remove(player);
     }
 
-    public static void addYacht(Integer sourceId, ServerYacht yacht) {
+    /**
+     * Adds a yacht to the game. It is in the yachts straight away and collides with other yachts
+     * from the next tick.
+     *
+     * @param sourceId The source id of the yacht
+     * @param yacht The yacht to add
+     */
+    public void addYacht(Integer sourceId, ServerYacht yacht) {
+        yacht.setGameState(this);
         yachts.put(sourceId, yacht);
+        pendingInputs.add(() -> {
+            if (yachts.get(sourceId) == yacht) {
+                yachtGrid.put(yacht, yacht.getLocation());
+            }
+        });
+    }
+
+    /**
+     * Removes a yacht from the game. It is gone from the yachts straight away and stops colliding
+     * with other yachts from the next tick.
+     *
+     * @param yachtId The source id of the yacht
+     */
+    public void removeYacht(Integer yachtId) {
+        ServerYacht yacht = yachts.remove(yachtId);
+        if (yacht != null) {
+            pendingInputs.add(() -> yachtGrid.remove(yacht));
+        }
     }
 
-    public static void removeYacht(Integer yachtId) {
-        yachts.remove(yachtId);
+    /**
+     * Keeps the collision grid up to date, called by a yacht whenever its location changes.
+     *
+     * @param yacht The yacht which has moved
+     */
+    public void yachtMoved(ServerYacht yacht) {
+        yachtGrid.move(yacht, yacht.getLocation());
     }
 
-    public static GameStages getCurrentStage() {
+    public GameStages getCurrentStage() {
         return currentStage;
     }
 
-    public static void setCurrentStage(GameStages currentStage) {
-        GameState.currentStage = currentStage;
+    /**
+     * Moves the game to a new stage, telling the stage listeners if it has changed.
+     *
+     * @param currentStage The stage the game is now in
+     */
+    public void setCurrentStage(GameStages currentStage) {
+        GameStages previousStage = this.currentStage;
+        this.currentStage = currentStage;
+        if (previousStage != currentStage) {
+            for (StageListener listener : stageListeners) {
+                listener.stageChanged(previousStage, currentStage);
+            }
+        }
+    }
+
+    public void addStageListener(StageListener listener) {
+        stageListeners.add(listener);
     }
 
-    public static MarkOrder getMarkOrder() {
+    public MarkOrder getMarkOrder() {
         return markOrder;
     }
 
-    public static long getStartTime() {
+    public long getStartTime() {
         return startTime;
     }
 
-    public static void resetStartTime(){
+    public void resetStartTime(){
         startTime = System.currentTimeMillis() + TIME_TILL_START;
     }
 
-    public static Double getWindDirection() {
+    public Double getWindDirection() {
         return windDirection;
     }
 
-    public static void setWindDirection(Double newWindDirection) {
+    public void setWindDirection(Double newWindDirection) {
         windDirection = newWindDirection;
-        windDirectionProperty.set(newWindDirection);
     }
 
-    public static void setWindSpeed(Double newWindSpeed) {
+    public void setWindSpeed(Double newWindSpeed) {
         windSpeed = newWindSpeed;
     }
 
-    public static Double getWindSpeedMMS() {
+    public Double getWindSpeedMMS() {
         return windSpeed;
     }
 
-    public static Double getWindSpeedKnots() {
+    public Double getWindSpeedKnots() {
         return GeoUtility.mmsToKnots(windSpeed); // TODO: 26/07/17 cir27 - remove magic numbers
     }
 
-    public static Map<Integer, ServerYacht> getYachts() {
+    public Map<Integer, ServerYacht> getYachts() {
         return yachts;
     }
 
@@ -220,69 +374,159 @@ public class GameState implements Runnable {
      *
      * @return a playerID to be allocated to a new connetion
      */
-    public static Integer getUniquePlayerID() {
+    public Integer getUniquePlayerID() {
         // TODO: 22/07/17 wmu16 - This may not be robust enough and may have to be improved on.
         return yachts.size() + 1;
     }
 
 
     /**
-     * A thread to have the game state update itself at certain intervals
+     * Updates the game state at a fixed rate on its own thread until the game ends. Used when
+     * the game is the only one in the server, see {@link RaceHost} for running many games on a
+     * shared pool of threads.
      */
     @Override
     public void run() {
-
-        while (currentStage != GameStages.FINISHED) {
-            try {
-                Thread.sleep(1000 / STATE_UPDATES_PER_SECOND);
-            } catch (InterruptedException e) {
-                System.out.println("[GameState] interrupted exception");
-            }
-            if (currentStage == GameStages.PRE_RACE) {
-                update();
-                if (System.currentTimeMillis() > startTime) {
-                    startSpawningTokens();
-                    startUpdatingWind();
-                    GameState.currentStage = GameStages.RACING;
-                }
+        while (currentStage != GameStages.FINISHED && currentStage != GameStages.CANCELLED) {
+            long wait = runDueTicks();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
             }
-            if (currentStage == GameStages.RACING) {
-                update();
+        }
+    }
+
+    /**
+     * Runs every tick that has come due since the last call. Time is accumulated with
+     * System.nanoTime() and consumed in whole ticks, so every update advances the simulation by
+     * exactly the same step however late the caller is. If the game falls more than
+     * MAX_CATCH_UP_TICKS behind the extra time is dropped rather than run in a burst.
+     *
+     * @return The number of nanoseconds until the next tick is due
+     */
+    public synchronized long runDueTicks() {
+        Double tickSeconds = (double) tickNanos / TimeUnit.SECONDS.toNanos(1);
+        long now = System.nanoTime();
+        if (now < nextTick) {
+            return nextTick - now;
+        }
+
+        long ticksBehind = (now - nextTick) / tickNanos;
+        if (ticksBehind >= MAX_CATCH_UP_TICKS) {
+            long skipped = ticksBehind - MAX_CATCH_UP_TICKS + 1;
+            nextTick += skipped * tickNanos;
+            tickStats.recordSkippedTicks(skipped);
+        }
+
+        while (nextTick <= now && currentStage != GameStages.FINISHED
+            && currentStage != GameStages.CANCELLED) {
+            long tickStart = System.nanoTime();
+            tick(tickSeconds);
+            tickStats.recordTick(System.nanoTime() - tickStart, tickStart - nextTick);
+            nextTick += tickNanos;
+        }
+        if (currentStage == GameStages.FINISHED || currentStage == GameStages.CANCELLED) {
+            events.clear();
+        }
+
+        if (now >= nextStatsLog) {
+            logger.debug("Game loop " + tickStats);
+            nextStatsLog = now + TICK_STATS_LOG_INTERVAL;
+        }
+        return Math.max(0, nextTick - System.nanoTime());
+    }
+
+    /**
+     * Runs a single step of the game loop for the current stage.
+     *
+     * @param secondsElapsed The length of a tick in seconds
+     */
+    private void tick(Double secondsElapsed) {
+        applyPendingInputs();
+        events.advance();
+        if (currentStage == GameStages.PRE_RACE) {
+            update(secondsElapsed);
+            if (System.currentTimeMillis() > startTime) {
+                startSpawningTokens();
+                startUpdatingWind();
+                setCurrentStage(GameStages.RACING);
             }
+        } else if (currentStage == GameStages.RACING) {
+            update(secondsElapsed);
         }
     }
 
     /**
-     * Start spawning coins every 60s after the first minute
+     * Queues work that changes yachts or the collision grid to run on the game thread at the start
+     * of the next tick, after the client inputs queued before it. Safe to call from any thread.
+     *
+     * @param task The work to run
+     */
+    public void runOnTick(Runnable task) {
+        pendingInputs.add(task);
+    }
+
+    /**
+     * Applies every client input queued since the last tick, in the order they arrived.
+     */
+    private void applyPendingInputs() {
+        Runnable input;
+        while ((input = pendingInputs.poll()) != null) {
+            input.run();
+        }
+    }
+
+    /**
+     * Sets how many times a second the game state is updated. Must be called before a game is
+     * hosted.
+     *
+     * @param updatesPerSecond The number of ticks per second
+     */
+    public static void setTickRate(int updatesPerSecond) {
+        if (updatesPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive");
+        }
+        tickRate = updatesPerSecond;
+    }
+
+    public static int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return Timing of the game loop of this game
+     */
+    public TickStats getTickStats() {
+        return tickStats;
+    }
+
+    /**
+     * @param millis A length of time in game
+     * @return The number of ticks that make up the time, at least one
+     */
+    private long toTicks(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return Math.max(1, (nanos + tickNanos - 1) / tickNanos);
+    }
+
+    /**
+     * Start spawning a token every TOKEN_SPAWN_TIME ms from the start of the race
      */
     private void startSpawningTokens() {
-        Timer timer = new Timer("Token Spawning Timer");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (tokensEnabled) {
-                    spawnNewToken();
-                    notifyMessageListeners(MessageFactory.getRaceXML());
-                }
+        events.scheduleAtFixedRate(1, toTicks(TOKEN_SPAWN_TIME), () -> {
+            if (tokensEnabled) {
+                notifyMessageListeners(spawnNewToken());
             }
-        }, 0, TOKEN_SPAWN_TIME);
+        });
     }
 
-    // TODO: 29/08/17 wmu16 - This sort of update should be in game state
-    private static void startUpdatingWind() {
-        Timer timer = new Timer("Wind Updating Timer");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                updateWind();
-            }
-        }, 0, 500);
+    private void startUpdatingWind() {
+        events.scheduleAtFixedRate(1, toTicks(WIND_UPDATE_TIME), this::updateWind);
     }
 
 
-    private static void updateWind() {
-        Integer direction = GameState.getWindDirection().intValue();
-        Integer windSpeed = GameState.getWindSpeedMMS().intValue();
+    private void updateWind() {
+        Integer direction = getWindDirection().intValue();
+        Integer windSpeed = getWindSpeedMMS().intValue();
 
         Random random = new Random();
 
@@ -304,13 +548,30 @@ public class GameState implements Runnable {
             windSpeed += random.nextInt(500);
         }
 
-        GameState.windSpeed = Double.valueOf(windSpeed);
-        GameState.windDirection = direction.doubleValue();
+        this.windSpeed = Double.valueOf(windSpeed);
+        this.windDirection = direction.doubleValue();
     }
 
 
-    public static void updateBoat(Integer sourceId, BoatAction actionType) {
+    /**
+     * Queues a boat action from a client to be applied at the start of the next tick. Safe to call
+     * from any thread.
+     *
+     * @param sourceId The source ID of the yacht the action is for
+     * @param actionType The action the player took
+     */
+    public void updateBoat(Integer sourceId, BoatAction actionType) {
+        pendingInputs.add(() -> applyBoatAction(sourceId, actionType));
+    }
+
+    private void applyBoatAction(Integer sourceId, BoatAction actionType) {
+        if (sourceId == null) {
+            return;
+        }
         ServerYacht playerYacht = yachts.get(sourceId);
+        if (playerYacht == null) {
+            return;
+        }
         switch (actionType) {
             case VMG:
                 playerYacht.turnToVMG();
@@ -341,15 +602,21 @@ public class GameState implements Runnable {
 
     /**
      * Randomly select a subset of tokensInPlay from a pre defined superset
-     * Broadasts a new race status message to show this update
+     *
+     * @return A token update removing the tokens that were in play and spawning the new one
      */
-    private void spawnNewToken() {
+    private TokenUpdateMessage spawnNewToken() {
+        List<Token> despawned = new ArrayList<>(tokensInPlay);
         tokensInPlay.clear();
+        tokenGrid.clear();
         Token token = randomSpawn.getRandomToken();
+        token.setTokenId(nextTokenId++);
 //        token.assignType(TokenType.WIND_WALKER);
         logger.debug("Spawned token of type " + token.getTokenType());
         tokensInPlay.add(token);
-        MessageFactory.updateTokens(tokensInPlay);
+        tokenGrid.put(token, token);
+        messageFactory.updateTokens(tokensInPlay);
+        return new TokenUpdateMessage(despawned, Collections.singletonList(token));
     }
 
     /**
@@ -360,17 +627,16 @@ public class GameState implements Runnable {
      * -Checks for progression
      *
      * -Also checks things like the end of the race and race start time etc
+     *
+     * @param secondsElapsed The simulated time to advance by, in seconds
      */
-    public void update() {
+    public void update(Double secondsElapsed) {
         Boolean raceFinished = true;
 
-        Double timeInterval = (System.currentTimeMillis() - previousUpdateTime) / 1000000.0;
-        previousUpdateTime = System.currentTimeMillis();
-
         for (ServerYacht yacht : yachts.values()) {
-            updateVelocity(yacht);
+            updateVelocity(yacht, secondsElapsed);
             yacht.runAutoPilot();
-            yacht.updateLocation(timeInterval);
+            yacht.updateLocation(secondsElapsed);
             preformTokenUpdates(yacht); //This update must be done before collision. Sorta hacky
             checkCollision(yacht);
             if (yacht.getBoatStatus() != BoatStatus.FINISHED) {
@@ -380,7 +646,7 @@ public class GameState implements Runnable {
         }
 
         if (raceFinished) {
-            currentStage = GameStages.FINISHED;
+            setCurrentStage(GameStages.FINISHED);
         }
     }
 
@@ -395,12 +661,14 @@ public class GameState implements Runnable {
         Token collidedToken = checkTokenPickUp(yacht);
         if (collidedToken != null) {
             tokensInPlay.remove(collidedToken);
+            tokenGrid.remove(collidedToken);
+            messageFactory.updateTokens(tokensInPlay);
+            notifyMessageListeners(new TokenUpdateMessage(
+                Collections.singletonList(collidedToken), Collections.emptyList()
+            ));
             powerUpYacht(yacht, collidedToken);
-            MessageFactory.updateTokens(tokensInPlay);
-            notifyMessageListeners(MessageFactory.getRaceXML());
         }
 
-        checkPowerUpTimeout(yacht);
         TokenType powerUp = yacht.getPowerUp();
 
         if (powerUp != null) {
@@ -447,12 +715,12 @@ public class GameState implements Runnable {
         }
 
         thisYacht.powerUp(collidedToken.getTokenType());
+        schedulePowerDown(thisYacht);
         String logMessage =
             thisYacht.getBoatName() + " has picked up a " + collidedToken.getTokenType().getName()
                 + " token";
         notifyMessageListeners(
             MessageFactory.makeChatterMessage(thisYacht.getSourceId(), logMessage));
-        notifyMessageListeners(MessageFactory.getRaceXML());
         notifyMessageListeners(MessageFactory.makePickupMessage(thisYacht, collidedToken));
         logger.debug(
             "Yacht: " + thisYacht.getShortName() + " got powerup " + collidedToken.getTokenType());
@@ -478,29 +746,26 @@ public class GameState implements Runnable {
      */
     private void boatTempShutDown(ServerYacht yacht) {
         yacht.setPowerUpSpeedMultiplier(0d);
-        Timer shutDownTimer = new Timer("Shutdown Timer");
-        shutDownTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                yacht.powerDown();  //Note this actually resets the boat to normal.
-            }
-        }, BUMPER_DISABLE_TIME);
+        //Note this actually resets the boat to normal.
+        events.schedule(toTicks(BUMPER_DISABLE_TIME), yacht::powerDown);
     }
 
 
     /**
-     * Checks how long a powerup has been active for. If it has exceeded its timeout, it powers the
-     * yacht down.
+     * Powers the yacht down once the power up it has just picked up times out. Does nothing if
+     * the power up has already been lost or replaced by then.
      *
-     * @param yacht The yacht to check to power down
+     * @param yacht The yacht that has been powered up
      */
-    private void checkPowerUpTimeout(ServerYacht yacht) {
-        if (yacht.getPowerUp() != null) {
-            if (System.currentTimeMillis() - yacht.getPowerUpStartTime() > yacht.getPowerUp()
-                .getTimeout()) {
+    private void schedulePowerDown(ServerYacht yacht) {
+        TokenType powerUp = yacht.getPowerUp();
+        Long powerUpStartTime = yacht.getPowerUpStartTime();
+        events.schedule(toTicks(powerUp.getTimeout()), () -> {
+            if (yacht.getPowerUp() == powerUp
+                && powerUpStartTime.equals(yacht.getPowerUpStartTime())) {
                 powerDownYacht(yacht);
             }
-        }
+        });
     }
 
 
@@ -514,7 +779,6 @@ public class GameState implements Runnable {
         Double optimalAngle = PolarTable.getOptimalAngle();
         Double heading = yacht.getHeading();
         windDirection = (double) Math.floorMod(Math.round(heading + optimalAngle), 360L);
-        windDirectionProperty.set(windDirection);
     }
 
 
@@ -524,18 +788,14 @@ public class GameState implements Runnable {
      * @param yacht the yacht to be tested
      * @return a boolean value of if there is a boundary collision
      */
-    private static Boolean checkBoundaryCollision(ServerYacht yacht) {
-        for (int i = 0; i < courseLimit.size() - 1; i++) {
-            if (GeoUtility.checkCrossedLine(courseLimit.get(i), courseLimit.get(i + 1),
+    private Boolean checkBoundaryCollision(ServerYacht yacht) {
+        for (Integer i : boundaryGrid.getAlongSegment(yacht.getLastLocation(), yacht.getLocation())) {
+            if (courseProjection.checkCrossedLine(courseLimit.get(i),
+                courseLimit.get((i + 1) % courseLimit.size()),
                 yacht.getLastLocation(), yacht.getLocation()) != 0) {
                 return true;
             }
         }
-
-        if (GeoUtility.checkCrossedLine(courseLimit.get(courseLimit.size() - 1), courseLimit.get(0),
-            yacht.getLastLocation(), yacht.getLocation()) != 0) {
-            return true;
-        }
         return false;
     }
 
@@ -547,8 +807,8 @@ public class GameState implements Runnable {
      * @return The token collided with
      */
     private Token checkTokenPickUp(ServerYacht yacht) {
-        for (Token token : tokensInPlay) {
-            Double distance = GeoUtility.getDistance(token, yacht.getLocation());
+        for (Token token : tokenGrid.getNearby(yacht.getLocation(), YACHT_COLLISION_DISTANCE)) {
+            Double distance = courseProjection.getDistance(token, yacht.getLocation());
             if (distance < YACHT_COLLISION_DISTANCE) {
                 return token;
             }
@@ -569,7 +829,7 @@ public class GameState implements Runnable {
      *
      * @param serverYacht The server yacht to check collisions with
      */
-    public static void checkCollision(ServerYacht serverYacht) {
+    public void checkCollision(ServerYacht serverYacht) {
         //Yacht Collision
         ServerYacht collidedYacht = checkYachtCollision(serverYacht, false);
         Mark collidedMark = checkMarkCollision(serverYacht);
@@ -618,9 +878,17 @@ public class GameState implements Runnable {
     }
 
 
-    private void updateVelocity(ServerYacht yacht) {
-        Double trueWindAngle = Math.abs(windDirection - yacht.getHeading());
-        Double boatSpeedInKnots = PolarTable.getBoatSpeed(getWindSpeedKnots(), trueWindAngle);
+    /**
+     * Accelerates or decelerates the yacht towards the speed given by the polars. The changes are
+     * per tick at the default tick rate and scaled to other tick rates.
+     *
+     * @param yacht The yacht to update
+     * @param secondsElapsed The length of the tick in seconds
+     */
+    private void updateVelocity(ServerYacht yacht, Double secondsElapsed) {
+        Double tickScale = secondsElapsed * DEFAULT_TICK_RATE;
+        double trueWindAngle = Math.abs(windDirection - yacht.getHeading());
+        double boatSpeedInKnots = PolarTable.getBoatSpeed(getWindSpeedKnots(), trueWindAngle);
         Double maxBoatSpeed =
             GeoUtility.knotsToMMS(boatSpeedInKnots) * serverSpeedMultiplier * yacht
                 .getPowerUpSpeedMultiplier() * yacht.getBoatTypeSpeedMultiplier();
@@ -630,10 +898,10 @@ public class GameState implements Runnable {
         if (yacht.getSailIn()) {
             if (currentVelocity < maxBoatSpeed - 500) {
                 yacht.changeVelocity(
-                    (maxBoatSpeed / 100) * yacht.getBoatTypeAccelerationMultiplier());
+                    (maxBoatSpeed / 100) * yacht.getBoatTypeAccelerationMultiplier() * tickScale);
             } else if (currentVelocity > maxBoatSpeed + 500) {
                 yacht.changeVelocity(
-                    (-currentVelocity / 200) * yacht.getBoatTypeAccelerationMultiplier());
+                    (-currentVelocity / 200) * yacht.getBoatTypeAccelerationMultiplier() * tickScale);
             } else {
                 yacht
                     .setCurrentVelocity((maxBoatSpeed) * yacht.getBoatTypeAccelerationMultiplier());
@@ -641,10 +909,10 @@ public class GameState implements Runnable {
         } else {
             if (currentVelocity > 3000) {
                 yacht.changeVelocity(
-                    (-currentVelocity / 200) * yacht.getBoatTypeAccelerationMultiplier());
+                    (-currentVelocity / 200) * yacht.getBoatTypeAccelerationMultiplier() * tickScale);
             } else if (currentVelocity > 100) {
                 yacht.changeVelocity(
-                    (-currentVelocity / 50) * yacht.getBoatTypeAccelerationMultiplier());
+                    (-currentVelocity / 50) * yacht.getBoatTypeAccelerationMultiplier() * tickScale);
             } else if (currentVelocity <= 100) {
                 yacht.setCurrentVelocity(0d);
             }
@@ -668,8 +936,8 @@ public class GameState implements Runnable {
         if (currentMark.isGate()) {
             Mark sub1 = currentMark.getSubMark(1);
             Mark sub2 = currentMark.getSubMark(2);
-            Double distance1 = GeoUtility.getDistance(location, sub1);
-            Double distance2 = GeoUtility.getDistance(location, sub2);
+            Double distance1 = courseProjection.getDistance(location, sub1);
+            Double distance2 = courseProjection.getDistance(location, sub2);
             if (distance1 < distance2) {
                 yacht.setClosestCurrentMark(sub1);
                 return distance1;
@@ -679,7 +947,7 @@ public class GameState implements Runnable {
             }
         } else {
             yacht.setClosestCurrentMark(currentMark.getSubMark(1));
-            return GeoUtility.getDistance(location, currentMark.getSubMark(1));
+            return courseProjection.getDistance(location, currentMark.getSubMark(1));
         }
     }
 
@@ -744,9 +1012,9 @@ public class GameState implements Runnable {
         Mark mark2 = currentMark.getSubMark(2);
         CompoundMark nextMark = markOrder.getNextMark(currentMarkSeqID);
 
-        Integer crossedLine = GeoUtility.checkCrossedLine(mark1, mark2, lastLocation, location);
+        Integer crossedLine = courseProjection.checkCrossedLine(mark1, mark2, lastLocation, location);
         if (crossedLine > 0) {
-            Boolean isClockwiseCross = GeoUtility.isClockwise(mark1, mark2, nextMark.getMidPoint());
+            Boolean isClockwiseCross = courseProjection.isClockwise(mark1, mark2, nextMark.getMidPoint());
             if (crossedLine == 2 && isClockwiseCross || crossedLine == 1 && !isClockwiseCross) {
                 yacht.setClosestCurrentMark(mark1);
                 yacht.setBoatStatus(BoatStatus.RACING);
@@ -783,7 +1051,7 @@ public class GameState implements Runnable {
 
         //In case current mark is a gate, loop through all marks just in case
         for (Mark thisCurrentMark : currentMark.getMarks()) {
-            if (GeoUtility.isPointInTriangle(lastLocation, location, midPoint, thisCurrentMark)) {
+            if (courseProjection.isPointInTriangle(lastLocation, location, midPoint, thisCurrentMark)) {
                 yacht.setHasPassedLine(true);
             }
         }
@@ -808,11 +1076,11 @@ public class GameState implements Runnable {
         CompoundMark prevMark = markOrder.getPreviousMark(currentMarkSeqID);
         CompoundMark nextMark = markOrder.getNextMark(currentMarkSeqID);
 
-        Integer crossedLine = GeoUtility.checkCrossedLine(mark1, mark2, lastLocation, location);
+        Integer crossedLine = courseProjection.checkCrossedLine(mark1, mark2, lastLocation, location);
 
         //We have crossed the line
         if (crossedLine > 0) {
-            Boolean isClockwiseCross = GeoUtility.isClockwise(mark1, mark2, prevMark.getMidPoint());
+            Boolean isClockwiseCross = courseProjection.isClockwise(mark1, mark2, prevMark.getMidPoint());
 
             //Check we cross the line in the correct direction
             if (crossedLine == 1 && isClockwiseCross || crossedLine == 2 && !isClockwiseCross) {
@@ -820,8 +1088,8 @@ public class GameState implements Runnable {
             }
         }
 
-        Boolean prevMarkSide = GeoUtility.isClockwise(mark1, mark2, prevMark.getMidPoint());
-        Boolean nextMarkSide = GeoUtility.isClockwise(mark1, mark2, nextMark.getMidPoint());
+        Boolean prevMarkSide = courseProjection.isClockwise(mark1, mark2, prevMark.getMidPoint());
+        Boolean nextMarkSide = courseProjection.isClockwise(mark1, mark2, nextMark.getMidPoint());
 
         if (yacht.hasPassedThroughGate()) {
             //Check if we need to round this gate after passing through
@@ -850,9 +1118,9 @@ public class GameState implements Runnable {
         Mark mark2 = currentMark.getSubMark(2);
         CompoundMark prevMark = markOrder.getPreviousMark(currentMarkSeqID);
 
-        Integer crossedLine = GeoUtility.checkCrossedLine(mark1, mark2, lastLocation, location);
+        Integer crossedLine = courseProjection.checkCrossedLine(mark1, mark2, lastLocation, location);
         if (crossedLine > 0) {
-            Boolean isClockwiseCross = GeoUtility.isClockwise(mark1, mark2, prevMark.getMidPoint());
+            Boolean isClockwiseCross = courseProjection.isClockwise(mark1, mark2, prevMark.getMidPoint());
             if (crossedLine == 1 && isClockwiseCross || crossedLine == 2 && !isClockwiseCross) {
                 yacht.setClosestCurrentMark(mark1);
                 yacht.setBoatStatus(BoatStatus.FINISHED);
@@ -868,15 +1136,27 @@ public class GameState implements Runnable {
     }
 
     /**
-     * Handles player customization.
+     * Queues a player customization to be applied at the start of the next tick, after which the
+     * customization flag is set. Safe to call from any thread.
      *
      * @param playerID The ID of the player being modified.
      * @param requestType the type of player customization the player wants
      * @param customizeData the data related to the customization (color, name, shape)
      */
-    public static void customizePlayer(long playerID, CustomizeRequestType requestType,
+    public void customizePlayer(long playerID, CustomizeRequestType requestType,
+        byte[] customizeData) {
+        pendingInputs.add(() -> {
+            applyCustomization(playerID, requestType, customizeData);
+            setCustomizationFlag();
+        });
+    }
+
+    private void applyCustomization(long playerID, CustomizeRequestType requestType,
         byte[] customizeData) {
         ServerYacht playerYacht = yachts.get((int) playerID);
+        if (playerYacht == null) {
+            return;
+        }
 
         if (requestType.equals(CustomizeRequestType.NAME)) {
             String name = new String(customizeData);
@@ -886,18 +1166,17 @@ public class GameState implements Runnable {
             int red = customizeData[0] & 0xFF;
             int green = customizeData[1] & 0xFF;
             int blue = customizeData[2] & 0xFF;
-            Color yachtColor = Color.rgb(red, green, blue);
-            playerYacht.setBoatColor(yachtColor);
+            // Same format as a JavaFX Color so clients can read it back from the boat XML
+            playerYacht.setBoatColor(String.format("0x%02x%02x%02xff", red, green, blue));
         } else if (requestType.equals(CustomizeRequestType.SHAPE)) {
             String type = new String(customizeData);
             playerYacht.setBoatType(BoatMeshType.valueOf(type));
         }
     }
 
-    private static Mark checkMarkCollision(ServerYacht yacht) {
-        Set<Mark> marksInRace = new HashSet<>(marks);
-        for (Mark mark : marksInRace) {
-            if (GeoUtility.getDistance(yacht.getLocation(), mark)
+    private Mark checkMarkCollision(ServerYacht yacht) {
+        for (Mark mark : markGrid.getNearby(yacht.getLocation(), MARK_COLLISION_DISTANCE)) {
+            if (courseProjection.getDistance(yacht.getLocation(), mark)
                 <= MARK_COLLISION_DISTANCE) {
                 return mark;
             }
@@ -910,13 +1189,13 @@ public class GameState implements Runnable {
      *
      * @return The boats new position
      */
-    private static GeoPoint calculateBounceBack(ServerYacht yacht, GeoPoint collidedWith,
+    private GeoPoint calculateBounceBack(ServerYacht yacht, GeoPoint collidedWith,
         Double bounceDistance) {
-        Double heading = GeoUtility.getBearing(yacht.getLastLocation(), collidedWith);
+        Double heading = courseProjection.getBearing(yacht.getLastLocation(), collidedWith);
         // Invert heading
         heading -= 180;
         Integer newHeading = Math.floorMod(heading.intValue(), 360);
-        return GeoUtility
+        return courseProjection
             .getGeoCoordinate(yacht.getLocation(), newHeading.doubleValue(), bounceDistance);
     }
 
@@ -930,13 +1209,13 @@ public class GameState implements Runnable {
      *
      * @return yacht to compare to all other yachts.
      */
-    private static ServerYacht checkYachtCollision(ServerYacht yacht, Boolean forBumperCollision) {
+    private ServerYacht checkYachtCollision(ServerYacht yacht, Boolean forBumperCollision) {
         Double collisionDistance =
             (forBumperCollision) ? YACHT_COLLISION_DISTANCE + 2.5 : YACHT_COLLISION_DISTANCE;
 
-        for (ServerYacht otherYacht : GameState.getYachts().values()) {
+        for (ServerYacht otherYacht : yachtGrid.getNearby(yacht.getLocation(), collisionDistance)) {
             if (otherYacht != yacht) {
-                Double distance = GeoUtility
+                Double distance = courseProjection
                     .getDistance(otherYacht.getLocation(), yacht.getLocation());
                 ;
                 if (distance < collisionDistance) {
@@ -962,7 +1241,7 @@ public class GameState implements Runnable {
         notifyMessageListeners(markRoundingMessage);
     }
 
-    private static void notifyMessageListeners(Message message) {
+    private void notifyMessageListeners(Message message) {
         for (NewMessageListener ml : newMessageListeners) {
             ml.notify(message);
         }
@@ -975,7 +1254,18 @@ public class GameState implements Runnable {
                 roundingMark.getSourceID()));
     }
 
-    public static void processChatter(ChatterMessage chatterMessage, boolean isHost) {
+    /**
+     * Queues a chat message from a client to be handled at the start of the next tick, as host
+     * commands can change the game. Safe to call from any thread.
+     *
+     * @param chatterMessage The message sent by the client
+     * @param isHost true if the client is the host, and so can use commands
+     */
+    public void processChatter(ChatterMessage chatterMessage, boolean isHost) {
+        pendingInputs.add(() -> applyChatter(chatterMessage, isHost));
+    }
+
+    private void applyChatter(ChatterMessage chatterMessage, boolean isHost) {
         String chatterText = chatterMessage.getMessage();
         String[] words = chatterText.split("\\s+");
         if (words.length > 2 && isHost) {
@@ -1002,31 +1292,31 @@ public class GameState implements Runnable {
         notifyMessageListeners(chatterMessage);
     }
 
-    public static void addMessageEventListener(NewMessageListener listener) {
+    public void addMessageEventListener(NewMessageListener listener) {
         newMessageListeners.add(listener);
     }
 
-    public static void setCustomizationFlag() {
+    public void setCustomizationFlag() {
         customizationFlag = true;
     }
 
-    public static Boolean getCustomizationFlag() {
+    public Boolean getCustomizationFlag() {
         return customizationFlag;
     }
 
-    public static void resetCustomizationFlag() {
+    public void resetCustomizationFlag() {
         customizationFlag = false;
     }
 
-    public static void setPlayerHasLeftFlag(Boolean flag) {
+    public void setPlayerHasLeftFlag(Boolean flag) {
         playerHasLeftFlag = flag;
     }
 
-    public static Boolean getPlayerHasLeftFlag() {
+    public Boolean getPlayerHasLeftFlag() {
         return playerHasLeftFlag;
     }
 
-    public static Integer getNumberOfPlayers(){
+    public Integer getNumberOfPlayers(){
         Integer numPlayers = 1;
 
         for(Player p : getPlayers()){
@@ -1038,34 +1328,24 @@ public class GameState implements Runnable {
         return numPlayers;
     }
 
-    public static Integer getCapacity(){
+    public Integer getCapacity(){
         return maxPlayers;
     }
 
-    public static void setMaxPlayers(Integer newMax){
+    public void setMaxPlayers(Integer newMax){
         maxPlayers = newMax;
-
-        try {
-            ServerAdvertiser.getInstance().setCapacity(newMax);
-        } catch (IOException e) {
-            logger.warn("Couldn't update max players");
-        }
     }
 
-    public static void endRace () {
+    public void endRace () {
         yachts.forEach((id, yacht) -> yacht.setBoatStatus(BoatStatus.FINISHED));
-        currentStage = GameStages.FINISHED;
+        setCurrentStage(GameStages.FINISHED);
     }
 
-    public static double getServerSpeedMultiplier() {
+    public double getServerSpeedMultiplier() {
         return serverSpeedMultiplier;
     }
 
-    public static void setTokensEnabled (boolean tokensEnabled) {
-        GameState.tokensEnabled = tokensEnabled;
-    }
-
-    public static ReadOnlyDoubleWrapper getWindDirectionProperty() {
-        return windDirectionProperty;
+    public void setTokensEnabled (boolean tokensEnabled) {
+        this.tokensEnabled = tokensEnabled;
     }
 }
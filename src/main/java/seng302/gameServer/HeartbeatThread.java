@@ -1,9 +1,7 @@
 package seng302.gameServer;
 
-import java.io.IOException;
+import java.util.List;
 import java.util.Stack;
-import java.util.Timer;
-import java.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.model.Player;
@@ -11,26 +9,24 @@ import seng302.gameServer.messages.Heartbeat;
 import seng302.gameServer.messages.Message;
 
 /**
- * Send Heartbeat messages to connected player at a specified interval
- * Will call .clientDisconnected on the delegate when a heartbeat message
+ * Send Heartbeat messages to connected players, run every few hundred ms by the race that owns
+ * the connections. Will call .clientDisconnected on the delegate when a heartbeat message
  * cannot be sent to a player
  */
 public class HeartbeatThread implements Runnable {
 
     private Logger logger = LoggerFactory.getLogger(HeartbeatThread.class);
 
-    private final int HEARTBEAT_PERIOD = 200;
     private ClientConnectionDelegate delegate;
+    private List<ClientConnection> connections;
     private Integer seqNum;
     private Stack<Player> disconnectedPlayers;
 
-    public HeartbeatThread(ClientConnectionDelegate delegate){
+    public HeartbeatThread(ClientConnectionDelegate delegate, List<ClientConnection> connections){
         this.delegate =  delegate;
+        this.connections = connections;
         seqNum = 0;
         disconnectedPlayers = new Stack<>();
-
-        Thread thread = new Thread(this, "HeartBeat");
-        thread.start();
     }
 
     /**
@@ -51,13 +47,12 @@ public class HeartbeatThread implements Runnable {
     private void sendHeartbeatToAllPlayers(){
         try {
             Message heartbeat = new Heartbeat(seqNum);
-            for (Player player : GameState.getPlayers()) {
-                if (!player.getSocket().isConnected()) {
-                    playerLostConnection(player);
+            for (ClientConnection connection : connections) {
+                Player player = connection.getPlayer();
+                if (player == null) {
+                    continue;
                 }
-                try {
-                    player.getSocket().getOutputStream().write(heartbeat.getBuffer());
-                } catch (IOException e) {
+                if (!player.getSocket().isConnected() || !connection.sendMessage(heartbeat)) {
                     playerLostConnection(player);
                 }
             }
@@ -79,12 +74,6 @@ public class HeartbeatThread implements Runnable {
     }
 
     public void run(){
-        Timer t = new Timer();
-        t.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                sendHeartbeatToAllPlayers();
-            }
-        }, 0, HEARTBEAT_PERIOD);
+        sendHeartbeatToAllPlayers();
     }
 }
@@ -3,6 +3,7 @@ package seng302.gameServer;
 import java.util.ArrayList;
 import java.util.List;
 import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.BoatState;
 import seng302.gameServer.messages.BoatSubMessage;
 import seng302.gameServer.messages.ChatterMessage;
 import seng302.gameServer.messages.RaceStartNotificationType;
@@ -23,29 +24,35 @@ import seng302.model.stream.xml.parser.RegattaXMLData;
 import seng302.model.token.Token;
 import seng302.model.token.TokenType;
 import seng302.utilities.XMLGenerator;
+import seng302.utilities.XMLGenerator.RaceSection;
 
 /**
- * A Class for interfacing between the data we have in the GameState to the messages we need to send
- * through the MainServerThread.
- *
- * WARNING DO NOT USE THIS CLASS IF GAMESTATE HAS NOT BEEN INSTANTIATED. (Main Server has not started)
- * // TODO: 29/08/17 wmu16 - Make GameState non static to fix this ¯\_(ツ)_/¯
+ * A Class for interfacing between the data we have in a GameState to the messages we need to send
+ * through the server. Each game has its own factory holding the XML for its race, the messages that
+ * don't depend on a game are static.
  * Created by wmu16 on 29/08/17.
  */
-
-/*
-Ideally this class would be created with an instance of the GameState (I tried implementing this for
- a bit) but it was too difficult to properly make GameState non static without doing some proper
- re working. To do later.
- */
 public class MessageFactory {
 
-    private static XMLGenerator xmlGenerator = new XMLGenerator();
-    private static XMLMessage race;
-    private static XMLMessage regatta;
-    private static XMLMessage boats;
+    private final GameState gameState;
+    private final XMLGenerator xmlGenerator = new XMLGenerator();
+
+    /**
+     * The rendered sections of the race XML. The header and course are rendered once per race,
+     * participants and tokens again only when the boats or tokens change.
+     */
+    private final String[] raceSections = new String[RaceSection.values().length];
+    private XMLMessage race;
+    private XMLMessage regatta;
+    private XMLMessage boats;
+    private boolean boatsChanged = false;
+    private boolean tokensChanged = false;
 
-    public static void updateXMLGenerator(RaceXMLData race, RegattaXMLData regatta) {
+    MessageFactory(GameState gameState) {
+        this.gameState = gameState;
+    }
+
+    public synchronized void updateXMLGenerator(RaceXMLData race, RegattaXMLData regatta) {
         xmlGenerator.setRegattaTemplate(
             new RegattaXMLTemplate(
                 regatta.getRegattaName(),
@@ -61,45 +68,60 @@ public class MessageFactory {
                 race.getMarkSequence(),
                 race.getCourseLimit(),
                 new ArrayList<>(race.getCompoundMarks().values()),
-                GameState.getCapacity(), true
+                gameState.getCapacity(), true
             )
         );
-        String xmlStr = xmlGenerator.getRaceAsXml();
-        MessageFactory.race = new XMLMessage(xmlStr, XMLMessageSubType.RACE, xmlStr.length());
-        xmlStr = xmlGenerator.getRegattaAsXml();
-        MessageFactory.regatta = new XMLMessage(xmlStr, XMLMessageSubType.REGATTA, xmlStr.length());
-        xmlStr = xmlGenerator.getBoatsAsXml();
-        MessageFactory.boats = new XMLMessage(xmlStr, XMLMessageSubType.BOAT, xmlStr.length());
+        for (RaceSection section : RaceSection.values()) {
+            raceSections[section.ordinal()] = xmlGenerator.getRaceSectionAsXml(section);
+        }
+        this.race = makeXMLMessage(XMLGenerator.joinRaceSections(raceSections), XMLMessageSubType.RACE);
+        this.regatta = makeXMLMessage(xmlGenerator.getRegattaAsXml(), XMLMessageSubType.REGATTA);
+        this.boats = makeXMLMessage(xmlGenerator.getBoatsAsXml(), XMLMessageSubType.BOAT);
+        boatsChanged = false;
+        tokensChanged = false;
     }
 
-    public static void updateBoats(List<ServerYacht> yachts) {
+    /**
+     * Sets the boats of the race. The boat XML and race participants are generated again the next
+     * time they are asked for.
+     *
+     * @param yachts The yachts in the race
+     */
+    public synchronized void updateBoats(List<ServerYacht> yachts) {
         xmlGenerator.getRace().setBoats(yachts);
-        String xmlStr = xmlGenerator.getBoatsAsXml();
-        MessageFactory.boats = new XMLMessage(xmlStr, XMLMessageSubType.BOAT, xmlStr.length());
+        boatsChanged = true;
     }
 
-    public static void updateTokens(List<Token> tokens) {
+    /**
+     * Sets the tokens of the race. Only the tokens section of the race XML is generated again,
+     * the next time it is asked for.
+     *
+     * @param tokens The tokens in play
+     */
+    public synchronized void updateTokens(List<Token> tokens) {
         xmlGenerator.getRace().setTokens(tokens);
-        String xmlStr = xmlGenerator.getRaceAsXml();
-        MessageFactory.race = new XMLMessage(xmlStr, XMLMessageSubType.RACE, xmlStr.length());
+        tokensChanged = true;
     }
 
+    private static XMLMessage makeXMLMessage(String xmlStr, XMLMessageSubType type) {
+        return new XMLMessage(xmlStr, type, xmlStr.length());
+    }
 
-    public static RaceStartStatusMessage getRaceStartStatusMessage() {
+    public RaceStartStatusMessage getRaceStartStatusMessage() {
         return new RaceStartStatusMessage(
             1,
-            GameState.getStartTime(),
+            gameState.getStartTime(),
             1,
             RaceStartNotificationType.SET_RACE_START_TIME);
     }
 
-    public static RaceStatusMessage getRaceStatusMessage() {
+    public RaceStatusMessage getRaceStatusMessage() {
         // variables taken from GameServerThread
 
         List<BoatSubMessage> boatSubMessages = new ArrayList<>();
         RaceStatus raceStatus;
 
-        for (Player player : GameState.getPlayers()) {
+        for (Player player : gameState.getPlayers()) {
             ServerYacht y = player.getYacht();
             BoatSubMessage m = new BoatSubMessage(y.getSourceId(), y.getBoatStatus(),
                 y.getLegNumber(),
@@ -108,11 +130,11 @@ public class MessageFactory {
             boatSubMessages.add(m);
         }
 
-        long timeTillStart = System.currentTimeMillis() - GameState.getStartTime();
+        long timeTillStart = System.currentTimeMillis() - gameState.getStartTime();
 
-        if (GameState.getCurrentStage() == GameStages.LOBBYING) {
+        if (gameState.getCurrentStage() == GameStages.LOBBYING) {
             raceStatus = RaceStatus.PRESTART;
-        } else if (GameState.getCurrentStage() == GameStages.PRE_RACE) {
+        } else if (gameState.getCurrentStage() == GameStages.PRE_RACE) {
             raceStatus = RaceStatus.PRESTART;
 
             if (timeTillStart > GameState.WARNING_TIME) {
@@ -126,9 +148,9 @@ public class MessageFactory {
             raceStatus = RaceStatus.STARTED;
         }
 
-        return new RaceStatusMessage(1, raceStatus, GameState.getStartTime(),
-            GameState.getWindDirection(),
-            GameState.getWindSpeedMMS().longValue(), GameState.getPlayers().size(),
+        return new RaceStatusMessage(1, raceStatus, gameState.getStartTime(),
+            gameState.getWindDirection(),
+            gameState.getWindSpeedMMS().longValue(), gameState.getPlayers().size(),
             RaceType.MATCH_RACE, 1, boatSubMessages);
     }
 
@@ -142,18 +164,58 @@ public class MessageFactory {
             yacht.getCurrentVelocity().longValue());
     }
 
-    public static XMLMessage getRaceXML() {
+    public static BoatState getBoatState(ServerYacht yacht) {
+        return new BoatState(
+            yacht.getSourceId(),
+            yacht.getLocation().getLat(),
+            yacht.getLocation().getLng(),
+            yacht.getHeading(),
+            yacht.getCurrentVelocity().longValue());
+    }
+
+    /**
+     * @return The race XML, with any sections that have changed since it was last asked for
+     * generated again
+     */
+    public synchronized XMLMessage getRaceXML() {
+        refreshChangedXML();
         return race;
     }
 
-    public static XMLMessage getRegattaXML() {
-       return regatta;
+    public synchronized XMLMessage getRegattaXML() {
+        return regatta;
     }
 
-    public static XMLMessage getBoatXML() {
+    /**
+     * @return The boat XML, generated again if the boats have changed since it was last asked for
+     */
+    public synchronized XMLMessage getBoatXML() {
+        refreshChangedXML();
         return boats;
     }
 
+    /**
+     * Generates the sections that depend on changed boats or tokens and encodes the messages
+     * containing them again, keeping the messages already made when nothing has changed.
+     */
+    private void refreshChangedXML() {
+        if (!boatsChanged && !tokensChanged) {
+            return;
+        }
+        if (boatsChanged) {
+            raceSections[RaceSection.PARTICIPANTS.ordinal()] =
+                xmlGenerator.getRaceSectionAsXml(RaceSection.PARTICIPANTS);
+            boats = makeXMLMessage(xmlGenerator.getBoatsAsXml(), XMLMessageSubType.BOAT);
+        }
+        if (tokensChanged) {
+            raceSections[RaceSection.TOKENS.ordinal()] =
+                xmlGenerator.getRaceSectionAsXml(RaceSection.TOKENS);
+        }
+        race = makeXMLMessage(XMLGenerator.joinRaceSections(raceSections), XMLMessageSubType.RACE);
+        boatsChanged = false;
+        tokensChanged = false;
+    }
+
     public static YachtEventCodeMessage makeCollisionMessage(ServerYacht serverYacht) {
         return new YachtEventCodeMessage(serverYacht.getSourceId(), YachtEventType.COLLISION);
     }
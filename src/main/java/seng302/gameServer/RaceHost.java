@@ -0,0 +1,166 @@
+package seng302.gameServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.model.PolarTable;
+
+/**
+ * Runs many races in one server. Every race listens on its own port but all of them share one
+ * selector thread for their clients and a fixed size pool of threads for their game loops and
+ * client updates, so the number of threads does not grow with the number of races.
+ *
+ * The work of each race is measured so the CPU time and memory of every race can be seen with
+ * {@link RaceInstance#getUsage()}, and in the race's metrics alongside its tick times and
+ * traffic.
+ */
+public class RaceHost {
+
+    private Logger logger = LoggerFactory.getLogger(RaceHost.class);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final SelectorServerThread transport;
+    private final Map<RaceInstance, HostedRace> races = new ConcurrentHashMap<>();
+
+    /**
+     * A race and everything the host has running for it.
+     */
+    private class HostedRace {
+        private final RaceInstance race;
+        private final ServerSocketChannel serverChannel;
+        private ScheduledFuture<?> gameLoop;
+        private ScheduledFuture<?> clientUpdates;
+
+        private HostedRace(RaceInstance race, ServerSocketChannel serverChannel) {
+            this.race = race;
+            this.serverChannel = serverChannel;
+        }
+
+        private void runGameTicks() {
+            try {
+                race.getUsage().measure(() -> race.getGameState().runDueTicks());
+            } catch (Exception e) {
+                logger.error("Game loop of race on port " + race.getPortNumber() + " failed", e);
+                closeRace(race);
+            }
+        }
+
+        private void serviceClients() {
+            try {
+                race.getUsage().measure(race::serviceTick);
+            } catch (Exception e) {
+                logger.error("Client updates of race on port " + race.getPortNumber() + " failed",
+                    e);
+                race.terminate();
+            }
+            if (race.isTerminated()) {
+                closeRace(race);
+            }
+        }
+    }
+
+    /**
+     * Creates a host with a thread for each available processor.
+     *
+     * @throws IOException If the selector for the clients can not be opened
+     */
+    public RaceHost() throws IOException {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads The number of threads shared between the races
+     * @throws IOException If the selector for the clients can not be opened
+     */
+    public RaceHost(int threads) throws IOException {
+        // The polars are shared by every race so are only parsed once
+        PolarTable.parsePolarFile(getClass().getResourceAsStream("/server_config/acc_polars.csv"));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads,
+            runnable -> new Thread(runnable, "RaceHost-" + threadCount.incrementAndGet()));
+        executor.setRemoveOnCancelPolicy(true);
+        transport = new SelectorServerThread();
+    }
+
+    /**
+     * Opens a new race. The first client to connect becomes its host and sends the course, as for
+     * a {@link MainServerThread}.
+     *
+     * @param port The port for clients to connect on, 0 for any free port
+     * @return The new race
+     * @throws IOException If the port can not be listened on
+     */
+    public RaceInstance openRace(int port) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        RaceInstance race = new RaceInstance(serverChannel.socket().getLocalPort(), false);
+        HostedRace hostedRace = new HostedRace(race, serverChannel);
+        races.put(race, hostedRace);
+
+        long tickNanos = TimeUnit.SECONDS.toNanos(1) / GameState.getTickRate();
+        long updateNanos = TimeUnit.SECONDS.toNanos(1) / RaceInstance.CLIENT_UPDATES_PER_SECOND;
+        hostedRace.gameLoop = executor.scheduleAtFixedRate(
+            hostedRace::runGameTicks, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        hostedRace.clientUpdates = executor.scheduleAtFixedRate(
+            hostedRace::serviceClients, updateNanos, updateNanos, TimeUnit.NANOSECONDS);
+
+        transport.addServerChannel(serverChannel, race);
+        logger.debug("Opened race on port " + race.getPortNumber());
+        return race;
+    }
+
+    /**
+     * Ends a race, disconnecting its clients and freeing its port.
+     *
+     * @param race The race to close
+     */
+    public void closeRace(RaceInstance race) {
+        HostedRace hostedRace = races.remove(race);
+        if (hostedRace == null) {
+            return;
+        }
+        if (hostedRace.gameLoop != null) {
+            hostedRace.gameLoop.cancel(false);
+        }
+        if (hostedRace.clientUpdates != null) {
+            hostedRace.clientUpdates.cancel(false);
+        }
+        race.terminate();
+        try {
+            transport.removeServerChannel(hostedRace.serverChannel);
+        } catch (IOException e) {
+            logger.warn("IO error closing race on port " + race.getPortNumber());
+        }
+        logger.debug("Closed race on port " + race.getPortNumber() + ", " + race.getUsage());
+    }
+
+    /**
+     * @return Every race currently open
+     */
+    public List<RaceInstance> getRaces() {
+        return new ArrayList<>(races.keySet());
+    }
+
+    /**
+     * Closes every race and stops the shared threads.
+     */
+    public void shutdown() {
+        for (RaceInstance race : getRaces()) {
+            closeRace(race);
+        }
+        executor.shutdownNow();
+        transport.terminate();
+    }
+}
@@ -0,0 +1,592 @@
+package seng302.gameServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import seng302.gameServer.messages.BoatLocationBatchMessage;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.ClientCapability;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.TokenUpdateMessage;
+import seng302.gameServer.metrics.MetricsRegistry;
+import seng302.gameServer.metrics.RaceMetrics;
+import seng302.gameServer.recording.RaceRecorder;
+import seng302.model.GeoPoint;
+import seng302.model.Player;
+import seng302.model.ServerYacht;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.model.stream.xml.parser.RegattaXMLData;
+import seng302.utilities.GeoUtility;
+import seng302.utilities.Housekeeping;
+import seng302.utilities.XMLParser;
+
+/**
+ * A single race, or room, on a game server. Owns the GameState of the race and the clients playing
+ * in it, and sends the clients everything they need to follow the race.
+ *
+ * A race has no threads of its own. Whoever hosts it calls {@link GameState#runDueTicks()} to
+ * advance the game and {@link #serviceTick()} CLIENT_UPDATES_PER_SECOND times a second to talk
+ * to the clients, either a {@link MainServerThread} for a single race or a {@link RaceHost} for many.
+ */
+public class RaceInstance implements ClientConnectionDelegate {
+
+    static final Integer CLIENT_UPDATES_PER_SECOND = 60;
+    private static final long HEARTBEAT_PERIOD = 200;
+    private static final long RACE_STATUS_PERIOD = 500;
+    //Time to let clients receive the closing race status before the race is closed
+    private static final long FINISH_LINGER_TIME = 1000;
+
+    private Logger logger = LoggerFactory.getLogger(RaceInstance.class);
+
+    private final int portNumber;
+    private final boolean advertised;
+    private final GameState gameState = new GameState();
+    private final RaceUsage usage = new RaceUsage();
+    private final RaceMetrics metrics;
+    private List<ClientConnection> clientConnections = new CopyOnWriteArrayList<>();
+    private BoatStateDeltaEncoder boatStateDeltaEncoder = new BoatStateDeltaEncoder();
+    private HeartbeatThread heartbeat = new HeartbeatThread(this, clientConnections);
+    private volatile RaceRecorder recorder;
+    private RaceXMLData raceXMLData;
+    private RegattaXMLData regattaXMLData;
+
+    private volatile boolean terminated = false;
+    private volatile boolean raceStarted = false;
+    private volatile boolean courseSet = false;
+    private long nextHeartbeat = 0;
+    private long nextRaceStatus = 0;
+    private long finishedAt = 0;
+
+    /**
+     * @param portNumber The port clients connect to this race on
+     * @param advertised true if the race is advertised with the {@link ServerAdvertiser}. There is
+     * one advertisement per server so only one race in a server can be advertised.
+     */
+    public RaceInstance(int portNumber, boolean advertised) {
+        this.portNumber = portNumber;
+        this.advertised = advertised;
+        gameState.addMessageEventListener(this::broadcastGameMessage);
+        metrics = new RaceMetrics(this);
+        gameState.addStageListener(metrics::stageChanged);
+        MetricsRegistry.getInstance().registerRace(metrics);
+    }
+
+    private void startAdvertisingServer() {
+        if (!advertised) {
+            return;
+        }
+        Integer capacity = gameState.getCapacity();
+        Integer numPlayers = gameState.getNumberOfPlayers();
+        Integer spacesLeft = capacity - numPlayers;
+
+        // No spaces left on server
+        if (spacesLeft < 1) {
+            return;
+        }
+
+        // Start advertising server
+        try {
+            ServerAdvertiser.getInstance()
+                .setMapName(regattaXMLData.getCourseName())
+                .setCapacity(capacity)
+                .setNumberOfPlayers(numPlayers - 1)
+                .registerGame(portNumber, regattaXMLData.getRegattaName());
+        } catch (IOException e) {
+            logger.warn("Could not register server");
+        }
+    }
+
+    /**
+     * Updates the advertisement in the background, as creating the advertiser the first time can
+     * take a while and clients connect on the thread serving every client.
+     */
+    private void updateAdvertisedPlayers() {
+        if (!advertised) {
+            return;
+        }
+        Housekeeping.getExecutor().execute(() -> {
+            try {
+                ServerAdvertiser.getInstance().setNumberOfPlayers(gameState.getNumberOfPlayers());
+            } catch (IOException e) {
+                logger.warn("Couldn't update advertisement");
+            }
+        });
+    }
+
+    private void startServer() {
+        MessageFactory messageFactory = gameState.getMessageFactory();
+        messageFactory.updateXMLGenerator(raceXMLData, regattaXMLData);
+        gameState.setRace(raceXMLData);
+        messageFactory.updateBoats(new ArrayList<>(gameState.getYachts().values()));
+        courseSet = true;
+        startAdvertisingServer();
+        sendSetupMessages();
+    }
+
+    /**
+     * Does one round of the work for the clients of this race. Removes clients that have left,
+     * sends heartbeats, customizations and boat locations, and closes the race once it has
+     * finished.
+     */
+    public void serviceTick() {
+        if (terminated) {
+            return;
+        }
+        long start = System.nanoTime();
+        serviceClients();
+        metrics.recordBroadcast(System.nanoTime() - start);
+    }
+
+    private void serviceClients() {
+        long now = System.currentTimeMillis();
+
+        if (gameState.getPlayerHasLeftFlag()) {
+            for (ClientConnection connection : clientConnections) {
+                if (!connection.isSocketOpen()) {
+                    // Connections that closed before registering never had a yacht
+                    if (connection.getSourceId() != null) {
+                        gameState.removeYacht(connection.getSourceId());
+                        sendSetupMessages();
+                    }
+                    retireConnection(connection);
+                }
+            }
+            gameState.setPlayerHasLeftFlag(false);
+        }
+
+        if (now >= nextHeartbeat) {
+            heartbeat.run();
+            nextHeartbeat = now + HEARTBEAT_PERIOD;
+        }
+
+        if (raceStarted && now >= nextRaceStatus) {
+            sendRaceStatus();
+            nextRaceStatus = now + RACE_STATUS_PERIOD;
+        }
+
+        if (gameState.getCurrentStage() == GameStages.LOBBYING && gameState
+            .getCustomizationFlag()) {
+            sendSetupMessages();
+            gameState.resetCustomizationFlag();
+        }
+
+        if (gameState.getCurrentStage() == GameStages.PRE_RACE) {
+            sendBoatLocations();
+        }
+
+        //RACING
+        if (gameState.getCurrentStage() == GameStages.RACING) {
+            sendBoatLocations();
+        }
+
+        //FINISHED
+        else if (gameState.getCurrentStage() == GameStages.FINISHED) {
+            broadcastMessage(gameState.getMessageFactory().getRaceStatusMessage());
+            if (finishedAt == 0) {
+                finishedAt = now;
+            } else if (now - finishedAt > FINISH_LINGER_TIME) {
+                terminate();
+            }
+        }
+    }
+
+    private void sendRaceStatus() {
+        MessageFactory messageFactory = gameState.getMessageFactory();
+        broadcastMessage(messageFactory.getRaceStatusMessage());
+        if (gameState.getCurrentStage() == GameStages.PRE_RACE
+            || gameState.getCurrentStage() == GameStages.LOBBYING) {
+            broadcastMessage(messageFactory.getRaceStartStatusMessage());
+        }
+    }
+
+    /**
+     * Sends every boats location to each client, in the most compact form the client registered
+     * for: a frame of the delta stream, a single batch packet, or one packet per boat.
+     */
+    private void sendBoatLocations() {
+        Message deltaFrame = null;
+        Message batch = null;
+        List<BoatLocationMessage> boatLocations = null;
+        List<Message> individualLocations = null;
+        // Yachts can join or leave while this runs, so every client is sent the same yachts
+        List<ServerYacht> yachts = new ArrayList<>(gameState.getYachts().values());
+
+        RaceRecorder recorder = this.recorder;
+        if (recorder != null) {
+            // Recorded as a batch, which unlike a delta frame can be read on its own
+            boatLocations = new ArrayList<>();
+            for (ServerYacht serverYacht : yachts) {
+                boatLocations.add(MessageFactory.getBoatLocationMessage(serverYacht));
+            }
+            individualLocations = new ArrayList<>(boatLocations);
+            batch = new BoatLocationBatchMessage(boatLocations);
+            recorder.record(batch);
+        }
+
+        for (ClientConnection connection : clientConnections) {
+            if (connection.hasCapability(ClientCapability.BOAT_STATE_DELTA)) {
+                if (deltaFrame == null) {
+                    deltaFrame = boatStateDeltaEncoder.nextFrame(yachts);
+                }
+                connection.sendMessage(deltaFrame);
+                continue;
+            }
+
+            if (boatLocations == null) {
+                boatLocations = new ArrayList<>();
+                for (ServerYacht serverYacht : yachts) {
+                    boatLocations.add(MessageFactory.getBoatLocationMessage(serverYacht));
+                }
+                individualLocations = new ArrayList<>(boatLocations);
+            }
+            if (connection.hasCapability(ClientCapability.BOAT_LOCATION_BATCH)) {
+                if (batch == null) {
+                    batch = new BoatLocationBatchMessage(boatLocations);
+                }
+                connection.sendMessage(batch);
+            } else {
+                connection.sendMessages(individualLocations);
+            }
+        }
+    }
+
+    private void sendSetupMessages() {
+        if (!courseSet) {
+            return;
+        }
+        MessageFactory messageFactory = gameState.getMessageFactory();
+        messageFactory.updateBoats(new ArrayList<>(gameState.getYachts().values()));
+        broadcastMessages(Arrays.asList(
+            messageFactory.getRaceXML(),
+            messageFactory.getRegattaXML(),
+            messageFactory.getBoatXML()
+        ));
+    }
+
+    /**
+     * Sends a message from the game to every client. Token updates only go to the clients that
+     * understand them, the others are sent the race XML with the tokens now in play. Recordings
+     * get both, as a replay is sent to clients with and without the capability.
+     *
+     * @param message The message to send
+     */
+    private void broadcastGameMessage(Message message) {
+        if (!(message instanceof TokenUpdateMessage)) {
+            broadcastMessage(message);
+            return;
+        }
+        Message raceXML = null;
+        RaceRecorder recorder = this.recorder;
+        if (recorder != null) {
+            raceXML = gameState.getMessageFactory().getRaceXML();
+            recorder.record(Arrays.asList(message, raceXML));
+        }
+        for (ClientConnection connection : clientConnections) {
+            if (connection.hasCapability(ClientCapability.TOKEN_UPDATE)) {
+                connection.sendMessage(message);
+            } else {
+                if (raceXML == null) {
+                    raceXML = gameState.getMessageFactory().getRaceXML();
+                }
+                connection.sendMessage(raceXML);
+            }
+        }
+    }
+
+    private void broadcastMessage(Message message) {
+        RaceRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.record(message);
+        }
+        for (ClientConnection connection : clientConnections) {
+            connection.sendMessage(message);
+        }
+    }
+
+    /**
+     * Sends a group of messages to every client. Each message is encoded once and shared by all
+     * of the clients outbound queues.
+     *
+     * @param messages The messages to send, in order
+     */
+    private void broadcastMessages(List<Message> messages) {
+        RaceRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.record(messages);
+        }
+        for (ClientConnection connection : clientConnections) {
+            connection.sendMessages(messages);
+        }
+    }
+
+    @Override
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    /**
+     * A client has tried to connect to the server. Returns straight away, the first client is
+     * made the host and the race starts once the host has sent its race and regatta XML.
+     *
+     * @param clientConnection The player that connected
+     */
+    @Override
+    public void clientConnected(ClientConnection clientConnection) {
+        logger.debug("Player Connected From " + clientConnection.getSocket().getRemoteSocketAddress(), 0);
+        if (clientConnections.size() == 0) { //Sets first client as host.
+            clientConnection.setAsHost();
+            clientConnection.setRaceXMLListener(race -> {
+                raceXMLData = race;
+                if (regattaXMLData != null) {
+                    startServer();
+                }
+            });
+            clientConnection.setRegattaXMLListener(regatta -> {
+                regattaXMLData = regatta;
+                if (raceXMLData != null) {
+                    startServer();
+                }
+            });
+        }
+
+        clientConnections.add(clientConnection);
+        updateAdvertisedPlayers();
+
+        // Clients that register before the host has sent the course are sent it by startServer
+        clientConnection.addConnectionListener(this::sendSetupMessages);
+        clientConnection.addConnectionListener(boatStateDeltaEncoder::requestKeyframe);
+        clientConnection.addConnectionListener(() -> publishMetrics(clientConnection));
+        // The client may have registered before its listeners were added
+        if (clientConnection.isRegistered()) {
+            publishMetrics(clientConnection);
+        }
+        clientConnection.addDisconnectListener(this::clientDisconnected);
+    }
+
+    private void publishMetrics(ClientConnection clientConnection) {
+        MetricsRegistry.getInstance().registerClient(portNumber, clientConnection.getMetrics());
+    }
+
+    /**
+     * A player has left the game, remove the player from the GameState
+     *
+     * @param player The player that left
+     */
+    @Override
+    public void clientDisconnected(Player player) {
+        logger.debug("Player " + player.getYacht().getSourceId() + "'s socket disconnected", 0);
+        gameState.removeYacht(player.getYacht().getSourceId());
+        gameState.removePlayer(player);
+        ClientConnection closedConnection = null;
+        for (ClientConnection connection : clientConnections) {
+            if (connection.getSocket() == player.getSocket()) {
+                closedConnection = connection;
+            } else if (courseSet && gameState.getCurrentStage() != GameStages.RACING) {
+                connection.sendSetupMessages();
+            }
+        }
+
+        updateAdvertisedPlayers();
+
+        if (closedConnection != null) {
+            retireConnection(closedConnection);
+        }
+    }
+
+    /**
+     * Drops a closed connection from this race and folds its metrics into the race totals.
+     */
+    private void retireConnection(ClientConnection connection) {
+        if (clientConnections.remove(connection)) {
+            MetricsRegistry.getInstance().unregisterClient(connection.getMetrics());
+            metrics.clientRetired(connection.getMetrics());
+        }
+        connection.terminate();
+    }
+
+    /**
+     * Gives the race its course instead of waiting for the first client to send one, for races
+     * with no host client such as those on a {@link DedicatedServer}.
+     *
+     * @param raceXML The race XML of the course
+     * @param regattaXML The regatta XML of the course
+     */
+    public void setCourse(Document raceXML, Document regattaXML) {
+        gameState.setMaxPlayers(XMLParser.getMaxPlayers(raceXML));
+        gameState.setTokensEnabled(XMLParser.tokensEnabled(raceXML));
+        raceXMLData = XMLParser.parseRace(raceXML);
+        regattaXMLData = XMLParser.parseRegatta(regattaXML);
+        startServer();
+    }
+
+    /**
+     * Records everything the race sends to its clients from now until it ends, see
+     * {@link RaceRecorder}. If the race already has a course its XML is recorded first, so the
+     * recording can be followed on its own.
+     *
+     * @param directory The directory to record into
+     * @throws IOException if the recording could not be created
+     */
+    public void startRecording(File directory) throws IOException {
+        RaceRecorder newRecorder = RaceRecorder.open(directory);
+        if (courseSet) {
+            MessageFactory messageFactory = gameState.getMessageFactory();
+            newRecorder.record(Arrays.asList(
+                messageFactory.getRaceXML(),
+                messageFactory.getRegattaXML(),
+                messageFactory.getBoatXML()
+            ));
+        }
+        recorder = newRecorder;
+        logger.debug("Recording race on port " + portNumber + " to " + directory);
+    }
+
+    /**
+     * @return The recorder of this race, null if it is not being recorded
+     */
+    public RaceRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @return true once the race has been started
+     */
+    public boolean hasStarted() {
+        return raceStarted;
+    }
+
+    public void startGame() {
+        if (advertised) {
+            try {
+                ServerAdvertiser.getInstance().unregister();
+            } catch (IOException e) {
+                logger.warn("Error unregistering server");
+            }
+        }
+
+        // Yachts are only moved on the game thread, which keeps the collision grid in step
+        gameState.runOnTick(() -> {
+            initialiseBoatPositions();
+            gameState.resetStartTime();
+            gameState.setCurrentStage(GameStages.PRE_RACE);
+        });
+        raceStarted = true;
+    }
+
+    /**
+     * Ends the race for every client and disconnects them.
+     */
+    public void terminate() {
+        terminated = true;
+        if (gameState.getCurrentStage() != GameStages.FINISHED) {
+            gameState.setCurrentStage(GameStages.CANCELLED);
+        }
+        for (ClientConnection connection : clientConnections) {
+            connection.terminate();
+        }
+        MetricsRegistry.getInstance().unregisterRace(metrics);
+        RaceRecorder recorder = this.recorder;
+        if (recorder != null) {
+            this.recorder = null;
+            recorder.close();
+        }
+    }
+
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * Initialise boats to specific spaced out geopoints behind starting line.
+     */
+    private void initialiseBoatPositions() {
+
+        final double DISTANCE_TO_START = 75d;
+        final double YACHT_SEPARATION = 35d;
+
+        //Length of start line
+        double startLineLength = GeoUtility.getDistance(
+            gameState.getMarkOrder().getMarkOrder().get(0).getSubMark(1),
+            gameState.getMarkOrder().getMarkOrder().get(0).getSubMark(2)
+        ) - YACHT_SEPARATION;
+
+        //How many yachts can fit along the start line
+        int spacesAlongLine = (int) Math.round(startLineLength / YACHT_SEPARATION);
+
+        //Angle of start line
+        double startMarkToMarkAngle = GeoUtility.getBearing(
+            gameState.getMarkOrder().getMarkOrder().get(0).getSubMark(1),
+            gameState.getMarkOrder().getMarkOrder().get(0).getSubMark(2)
+        );
+
+        //angle from first mark to the start
+        double angleToStart = GeoUtility.getBearing(
+            gameState.getMarkOrder().getMarkOrder().get(1).getMidPoint(),
+            gameState.getMarkOrder().getMarkOrder().get(0).getMidPoint()
+        );
+
+        double angleFromStart = GeoUtility.getBearing(
+            gameState.getMarkOrder().getMarkOrder().get(0).getMidPoint(),
+            gameState.getMarkOrder().getMarkOrder().get(1).getMidPoint()
+        );
+
+        GeoPoint midPoint = GeoUtility.getGeoCoordinate(
+            gameState.getMarkOrder().getMarkOrder().get(0).getMidPoint(),
+            angleToStart, DISTANCE_TO_START
+        );
+
+        List<ServerYacht> randomisedYachts = new ArrayList<>(gameState.getYachts().values());
+        Collections.shuffle(randomisedYachts);
+        while (randomisedYachts.size() > 0) {
+
+            int numYachts = spacesAlongLine > randomisedYachts.size() ? randomisedYachts.size() : spacesAlongLine;
+            double yachtSpace = (numYachts - 1) * YACHT_SEPARATION / 2;
+
+            GeoPoint firstYachtPoint = GeoUtility.getGeoCoordinate(
+                midPoint, startMarkToMarkAngle + 180, yachtSpace
+            );
+
+            for (int i = 0; i < numYachts; i++) {
+                randomisedYachts.get(0).setHeading(angleFromStart);
+                randomisedYachts.get(0).setLocation(firstYachtPoint);
+                firstYachtPoint = GeoUtility.getGeoCoordinate(
+                    firstYachtPoint, startMarkToMarkAngle, YACHT_SEPARATION
+                );
+                randomisedYachts.remove(0);
+            }
+
+            midPoint = GeoUtility.getGeoCoordinate(
+                midPoint, angleToStart, YACHT_SEPARATION * 1.5
+            );
+        }
+    }
+
+    /**
+     * @return The CPU time and memory this race has used on the threads of its host
+     */
+    public RaceUsage getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return Everything measured about this race, also published over JMX
+     */
+    public RaceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getPortNumber() {
+        return portNumber;
+    }
+
+    public List<ClientConnection> getClientConnections() {
+        return Collections.unmodifiableList(clientConnections);
+    }
+}
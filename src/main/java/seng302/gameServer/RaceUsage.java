@@ -0,0 +1,103 @@
+package seng302.gameServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The CPU time and memory allocated by one race on the threads of its {@link RaceHost}. Every
+ * piece of a race's work is run through {@link #measure(Runnable)}, which reads the current
+ * thread's CPU time and allocated bytes before and after it.
+ *
+ * Allocated bytes need a HotSpot based JVM, on other JVMs only CPU time is counted. Safe to read
+ * from any thread.
+ */
+public class RaceUsage {
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean allocationBean =
+        threadBean instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) threadBean : null;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong cpuNanos = new AtomicLong();
+    private final AtomicLong wallNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    static {
+        if (threadBean.isCurrentThreadCpuTimeSupported()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        if (allocationBean != null && allocationBean.isThreadAllocatedMemorySupported()) {
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Runs some work for the race on the current thread and adds what it used to the race.
+     *
+     * @param work The work to run
+     */
+    public void measure(Runnable work) {
+        long threadId = Thread.currentThread().getId();
+        long startBytes = allocatedBytes(threadId);
+        long startCpu = threadBean.getCurrentThreadCpuTime();
+        long startWall = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            wallNanos.addAndGet(System.nanoTime() - startWall);
+            long endCpu = threadBean.getCurrentThreadCpuTime();
+            if (startCpu >= 0 && endCpu >= 0) {
+                cpuNanos.addAndGet(endCpu - startCpu);
+            }
+            long endBytes = allocatedBytes(threadId);
+            if (startBytes >= 0 && endBytes >= 0) {
+                allocatedBytes.addAndGet(endBytes - startBytes);
+            }
+            runs.incrementAndGet();
+        }
+    }
+
+    private static long allocatedBytes(long threadId) {
+        if (allocationBean == null) {
+            return -1;
+        }
+        return allocationBean.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * @return How many pieces of work have been measured
+     */
+    public long getRuns() {
+        return runs.get();
+    }
+
+    /**
+     * @return The CPU time used by the race in nanoseconds
+     */
+    public long getCpuNanos() {
+        return cpuNanos.get();
+    }
+
+    /**
+     * @return The time the race has held a thread for in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos.get();
+    }
+
+    /**
+     * @return The bytes of memory allocated by the race
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("runs=%d cpu=%.1fms wall=%.1fms allocated=%.1fMB",
+            getRuns(), getCpuNanos() / 1e6, getWallNanos() / 1e6,
+            getAllocatedBytes() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,214 @@
+package seng302.gameServer;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.messages.Message;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * A client connection owned by the {@link SelectorServerThread}. Reading, framing and writing all
+ * happen on the selector thread; other threads only ever add to the outbound queue.
+ */
+public class SelectorClientConnection extends ClientConnection {
+
+    // A client this far behind is not reading, drop it rather than queueing forever.
+    private static final int MAX_OUTBOUND_BACKLOG_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_GATHERED_WRITES = 64;
+
+    private Logger logger = LoggerFactory.getLogger(SelectorClientConnection.class);
+
+    private SocketChannel channel;
+    private SelectorServerThread server;
+    private SelectionKey key;
+
+    private PacketFramer packetFramer = new PacketFramer();
+
+    private Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private ByteBuffer[] gatherBuffers = new ByteBuffer[MAX_GATHERED_WRITES];
+    private AtomicInteger outboundBytes = new AtomicInteger(0);
+    // Set by the thread that overfills the backlog, the selector thread then closes the channel.
+    private volatile boolean dropped = false;
+
+    SelectorClientConnection(SocketChannel channel, SelectorServerThread server,
+        GameState gameState) {
+        super(gameState);
+        this.channel = channel;
+        this.server = server;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Reads whatever the channel has available and handles every complete packet in the buffer.
+     * Only called on the selector thread.
+     */
+    void readFromChannel() {
+        try {
+            int read = packetFramer.readFrom(channel);
+            if (read == -1) {
+                closeChannel();
+                return;
+            }
+            StreamPacket packet;
+            while ((packet = packetFramer.nextPacket()) != null) {
+                processPacket(packet);
+            }
+            metrics.updateInbound(packetFramer.getBytesRead(), packetFramer.getDroppedPackets());
+        } catch (IOException e) {
+            logger.warn("Socket read failed", 1);
+            closeChannel();
+        } catch (Exception e) {
+            logger.warn("Could not handle packet from player " + getSourceId(), e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * Writes as much of the outbound queue as the channel accepts, gathering several queued
+     * messages into each write. Only called on the selector thread.
+     */
+    void writeToChannel() {
+        try {
+            while (!outbound.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer frame : outbound) {
+                    gatherBuffers[count++] = frame;
+                    if (count == gatherBuffers.length) {
+                        break;
+                    }
+                }
+                long written = channel.write(gatherBuffers, 0, count);
+                outboundBytes.addAndGet((int) -written);
+
+                boolean socketFull = false;
+                int packetsWritten = 0;
+                for (int i = 0; i < count; i++) {
+                    if (gatherBuffers[i].hasRemaining()) {
+                        socketFull = true;
+                        break;
+                    }
+                    outbound.poll();
+                    packetsWritten++;
+                }
+                metrics.sent(packetsWritten, written);
+                Arrays.fill(gatherBuffers, 0, count, null);
+                if (socketFull) {
+                    return; // Wait for the next OP_WRITE
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            // A writer may have queued between the last check and clearing OP_WRITE
+            if (!outbound.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException | CancelledKeyException e) {
+            logger.warn("Player " + getSourceId() + " side socket disconnected", 1);
+            closeChannel();
+        }
+    }
+
+    void enableWriteInterest() {
+        if (dropped) {
+            closeChannel();
+            return;
+        }
+        try {
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (CancelledKeyException e) {
+            outbound.clear();
+        }
+    }
+
+    @Override
+    public boolean sendMessage(Message message) {
+        if (!enqueue(message)) {
+            return false;
+        }
+        server.requestWrite(this);
+        return true;
+    }
+
+    /**
+     * Queues every message before waking the selector once, so a tick of updates is flushed to
+     * the client in as few writes as possible.
+     */
+    @Override
+    public boolean sendMessages(List<Message> messages) {
+        for (Message message : messages) {
+            if (!enqueue(message)) {
+                return false;
+            }
+        }
+        server.requestWrite(this);
+        return true;
+    }
+
+    /**
+     * Adds a view of an encoded message to the outbound queue. The message bytes are shared with
+     * every other client it is sent to.
+     *
+     * @param message The message to queue
+     * @return false if the connection is closed or has too much unsent data
+     */
+    private boolean enqueue(Message message) {
+        if (dropped || !channel.isOpen()) {
+            return false;
+        }
+        ByteBuffer frame = message.getByteBuffer();
+        if (outboundBytes.addAndGet(frame.remaining()) > MAX_OUTBOUND_BACKLOG_BYTES) {
+            logger.warn("Player " + getSourceId() + " is not reading, disconnecting", 1);
+            // Closed on the selector thread so the race is told the player has left
+            dropped = true;
+            server.requestWrite(this);
+            return false;
+        }
+        outbound.add(frame);
+        return true;
+    }
+
+    private void closeChannel() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        terminate();
+        gameState.setPlayerHasLeftFlag(true);
+        notifyDisconnect();
+    }
+
+    @Override
+    public void terminate() {
+        try {
+            key.cancel();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("IOException attempting to close client channel");
+        }
+        outbound.clear();
+    }
+
+    @Override
+    public long getOutboundBacklog() {
+        return outboundBytes.get();
+    }
+
+    @Override
+    public Socket getSocket() {
+        return channel.socket();
+    }
+}
@@ -0,0 +1,205 @@
+package seng302.gameServer;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single reactor thread which owns every client channel of a game server. Accepts new
+ * connections, reads and frames packets from all clients and flushes each clients outbound queue
+ * when its channel is writable, so no client can block the others.
+ *
+ * One selector can listen on several server channels, each with its own delegate, so a
+ * {@link RaceHost} can share it between all of its races.
+ *
+ * This is the non blocking alternative to {@link ServerListenThread} + {@link ServerToClientThread}
+ */
+public class SelectorServerThread implements Runnable {
+
+    private Logger logger = LoggerFactory.getLogger(SelectorServerThread.class);
+
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean terminated = false;
+
+    // Connections that have queued output since the last select, touched by other threads.
+    private Queue<SelectorClientConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    // Server channels waiting to be registered with the selector, added from other threads.
+    private Queue<ServerChannelRegistration> pendingChannels = new ConcurrentLinkedQueue<>();
+
+    private static class ServerChannelRegistration {
+        private final ServerSocketChannel serverChannel;
+        private final ClientConnectionDelegate delegate;
+
+        private ServerChannelRegistration(ServerSocketChannel serverChannel,
+            ClientConnectionDelegate delegate) {
+            this.serverChannel = serverChannel;
+            this.delegate = delegate;
+        }
+    }
+
+    /**
+     * Creates a selector with no server channels, add them with
+     * {@link #addServerChannel(ServerSocketChannel, ClientConnectionDelegate)}.
+     */
+    public SelectorServerThread() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, "ServerSelector");
+        thread.start();
+    }
+
+    public SelectorServerThread(ServerSocketChannel serverChannel, ClientConnectionDelegate delegate)
+        throws IOException {
+        this();
+        addServerChannel(serverChannel, delegate);
+    }
+
+    /**
+     * Starts accepting clients on another server channel. Can be called from any thread.
+     *
+     * @param serverChannel A bound server channel
+     * @param delegate The delegate told about clients connecting on this channel
+     * @throws IOException If the channel can not be made non blocking
+     */
+    public void addServerChannel(ServerSocketChannel serverChannel,
+        ClientConnectionDelegate delegate) throws IOException {
+        serverChannel.configureBlocking(false);
+        pendingChannels.add(new ServerChannelRegistration(serverChannel, delegate));
+        selector.wakeup();
+    }
+
+    /**
+     * Stops accepting clients on a server channel and closes it. Can be called from any thread.
+     * The selector is woken so the channel is deregistered and its port freed straight away,
+     * rather than on the next select that happens to return.
+     *
+     * @param serverChannel A server channel added with
+     * {@link #addServerChannel(ServerSocketChannel, ClientConnectionDelegate)}
+     * @throws IOException If the channel could not be closed
+     */
+    public void removeServerChannel(ServerSocketChannel serverChannel) throws IOException {
+        serverChannel.close();
+        selector.wakeup();
+    }
+
+    public void run() {
+        while (!terminated) {
+            try {
+                registerPendingChannels();
+                registerPendingWrites();
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+            } catch (IOException e) {
+                logger.warn("IO error in selector server loop", 1);
+            }
+        }
+        closeSelector();
+    }
+
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            acceptConnection(
+                (ServerSocketChannel) key.channel(), (ClientConnectionDelegate) key.attachment()
+            );
+            return;
+        }
+
+        SelectorClientConnection connection = (SelectorClientConnection) key.attachment();
+        if (key.isReadable()) {
+            connection.readFromChannel();
+        }
+        if (key.isValid() && key.isWritable()) {
+            connection.writeToChannel();
+        }
+    }
+
+    /**
+     * Accepts a waiting connection, only during the lobby stage as in {@link ServerListenThread}.
+     * The delegate is told on this thread, so clientConnected must not block.
+     */
+    private void acceptConnection(ServerSocketChannel serverChannel,
+        ClientConnectionDelegate delegate) {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            GameState gameState = delegate.getGameState();
+            if (!gameState.getCurrentStage().equals(GameStages.LOBBYING)) {
+                channel.close();
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            SelectorClientConnection connection =
+                new SelectorClientConnection(channel, this, gameState);
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            delegate.clientConnected(connection);
+        } catch (IOException e) {
+            logger.warn("Could not accept client connection", 1);
+        }
+    }
+
+    /**
+     * Called from any thread when a connection has new outbound data.
+     *
+     * @param connection The connection with data to write
+     */
+    void requestWrite(SelectorClientConnection connection) {
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    private void registerPendingChannels() {
+        ServerChannelRegistration registration;
+        while ((registration = pendingChannels.poll()) != null) {
+            try {
+                registration.serverChannel.register(
+                    selector, SelectionKey.OP_ACCEPT, registration.delegate
+                );
+            } catch (IOException e) {
+                logger.warn("Could not listen on server channel", 1);
+            }
+        }
+    }
+
+    private void registerPendingWrites() {
+        SelectorClientConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            connection.enableWriteInterest();
+        }
+    }
+
+    private void closeSelector() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("IO error closing selector server", 1);
+        }
+    }
+
+    public void terminate() {
+        terminated = true;
+        selector.wakeup();
+    }
+}
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.discoveryServer.DiscoveryServerClient;
 import seng302.discoveryServer.util.ServerListing;
+import seng302.utilities.Housekeeping;
 
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceInfo;
@@ -59,7 +60,7 @@ public class ServerAdvertiser {
      * @return A ServerAdvertiser Instance
      * @throws IOException If there was an exception creating the instance
      */
-    public static ServerAdvertiser getInstance() throws IOException {
+    public static synchronized ServerAdvertiser getInstance() throws IOException {
         if (instance == null){
             instance = new ServerAdvertiser();
         }
@@ -124,17 +125,13 @@ public class ServerAdvertiser {
 
         serviceInfo = ServiceInfo.create(SERVICE_TYPE, serverName, portNo, 0, 0, props);
 
-        new java.util.Timer().schedule(
-            new java.util.TimerTask() {
-                @Override
-                public void run() {
-                    try {
-                        jmdnsInstance.registerService(serviceInfo);
-                    } catch (IOException e) {
-                        logger.warn("Failed to register service info");
-                    }
-                }
-            }, 0);
+        Housekeeping.getExecutor().execute(() -> {
+            try {
+                jmdnsInstance.registerService(serviceInfo);
+            } catch (IOException e) {
+                logger.warn("Failed to register service info");
+            }
+        });
 
         ServerListing serverListing = new ServerListing(serverName, props.get("map"), new DiscoveryServerClient().getInetIp(), portNo, Integer.parseInt(props.get("capacity")));
         repositoryClient.register(serverListing);
@@ -21,13 +21,14 @@ public class ServerListenThread implements Runnable {
     }
 
     /**
-     * Listens for a connection and upon finding one, creates a Player object and adds it to the universal GameState
+     * Listens for a connection and upon finding one, creates a Player object and adds it to the delegates GameState
      */
     private void acceptConnection() {
         try {
             Socket thisClient = serverSocket.accept();
-            if (thisClient != null && GameState.getCurrentStage().equals(GameStages.LOBBYING)) {
-                ServerToClientThread thisConnection = new ServerToClientThread(thisClient);
+            GameState gameState = delegate.getGameState();
+            if (thisClient != null && gameState.getCurrentStage().equals(GameStages.LOBBYING)) {
+                ServerToClientThread thisConnection = new ServerToClientThread(thisClient, gameState);
                 delegate.clientConnected(thisConnection);
             } else {
                 thisClient.close();
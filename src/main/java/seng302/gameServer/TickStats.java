@@ -0,0 +1,151 @@
+package seng302.gameServer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import seng302.gameServer.metrics.DurationHistogram;
+
+/**
+ * Timing of the fixed step simulation loop in {@link GameState}. Records how long each tick's
+ * update took, how many ticks ran over their time budget, how late ticks started relative to
+ * their schedule and how many ticks were skipped because the loop fell too far behind.
+ *
+ * Written by the game state thread only and safe to read from any thread.
+ */
+public class TickStats {
+
+    // Upper bounds of each lateness bucket in milliseconds, the last bucket holds the rest.
+    private static final long[] LATENESS_BUCKETS_MS = {1, 2, 5, 10, 20, 50};
+
+    private final long tickBudgetNanos;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong totalUpdateNanos = new AtomicLong();
+    private final AtomicLong maxUpdateNanos = new AtomicLong();
+    private final AtomicLong lastUpdateNanos = new AtomicLong();
+    private final AtomicLongArray latenessHistogram =
+        new AtomicLongArray(LATENESS_BUCKETS_MS.length + 1);
+    private final DurationHistogram updateHistogram = new DurationHistogram();
+
+    /**
+     * @param tickBudgetNanos The length of one tick, an update taking longer is an overrun
+     */
+    public TickStats(long tickBudgetNanos) {
+        this.tickBudgetNanos = tickBudgetNanos;
+    }
+
+    /**
+     * Records a single tick.
+     *
+     * @param updateNanos How long the update took
+     * @param latenessNanos How long after its scheduled time the tick started
+     */
+    public void recordTick(long updateNanos, long latenessNanos) {
+        ticks.incrementAndGet();
+        totalUpdateNanos.addAndGet(updateNanos);
+        lastUpdateNanos.set(updateNanos);
+        updateHistogram.record(updateNanos);
+        if (updateNanos > maxUpdateNanos.get()) {
+            maxUpdateNanos.set(updateNanos);
+        }
+        if (updateNanos > tickBudgetNanos) {
+            overruns.incrementAndGet();
+        }
+        latenessHistogram.incrementAndGet(latenessBucket(latenessNanos));
+    }
+
+    /**
+     * Records ticks that were dropped rather than run late.
+     *
+     * @param count The number of ticks dropped
+     */
+    public void recordSkippedTicks(long count) {
+        skippedTicks.addAndGet(count);
+    }
+
+    private static int latenessBucket(long latenessNanos) {
+        long latenessMs = latenessNanos / 1_000_000;
+        for (int i = 0; i < LATENESS_BUCKETS_MS.length; i++) {
+            if (latenessMs < LATENESS_BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENESS_BUCKETS_MS.length;
+    }
+
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos.get();
+    }
+
+    public long getMaxUpdateNanos() {
+        return maxUpdateNanos.get();
+    }
+
+    public double getMeanUpdateNanos() {
+        long count = ticks.get();
+        return count == 0 ? 0 : (double) totalUpdateNanos.get() / count;
+    }
+
+    /**
+     * @return How long each tick's update took, for percentiles
+     */
+    public DurationHistogram getUpdateHistogram() {
+        return updateHistogram;
+    }
+
+    /**
+     * @return The number of ticks in each lateness bucket, see {@link #getLatenessBucketLabels()}
+     */
+    public long[] getLatenessHistogram() {
+        long[] counts = new long[latenessHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latenessHistogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return A label for each lateness bucket, such as "<5ms"
+     */
+    public static String[] getLatenessBucketLabels() {
+        String[] labels = new String[LATENESS_BUCKETS_MS.length + 1];
+        for (int i = 0; i < LATENESS_BUCKETS_MS.length; i++) {
+            labels[i] = "<" + LATENESS_BUCKETS_MS[i] + "ms";
+        }
+        labels[LATENESS_BUCKETS_MS.length] =
+            ">=" + LATENESS_BUCKETS_MS[LATENESS_BUCKETS_MS.length - 1] + "ms";
+        return labels;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        String[] labels = getLatenessBucketLabels();
+        long[] counts = getLatenessHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.append(labels[i]).append('=').append(counts[i]).append(' ');
+        }
+        return String.format(
+            "ticks=%d overruns=%d skipped=%d meanUpdate=%.3fms maxUpdate=%.3fms lateness[%s]",
+            getTicks(), getOverruns(), getSkippedTicks(), getMeanUpdateNanos() / 1e6,
+            getMaxUpdateNanos() / 1e6, histogram.toString().trim()
+        );
+    }
+}
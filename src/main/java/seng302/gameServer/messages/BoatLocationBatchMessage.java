@@ -0,0 +1,42 @@
+package seng302.gameServer.messages;
+
+import java.util.List;
+
+/**
+ * Every boat location for a single tick in one packet, for clients registered with
+ * {@link ClientCapability#BOAT_LOCATION_BATCH}. Each record is the payload of a
+ * {@link BoatLocationMessage}, so one header and CRC cover the whole fleet.
+ */
+public class BoatLocationBatchMessage extends Message {
+
+    private static final int MESSAGE_VERSION = 1;
+    private static final int MESSAGE_BASE_SIZE = 2;
+    public static final int RECORD_SIZE = 56;
+
+    private int numberOfBoats;
+
+    /**
+     * @param boatLocations The already encoded location of each boat
+     */
+    public BoatLocationBatchMessage(List<BoatLocationMessage> boatLocations){
+        numberOfBoats = boatLocations.size();
+
+        setHeader(new Header(MessageType.BOAT_LOCATION_BATCH, 1, (short) getSize()));
+        allocateBuffer();
+        writeHeaderToBuffer();
+
+        putByte((byte) MESSAGE_VERSION);
+        putInt(numberOfBoats, 1);
+        for (BoatLocationMessage boatLocation : boatLocations){
+            putBytes(boatLocation.getBuffer(), Header.getSize(), RECORD_SIZE);
+        }
+
+        writeCRC();
+        rewind();
+    }
+
+    @Override
+    public int getSize() {
+        return MESSAGE_BASE_SIZE + (RECORD_SIZE * numberOfBoats);
+    }
+}
@@ -0,0 +1,62 @@
+package seng302.gameServer.messages;
+
+/**
+ * The quantized position, heading and speed of a boat, in the same units a
+ * {@link BoatLocationMessage} puts on the wire. Deltas are taken between these values rather than
+ * raw doubles so the client rebuilds exactly what the server last sent.
+ */
+public class BoatState {
+
+    private int sourceId;
+    private int packedLat;
+    private int packedLon;
+    private int packedHeading;
+    private int packedSpeed;
+
+    /**
+     * @param sourceId ID of the boat
+     * @param latitude The boats latitude
+     * @param longitude The boats longitude
+     * @param heading The boats heading in degrees
+     * @param boatSpeed The boats speed as sent in a BoatLocationMessage
+     */
+    public BoatState(int sourceId, double latitude, double longitude, double heading,
+        long boatSpeed) {
+        this(
+            sourceId,
+            (int) BoatLocationMessage.latLonToBinaryPackedLong(latitude),
+            (int) BoatLocationMessage.latLonToBinaryPackedLong(longitude),
+            (int) ((long) ((heading / 360.0) * 65535.0) & 0xFFFF),
+            (int) (boatSpeed & 0xFFFF)
+        );
+    }
+
+    public BoatState(int sourceId, int packedLat, int packedLon, int packedHeading,
+        int packedSpeed) {
+        this.sourceId = sourceId;
+        this.packedLat = packedLat;
+        this.packedLon = packedLon;
+        this.packedHeading = packedHeading;
+        this.packedSpeed = packedSpeed;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public int getPackedLat() {
+        return packedLat;
+    }
+
+    public int getPackedLon() {
+        return packedLon;
+    }
+
+    public int getPackedHeading() {
+        return packedHeading;
+    }
+
+    public int getPackedSpeed() {
+        return packedSpeed;
+    }
+}
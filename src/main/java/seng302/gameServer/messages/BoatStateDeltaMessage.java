@@ -0,0 +1,137 @@
+package seng302.gameServer.messages;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Boat states for one tick, sent to clients registered with
+ * {@link ClientCapability#BOAT_STATE_DELTA}. A keyframe holds the full state of every boat. Other
+ * frames only hold boats that changed since the previous frame, and only the fields that changed,
+ * with small position moves sent as 16 bit offsets.
+ *
+ * Payload: version (1), flags (1), tick sequence (4), record count (1), then for each record the
+ * source id (4), a field mask (1) and the fields named by the mask in mask bit order.
+ */
+public class BoatStateDeltaMessage extends Message {
+
+    private static final int MESSAGE_VERSION = 1;
+    private static final int MESSAGE_BASE_SIZE = 7;
+    private static final int RECORD_BASE_SIZE = 5;
+
+    public static final int FLAG_KEYFRAME = 0x01;
+
+    public static final int FIELD_POSITION_DELTA = 0x01;
+    public static final int FIELD_POSITION = 0x02;
+    public static final int FIELD_HEADING = 0x04;
+    public static final int FIELD_SPEED = 0x08;
+
+    private int[] fieldMasks;
+    private int numberOfRecords = 0;
+    private int size = MESSAGE_BASE_SIZE;
+
+    /**
+     * @param tickSequence The number of the tick this frame describes
+     * @param keyframe true to send every field of every boat
+     * @param states The current state of each boat
+     * @param baseline The state of each boat sent in the previous frame, by source id
+     */
+    public BoatStateDeltaMessage(long tickSequence, boolean keyframe, List<BoatState> states,
+        Map<Integer, BoatState> baseline) {
+        fieldMasks = new int[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            BoatState state = states.get(i);
+            BoatState previous = keyframe ? null : baseline.get(state.getSourceId());
+            fieldMasks[i] = fieldMask(state, previous);
+            if (fieldMasks[i] != 0) {
+                numberOfRecords++;
+                size += recordSize(fieldMasks[i]);
+            }
+        }
+
+        setHeader(new Header(MessageType.BOAT_STATE_DELTA, 1, (short) getSize()));
+        allocateBuffer();
+        writeHeaderToBuffer();
+
+        putByte((byte) MESSAGE_VERSION);
+        putByte((byte) (keyframe ? FLAG_KEYFRAME : 0));
+        putInt(tickSequence, 4);
+        putInt(numberOfRecords, 1);
+        for (int i = 0; i < states.size(); i++) {
+            if (fieldMasks[i] != 0) {
+                putRecord(states.get(i), baseline.get(states.get(i).getSourceId()), fieldMasks[i]);
+            }
+        }
+
+        writeCRC();
+        rewind();
+    }
+
+    private static int fieldMask(BoatState state, BoatState previous) {
+        if (previous == null) {
+            return FIELD_POSITION | FIELD_HEADING | FIELD_SPEED;
+        }
+        int mask = 0;
+        int latDelta = state.getPackedLat() - previous.getPackedLat();
+        int lonDelta = state.getPackedLon() - previous.getPackedLon();
+        if (latDelta != 0 || lonDelta != 0) {
+            mask |= fitsInShort(latDelta) && fitsInShort(lonDelta)
+                ? FIELD_POSITION_DELTA : FIELD_POSITION;
+        }
+        if (state.getPackedHeading() != previous.getPackedHeading()) {
+            mask |= FIELD_HEADING;
+        }
+        if (state.getPackedSpeed() != previous.getPackedSpeed()) {
+            mask |= FIELD_SPEED;
+        }
+        return mask;
+    }
+
+    private static boolean fitsInShort(int value) {
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+
+    /**
+     * @param fieldMask The fields present in a record
+     * @return The size of the record in bytes
+     */
+    public static int recordSize(int fieldMask) {
+        int size = RECORD_BASE_SIZE;
+        if ((fieldMask & FIELD_POSITION_DELTA) != 0) {
+            size += 4;
+        }
+        if ((fieldMask & FIELD_POSITION) != 0) {
+            size += 8;
+        }
+        if ((fieldMask & FIELD_HEADING) != 0) {
+            size += 2;
+        }
+        if ((fieldMask & FIELD_SPEED) != 0) {
+            size += 2;
+        }
+        return size;
+    }
+
+    private void putRecord(BoatState state, BoatState previous, int fieldMask) {
+        putInt(state.getSourceId(), 4);
+        putByte((byte) fieldMask);
+        if ((fieldMask & FIELD_POSITION_DELTA) != 0) {
+            putInt(state.getPackedLat() - previous.getPackedLat(), 2);
+            putInt(state.getPackedLon() - previous.getPackedLon(), 2);
+        }
+        if ((fieldMask & FIELD_POSITION) != 0) {
+            putInt(state.getPackedLat(), 4);
+            putInt(state.getPackedLon(), 4);
+        }
+        if ((fieldMask & FIELD_HEADING) != 0) {
+            putInt(state.getPackedHeading(), 2);
+        }
+        if ((fieldMask & FIELD_SPEED) != 0) {
+            putInt(state.getPackedSpeed(), 2);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
@@ -16,7 +16,6 @@ public class BoatSubMessage{
     private long estimatedTimeAtNextMark;
     private long estimatedTimeAtFinish;
     private ByteBuffer buff = ByteBuffer.allocate(getSize());
-    private int buffPos = 0;
 
     /**
      * Boat Sub message from section 4.2 of the AC35 streaming data interface spec
@@ -46,40 +45,32 @@ public class BoatSubMessage{
         return MESSAGE_SIZE;
     }
 
-    private void putInBuffer(byte[] bytes, long val){
-        byte[] tmp = bytes.clone();
-        Message.reverse(tmp);
-
-        buff.put(tmp);
-        buffPos += tmp.length;
-        buff.position(buffPos);
-    }
-
     /**
      * @return a ByteBuffer containing this boat status message
      */
     public ByteBuffer getByteBuffer(){
         // Source ID, 4 bytes
-        putInBuffer(Message.intToByteArray(sourceId, 4), 4);
+        Message.putLittleEndian(buff, 0, sourceId, 4);
 
         // Boat Status, 1 byte
-        putInBuffer(ByteBuffer.allocate(1).put((byte) (boatStatus.getCode() & 0xff)).array(), 1);
+        buff.put(4, (byte) (boatStatus.getCode() & 0xff));
 
         // Leg number, 1 byte
-        putInBuffer(ByteBuffer.allocate(1).put((byte) (legNumber & 0xff)).array(), 1);
+        buff.put(5, (byte) (legNumber & 0xff));
 
         // Number of penalties awarded, 1 byte
-        putInBuffer(ByteBuffer.allocate(1).put((byte) (numberPenaltiesAwarded & 0xff)).array(), 1);
+        buff.put(6, (byte) (numberPenaltiesAwarded & 0xff));
 
         // Number of penalties served, 1 byte
-        putInBuffer(ByteBuffer.allocate(1).put((byte) (numberPenaltiesServed & 0xff)).array(), 1);
+        buff.put(7, (byte) (numberPenaltiesServed & 0xff));
 
         // Estimated time at next mark, 6 bytes
-        putInBuffer(Message.intToByteArray((int) estimatedTimeAtNextMark, 6),6);
+        Message.putLittleEndian(buff, 8, (int) estimatedTimeAtNextMark, 6);
 
         // Estimated time at finish, 6 bytes
-        putInBuffer(Message.intToByteArray((int) estimatedTimeAtFinish, 6), 6);
+        Message.putLittleEndian(buff, 14, (int) estimatedTimeAtFinish, 6);
 
+        buff.position(MESSAGE_SIZE);
         return buff;
     }
 }
@@ -0,0 +1,41 @@
+package seng302.gameServer.messages;
+
+/**
+ * Optional protocol features a client can ask for when it registers. Each capability is a bit in
+ * the second byte of the registration request, which older clients always leave as zero.
+ */
+public enum ClientCapability {
+    BOAT_LOCATION_BATCH(0x01),
+    BOAT_STATE_DELTA(0x02),
+    TOKEN_UPDATE(0x04);
+
+    private int flag;
+
+    ClientCapability(int flag){
+        this.flag = flag;
+    }
+
+    public int getFlag(){
+        return flag;
+    }
+
+    /**
+     * @param flags The capability byte sent by the client
+     * @return true if this capability is set in the flags
+     */
+    public boolean isSetIn(int flags){
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @param capabilities The capabilities to combine
+     * @return The capability byte with each of the given capabilities set
+     */
+    public static int toFlags(ClientCapability... capabilities){
+        int flags = 0;
+        for (ClientCapability capability : capabilities){
+            flags |= capability.getFlag();
+        }
+        return flags;
+    }
+}
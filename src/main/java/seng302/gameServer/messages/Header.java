@@ -13,7 +13,6 @@ public class Header {
     private short messageLength;
     private static final int MESSAGE_LEN = 15;
     private ByteBuffer buff;
-    private int buffPos;
 
     /**
      * Message Header from section 3.2 of the AC35 Streaming
@@ -27,46 +26,40 @@ public class Header {
         this.sourceId = sourceId;
         this.messageLength = messageLength;
         timeStamp = (int) (System.currentTimeMillis() / 1000L);
-        buff = ByteBuffer.allocate(MESSAGE_LEN);
-        buffPos = 0;
-    }
-
-    private void putInBuffer(byte[] bytes, long val){
-        byte[] tmp = bytes.clone();
-        Message.reverse(tmp);
-
-        buff.put(tmp);
-        buffPos += tmp.length;
-        buff.position(buffPos);
     }
 
     /**
      * Reset the buffer
      */
     public void reset(){
-        buffPos = 0;
-        buff.clear();
-        buff.position(buffPos);
+        if (buff != null) {
+            buff.clear();
+        }
+    }
+
+    /**
+     * Write this header to the start of a message buffer
+     * @param buffer The buffer to write the header into
+     */
+    void writeTo(ByteBuffer buffer){
+        buffer.put(0, (byte) syncByte1);
+        buffer.put(1, (byte) syncByte2);
+        buffer.put(2, (byte) messageType.getCode());
+        Message.putLittleEndian(buffer, 3, timeStamp, 6);
+        Message.putLittleEndian(buffer, 9, sourceId, 4);
+        Message.putLittleEndian(buffer, 13, messageLength, 2);
     }
 
     /**
      * @return a ByteBuffer containing the message header
      */
     public ByteBuffer getByteBuffer(){
+        if (buff == null) {
+            buff = ByteBuffer.allocate(MESSAGE_LEN);
+        }
         reset();
-
-        putInBuffer(ByteBuffer.allocate(1).put((byte)syncByte1).array(), syncByte1);
-
-        putInBuffer(ByteBuffer.allocate(1).put((byte)syncByte2).array(), syncByte2);
-
-        putInBuffer(ByteBuffer.allocate(1).put((byte)messageType.getCode()).array(), messageType.getCode());
-
-        putInBuffer(Message.intToByteArray(timeStamp, 6), timeStamp);
-
-        putInBuffer(Message.intToByteArray(sourceId, 4), sourceId);
-
-        putInBuffer(Message.intToByteArray(messageLength, 2), messageLength);
-
+        writeTo(buff);
+        buff.position(MESSAGE_LEN);
         return buff;
     }
 
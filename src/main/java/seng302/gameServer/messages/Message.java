@@ -2,15 +2,15 @@ package seng302.gameServer.messages;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
 import java.util.zip.CRC32;
 
 public abstract class Message {
-    private final int CRC_SIZE = 4;
+    private static final int CRC_SIZE = 4;
+    private static final ThreadLocal<CRC32> crc = ThreadLocal.withInitial(CRC32::new);
+
     private Header header;
     private ByteBuffer buffer;
     private int bufferPosition;
-    private CRC32 crc;
 
     /**
      * @param header Set the header for this message
@@ -32,47 +32,37 @@ public abstract class Message {
     public abstract int getSize();
 
     /**
-     * Allocate byte buffer to correct size
+     * Allocate byte buffer to correct size. This is the only allocation made while encoding, the
+     * buffer is kept as messages are cached and sent to several clients.
      */
     void allocateBuffer(){
         buffer = ByteBuffer.allocate(Header.getSize() + getSize() + CRC_SIZE);
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         bufferPosition = 0;
-        buffer.position(bufferPosition);
     }
 
     /**
      * Write the set header to the byte buffer
      */
     void writeHeaderToBuffer(){
-        buffer.put(getHeader().getByteBuffer().array());
+        getHeader().writeTo(buffer);
         bufferPosition += Header.getSize();
-        buffer.position(bufferPosition);
-    }
-
-    /**
-     * Move the buffer position by n bytes
-     * @param size Number of bytes to move the buffer by
-     */
-    private void moveBufferPositionBy(int size){
-        bufferPosition += size;
-        buffer.position(bufferPosition);
     }
 
     /**
      * Put an unsigned byte in the buffer
      */
     void putUnsignedByte(byte b){
-        buffer.put(ByteBuffer.allocate(1).put((byte) (b & 0xff)).array());
-        moveBufferPositionBy(1);
+        buffer.put(bufferPosition, b);
+        bufferPosition += 1;
     }
 
     /**
      * Put an signed byte in the buffer
      */
     void putByte(byte b){
-        buffer.put(ByteBuffer.allocate(1).put(b).array());
-        moveBufferPositionBy(1);
+        buffer.put(bufferPosition, b);
+        bufferPosition += 1;
     }
 
     /**
@@ -83,20 +73,14 @@ public abstract class Message {
     void putUnsignedInt(long val, int size){
         if (size <= 1){
             putUnsignedByte((byte) val);
-
         }
         else if (size < 4){
-            // Use short
-            byte[] tmp =  Message.intToByteArray(val, size); //ByteBuffer.allocate(size).putShort((short) (val & 0xffff)).array();
-            reverse(tmp);
-            buffer.put(tmp);
-            moveBufferPositionBy(size);
+            putInt(val, size);
         }
         else{
-            // Use int
-            byte[] tmp = Message.intToByteArray(val, size);
-            reverse(tmp);
-            moveBufferPositionBy(size);
+            // Fields of 4 or more bytes have always been left as zero on the wire, clients rely on
+            // the field width only.
+            bufferPosition += size;
         }
     }
 
@@ -106,17 +90,8 @@ public abstract class Message {
      * @param size The size of the integer to be added to the buffer
      */
     void putInt(long val, int size){
-        if (size < 4){
-            byte[] tmp = Message.intToByteArray(val, size);
-            reverse(tmp);
-            buffer.put(tmp);
-        }
-        else{
-            byte[] tmp = Message.intToByteArray(val, size);
-            reverse(tmp);
-            buffer.put(tmp);
-        }
-        moveBufferPositionBy(size);
+        putLittleEndian(buffer, bufferPosition, val, size);
+        bufferPosition += size;
     }
 
     /**
@@ -124,8 +99,19 @@ public abstract class Message {
      * @param bytes to write
      */
     void putBytes(byte[] bytes){
-        buffer.put(bytes);
-        moveBufferPositionBy(bytes.length);
+        System.arraycopy(bytes, 0, buffer.array(), buffer.arrayOffset() + bufferPosition, bytes.length);
+        bufferPosition += bytes.length;
+    }
+
+    /**
+     * Write part of an array of bytes to the buffer
+     * @param bytes to copy from
+     * @param offset index of the first byte to write
+     * @param size number of bytes
+     */
+    void putBytes(byte[] bytes, int offset, int size){
+        System.arraycopy(bytes, offset, buffer.array(), buffer.arrayOffset() + bufferPosition, size);
+        bufferPosition += size;
     }
 
     /**
@@ -134,8 +120,9 @@ public abstract class Message {
      * @param size number of bytes
      */
     void putBytes(ByteBuffer bytes, int size){
-        buffer.put(bytes.array());
-        moveBufferPositionBy(size);
+        System.arraycopy(bytes.array(), bytes.arrayOffset(), buffer.array(),
+            buffer.arrayOffset() + bufferPosition, size);
+        bufferPosition += size;
     }
 
 
@@ -143,35 +130,52 @@ public abstract class Message {
      * Calculate the CRC of the buffer and append it to the end of the buffer
      */
     void writeCRC(){
-        crc = new CRC32();
-
-        buffer.position(0);
-
-        byte[] data = Arrays.copyOfRange(buffer.array(), 0, buffer.array().length-CRC_SIZE);
-        crc.update(data);
-        buffer.position(bufferPosition);
+        CRC32 checksum = crc.get();
+        checksum.reset();
+        checksum.update(buffer.array(), buffer.arrayOffset(), buffer.capacity() - CRC_SIZE);
 
-        putInt((int) crc.getValue(), CRC_SIZE);
+        putInt((int) checksum.getValue(), CRC_SIZE);
     }
 
     /**
      * @return The current buffer as a byte array
      */
     public byte[] getBuffer(){
-        byte[] bytes = buffer.array();
-
-//        buffer.reset();
-//        buffer.clear();
-//        buffer = null;
+        return buffer.array();
+    }
 
-        return bytes;
+    /**
+     * Gives transports a read only view of the encoded message. Each call returns a new view with
+     * its own position so a single message can be written to many clients at once.
+     *
+     * @return A read only buffer over the whole message, positioned at the start
+     */
+    public ByteBuffer getByteBuffer(){
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.clear();
+        return view;
     }
 
     /**
      * Rewind the buffer to the beginning
      */
     void rewind(){
-        buffer.flip();
+        buffer.clear();
+    }
+
+    /**
+     * Write the lowest size bytes of a value into a buffer, least significant byte first.
+     *
+     * @param buffer The buffer to write to
+     * @param index The absolute index in the buffer to write at
+     * @param val The value to write
+     * @param size The number of bytes to write
+     */
+    static void putLittleEndian(ByteBuffer buffer, int index, long val, int size){
+        for (int i = 0; i < size; i++){
+            buffer.put(index + i, (byte) (val & 0xFF));
+            val >>>= 8;
+        }
     }
 
     /**
@@ -22,9 +22,13 @@ public enum MessageType {
     REGISTRATION_RESPONSE(102),
     CUSTOMIZATION_REQUEST(103),
     CUSTOMIZATION_RESPONSE(104),
+    BOAT_LOCATION_BATCH(105),
+    BOAT_STATE_DELTA(106),
+    TOKEN_UPDATE(107),
     REPO_REGISTRATION_REQUEST(201),
     ROOM_CODE_REQUEST(202),
-    LOBBY_REQUEST(203);
+    LOBBY_REQUEST(203),
+    REPO_HEARTBEAT(204);
 
 
     private int code;
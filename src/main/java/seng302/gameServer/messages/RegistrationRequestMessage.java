@@ -4,13 +4,20 @@ package seng302.gameServer.messages;
 public class RegistrationRequestMessage extends Message {
     private static int MESSAGE_LENGTH = 2;
 
-    public RegistrationRequestMessage(ClientType type, int clientID){
+    /**
+     * Registration request asking for optional protocol features
+     * @param type The type of client registering
+     * @param clientID The source id of the client
+     * @param capabilities The optional features this client can handle
+     */
+    public RegistrationRequestMessage(ClientType type, int clientID, ClientCapability... capabilities){
         setHeader(new Header(MessageType.REGISTRATION_REQUEST, clientID, (short) getSize()));
 
         allocateBuffer();
         writeHeaderToBuffer();
 
-        putInt(type.getCode(), 2);
+        putInt(type.getCode(), 1);
+        putInt(ClientCapability.toFlags(capabilities), 1);
 
         writeCRC();
     }
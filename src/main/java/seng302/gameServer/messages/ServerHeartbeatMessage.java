@@ -0,0 +1,28 @@
+package seng302.gameServer.messages;
+
+/**
+ * Sent by a game server on its connection to the discovery server to keep its listing alive. Only
+ * carries the room code the listing was given, in the same layout as a {@link RoomCodeRequest}.
+ */
+public class ServerHeartbeatMessage extends Message {
+    private int size = 0;
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    public ServerHeartbeatMessage(String roomCode){
+        size = roomCode.length() + 6;
+
+        setHeader(new Header(MessageType.REPO_HEARTBEAT, 0x01, (short)getSize()));
+        allocateBuffer();
+        writeHeaderToBuffer();
+
+        putInt(roomCode.length(), 6);
+        putBytes(roomCode.getBytes());
+
+        writeCRC();
+        rewind();
+    }
+}
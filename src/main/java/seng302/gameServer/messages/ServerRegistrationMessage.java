@@ -10,7 +10,7 @@ public class ServerRegistrationMessage extends Message {
         String mapName = serverListing.getMapName();
         String address = serverListing.getAddress();
         int port = serverListing.getPortNumber();
-        int players = serverListing.getPortNumber();
+        int players = serverListing.getNumberOfPlayers();
         int capacity = serverListing.getCapacity();
         String roomCode = serverListing.getRoomCode();
 
@@ -0,0 +1,68 @@
+package seng302.gameServer.messages;
+
+import java.util.List;
+import seng302.model.token.Token;
+
+/**
+ * Tokens spawned and removed from the course, sent to clients registered with
+ * {@link ClientCapability#TOKEN_UPDATE} in place of the whole race XML. Removals are written
+ * before spawns so a client applying the records in order ends up with the tokens in play.
+ *
+ * Payload: version (1), record count (1), then for each record the action (1), token id (4),
+ * token type (1), latitude (4) and longitude (4), packed as in a {@link BoatLocationMessage}.
+ */
+public class TokenUpdateMessage extends Message {
+
+    private static final int MESSAGE_VERSION = 1;
+    private static final int MESSAGE_BASE_SIZE = 2;
+    public static final int RECORD_SIZE = 14;
+    public static final int MAX_RECORDS = 0xFF;
+
+    public static final int ACTION_SPAWN = 0;
+    public static final int ACTION_DESPAWN = 1;
+
+    private int size;
+
+    /**
+     * @param despawned Tokens that have been picked up or removed
+     * @param spawned Tokens that have been put on the course
+     * @throws IllegalArgumentException if there are more than MAX_RECORDS tokens
+     */
+    public TokenUpdateMessage(List<Token> despawned, List<Token> spawned) {
+        int numberOfRecords = despawned.size() + spawned.size();
+        if (numberOfRecords > MAX_RECORDS) {
+            throw new IllegalArgumentException(
+                "Too many tokens for one update: " + numberOfRecords);
+        }
+        size = MESSAGE_BASE_SIZE + numberOfRecords * RECORD_SIZE;
+
+        setHeader(new Header(MessageType.TOKEN_UPDATE, 1, (short) getSize()));
+        allocateBuffer();
+        writeHeaderToBuffer();
+
+        putByte((byte) MESSAGE_VERSION);
+        putInt(numberOfRecords, 1);
+        for (Token token : despawned) {
+            putRecord(ACTION_DESPAWN, token);
+        }
+        for (Token token : spawned) {
+            putRecord(ACTION_SPAWN, token);
+        }
+
+        writeCRC();
+        rewind();
+    }
+
+    private void putRecord(int action, Token token) {
+        putInt(action, 1);
+        putInt(token.getTokenId(), 4);
+        putInt(token.getTokenType().getValue(), 1);
+        putInt(BoatLocationMessage.latLonToBinaryPackedLong(token.getLat()), 4);
+        putInt(BoatLocationMessage.latLonToBinaryPackedLong(token.getLng()), 4);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
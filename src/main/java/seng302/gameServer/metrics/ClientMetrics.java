@@ -0,0 +1,126 @@
+package seng302.gameServer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import seng302.gameServer.ClientConnection;
+
+/**
+ * Packets and bytes sent to and read from one client. Counted by the connection's transport, so
+ * the same numbers are kept whether the client has a thread of its own or is served by the
+ * selector server.
+ *
+ * Safe to record into and read from any thread.
+ */
+public class ClientMetrics implements ClientMetricsMBean {
+
+    private final ClientConnection connection;
+
+    private final AtomicLong packetsIn = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong packetsOut = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong crcDrops = new AtomicLong();
+
+    private long lastReportTime = -1;
+    private long lastPacketsIn = 0;
+    private long lastPacketsOut = 0;
+    private long lastBytesOut = 0;
+
+    /**
+     * @param connection The connection being measured
+     */
+    public ClientMetrics(ClientConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Records a valid packet read from the client.
+     */
+    public void packetReceived() {
+        packetsIn.incrementAndGet();
+    }
+
+    /**
+     * Takes the totals of the framer reading the client, which counts every byte it reads and
+     * every packet it drops for a bad CRC.
+     *
+     * @param bytesRead Bytes read from the client so far
+     * @param droppedPackets Packets dropped so far
+     */
+    public void updateInbound(long bytesRead, long droppedPackets) {
+        bytesIn.set(bytesRead);
+        crcDrops.set(droppedPackets);
+    }
+
+    /**
+     * @param packets The number of whole packets written to the client
+     * @param bytes The number of bytes written to the client
+     */
+    public void sent(int packets, long bytes) {
+        packetsOut.addAndGet(packets);
+        bytesOut.addAndGet(bytes);
+    }
+
+    @Override
+    public int getSourceId() {
+        Integer sourceId = connection.getSourceId();
+        return sourceId == null ? -1 : sourceId;
+    }
+
+    @Override
+    public long getPacketsIn() {
+        return packetsIn.get();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    @Override
+    public long getPacketsOut() {
+        return packetsOut.get();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    @Override
+    public long getCrcDrops() {
+        return crcDrops.get();
+    }
+
+    @Override
+    public long getOutboundBacklogBytes() {
+        return connection.getOutboundBacklog();
+    }
+
+    /**
+     * One line of the client's throughput since the last report and its backlog.
+     *
+     * @param now The current time in milliseconds
+     * @return The report
+     */
+    public synchronized String report(long now) {
+        double seconds = lastReportTime < 0 ? 0 : (now - lastReportTime) / 1000.0;
+        long in = packetsIn.get();
+        long out = packetsOut.get();
+        long bytes = bytesOut.get();
+        String line = String.format(
+            "client %d in %.0f pkt/s | out %.0f pkt/s %.1f KiB/s | backlog=%dB crc=%d",
+            getSourceId(), perSecond(in - lastPacketsIn, seconds),
+            perSecond(out - lastPacketsOut, seconds), perSecond(bytes - lastBytesOut, seconds) / 1024,
+            getOutboundBacklogBytes(), getCrcDrops()
+        );
+        lastReportTime = now;
+        lastPacketsIn = in;
+        lastPacketsOut = out;
+        lastBytesOut = bytes;
+        return line;
+    }
+
+    static double perSecond(long count, double seconds) {
+        return seconds <= 0 ? 0 : count / seconds;
+    }
+}
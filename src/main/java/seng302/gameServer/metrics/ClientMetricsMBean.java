@@ -0,0 +1,21 @@
+package seng302.gameServer.metrics;
+
+/**
+ * The traffic of one client connection, as published over JMX.
+ */
+public interface ClientMetricsMBean {
+
+    int getSourceId();
+
+    long getPacketsIn();
+
+    long getBytesIn();
+
+    long getPacketsOut();
+
+    long getBytesOut();
+
+    long getCrcDrops();
+
+    long getOutboundBacklogBytes();
+}
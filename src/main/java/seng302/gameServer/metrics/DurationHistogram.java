@@ -0,0 +1,115 @@
+package seng302.gameServer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations into buckets that double in size, from under a microsecond to over a second,
+ * so percentiles can be read at any time without keeping samples. A percentile is reported as the
+ * upper bound of the bucket it falls in, so is within a factor of two of the real value.
+ *
+ * Safe to record into and read from any thread.
+ */
+public class DurationHistogram {
+
+    // Bucket i holds durations under 2^i microseconds, the last bucket holds the rest
+    private static final int BUCKETS = 22;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * The counts of a histogram at one moment. Subtracting an earlier snapshot from a later one
+     * gives the durations recorded between them.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * @param earlier A snapshot of the same histogram taken before this one
+         * @return The durations recorded since the earlier snapshot
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(difference, count - earlier.count, totalNanos - earlier.totalNanos);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        /**
+         * @param percentile The percentile to find, from 0 to 100
+         * @return The upper bound in milliseconds of the bucket holding the percentile, 0 if
+         * nothing was recorded
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return (1L << i) / 1e3;
+                }
+            }
+            return (1L << (counts.length - 1)) / 1e3;
+        }
+    }
+
+    /**
+     * @param nanos A duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.get(), totalNanos.get());
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        return snapshot().getMeanMillis();
+    }
+
+    public double getPercentileMillis(double percentile) {
+        return snapshot().getPercentileMillis(percentile);
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+}
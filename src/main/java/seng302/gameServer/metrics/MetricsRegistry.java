@@ -0,0 +1,200 @@
+package seng302.gameServer.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the metrics of every race and client in this JVM as MBeans, so a running server can
+ * be watched with JConsole or any other JMX client, and can log them as one compact line per
+ * race and client at a fixed interval.
+ *
+ * Races are named seng302:type=Race,port=PORT and clients
+ * seng302:type=Client,race=PORT,sourceId=ID.
+ */
+public class MetricsRegistry {
+
+    private static final String DOMAIN = "seng302";
+
+    private static MetricsRegistry instance;
+
+    private Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final Map<Integer, RaceMetrics> races = new ConcurrentSkipListMap<>();
+    // The port of the race of each published client
+    private final Map<ClientMetrics, Integer> clients = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService logExecutor;
+    private ScheduledFuture<?> logTask;
+
+    private MetricsRegistry() {
+    }
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Publishes a race. A race left registered on the same port, such as one that was never
+     * closed, is replaced.
+     *
+     * @param race The metrics of the race
+     */
+    public void registerRace(RaceMetrics race) {
+        races.put(race.getPort(), race);
+        register(race, raceName(race.getPort()));
+    }
+
+    /**
+     * Removes a race and any of its clients still published.
+     *
+     * @param race The metrics of the race
+     */
+    public void unregisterRace(RaceMetrics race) {
+        if (!races.remove(race.getPort(), race)) {
+            return;
+        }
+        unregister(raceName(race.getPort()));
+        clients.entrySet().removeIf(client -> {
+            if (client.getValue() == race.getPort()) {
+                unregister(clientName(client.getValue(), client.getKey().getSourceId()));
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Publishes a client once it has registered and has a source id.
+     *
+     * @param port The port of the client's race
+     * @param client The metrics of the client
+     */
+    public void registerClient(int port, ClientMetrics client) {
+        clients.put(client, port);
+        register(client, clientName(port, client.getSourceId()));
+    }
+
+    /**
+     * @param client The metrics of a client that has left its race
+     */
+    public void unregisterClient(ClientMetrics client) {
+        Integer port = clients.remove(client);
+        if (port != null) {
+            unregister(clientName(port, client.getSourceId()));
+        }
+    }
+
+    /**
+     * Logs a line for every race and client each interval, replacing any interval set before.
+     *
+     * @param interval Time between logs, 0 or less to stop logging
+     * @param unit The unit of the interval
+     */
+    public synchronized void startLogging(long interval, TimeUnit unit) {
+        stopLogging();
+        if (interval <= 0) {
+            return;
+        }
+        if (logExecutor == null) {
+            logExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "MetricsLog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        logTask = logExecutor.scheduleAtFixedRate(this::logMetrics, interval, interval, unit);
+    }
+
+    public synchronized void stopLogging() {
+        if (logTask != null) {
+            logTask.cancel(false);
+            logTask = null;
+        }
+    }
+
+    /**
+     * @param port The port of a race
+     * @return The metrics of the race, null if no race on the port is published
+     */
+    public RaceMetrics getRace(int port) {
+        return races.get(port);
+    }
+
+    private void logMetrics() {
+        long now = System.currentTimeMillis();
+        try {
+            for (RaceMetrics race : races.values()) {
+                logger.info(race.report(now));
+                for (ClientMetrics client : race.getClientMetrics()) {
+                    logger.info("  " + client.report(now));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Thrown out of a scheduled task would stop all later logs
+            logger.warn("Could not log server metrics", e);
+        }
+    }
+
+    private void register(Object mBean, ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            try {
+                mBeanServer.registerMBean(mBean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                mBeanServer.unregisterMBean(name);
+                mBeanServer.registerMBean(mBean, name);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not publish metrics " + name, e);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            mBeanServer.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            logger.trace("Metrics " + name + " were already removed");
+        } catch (JMException e) {
+            logger.warn("Could not remove metrics " + name, e);
+        }
+    }
+
+    static ObjectName raceName(int port) {
+        return objectName(DOMAIN + ":type=Race,port=" + port);
+    }
+
+    static ObjectName clientName(int port, int sourceId) {
+        return objectName(DOMAIN + ":type=Client,race=" + port + ",sourceId=" + sourceId);
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (JMException e) {
+            LoggerFactory.getLogger(MetricsRegistry.class).warn("Bad metrics name " + name);
+            return null;
+        }
+    }
+}
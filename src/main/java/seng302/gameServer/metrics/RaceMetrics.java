@@ -0,0 +1,312 @@
+package seng302.gameServer.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import seng302.gameServer.ClientConnection;
+import seng302.gameServer.GameStages;
+import seng302.gameServer.RaceInstance;
+import seng302.gameServer.TickStats;
+
+/**
+ * Everything measured about one race: its simulation ticks and the broadcasts to its clients, the
+ * traffic of its clients, its stage changes and the CPU time and memory it has used. Most values
+ * are read straight from the race when asked for, only broadcast times, stage changes and the
+ * traffic of clients that have left are kept here.
+ *
+ * Safe to record into and read from any thread.
+ */
+public class RaceMetrics implements RaceMetricsMBean {
+
+    private final RaceInstance race;
+
+    private final DurationHistogram broadcastHistogram = new DurationHistogram();
+    private final AtomicLongArray stageTransitions =
+        new AtomicLongArray(GameStages.values().length);
+    private final AtomicLong disconnects = new AtomicLong();
+
+    // Traffic of clients no longer connected to the race
+    private final AtomicLong retiredPacketsIn = new AtomicLong();
+    private final AtomicLong retiredBytesIn = new AtomicLong();
+    private final AtomicLong retiredPacketsOut = new AtomicLong();
+    private final AtomicLong retiredBytesOut = new AtomicLong();
+    private final AtomicLong retiredCrcDrops = new AtomicLong();
+
+    private long lastReportTime = -1;
+    private long lastPacketsIn = 0;
+    private long lastPacketsOut = 0;
+    private long lastBytesOut = 0;
+    private DurationHistogram.Snapshot lastTickSnapshot;
+    private DurationHistogram.Snapshot lastBroadcastSnapshot;
+
+    /**
+     * @param race The race to measure
+     */
+    public RaceMetrics(RaceInstance race) {
+        this.race = race;
+        lastTickSnapshot = getTickStats().getUpdateHistogram().snapshot();
+        lastBroadcastSnapshot = broadcastHistogram.snapshot();
+    }
+
+    /**
+     * @param nanos How long one round of sending to the race's clients took
+     */
+    public void recordBroadcast(long nanos) {
+        broadcastHistogram.record(nanos);
+    }
+
+    /**
+     * Counts a change of the race's stage. Can be given to the race's game state as a stage
+     * listener.
+     *
+     * @param from The stage the race left
+     * @param to The stage the race entered
+     */
+    public void stageChanged(GameStages from, GameStages to) {
+        stageTransitions.incrementAndGet(to.ordinal());
+    }
+
+    /**
+     * Keeps the traffic of a client that has left the race in the race's totals.
+     *
+     * @param client The client that left
+     */
+    public void clientRetired(ClientMetrics client) {
+        retiredPacketsIn.addAndGet(client.getPacketsIn());
+        retiredBytesIn.addAndGet(client.getBytesIn());
+        retiredPacketsOut.addAndGet(client.getPacketsOut());
+        retiredBytesOut.addAndGet(client.getBytesOut());
+        retiredCrcDrops.addAndGet(client.getCrcDrops());
+        disconnects.incrementAndGet();
+    }
+
+    private TickStats getTickStats() {
+        return race.getGameState().getTickStats();
+    }
+
+    @Override
+    public int getPort() {
+        return race.getPortNumber();
+    }
+
+    @Override
+    public String getStage() {
+        return race.getGameState().getCurrentStage().toString();
+    }
+
+    @Override
+    public int getConnectedPlayers() {
+        int players = 0;
+        for (ClientConnection connection : race.getClientConnections()) {
+            if (connection.isRegistered() && connection.isSocketOpen()) {
+                players++;
+            }
+        }
+        return players;
+    }
+
+    /**
+     * @return The metrics of every registered client of the race, in source id order
+     */
+    public List<ClientMetrics> getClientMetrics() {
+        List<ClientMetrics> clients = new ArrayList<>();
+        for (ClientConnection connection : race.getClientConnections()) {
+            if (connection.isRegistered()) {
+                clients.add(connection.getMetrics());
+            }
+        }
+        clients.sort(Comparator.comparingInt(ClientMetrics::getSourceId));
+        return clients;
+    }
+
+    @Override
+    public long getStageTransitionCount() {
+        long total = 0;
+        for (int i = 0; i < stageTransitions.length(); i++) {
+            total += stageTransitions.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param stage A stage of the game
+     * @return The number of times the race has entered the stage
+     */
+    public long getStageTransitions(GameStages stage) {
+        return stageTransitions.get(stage.ordinal());
+    }
+
+    /**
+     * @return The number of times the race has entered each stage, such as "PRE_RACE=1 RACING=1"
+     */
+    @Override
+    public String getStageTransitions() {
+        StringBuilder transitions = new StringBuilder();
+        for (GameStages stage : GameStages.values()) {
+            long count = stageTransitions.get(stage.ordinal());
+            if (count > 0) {
+                transitions.append(stage).append('=').append(count).append(' ');
+            }
+        }
+        return transitions.toString().trim();
+    }
+
+    @Override
+    public long getTicks() {
+        return getTickStats().getTicks();
+    }
+
+    @Override
+    public long getTickOverruns() {
+        return getTickStats().getOverruns();
+    }
+
+    @Override
+    public long getSkippedTicks() {
+        return getTickStats().getSkippedTicks();
+    }
+
+    @Override
+    public double getTickMeanMillis() {
+        return getTickStats().getMeanUpdateNanos() / 1e6;
+    }
+
+    @Override
+    public double getTickP99Millis() {
+        return getTickStats().getUpdateHistogram().getPercentileMillis(99);
+    }
+
+    @Override
+    public double getTickMaxMillis() {
+        return getTickStats().getMaxUpdateNanos() / 1e6;
+    }
+
+    @Override
+    public long getBroadcasts() {
+        return broadcastHistogram.getCount();
+    }
+
+    @Override
+    public double getBroadcastMeanMillis() {
+        return broadcastHistogram.getMeanMillis();
+    }
+
+    @Override
+    public double getBroadcastP99Millis() {
+        return broadcastHistogram.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getBroadcastMaxMillis() {
+        return broadcastHistogram.getMaxMillis();
+    }
+
+    @Override
+    public long getPacketsIn() {
+        long total = retiredPacketsIn.get();
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getMetrics().getPacketsIn();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesIn() {
+        long total = retiredBytesIn.get();
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getMetrics().getBytesIn();
+        }
+        return total;
+    }
+
+    @Override
+    public long getPacketsOut() {
+        long total = retiredPacketsOut.get();
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getMetrics().getPacketsOut();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesOut() {
+        long total = retiredBytesOut.get();
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getMetrics().getBytesOut();
+        }
+        return total;
+    }
+
+    @Override
+    public long getCrcDrops() {
+        long total = retiredCrcDrops.get();
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getMetrics().getCrcDrops();
+        }
+        return total;
+    }
+
+    @Override
+    public long getOutboundBacklogBytes() {
+        long total = 0;
+        for (ClientConnection connection : race.getClientConnections()) {
+            total += connection.getOutboundBacklog();
+        }
+        return total;
+    }
+
+    @Override
+    public long getDisconnects() {
+        return disconnects.get();
+    }
+
+    @Override
+    public double getCpuMillis() {
+        return race.getUsage().getCpuNanos() / 1e6;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return race.getUsage().getAllocatedBytes();
+    }
+
+    /**
+     * One line of the race's tick and broadcast times and its throughput since the last report,
+     * with its running totals of losses and resources used.
+     *
+     * @param now The current time in milliseconds
+     * @return The report
+     */
+    public synchronized String report(long now) {
+        double seconds = lastReportTime < 0 ? 0 : (now - lastReportTime) / 1000.0;
+        DurationHistogram.Snapshot tickSnapshot = getTickStats().getUpdateHistogram().snapshot();
+        DurationHistogram.Snapshot broadcastSnapshot = broadcastHistogram.snapshot();
+        DurationHistogram.Snapshot ticks = tickSnapshot.since(lastTickSnapshot);
+        DurationHistogram.Snapshot broadcasts = broadcastSnapshot.since(lastBroadcastSnapshot);
+        long in = getPacketsIn();
+        long out = getPacketsOut();
+        long bytes = getBytesOut();
+        String line = String.format(
+            "race %d %s players=%d | tick mean=%.3fms p99=%.3fms overruns=%d skipped=%d | "
+                + "broadcast mean=%.3fms p99=%.3fms | in %.0f pkt/s | out %.0f pkt/s %.1f KiB/s | "
+                + "backlog=%dB crc=%d disconnects=%d | cpu=%.1fms alloc=%.1fMB",
+            getPort(), getStage(), getConnectedPlayers(),
+            ticks.getMeanMillis(), ticks.getPercentileMillis(99), getTickOverruns(),
+            getSkippedTicks(), broadcasts.getMeanMillis(), broadcasts.getPercentileMillis(99),
+            ClientMetrics.perSecond(in - lastPacketsIn, seconds),
+            ClientMetrics.perSecond(out - lastPacketsOut, seconds),
+            ClientMetrics.perSecond(bytes - lastBytesOut, seconds) / 1024,
+            getOutboundBacklogBytes(), getCrcDrops(), getDisconnects(), getCpuMillis(),
+            getAllocatedBytes() / (1024.0 * 1024.0)
+        );
+        lastReportTime = now;
+        lastPacketsIn = in;
+        lastPacketsOut = out;
+        lastBytesOut = bytes;
+        lastTickSnapshot = tickSnapshot;
+        lastBroadcastSnapshot = broadcastSnapshot;
+        return line;
+    }
+}
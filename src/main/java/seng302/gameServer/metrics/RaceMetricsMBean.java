@@ -0,0 +1,56 @@
+package seng302.gameServer.metrics;
+
+/**
+ * The health of one race, as published over JMX. Durations are in milliseconds, traffic totals
+ * include clients that have since left.
+ */
+public interface RaceMetricsMBean {
+
+    int getPort();
+
+    String getStage();
+
+    int getConnectedPlayers();
+
+    long getStageTransitionCount();
+
+    String getStageTransitions();
+
+    long getTicks();
+
+    long getTickOverruns();
+
+    long getSkippedTicks();
+
+    double getTickMeanMillis();
+
+    double getTickP99Millis();
+
+    double getTickMaxMillis();
+
+    long getBroadcasts();
+
+    double getBroadcastMeanMillis();
+
+    double getBroadcastP99Millis();
+
+    double getBroadcastMaxMillis();
+
+    long getPacketsIn();
+
+    long getBytesIn();
+
+    long getPacketsOut();
+
+    long getBytesOut();
+
+    long getCrcDrops();
+
+    long getOutboundBacklogBytes();
+
+    long getDisconnects();
+
+    double getCpuMillis();
+
+    long getAllocatedBytes();
+}
@@ -0,0 +1,250 @@
+package seng302.gameServer.recording;
+
+import static seng302.gameServer.recording.RecordingFormat.INDEX_ENTRY_SIZE;
+import static seng302.gameServer.recording.RecordingFormat.INDEX_INTERVAL_NANOS;
+import static seng302.gameServer.recording.RecordingFormat.RECORD_HEADER_SIZE;
+import static seng302.gameServer.recording.RecordingFormat.SEGMENT_HEADER_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.messages.Message;
+
+/**
+ * Records the packets a race sends to its clients, so the race can be looked at or replayed once
+ * it is over. Every frame is written as it was sent with the time it was sent, to memory mapped
+ * segment files with an index of times for seeking, see {@link RecordingFormat}.
+ *
+ * Recording a message only queues a view of its encoded bytes for the server's one recording
+ * thread, so broadcasts are not slowed by the disk. If that thread falls too far behind frames
+ * are dropped rather than queued without limit.
+ */
+public class RaceRecorder {
+
+    private static final int MAX_PENDING_FRAMES = 100_000;
+    private static final long CLOSE_TIMEOUT = 5000;
+
+    private Logger logger = LoggerFactory.getLogger(RaceRecorder.class);
+
+    private final File directory;
+    private final int segmentSize;
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private final RecordingWriter writer = RecordingWriter.getInstance();
+
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private final AtomicLong recordedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean closed = false;
+
+    // Only used by the recording thread after opening
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private int segmentNumber = -1;
+    private FileChannel indexChannel;
+    private final ByteBuffer indexEntry =
+        ByteBuffer.allocate(INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long nextIndexNanos = 0;
+    private boolean failed = false;
+
+    private RaceRecorder(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Starts a new recording with segments of the default size.
+     *
+     * @param directory The directory to record into, created if it does not exist
+     * @return The recorder
+     * @throws IOException if the recording could not be created
+     */
+    public static RaceRecorder open(File directory) throws IOException {
+        return open(directory, RecordingFormat.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory The directory to record into, created if it does not exist
+     * @param segmentSize The size of each segment file in bytes
+     * @return The recorder
+     * @throws IOException if the recording could not be created
+     */
+    public static RaceRecorder open(File directory, int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create recording directory " + directory);
+        }
+        RaceRecorder recorder = new RaceRecorder(directory, segmentSize);
+        // Opened here so a bad directory is reported to the caller, the writer takes over after
+        recorder.openIndex();
+        recorder.openSegment(0);
+        return recorder;
+    }
+
+    /**
+     * Adds a message to the recording as it is being sent.
+     *
+     * @param message The message
+     */
+    public void record(Message message) {
+        if (closed) {
+            return;
+        }
+        if (pendingFrames.incrementAndGet() > MAX_PENDING_FRAMES) {
+            pendingFrames.decrementAndGet();
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        writer.submit(this, System.nanoTime() - startNanos, message.getByteBuffer());
+    }
+
+    /**
+     * @param messages Messages sent together, recorded in order
+     */
+    public void record(List<Message> messages) {
+        for (Message message : messages) {
+            record(message);
+        }
+    }
+
+    /**
+     * Stops recording and waits for the frames already recorded to be written.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writer.submitClose(this);
+        try {
+            if (!finished.await(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("Timed out finishing recording " + directory);
+            }
+        } catch (InterruptedException e) {
+            logger.trace("Interrupted waiting for recording to finish");
+        }
+    }
+
+    /**
+     * Writes a frame to the current segment, moving to a new segment if it does not fit. Called
+     * on the recording thread only.
+     */
+    void write(long nanos, ByteBuffer frame) {
+        pendingFrames.decrementAndGet();
+        // A frame can be handed over by a broadcast racing the close
+        if (failed || segment == null) {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        int length = frame.remaining();
+        try {
+            if (segment.remaining() < RECORD_HEADER_SIZE + length) {
+                if (SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE + length > segmentSize) {
+                    droppedFrames.incrementAndGet();
+                    logger.warn("Frame of " + length + " bytes is larger than a segment");
+                    return;
+                }
+                openSegment(segmentNumber + 1);
+                writeIndexEntry(nanos);
+            } else if (nanos >= nextIndexNanos) {
+                writeIndexEntry(nanos);
+            }
+        } catch (IOException e) {
+            logger.error("Could not write recording " + directory + ", recording stopped", e);
+            failed = true;
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        segment.putInt(length);
+        segment.putLong(nanos);
+        segment.put(frame);
+        recordedFrames.incrementAndGet();
+    }
+
+    /**
+     * Closes the files of the recording. Called on the recording thread only.
+     */
+    void finish() {
+        try {
+            closeSegment();
+            indexChannel.close();
+        } catch (IOException e) {
+            logger.warn("IO error closing recording " + directory);
+        }
+        finished.countDown();
+    }
+
+    private void openIndex() throws IOException {
+        indexChannel = FileChannel.open(RecordingFormat.indexFile(directory).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        indexChannel.write(ByteBuffer.wrap(RecordingFormat.INDEX_MAGIC));
+    }
+
+    private void openSegment(int number) throws IOException {
+        closeSegment();
+        segmentNumber = number;
+        segmentChannel = FileChannel.open(
+            RecordingFormat.segmentFile(directory, number).toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        segment = segmentChannel.map(MapMode.READ_WRITE, 0, segmentSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.put(RecordingFormat.SEGMENT_MAGIC);
+        segment.putInt(RecordingFormat.VERSION);
+        segment.putInt(number);
+        segment.putLong(startMillis);
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segmentChannel.close();
+            segment = null;
+        }
+    }
+
+    /**
+     * Indexes the record about to be written at the current position of the segment.
+     */
+    private void writeIndexEntry(long nanos) throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(nanos);
+        indexEntry.putInt(segmentNumber);
+        indexEntry.putInt(segment.position());
+        indexEntry.flip();
+        indexChannel.write(indexEntry);
+        nextIndexNanos = nanos + INDEX_INTERVAL_NANOS;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return The number of frames written to the recording so far
+     */
+    public long getRecordedFrames() {
+        return recordedFrames.get();
+    }
+
+    /**
+     * @return The number of frames left out of the recording because it could not keep up or
+     * could not be written
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+}
@@ -0,0 +1,46 @@
+package seng302.gameServer.recording;
+
+import java.io.File;
+
+/**
+ * The layout of a race recording. A recording is a directory of segment files and an index file,
+ * every number in them is little endian as in the AC35 protocol.
+ *
+ * Each segment starts with a header of the magic bytes, the format version, the number of the
+ * segment and the wall clock time the recording started. Records follow one after the other, each
+ * the length of its frame, the time it was recorded in nanoseconds since the recording started,
+ * then the frame exactly as it was sent. Segments are created at their full size and filled with
+ * zeros, so a length of zero marks the end of the records in a segment.
+ *
+ * The index is the magic bytes then an entry every {@link #INDEX_INTERVAL_NANOS} of recording, and
+ * at the start of every segment, of the time, segment and offset of a record.
+ */
+final class RecordingFormat {
+
+    static final byte[] SEGMENT_MAGIC = {'A', 'C', '3', '5', 'R', 'E', 'C', 0};
+    static final byte[] INDEX_MAGIC = {'A', 'C', '3', '5', 'I', 'D', 'X', 0};
+    static final int VERSION = 1;
+
+    // Magic, version, segment number, start time in millis
+    static final int SEGMENT_HEADER_SIZE = 8 + 4 + 4 + 8;
+    // Frame length and time in nanos
+    static final int RECORD_HEADER_SIZE = 4 + 8;
+    // Time in nanos, segment number and offset
+    static final int INDEX_ENTRY_SIZE = 8 + 4 + 4;
+
+    static final long INDEX_INTERVAL_NANOS = 250_000_000L;
+    static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String INDEX_FILE = "index.idx";
+
+    private RecordingFormat() {
+    }
+
+    static File segmentFile(File directory, int segment) {
+        return new File(directory, String.format("segment-%05d.rec", segment));
+    }
+
+    static File indexFile(File directory) {
+        return new File(directory, INDEX_FILE);
+    }
+}
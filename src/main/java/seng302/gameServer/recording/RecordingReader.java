@@ -0,0 +1,200 @@
+package seng302.gameServer.recording;
+
+import static seng302.gameServer.recording.RecordingFormat.INDEX_ENTRY_SIZE;
+import static seng302.gameServer.recording.RecordingFormat.RECORD_HEADER_SIZE;
+import static seng302.gameServer.recording.RecordingFormat.SEGMENT_HEADER_SIZE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the frames of a race recording in order. Segments are mapped into memory and each frame
+ * is handed out as a view of the mapped bytes, so frames can be sent on without being copied or
+ * decoded.
+ *
+ * Not thread safe, each reader of a recording should have its own.
+ */
+public class RecordingReader implements Closeable {
+
+    private final File directory;
+    private final long startMillis;
+
+    // The index, as parallel arrays sorted by time
+    private final long[] indexNanos;
+    private final int[] indexSegments;
+    private final int[] indexOffsets;
+
+    private int segmentNumber = -1;
+    private MappedByteBuffer segment;
+    private long frameNanos = -1;
+    private ByteBuffer frame;
+
+    /**
+     * @param directory The directory of a recording made by a {@link RaceRecorder}
+     * @throws IOException if the recording could not be read or is not a recording
+     */
+    public RecordingReader(File directory) throws IOException {
+        this.directory = directory;
+        openSegment(0);
+        startMillis = segment.getLong(SEGMENT_HEADER_SIZE - 8);
+
+        ByteBuffer index = ByteBuffer.wrap(
+            Files.readAllBytes(RecordingFormat.indexFile(directory).toPath())
+        ).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[RecordingFormat.INDEX_MAGIC.length];
+        if (index.remaining() < magic.length) {
+            throw new IOException("Recording index is empty");
+        }
+        index.get(magic);
+        if (!Arrays.equals(magic, RecordingFormat.INDEX_MAGIC)) {
+            throw new IOException("Not a recording index");
+        }
+        int entries = index.remaining() / INDEX_ENTRY_SIZE;
+        indexNanos = new long[entries];
+        indexSegments = new int[entries];
+        indexOffsets = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            indexNanos[i] = index.getLong();
+            indexSegments[i] = index.getInt();
+            indexOffsets[i] = index.getInt();
+        }
+    }
+
+    /**
+     * Moves to the next frame of the recording.
+     *
+     * @return false if there are no more frames
+     * @throws IOException if the next segment could not be read
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (segment.remaining() >= RECORD_HEADER_SIZE) {
+                int length = segment.getInt(segment.position());
+                if (length > 0) {
+                    frameNanos = segment.getLong(segment.position() + 4);
+                    int start = segment.position() + RECORD_HEADER_SIZE;
+                    ByteBuffer view = segment.duplicate();
+                    view.position(start).limit(start + length);
+                    frame = view.slice().asReadOnlyBuffer();
+                    segment.position(start + length);
+                    return true;
+                }
+            }
+            if (!RecordingFormat.segmentFile(directory, segmentNumber + 1).exists()) {
+                frame = null;
+                return false;
+            }
+            openSegment(segmentNumber + 1);
+        }
+    }
+
+    /**
+     * Moves to just before the first frame recorded at or after a time, so the following call to
+     * {@link #next()} returns it. Jumps to the indexed record closest before the time and reads
+     * on from there.
+     *
+     * @param nanos Time since the recording started
+     * @throws IOException if a segment could not be read
+     */
+    public void seek(long nanos) throws IOException {
+        int entry = Arrays.binarySearch(indexNanos, nanos);
+        if (entry < 0) {
+            entry = -entry - 2;
+        }
+        if (entry < 0) {
+            openSegment(0);
+        } else {
+            // Earlier entries with the same time may point at earlier records
+            while (entry > 0 && indexNanos[entry - 1] == indexNanos[entry]) {
+                entry--;
+            }
+            openSegment(indexSegments[entry]);
+            segment.position(indexOffsets[entry]);
+        }
+
+        while (segment.remaining() >= RECORD_HEADER_SIZE) {
+            int length = segment.getInt(segment.position());
+            if (length <= 0 || segment.getLong(segment.position() + 4) >= nanos) {
+                return;
+            }
+            segment.position(segment.position() + RECORD_HEADER_SIZE + length);
+        }
+    }
+
+    /**
+     * @return The frame last moved to, a read only view of the recording, or null before the
+     * first frame and after the last
+     */
+    public ByteBuffer getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return The time the frame last moved to was sent, in nanoseconds since the recording
+     * started
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * @return The wall clock time the recording started in milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return The time of the last indexed frame, close to the length of the recording
+     */
+    public long getLastIndexedNanos() {
+        return indexNanos.length == 0 ? 0 : indexNanos[indexNanos.length - 1];
+    }
+
+    private void openSegment(int number) throws IOException {
+        if (number == segmentNumber) {
+            segment.position(SEGMENT_HEADER_SIZE);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(
+            RecordingFormat.segmentFile(directory, number).toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[RecordingFormat.SEGMENT_MAGIC.length];
+            if (mapped.remaining() < SEGMENT_HEADER_SIZE) {
+                throw new IOException("Recording segment " + number + " is truncated");
+            }
+            mapped.get(magic);
+            if (!Arrays.equals(magic, RecordingFormat.SEGMENT_MAGIC)) {
+                throw new IOException("Not a recording segment");
+            }
+            int version = mapped.getInt();
+            if (version != RecordingFormat.VERSION) {
+                throw new IOException("Unsupported recording version " + version);
+            }
+            mapped.position(SEGMENT_HEADER_SIZE);
+            segment = mapped;
+            segmentNumber = number;
+        }
+    }
+
+    /**
+     * Lets go of the current segment. Mapped segments are unmapped once they are no longer
+     * referenced.
+     */
+    @Override
+    public void close() {
+        segment = null;
+        frame = null;
+    }
+}
@@ -0,0 +1,106 @@
+package seng302.gameServer.recording;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The one thread that writes every race recording in the server. Races hand frames over through an
+ * unbounded lock free queue so recording never waits on file IO or a lock during a broadcast, and
+ * all file IO happens here. The writer parks while there is nothing to write and is unparked by
+ * the next frame handed over.
+ */
+final class RecordingWriter implements Runnable {
+
+    private static RecordingWriter instance;
+
+    private Logger logger = LoggerFactory.getLogger(RecordingWriter.class);
+
+    /**
+     * A frame waiting to be written, or with no frame a request to close the recording.
+     */
+    private static class PendingFrame {
+        private final RaceRecorder recorder;
+        private final long nanos;
+        private final ByteBuffer frame;
+
+        private PendingFrame(RaceRecorder recorder, long nanos, ByteBuffer frame) {
+            this.recorder = recorder;
+            this.nanos = nanos;
+            this.frame = frame;
+        }
+    }
+
+    private final Queue<PendingFrame> queue = new ConcurrentLinkedQueue<>();
+    // Set while the writer is parked or about to park, so only then do races pay for an unpark
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final Thread thread;
+
+    private RecordingWriter() {
+        thread = new Thread(this, "RaceRecorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static synchronized RecordingWriter getInstance() {
+        if (instance == null) {
+            instance = new RecordingWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * @param recorder The recording to add the frame to
+     * @param nanos The time of the frame since the recording started
+     * @param frame The frame, which must not be changed once handed over
+     */
+    void submit(RaceRecorder recorder, long nanos, ByteBuffer frame) {
+        hand(new PendingFrame(recorder, nanos, frame));
+    }
+
+    /**
+     * Closes a recording once every frame handed over before now has been written.
+     *
+     * @param recorder The recording to close
+     */
+    void submitClose(RaceRecorder recorder) {
+        hand(new PendingFrame(recorder, 0, null));
+    }
+
+    private void hand(PendingFrame pending) {
+        queue.add(pending);
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            PendingFrame pending = queue.poll();
+            if (pending == null) {
+                parked.set(true);
+                // A frame handed over before the flag was set would not unpark the writer
+                if (queue.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked.set(false);
+                continue;
+            }
+            try {
+                if (pending.frame == null) {
+                    pending.recorder.finish();
+                } else {
+                    pending.recorder.write(pending.nanos, pending.frame);
+                }
+            } catch (RuntimeException e) {
+                // One broken recording must not stop the others
+                logger.error("Race recorder failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package seng302.gameServer.recording;
+
+import ch.qos.logback.classic.Level;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.messages.RegistrationResponseMessage;
+import seng302.gameServer.messages.RegistrationResponseStatus;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Serves a recorded race to game clients as if it were being raced live. Clients connect and
+ * register as they would with a {@link seng302.gameServer.MainServerThread}, then each is sent
+ * the recording from the chosen start time at the chosen speed, each with a reader and thread of
+ * its own. Another thread per client reads and throws away what the client sends.
+ *
+ * Frames are written to the sockets straight from the mapped recording without being decoded, so
+ * many clients can be fed from one machine to load the client renderer and the network with real
+ * traffic.
+ *
+ * For example, to replay a race at 4x from a minute in:
+ * ReplayServer -recording recordings/race-4942-1504000000000 -speed 4 -start 60
+ */
+public class ReplayServer implements Runnable {
+
+    private static final int DEFAULT_PORT = 4942;
+    // The first player of a race has source id 1, clients follow that boat
+    private static final int DEFAULT_SOURCE_ID = 1;
+    private static final int REGISTRATION_TIMEOUT = 5000;
+    // Offset of the sub type of an XML message, after the header and 9 bytes of its payload
+    private static final int XML_SUB_TYPE_OFFSET = 15 + 9;
+    private static final int TYPE_OFFSET = 2;
+    private static final int XML_MESSAGE_TYPE = 26;
+    private static final int DISCARD_BUFFER_SIZE = 4096;
+
+    private static Logger logger = LoggerFactory.getLogger(ReplayServer.class);
+
+    private final File recording;
+    private final double speed;
+    private final long startNanos;
+    private final int sourceId;
+    private final ServerSocketChannel serverChannel;
+
+    // Time and frame of every XML message in the recording, in order
+    private final List<Long> setupTimes = new ArrayList<>();
+    private final List<ByteBuffer> setupFrames = new ArrayList<>();
+
+    private volatile boolean terminated = false;
+    private volatile boolean hasStarted = false;
+
+    /**
+     * @param recording The directory of a recording made by a {@link RaceRecorder}
+     * @param port The port for clients to connect on, 0 for any free port
+     * @param speed How many times faster than real time to replay, 0 for as fast as clients read
+     * @param startSeconds Seconds into the recording to start each client from
+     * @param sourceId The source id each client is registered with, the boat it follows
+     * @throws IOException if the recording could not be read or the port listened on
+     */
+    public ReplayServer(File recording, int port, double speed, double startSeconds, int sourceId)
+        throws IOException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Replay speed must not be negative");
+        }
+        this.recording = recording;
+        this.speed = speed;
+        this.startNanos = (long) (startSeconds * TimeUnit.SECONDS.toNanos(1));
+        this.sourceId = sourceId;
+        findSetupFrames();
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        Thread thread = new Thread(this, "ReplayServer");
+        thread.start();
+    }
+
+    /**
+     * Reads the whole recording once for its XML messages. A client that starts part way through
+     * is sent the XML as it was at that time, as it would have been when joining the live race.
+     */
+    private void findSetupFrames() throws IOException {
+        try (RecordingReader reader = new RecordingReader(recording)) {
+            while (reader.next()) {
+                ByteBuffer frame = reader.getFrame();
+                if ((frame.get(TYPE_OFFSET) & 0xFF) == XML_MESSAGE_TYPE) {
+                    setupTimes.add(reader.getFrameNanos());
+                    setupFrames.add(frame);
+                }
+            }
+        }
+        if (setupFrames.isEmpty()) {
+            logger.warn("Recording " + recording + " has no course, clients will not show it");
+        }
+    }
+
+    @Override
+    public void run() {
+        hasStarted = true;
+        logger.info(String.format("Replaying %s on port %d at %s from %.1fs", recording,
+            getPortNumber(), speed == 0 ? "full speed" : speed + "x",
+            startNanos / 1e9));
+        while (!terminated) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                new Thread(() -> serveClient(channel), "ReplaySession").start();
+            } catch (IOException e) {
+                if (!terminated) {
+                    logger.warn("Could not accept replay client", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a client then sends it the recording until the recording ends or the client
+     * leaves.
+     */
+    private void serveClient(SocketChannel channel) {
+        String client = String.valueOf(channel.socket().getRemoteSocketAddress());
+        try (RecordingReader reader = new RecordingReader(recording)) {
+            InputStream input = channel.socket().getInputStream();
+            if (!awaitRegistration(channel, input)) {
+                logger.debug("Replay client " + client + " did not register");
+                return;
+            }
+            Thread discard = new Thread(() -> discardInput(channel), "ReplayDiscard");
+            discard.setDaemon(true);
+            discard.start();
+            writeFrame(channel, new RegistrationResponseMessage(
+                sourceId, RegistrationResponseStatus.SUCCESS_PLAYING).getByteBuffer());
+            for (ByteBuffer frame : setupFramesAt(startNanos)) {
+                writeFrame(channel, frame);
+            }
+
+            reader.seek(startNanos);
+            long sessionStart = System.nanoTime();
+            long frames = 0;
+            while (!terminated && reader.next()) {
+                if (speed > 0) {
+                    long due = sessionStart + (long) ((reader.getFrameNanos() - startNanos) / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                writeFrame(channel, reader.getFrame());
+                frames++;
+            }
+            logger.debug("Replayed " + frames + " frames to " + client);
+        } catch (IOException e) {
+            logger.debug("Replay client " + client + " disconnected");
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.trace("IO error closing replay client " + client);
+            }
+        }
+    }
+
+    /**
+     * Reads and throws away everything the client sends until the channel closes. Actions from
+     * the client are not acted on, but are read so it never blocks writing them.
+     */
+    private static void discardInput(SocketChannel channel) {
+        ByteBuffer discarded = ByteBuffer.allocate(DISCARD_BUFFER_SIZE);
+        try {
+            while (channel.read(discarded) != -1) {
+                discarded.clear();
+            }
+        } catch (IOException e) {
+            // The session has ended and closed the channel
+        }
+    }
+
+    /**
+     * @return true once the client has asked to register, false if it did not ask in time
+     */
+    private boolean awaitRegistration(SocketChannel channel, InputStream input)
+        throws IOException {
+        channel.socket().setSoTimeout(REGISTRATION_TIMEOUT);
+        PacketFramer framer = new PacketFramer(input);
+        try {
+            StreamPacket packet;
+            while ((packet = framer.readPacket()) != null) {
+                if (packet.getType() == PacketType.RACE_REGISTRATION_REQUEST) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } finally {
+            channel.socket().setSoTimeout(0);
+        }
+    }
+
+    /**
+     * @param nanos A time in the recording
+     * @return The last XML frame of each sub type recorded before the time, in recorded order
+     */
+    private List<ByteBuffer> setupFramesAt(long nanos) {
+        Map<Byte, ByteBuffer> latest = new LinkedHashMap<>();
+        for (int i = 0; i < setupFrames.size() && setupTimes.get(i) <= nanos; i++) {
+            ByteBuffer frame = setupFrames.get(i);
+            Byte subType = frame.get(XML_SUB_TYPE_OFFSET);
+            // Re-inserted so the map keeps the order each sub type was last sent in
+            latest.remove(subType);
+            latest.put(subType, frame);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Writes the whole of a frame to a blocking channel. Frames are views shared between
+     * sessions, so each write uses its own duplicate.
+     */
+    private static void writeFrame(SocketChannel channel, ByteBuffer frame) throws IOException {
+        ByteBuffer view = frame.duplicate();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+
+    /**
+     * Stops accepting clients and ends every replay.
+     */
+    public void terminate() {
+        terminated = true;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            logger.warn("IO error closing replay server");
+        }
+    }
+
+    public boolean hasStarted() {
+        return hasStarted;
+    }
+
+    public int getPortNumber() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @param speed A speed as given on the command line, a number or "max"
+     * @return The speed, 0 for as fast as possible
+     */
+    static double parseSpeed(String speed) {
+        if (speed.equalsIgnoreCase("max")) {
+            return 0;
+        }
+        return Double.parseDouble(speed.toLowerCase().replace("x", ""));
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("recording", true, "Directory of the recording to replay");
+        options.addOption("port", true, "Port for clients to connect on");
+        options.addOption("speed", true, "Replay speed such as 1, 4 or 16, or max for full speed");
+        options.addOption("start", true, "Seconds into the recording to start from");
+        options.addOption("sourceId", true, "Source id of the boat clients follow");
+        options.addOption("debugLevel", true, "Set the server log level");
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine cmd;
+        try {
+            cmd = parser.parse(options, args);
+        } catch (ParseException e) {
+            logger.error("Could not parse command line arguments");
+            new HelpFormatter().printHelp("ReplayServer", options);
+            return;
+        }
+        if (!cmd.hasOption("recording")) {
+            new HelpFormatter().printHelp("ReplayServer", options);
+            return;
+        }
+
+        ch.qos.logback.classic.Logger rootLogger = (ch.qos.logback.classic.Logger) LoggerFactory
+            .getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.toLevel(cmd.getOptionValue("debugLevel"), Level.INFO));
+
+        try {
+            new ReplayServer(
+                new File(cmd.getOptionValue("recording")),
+                Integer.parseInt(cmd.getOptionValue("port", String.valueOf(DEFAULT_PORT))),
+                parseSpeed(cmd.getOptionValue("speed", "1")),
+                Double.parseDouble(cmd.getOptionValue("start", "0")),
+                Integer.parseInt(cmd.getOptionValue("sourceId", String.valueOf(DEFAULT_SOURCE_ID)))
+            );
+        } catch (IOException e) {
+            logger.error("Could not start the replay server", e);
+        }
+    }
+}
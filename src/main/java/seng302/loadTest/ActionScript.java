@@ -0,0 +1,116 @@
+package seng302.loadTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import seng302.gameServer.messages.BoatAction;
+
+/**
+ * The boat actions a bot sends. A script is a fixed list of steps the bot loops over, written as
+ * comma separated ACTION or ACTION:millis, for example "UPWIND:1500,SAILS_IN,DOWNWIND:800,
+ * MAINTAIN_HEADING:2000". Without a script bots pick random steps.
+ *
+ * UPWIND and DOWNWIND are held for the step, being resent every
+ * {@link seng302.visualiser.ClientToServerThread#PACKET_SENDING_INTERVAL_MS} as a held key is by
+ * the game. Other actions are sent once and the bot waits out the rest of the step.
+ * MAINTAIN_HEADING is never sent, as in the game it only releases a held key.
+ */
+public class ActionScript {
+
+    private static final BoatAction[] RANDOM_ACTIONS = {
+        BoatAction.UPWIND, BoatAction.DOWNWIND, BoatAction.UPWIND, BoatAction.DOWNWIND,
+        BoatAction.SAILS_IN, BoatAction.SAILS_OUT, BoatAction.TACK_GYBE, BoatAction.VMG,
+        BoatAction.MAINTAIN_HEADING
+    };
+    private static final int MAX_RANDOM_HOLD = 2000;
+
+    /**
+     * One action and how long it lasts before the next step.
+     */
+    public static class Step {
+
+        private final BoatAction action;
+        private final long holdMillis;
+
+        public Step(BoatAction action, long holdMillis) {
+            this.action = action;
+            this.holdMillis = holdMillis;
+        }
+
+        public BoatAction getAction() {
+            return action;
+        }
+
+        public long getHoldMillis() {
+            return holdMillis;
+        }
+
+        /**
+         * @return true if the action is resent for as long as the step lasts
+         */
+        public boolean isHeld() {
+            return action == BoatAction.UPWIND || action == BoatAction.DOWNWIND;
+        }
+
+        /**
+         * @return true if the action is sent to the server at all
+         */
+        public boolean isSent() {
+            return action != BoatAction.MAINTAIN_HEADING;
+        }
+    }
+
+    private final List<Step> steps;
+
+    private ActionScript(List<Step> steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * @return A script of random steps
+     */
+    public static ActionScript random() {
+        return new ActionScript(Collections.emptyList());
+    }
+
+    /**
+     * Reads a script of steps written as ACTION or ACTION:millis separated by commas.
+     *
+     * @param script The script
+     * @return The script
+     * @throws IllegalArgumentException if a step has an unknown action or a bad hold time
+     */
+    public static ActionScript parse(String script) {
+        List<Step> steps = new ArrayList<>();
+        for (String step : script.split(",")) {
+            String[] parts = step.trim().split(":");
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            BoatAction action = BoatAction.valueOf(parts[0].trim().toUpperCase());
+            long hold = parts.length > 1 ? Long.parseLong(parts[1].trim()) : 0;
+            if (hold < 0) {
+                throw new IllegalArgumentException("Negative hold time in step " + step);
+            }
+            steps.add(new Step(action, hold));
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Script has no steps");
+        }
+        return new ActionScript(steps);
+    }
+
+    /**
+     * @param index How many steps the bot has already taken
+     * @param random The bot's own random source, used by random scripts
+     * @return The next step
+     */
+    public Step getStep(long index, Random random) {
+        if (steps.isEmpty()) {
+            BoatAction action = RANDOM_ACTIONS[random.nextInt(RANDOM_ACTIONS.length)];
+            return new Step(action, random.nextInt(MAX_RANDOM_HOLD));
+        }
+        return steps.get((int) (index % steps.size()));
+    }
+}
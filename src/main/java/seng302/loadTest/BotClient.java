@@ -0,0 +1,328 @@
+package seng302.loadTest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.gameServer.messages.BoatActionMessage;
+import seng302.gameServer.messages.BoatState;
+import seng302.gameServer.messages.ClientCapability;
+import seng302.gameServer.messages.ClientType;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RegistrationRequestMessage;
+import seng302.gameServer.messages.RegistrationResponseStatus;
+import seng302.model.stream.decoder.BoatLocationDecoder;
+import seng302.model.stream.decoder.RaceStatusDecoder;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.parser.MarkRoundingData;
+import seng302.utilities.StreamParser;
+import seng302.utilities.XMLStreamParser;
+
+/**
+ * One simulated player of a load test. Registers like the game client does, decodes everything
+ * the server sends it with {@link StreamParser} and sends the boat actions of its script.
+ *
+ * Reading is done by the load generator's selector thread with {@link #read()}, actions are sent
+ * from its scheduler with {@link #sendNextAction()}. Latency is measured from the millisecond
+ * times the server puts in race status, boat location and mark rounding packets, so it is only
+ * meaningful when the server's clock matches this machine's, as it does on loopback.
+ */
+public class BotClient {
+
+    private static final int HEADER_AND_CRC_SIZE = 19;
+    private static final long SEND_TIMEOUT = 1000;
+
+    private static Logger logger = LoggerFactory.getLogger(BotClient.class);
+
+    private final int botNumber;
+    private final LoadStats stats;
+    private final ActionScript script;
+    private final Random random;
+    private final boolean legacyStream;
+
+    private SocketChannel channel;
+    private final PacketFramer framer = new PacketFramer();
+    private long droppedPackets = 0;
+    private long registrationSentAt;
+    private volatile int sourceId = -1;
+    private volatile boolean closed = false;
+
+    private final Map<Integer, BoatState> boatStates = new HashMap<>();
+    private final BoatLocationDecoder boatLocationDecoder = new BoatLocationDecoder();
+    private final RaceStatusDecoder raceStatusDecoder = new RaceStatusDecoder();
+    private long lastTickSequence = -1;
+
+    private long stepsTaken = 0;
+    private ActionScript.Step step;
+    private long stepEnd = 0;
+
+    /**
+     * @param botNumber Number of the bot within the test, for logging
+     * @param stats Totals to add this bot's traffic to
+     * @param script The actions to send once registered
+     * @param seed Seed for the bot's random steps
+     * @param legacyStream true to register without optional capabilities, so boat locations are
+     * sent one packet per boat
+     */
+    public BotClient(int botNumber, LoadStats stats, ActionScript script, long seed,
+        boolean legacyStream) {
+        this.botNumber = botNumber;
+        this.stats = stats;
+        this.script = script;
+        this.random = new Random(seed);
+        this.legacyStream = legacyStream;
+    }
+
+    /**
+     * Connects to a server and asks to be registered as a player. The channel is left non
+     * blocking, ready to be registered with a selector.
+     *
+     * @param address The address of the race to join
+     * @throws IOException if the bot could not connect
+     */
+    public void connect(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        stats.connected();
+
+        RegistrationRequestMessage request = legacyStream
+            ? new RegistrationRequestMessage(ClientType.PLAYER, -1)
+            : new RegistrationRequestMessage(ClientType.PLAYER, -1,
+                ClientCapability.BOAT_LOCATION_BATCH, ClientCapability.BOAT_STATE_DELTA,
+                ClientCapability.TOKEN_UPDATE);
+        registrationSentAt = System.currentTimeMillis();
+        send(request.getBuffer());
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Reads whatever the server has sent and handles every complete packet.
+     *
+     * @return false if the connection has closed
+     */
+    public boolean read() {
+        int read;
+        try {
+            read = framer.readFrom(channel);
+        } catch (IOException e) {
+            read = -1;
+        }
+
+        long now = System.currentTimeMillis();
+        StreamPacket packet;
+        while ((packet = framer.nextPacket()) != null) {
+            handlePacket(packet, now);
+        }
+        long dropped = framer.getDroppedPackets();
+        if (dropped != droppedPackets) {
+            stats.crcFailed(dropped - droppedPackets);
+            droppedPackets = dropped;
+        }
+
+        if (read == -1) {
+            if (!closed) {
+                logger.debug("Bot " + botNumber + " was disconnected");
+                stats.disconnected();
+            }
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sends the action due for the current step of the script, if any. Called every
+     * {@link seng302.visualiser.ClientToServerThread#PACKET_SENDING_INTERVAL_MS}.
+     */
+    public void sendNextAction() {
+        if (sourceId == -1 || closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (step != null && now < stepEnd) {
+            if (step.isHeld()) {
+                sendAction(step);
+            }
+            return;
+        }
+        step = script.getStep(stepsTaken++, random);
+        stepEnd = now + step.getHoldMillis();
+        if (step.isSent()) {
+            sendAction(step);
+        }
+    }
+
+    public boolean isRegistered() {
+        return sourceId != -1;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.trace("IO error closing bot " + botNumber);
+        }
+    }
+
+    private void sendAction(ActionScript.Step step) {
+        send(new BoatActionMessage(step.getAction(), sourceId).getBuffer());
+    }
+
+    /**
+     * Writes a whole packet to the non blocking channel. A packet only part written would corrupt
+     * the stream, so the bot is closed if the server stops reading for too long.
+     */
+    private synchronized void send(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long deadline = System.currentTimeMillis() + SEND_TIMEOUT;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new IOException("Server stopped reading");
+                    }
+                    Thread.yield();
+                }
+            }
+            stats.sent(bytes.length);
+        } catch (IOException e) {
+            if (!closed) {
+                logger.debug("Bot " + botNumber + " could not send: " + e.getMessage());
+                stats.sendFailed();
+                stats.disconnected();
+            }
+            close();
+        }
+    }
+
+    private void handlePacket(StreamPacket packet, long now) {
+        byte[] payload = packet.getPayload();
+        stats.received(packet.getType(), payload.length + HEADER_AND_CRC_SIZE);
+        try {
+            switch (packet.getType()) {
+                case RACE_REGISTRATION_RESPONSE:
+                    processRegistrationResponse(payload, now);
+                    break;
+                case HEARTBEAT:
+                    StreamParser.extractHeartBeat(packet);
+                    break;
+                case RACE_STATUS:
+                    stats.latency(packet.getType(),
+                        now - raceStatusDecoder.wrap(packet).getCurrentTime());
+                    break;
+                case RACE_XML:
+                    if (XMLStreamParser.parseRace(packet) == null) {
+                        stats.decodeFailed();
+                    }
+                    break;
+                case REGATTA_XML:
+                    if (XMLStreamParser.parseRegatta(packet) == null) {
+                        stats.decodeFailed();
+                    }
+                    break;
+                case BOAT_XML:
+                    if (StreamParser.parseBoats(packet) == null) {
+                        stats.decodeFailed();
+                    }
+                    break;
+                case BOAT_LOCATION:
+                    stats.latency(packet.getType(),
+                        now - boatLocationDecoder.wrap(packet).getTimeValid());
+                    break;
+                case BOAT_LOCATION_BATCH:
+                    processBoatLocationBatch(packet, now);
+                    break;
+                case BOAT_STATE_DELTA:
+                    processBoatStateDelta(packet);
+                    break;
+                case TOKEN_UPDATE:
+                    StreamParser.extractTokenUpdates(packet);
+                    break;
+                case MARK_ROUNDING:
+                    MarkRoundingData rounding = StreamParser.extractMarkRounding(packet);
+                    stats.latency(packet.getType(), now - rounding.getTimeStamp());
+                    break;
+                case RACE_START_STATUS:
+                    StreamParser.extractRaceStartStatus(packet);
+                    break;
+                case YACHT_EVENT_CODE:
+                    StreamParser.extractYachtEventCode(packet);
+                    break;
+                case CHATTER_TEXT:
+                    StreamParser.extractChatterText(packet);
+                    break;
+                case DISPLAY_TEXT_MESSAGE:
+                    StreamParser.extractDisplayMessage(packet);
+                    break;
+                case COURSE_WIND:
+                    StreamParser.extractCourseWind(packet);
+                    break;
+                case AVG_WIND:
+                    StreamParser.extractAvgWind(packet);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Bot " + botNumber + " could not decode " + packet.getType(), e);
+            stats.decodeFailed();
+        }
+    }
+
+    private void processRegistrationResponse(byte[] payload, long now) {
+        int id = (int) Message.bytesToLong(Arrays.copyOfRange(payload, 0, 4));
+        int statusCode = (int) Message.bytesToLong(Arrays.copyOfRange(payload, 4, 5));
+        if (RegistrationResponseStatus.getResponseStatus(statusCode)
+            == RegistrationResponseStatus.SUCCESS_PLAYING) {
+            sourceId = id;
+            stats.registered(now - registrationSentAt);
+        } else {
+            logger.debug("Bot " + botNumber + " was rejected by the server");
+            stats.rejected();
+            close();
+        }
+    }
+
+    /**
+     * The records are decoded in place as the game client does, only the first is needed for the
+     * latency.
+     */
+    private void processBoatLocationBatch(StreamPacket packet, long now) {
+        byte[] payload = packet.getPayload();
+        if ((payload[1] & 0xFF) > 0) {
+            stats.latency(packet.getType(),
+                now - boatLocationDecoder.wrapRecord(payload, 2).getTimeValid());
+        }
+    }
+
+    /**
+     * Frames are numbered by server tick, so a gap in the numbers is frames the server dropped
+     * for this bot.
+     */
+    private void processBoatStateDelta(StreamPacket packet) {
+        long tickSequence = Message.bytesToLong(Arrays.copyOfRange(packet.getPayload(), 2, 6));
+        if (lastTickSequence != -1 && tickSequence > lastTickSequence + 1) {
+            stats.missedFrames(tickSequence - lastTickSequence - 1);
+        }
+        lastTickSequence = tickSequence;
+        StreamParser.extractBoatStateDeltas(packet, boatStates);
+    }
+}
@@ -0,0 +1,221 @@
+package seng302.loadTest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.discoveryServer.DiscoveryServer;
+import seng302.discoveryServer.util.ServerListing;
+import seng302.discoveryServer.util.ServerRepoStreamParser;
+import seng302.discoveryServer.util.ServerTable;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RoomCodeRequest;
+import seng302.gameServer.messages.ServerRegistrationMessage;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Fills a discovery server with synthetic game listings then times players looking servers up,
+ * by room code and for a random server with space. Each client thread keeps one connection open
+ * and sends its requests one after another, so latency is the time from sending a request to
+ * reading its response. Latencies are recorded in microseconds.
+ *
+ * Runs a discovery server in this process unless a host is given. Listings are not refreshed, so
+ * against another server the test has to finish within its TTL. For example:
+ * DiscoveryLoadTest -listings 10000 -clients 8 -lookups 20000
+ */
+public class DiscoveryLoadTest {
+
+    private static final int DEFAULT_LISTINGS = 10000;
+    private static final int DEFAULT_CLIENTS = 8;
+    private static final int DEFAULT_LOOKUPS = 20000;
+    private static final int MAX_LATENCY_MICROS = 100000;
+    private static final String RANDOM_ROOM_CODE = "0000";
+    // Listings are registered once, so they must outlast the whole test
+    private static final long LISTING_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    private static Logger logger = LoggerFactory.getLogger(DiscoveryLoadTest.class);
+
+    private final String host;
+    private final int port;
+    private final int listings;
+    private final int clients;
+    private final int lookups;
+
+    private final LatencyHistogram registrationLatency = new LatencyHistogram(MAX_LATENCY_MICROS);
+    private final LatencyHistogram roomCodeLatency = new LatencyHistogram(MAX_LATENCY_MICROS);
+    private final LatencyHistogram randomServerLatency = new LatencyHistogram(MAX_LATENCY_MICROS);
+    private final List<String> roomCodes = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param host The host of the discovery server
+     * @param port The port of the discovery server
+     * @param listings The number of game listings to register
+     * @param clients The number of connections to send requests on at once
+     * @param lookups The number of lookups each client sends
+     */
+    public DiscoveryLoadTest(String host, int port, int listings, int clients, int lookups) {
+        this.host = host;
+        this.port = port;
+        this.listings = listings;
+        this.clients = Math.max(1, clients);
+        this.lookups = lookups;
+    }
+
+    /**
+     * Registers every listing then sends the lookups, logging the latencies of each.
+     *
+     * @throws Exception if a client could not talk to the server
+     */
+    public void run() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            long start = System.nanoTime();
+            runClients(executor, this::register);
+            logger.info(String.format("Registered %d listings in %d ms, latency us: %s",
+                roomCodes.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                registrationLatency));
+
+            start = System.nanoTime();
+            runClients(executor, this::lookUp);
+            logger.info(String.format("Sent %d lookups in %d ms",
+                roomCodeLatency.getCount() + randomServerLatency.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            logger.info("Room code lookup latency us: " + roomCodeLatency);
+            logger.info("Random server lookup latency us: " + randomServerLatency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ClientTask {
+        void run(int client, Socket socket, PacketFramer packetFramer) throws IOException;
+    }
+
+    private void runClients(ExecutorService executor, ClientTask task) throws Exception {
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            results.add(executor.submit(() -> {
+                try (Socket socket = new Socket(host, port)) {
+                    socket.setTcpNoDelay(true);
+                    task.run(client, socket, new PacketFramer(socket.getInputStream()));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+    }
+
+    /**
+     * Registers this client's share of the listings, each as a different game server.
+     */
+    private void register(int client, Socket socket, PacketFramer packetFramer)
+        throws IOException {
+        for (int i = client; i < listings; i += clients) {
+            ServerListing listing = new ServerListing(
+                "Load test " + i, "default", "10.0." + (i >> 8 & 0xFF) + "." + (i & 0xFF),
+                4942 + i, 8
+            ).setNumberOfPlayers(i % 9);
+            StreamPacket response = request(socket, packetFramer,
+                new ServerRegistrationMessage(listing), registrationLatency);
+            if (response.getType() == PacketType.ROOM_CODE_REQUEST) {
+                roomCodes.add(ServerRepoStreamParser.parseRoomCodeRequest(response.getPayload()));
+            }
+        }
+    }
+
+    /**
+     * Looks up known room codes, with every tenth lookup asking for a random server instead.
+     */
+    private void lookUp(int client, Socket socket, PacketFramer packetFramer) throws IOException {
+        Random random = new Random(client);
+        for (int i = 0; i < lookups; i++) {
+            if (i % 10 == 0 || roomCodes.isEmpty()) {
+                request(socket, packetFramer, new RoomCodeRequest(RANDOM_ROOM_CODE),
+                    randomServerLatency);
+            } else {
+                String roomCode = roomCodes.get(random.nextInt(roomCodes.size()));
+                request(socket, packetFramer, new RoomCodeRequest(roomCode), roomCodeLatency);
+            }
+        }
+    }
+
+    private static StreamPacket request(Socket socket, PacketFramer packetFramer,
+        Message request, LatencyHistogram latency) throws IOException {
+        long sent = System.nanoTime();
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(request.getBuffer());
+        StreamPacket response = packetFramer.readPacket();
+        if (response == null) {
+            throw new IOException("Discovery server closed the connection");
+        }
+        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent));
+        return response;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("host", true,
+            "Host of the discovery server, a server is started in this process if not given");
+        options.addOption("port", true, "Port of the discovery server");
+        options.addOption("listings", true, "Number of game listings to register");
+        options.addOption("clients", true, "Number of connections sending requests at once");
+        options.addOption("lookups", true, "Number of lookups each connection sends");
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine cmd;
+        try {
+            cmd = parser.parse(options, args);
+        } catch (ParseException e) {
+            logger.error("Could not parse command line arguments");
+            new HelpFormatter().printHelp("DiscoveryLoadTest", options);
+            return;
+        }
+
+        DiscoveryServer server = null;
+        try {
+            String host = cmd.getOptionValue("host");
+            int port = Integer.parseInt(
+                cmd.getOptionValue("port", String.valueOf(DiscoveryServer.PORT_NUMBER)));
+            if (host == null) {
+                host = "localhost";
+                server = new DiscoveryServer(0, new ServerTable(LISTING_TTL));
+                port = server.getPort();
+                new Thread(server, "DiscoveryServer").start();
+            }
+
+            new DiscoveryLoadTest(
+                host, port,
+                Integer.parseInt(cmd.getOptionValue("listings", String.valueOf(DEFAULT_LISTINGS))),
+                Integer.parseInt(cmd.getOptionValue("clients", String.valueOf(DEFAULT_CLIENTS))),
+                Integer.parseInt(cmd.getOptionValue("lookups", String.valueOf(DEFAULT_LOOKUPS)))
+            ).run();
+        } catch (Exception e) {
+            logger.error("Discovery load test failed", e);
+        } finally {
+            if (server != null) {
+                server.terminate();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package seng302.loadTest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies into one millisecond buckets so percentiles can be read at any time without
+ * keeping every sample. Latencies past the last bucket are counted in an overflow bucket and
+ * reported as the largest latency seen. Safe to record into from many threads.
+ */
+public class LatencyHistogram {
+
+    private static final int DEFAULT_MAX_MILLIS = 10000;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(DEFAULT_MAX_MILLIS);
+    }
+
+    /**
+     * @param maxMillis The largest latency given a bucket of its own
+     */
+    public LatencyHistogram(int maxMillis) {
+        buckets = new AtomicLongArray(maxMillis + 2);
+    }
+
+    /**
+     * Records one latency. Negative latencies, from clocks that are slightly out, count as 0.
+     *
+     * @param millis The latency in milliseconds
+     */
+    public void record(long millis) {
+        long latency = Math.max(0, millis);
+        buckets.incrementAndGet((int) Math.min(latency, buckets.length() - 1));
+        count.incrementAndGet();
+        total.addAndGet(latency);
+        max.accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * @param percentile The percentile to find, from 0 to 100
+     * @return The smallest latency in milliseconds that the given percentage of samples are at or
+     * below, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long samples = count.get();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(samples * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length() - 1; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long samples = count.get();
+        return samples == 0 ? 0 : (double) total.get() / samples;
+    }
+
+    /**
+     * @return The count, mean and 50th, 90th, 99th and 99.9th percentiles and max in milliseconds
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d",
+            getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99),
+            getPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,244 @@
+package seng302.loadTest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import seng302.visualiser.ClientToServerThread;
+
+/**
+ * Drives a server with many headless players to see how it copes before real players do. Bots
+ * are spread over a range of race ports, such as the races of a {@link
+ * seng302.gameServer.DedicatedServer}, since each race only takes a few players.
+ *
+ * Every bot is read by one selector thread and sends its actions from a small scheduler, so
+ * hundreds of bots need only a few threads. Throughput is logged as the test runs and a summary
+ * of totals and latency percentiles by packet type is logged at the end.
+ *
+ * For example, against a dedicated server with 25 races of 8 players:
+ * LoadGenerator -port 4942 -ports 25 -bots 200 -duration 120
+ */
+public class LoadGenerator {
+
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_PORT = 4942;
+    private static final long DEFAULT_DURATION = 60;
+    private static final long DEFAULT_REPORT_INTERVAL = 5;
+    private static final int SELECT_TIMEOUT = 100;
+    private static final int SENDER_THREADS = 2;
+
+    private static Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final String host;
+    private final int firstPort;
+    private final int ports;
+    private final int numberOfBots;
+    private final long rampMillis;
+    private final ActionScript script;
+    private final long seed;
+    private final boolean legacyStream;
+
+    private final LoadStats stats = new LoadStats();
+    private final List<BotClient> bots = new ArrayList<>();
+    private final Queue<BotClient> pendingBots = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = false;
+
+    /**
+     * @param host The host of the server
+     * @param firstPort The port of the first race
+     * @param ports The number of consecutive race ports to spread bots over
+     * @param numberOfBots The number of bots to connect
+     * @param rampMillis Time to wait between connecting each bot
+     * @param script The actions every bot sends
+     * @param seed Seed for the bots' random steps, each bot offsets it by its number
+     * @param legacyStream true to register bots without optional capabilities
+     */
+    public LoadGenerator(String host, int firstPort, int ports, int numberOfBots, long rampMillis,
+        ActionScript script, long seed, boolean legacyStream) {
+        this.host = host;
+        this.firstPort = firstPort;
+        this.ports = Math.max(1, ports);
+        this.numberOfBots = numberOfBots;
+        this.rampMillis = rampMillis;
+        this.script = script;
+        this.seed = seed;
+        this.legacyStream = legacyStream;
+    }
+
+    /**
+     * Connects every bot, runs the test for the given time then disconnects them.
+     *
+     * @param durationMillis How long to run for after the last bot connects
+     * @param reportMillis Time between throughput reports
+     * @return The totals of the test
+     * @throws IOException if the selector could not be opened
+     */
+    public LoadStats run(long durationMillis, long reportMillis) throws IOException {
+        Selector selector = Selector.open();
+        running = true;
+        Thread readThread = new Thread(() -> readLoop(selector), "LoadGeneratorRead");
+        readThread.start();
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(SENDER_THREADS);
+        scheduler.scheduleAtFixedRate(
+            () -> logger.info(stats.report(System.currentTimeMillis())),
+            reportMillis, reportMillis, TimeUnit.MILLISECONDS
+        );
+
+        long start = System.currentTimeMillis();
+        stats.report(start);
+        for (int i = 0; i < numberOfBots && running; i++) {
+            BotClient bot = new BotClient(i, stats, script, seed + i, legacyStream);
+            InetSocketAddress address = new InetSocketAddress(host, firstPort + i % ports);
+            try {
+                bot.connect(address);
+                synchronized (bots) {
+                    bots.add(bot);
+                }
+                // Registered by the read thread, as registering blocks while it is selecting
+                pendingBots.add(bot);
+                selector.wakeup();
+            } catch (IOException e) {
+                logger.warn("Bot " + i + " could not connect to " + address);
+                stats.connectFailed();
+                continue;
+            }
+            scheduler.scheduleAtFixedRate(bot::sendNextAction,
+                ClientToServerThread.PACKET_SENDING_INTERVAL_MS,
+                ClientToServerThread.PACKET_SENDING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (rampMillis > 0) {
+                sleep(rampMillis);
+            }
+        }
+
+        sleep(durationMillis);
+        long elapsed = System.currentTimeMillis() - start;
+
+        running = false;
+        scheduler.shutdownNow();
+        selector.wakeup();
+        try {
+            readThread.join();
+        } catch (InterruptedException e) {
+            logger.trace("Interrupted waiting for the read thread");
+        }
+        synchronized (bots) {
+            bots.forEach(BotClient::close);
+        }
+        selector.close();
+
+        logger.info("Load test finished" + System.lineSeparator() + stats.summary(elapsed));
+        return stats;
+    }
+
+    /**
+     * Stops a running test early.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public LoadStats getStats() {
+        return stats;
+    }
+
+    private void readLoop(Selector selector) {
+        while (running) {
+            try {
+                BotClient pending;
+                while ((pending = pendingBots.poll()) != null) {
+                    try {
+                        pending.getChannel().register(selector, SelectionKey.OP_READ, pending);
+                    } catch (ClosedChannelException e) {
+                        logger.trace("Bot closed before it could be read");
+                    }
+                }
+                selector.select(SELECT_TIMEOUT);
+            } catch (IOException e) {
+                logger.error("Load generator selector failed", e);
+                return;
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable() && !((BotClient) key.attachment()).read()) {
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            logger.trace("Interrupted exception in load generator sleep");
+        }
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("host", true, "Host of the server, localhost by default");
+        options.addOption("port", true, "Port of the first race");
+        options.addOption("ports", true, "Number of consecutive race ports to spread bots over");
+        options.addOption("bots", true, "Number of bots to connect");
+        options.addOption("duration", true, "Seconds to run for after the last bot connects");
+        options.addOption("ramp", true, "Milliseconds between connecting each bot");
+        options.addOption("script", true,
+            "Actions each bot loops over as ACTION[:millis],... random actions if not given");
+        options.addOption("seed", true, "Seed for random actions");
+        options.addOption("report", true, "Seconds between throughput reports");
+        options.addOption("legacy", false,
+            "Register without batched boat locations, boat state deltas or token updates");
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine cmd;
+        try {
+            cmd = parser.parse(options, args);
+        } catch (ParseException e) {
+            logger.error("Could not parse command line arguments");
+            new HelpFormatter().printHelp("LoadGenerator", options);
+            return;
+        }
+
+        LoadGenerator loadGenerator = new LoadGenerator(
+            cmd.getOptionValue("host", DEFAULT_HOST),
+            Integer.parseInt(cmd.getOptionValue("port", String.valueOf(DEFAULT_PORT))),
+            Integer.parseInt(cmd.getOptionValue("ports", "1")),
+            Integer.parseInt(cmd.getOptionValue("bots", "8")),
+            Long.parseLong(cmd.getOptionValue("ramp", "10")),
+            cmd.hasOption("script")
+                ? ActionScript.parse(cmd.getOptionValue("script")) : ActionScript.random(),
+            Long.parseLong(cmd.getOptionValue("seed", "302")),
+            cmd.hasOption("legacy")
+        );
+        try {
+            loadGenerator.run(
+                TimeUnit.SECONDS.toMillis(
+                    Long.parseLong(cmd.getOptionValue("duration", String.valueOf(DEFAULT_DURATION)))),
+                TimeUnit.SECONDS.toMillis(
+                    Long.parseLong(cmd.getOptionValue("report", String.valueOf(DEFAULT_REPORT_INTERVAL))))
+            );
+        } catch (IOException e) {
+            logger.error("Could not start the load generator", e);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package seng302.loadTest;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import seng302.model.stream.packets.PacketType;
+
+/**
+ * Totals shared by every bot of a load test. Throughput is reported from the difference between
+ * the totals at each call to {@link #report(long)}.
+ */
+public class LoadStats {
+
+    private final AtomicLong connected = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong registered = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong packetsReceived = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong crcFailures = new AtomicLong();
+    private final AtomicLong decodeFailures = new AtomicLong();
+    private final AtomicLong missedFrames = new AtomicLong();
+
+    private final Map<PacketType, AtomicLong> packetsByType = new ConcurrentHashMap<>();
+    private final Map<PacketType, LatencyHistogram> latencyByType = new ConcurrentHashMap<>();
+    private final LatencyHistogram registrationLatency = new LatencyHistogram();
+
+    private long lastReportTime = -1;
+    private long lastPacketsSent = 0;
+    private long lastPacketsReceived = 0;
+    private long lastBytesReceived = 0;
+
+    public void connected() {
+        connected.incrementAndGet();
+    }
+
+    public void connectFailed() {
+        connectFailures.incrementAndGet();
+    }
+
+    /**
+     * @param roundTripMillis Time from sending the registration request to its response
+     */
+    public void registered(long roundTripMillis) {
+        registered.incrementAndGet();
+        registrationLatency.record(roundTripMillis);
+    }
+
+    public void rejected() {
+        rejected.incrementAndGet();
+    }
+
+    public void disconnected() {
+        disconnected.incrementAndGet();
+    }
+
+    public void sent(int bytes) {
+        packetsSent.incrementAndGet();
+        bytesSent.addAndGet(bytes);
+    }
+
+    public void sendFailed() {
+        sendFailures.incrementAndGet();
+    }
+
+    /**
+     * @param type The type of the packet
+     * @param bytes The size of the packet including its header and CRC
+     */
+    public void received(PacketType type, int bytes) {
+        packetsReceived.incrementAndGet();
+        bytesReceived.addAndGet(bytes);
+        packetsByType.computeIfAbsent(type, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * @param type The type of the packet
+     * @param millis Time from the server stamping the packet to it being decoded
+     */
+    public void latency(PacketType type, long millis) {
+        latencyByType.computeIfAbsent(type, t -> new LatencyHistogram()).record(millis);
+    }
+
+    public void crcFailed(long packets) {
+        crcFailures.addAndGet(packets);
+    }
+
+    public void decodeFailed() {
+        decodeFailures.incrementAndGet();
+    }
+
+    /**
+     * @param frames Boat state frames missing between two received frames
+     */
+    public void missedFrames(long frames) {
+        missedFrames.addAndGet(frames);
+    }
+
+    public long getRegistered() {
+        return registered.get();
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived.get();
+    }
+
+    public long getCrcFailures() {
+        return crcFailures.get();
+    }
+
+    public long getDecodeFailures() {
+        return decodeFailures.get();
+    }
+
+    public LatencyHistogram getRegistrationLatency() {
+        return registrationLatency;
+    }
+
+    /**
+     * @param type A packet type
+     * @return The latency of packets of the type, null if none of them carried a time
+     */
+    public LatencyHistogram getLatency(PacketType type) {
+        return latencyByType.get(type);
+    }
+
+    /**
+     * One line of connection counts, throughput since the last report and losses.
+     *
+     * @param now The current time in milliseconds
+     * @return The report
+     */
+    public synchronized String report(long now) {
+        double seconds = lastReportTime < 0 ? 0 : (now - lastReportTime) / 1000.0;
+        long sent = packetsSent.get();
+        long received = packetsReceived.get();
+        long bytes = bytesReceived.get();
+        String line = String.format(
+            "bots connected=%d registered=%d rejected=%d disconnected=%d | "
+                + "out %.0f pkt/s | in %.0f pkt/s %.1f KiB/s | "
+                + "crc dropped=%d decode failed=%d missed frames=%d send failed=%d",
+            connected.get(), registered.get(), rejected.get(), disconnected.get(),
+            perSecond(sent - lastPacketsSent, seconds),
+            perSecond(received - lastPacketsReceived, seconds),
+            perSecond(bytes - lastBytesReceived, seconds) / 1024,
+            crcFailures.get(), decodeFailures.get(), missedFrames.get(), sendFailures.get()
+        );
+        lastReportTime = now;
+        lastPacketsSent = sent;
+        lastPacketsReceived = received;
+        lastBytesReceived = bytes;
+        return line;
+    }
+
+    /**
+     * The totals of a whole run, with the count and latency of each type of packet received.
+     *
+     * @param elapsedMillis How long the run lasted
+     * @return The summary, one item per line
+     */
+    public String summary(long elapsedMillis) {
+        double seconds = elapsedMillis / 1000.0;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%.1f s, %d connected, %d failed to connect, "
+                + "%d registered, %d rejected, %d disconnected%n",
+            seconds, connected.get(), connectFailures.get(), registered.get(), rejected.get(),
+            disconnected.get()));
+        summary.append(String.format("sent %d packets (%.0f/s), %d bytes, %d failed%n",
+            packetsSent.get(), perSecond(packetsSent.get(), seconds), bytesSent.get(),
+            sendFailures.get()));
+        summary.append(String.format("received %d packets (%.0f/s), %d bytes (%.1f KiB/s)%n",
+            packetsReceived.get(), perSecond(packetsReceived.get(), seconds), bytesReceived.get(),
+            perSecond(bytesReceived.get(), seconds) / 1024));
+        summary.append(String.format("crc dropped %d, decode failed %d, missed frames %d%n",
+            crcFailures.get(), decodeFailures.get(), missedFrames.get()));
+        summary.append(String.format("registration latency ms: %s%n", registrationLatency));
+        for (Entry<PacketType, AtomicLong> entry : new TreeMap<>(packetsByType).entrySet()) {
+            LatencyHistogram latency = latencyByType.get(entry.getKey());
+            summary.append(String.format("  %-27s %10d", entry.getKey(), entry.getValue().get()));
+            if (latency != null) {
+                summary.append("  latency ms: ").append(latency);
+            }
+            summary.append(System.lineSeparator());
+        }
+        return summary.toString();
+    }
+
+    private static double perSecond(long count, double seconds) {
+        return seconds <= 0 ? 0 : count / seconds;
+    }
+}
@@ -1,14 +1,17 @@
 package seng302.model;
 
-import javafx.scene.paint.Color;
-
 /**
- * Enum for generating colours.
+ * Enum for generating colours. Each colour is named as in CSS so it can be read with
+ * JavaFX's Color.web on the client without the server depending on JavaFX.
  */
 public enum Colors {
     RED, PERU, GOLD, GREEN, BLUE, PURPLE, DEEPPINK, GRAY;
 
-    public static Color getColor(Integer index) {
-        return Color.valueOf(values()[index].toString());
+    /**
+     * @param index The index of the colour
+     * @return The CSS name of the colour
+     */
+    public static String getWebColor(Integer index) {
+        return values()[index].toString();
     }
 }
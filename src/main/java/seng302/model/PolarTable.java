@@ -4,17 +4,24 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A static class for parsing and storing the polars. Will parse the whole polar table and also store the optimised
  * upwind and downwind in separate tables here as well
+ *
+ * Once parsed the table is also compiled into a dense grid of boat speeds every 0.1 knots of wind and every degree of
+ * wind angle, so boat speeds are looked up and interpolated without any searching or boxing every tick.
  * Created by wmu16 on 22/05/17.
  */
 public final class PolarTable {
 
+    private static final double WIND_SPEED_STEP = 0.1;
+    private static final double WIND_ANGLE_STEP = 1.0;
+    private static final double MAX_WIND_ANGLE = 180.0;
+
     //A Polar table will consist of a wind speed key to a hashmap value of pairs of wind angles and boat speeds
     private static HashMap<Double, HashMap<Double, Double>> polarTable;
     private static HashMap<Double, HashMap<Double, Double>> upwindOptimal;
@@ -24,6 +31,30 @@ public final class PolarTable {
     private static int upTwaIndex;
     private static int dnTwaIndex;
 
+    private static volatile CompiledPolars compiledPolars;
+
+    /**
+     * The polar table sampled on a regular grid. Speeds are stored row by row, one row per wind speed step, and
+     * the optimal VMG angles are stored per wind speed step.
+     */
+    private static final class CompiledPolars {
+        private final double minWindSpeed;
+        private final int windSteps;
+        private final int angleSteps;
+        private final double[] boatSpeeds;
+        private final double[] upwindAngles;
+        private final double[] downwindAngles;
+
+        private CompiledPolars(double minWindSpeed, int windSteps, int angleSteps) {
+            this.minWindSpeed = minWindSpeed;
+            this.windSteps = windSteps;
+            this.angleSteps = angleSteps;
+            this.boatSpeeds = new double[windSteps * angleSteps];
+            this.upwindAngles = new double[windSteps];
+            this.downwindAngles = new double[windSteps];
+        }
+    }
+
 
     /**
      * Iterates through each row of the polar table, in pairs, to extract the row into a hashmap of angle to boat speed.
@@ -75,6 +106,7 @@ public final class PolarTable {
 
             }
             getMaxSpeedAngle(line);
+            compile();
 
         } catch (IOException e) {
             System.out.println("[PolarTable] IO exception");
@@ -174,12 +206,131 @@ public final class PolarTable {
     }
 
 
-    public static Double getBoatSpeed(Double thisWindSpeed, Double thisHeading) {
+    /**
+     * Looks up the boat speed in the compiled polars, interpolating between both wind speeds and wind angles. Values
+     * outside the table are clamped to its edges.
+     *
+     * @param thisWindSpeed The true wind speed in knots
+     * @param thisHeading The true wind angle in degrees
+     * @return The boat speed in knots
+     */
+    public static double getBoatSpeed(double thisWindSpeed, double thisHeading) {
+        CompiledPolars polars = compiledPolars;
+        double windIndex = windIndex(polars, thisWindSpeed);
+        double angleIndex = Math.min(Math.max(thisHeading, 0), MAX_WIND_ANGLE) / WIND_ANGLE_STEP;
+
+        int row = Math.min((int) windIndex, polars.windSteps - 2);
+        int column = Math.min((int) angleIndex, polars.angleSteps - 2);
+        double rowFraction = windIndex - row;
+        double columnFraction = angleIndex - column;
+
+        int index = row * polars.angleSteps + column;
+        double[] speeds = polars.boatSpeeds;
+        double lower = speeds[index] + (speeds[index + 1] - speeds[index]) * columnFraction;
+        index += polars.angleSteps;
+        double upper = speeds[index] + (speeds[index + 1] - speeds[index]) * columnFraction;
+        return lower + (upper - lower) * rowFraction;
+    }
+
+
+    /**
+     * @param thisWindSpeed The true wind speed in knots
+     * @return The true wind angle giving the best upwind VMG, interpolated between polar rows
+     */
+    public static double getOptimalUpwindAngle(double thisWindSpeed) {
+        return interpolateByWind(compiledPolars, compiledPolars.upwindAngles, thisWindSpeed);
+    }
+
+
+    /**
+     * @param thisWindSpeed The true wind speed in knots
+     * @return The true wind angle giving the best downwind VMG, interpolated between polar rows
+     */
+    public static double getOptimalDownwindAngle(double thisWindSpeed) {
+        return interpolateByWind(compiledPolars, compiledPolars.downwindAngles, thisWindSpeed);
+    }
+
+
+    private static double windIndex(CompiledPolars polars, double windSpeed) {
+        double maxIndex = polars.windSteps - 1;
+        return Math.min(Math.max((windSpeed - polars.minWindSpeed) / WIND_SPEED_STEP, 0), maxIndex);
+    }
+
+
+    private static double interpolateByWind(CompiledPolars polars, double[] values, double windSpeed) {
+        double windIndex = windIndex(polars, windSpeed);
+        int row = Math.min((int) windIndex, polars.windSteps - 2);
+        return values[row] + (values[row + 1] - values[row]) * (windIndex - row);
+    }
+
+
+    /**
+     * Samples the parsed polar rows onto the dense grid. Within a row speeds are interpolated linearly by angle,
+     * between rows linearly by wind speed.
+     */
+    private static void compile() {
+        TreeMap<Double, TreeMap<Double, Double>> rows = new TreeMap<>();
+        for (Map.Entry<Double, HashMap<Double, Double>> row : polarTable.entrySet()) {
+            rows.put(row.getKey(), new TreeMap<>(row.getValue()));
+        }
+        double minWindSpeed = rows.firstKey();
+        double maxWindSpeed = rows.lastKey();
+        // At least two rows so lookups can always interpolate to the next row
+        int windSteps = Math.max(2, (int) Math.round((maxWindSpeed - minWindSpeed) / WIND_SPEED_STEP) + 1);
+        int angleSteps = (int) Math.round(MAX_WIND_ANGLE / WIND_ANGLE_STEP) + 1;
+
+        CompiledPolars polars = new CompiledPolars(minWindSpeed, windSteps, angleSteps);
+        for (int row = 0; row < windSteps; row++) {
+            double windSpeed = Math.min(minWindSpeed + row * WIND_SPEED_STEP, maxWindSpeed);
+            Map.Entry<Double, TreeMap<Double, Double>> below = rows.floorEntry(windSpeed);
+            Map.Entry<Double, TreeMap<Double, Double>> above = rows.ceilingEntry(windSpeed);
+            double fraction = below.getKey().equals(above.getKey())
+                ? 0 : (windSpeed - below.getKey()) / (above.getKey() - below.getKey());
+
+            for (int column = 0; column < angleSteps; column++) {
+                double angle = column * WIND_ANGLE_STEP;
+                polars.boatSpeeds[row * angleSteps + column] = lerp(
+                    interpolateByAngle(below.getValue(), angle),
+                    interpolateByAngle(above.getValue(), angle),
+                    fraction
+                );
+            }
+            polars.upwindAngles[row] = lerp(
+                firstAngle(upwindOptimal.get(below.getKey())),
+                firstAngle(upwindOptimal.get(above.getKey())),
+                fraction
+            );
+            polars.downwindAngles[row] = lerp(
+                firstAngle(downwindOptimal.get(below.getKey())),
+                firstAngle(downwindOptimal.get(above.getKey())),
+                fraction
+            );
+        }
+        compiledPolars = polars;
+    }
+
+
+    private static double interpolateByAngle(TreeMap<Double, Double> row, double angle) {
+        Map.Entry<Double, Double> below = row.floorEntry(angle);
+        Map.Entry<Double, Double> above = row.ceilingEntry(angle);
+        if (below == null) {
+            return above.getValue();
+        }
+        if (above == null || below.getKey().equals(above.getKey())) {
+            return below.getValue();
+        }
+        double fraction = (angle - below.getKey()) / (above.getKey() - below.getKey());
+        return lerp(below.getValue(), above.getValue(), fraction);
+    }
+
+
+    private static double firstAngle(HashMap<Double, Double> optimal) {
+        return optimal.isEmpty() ? 0 : optimal.keySet().iterator().next();
+    }
 
-        Double polarWindSpeed = getClosestWindSpeedInPolar(thisWindSpeed);
-        Double polarAngle = getClosestAngleInPolar(polarTable.get(polarWindSpeed), thisHeading);
 
-        return polarTable.get(polarWindSpeed).get(polarAngle);
+    private static double lerp(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
     }
 
 
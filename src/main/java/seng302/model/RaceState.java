@@ -10,8 +10,8 @@ import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import seng302.model.stream.decoder.RaceStatusDecoder;
 import seng302.model.stream.parser.RaceStartData;
-import seng302.model.stream.parser.RaceStatusData;
 import seng302.utilities.Sounds;
 
 /**
@@ -43,7 +43,7 @@ public class RaceState {
         playerPositions = FXCollections.observableArrayList();
     }
 
-    public void updateState (RaceStatusData data) {
+    public void updateState (RaceStatusDecoder data) {
         this.windSpeed.set(data.getWindSpeed());
         this.windDirection.set(data.getWindDirection());
         this.serverSystemTime = data.getCurrentTime();
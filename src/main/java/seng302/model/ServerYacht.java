@@ -1,14 +1,11 @@
 package seng302.model;
 
-import java.util.HashMap;
-import javafx.scene.paint.Color;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.gameServer.GameState;
 import seng302.gameServer.messages.BoatStatus;
 import seng302.model.mark.Mark;
 import seng302.model.token.TokenType;
-import seng302.utilities.GeoUtility;
 import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
 
 /**
@@ -32,7 +29,7 @@ public class ServerYacht {
     private String boatName;
     private String country;
     private BoatStatus boatStatus;
-    private Color boatColor;
+    private String boatColor;
 
     //Location
     private Double lastHeading;
@@ -61,6 +58,9 @@ public class ServerYacht {
     //turning mode
     private Boolean continuouslyTurning;
 
+    //The game this yacht is racing in
+    private GameState gameState;
+
     public ServerYacht(BoatMeshType boatType, Integer sourceId, String hullID, String shortName,
         String boatName, String country) {
         setBoatType(boatType);
@@ -78,7 +78,7 @@ public class ServerYacht {
         this.currentVelocity = 0d;     //in mms-1
         this.currentMarkSeqID = 0;
         this.legNumber = 0;
-        this.boatColor = Colors.getColor(sourceId - 1);
+        this.boatColor = Colors.getWebColor(sourceId - 1);
         this.powerUp = null;
         this.powerUpSpeedMultiplier = 1d;
         this.powerUpHandlingMultiplier = 1;
@@ -105,11 +105,28 @@ public class ServerYacht {
      */
     public void updateLocation(Double secondsElapsed) {
         lastLocation = location;
-        location = GeoUtility.getGeoCoordinate(location, heading, currentVelocity * secondsElapsed);
+        // currentVelocity is in mms-1
+        location = gameState.getCourseProjection().getGeoCoordinate(
+            location, heading, currentVelocity / 1000 * secondsElapsed
+        );
+        gameState.yachtMoved(this);
     }
 
     public void setLocation(GeoPoint geoPoint) {
         location = geoPoint;
+        if (gameState != null) {
+            gameState.yachtMoved(this);
+        }
+    }
+
+    /**
+     * Called by the game when the yacht is added to it, the yacht then uses the wind and course
+     * of that game.
+     *
+     * @param gameState The game this yacht is racing in
+     */
+    public void setGameState(GameState gameState) {
+        this.gameState = gameState;
     }
 
     /**
@@ -273,14 +290,12 @@ public class ServerYacht {
         } else {
             Double normalizedHeading = normalizeHeading();
             Double optimalHeading;
-            HashMap<Double, Double> optimalPolarMap;
 
             if (normalizedHeading >= 90 && normalizedHeading <= 270) { // Downwind
-                optimalPolarMap = PolarTable.getOptimalDownwindVMG(GameState.getWindSpeedKnots());
+                optimalHeading = PolarTable.getOptimalDownwindAngle(gameState.getWindSpeedKnots());
             } else {
-                optimalPolarMap = PolarTable.getOptimalUpwindVMG(GameState.getWindSpeedKnots());
+                optimalHeading = PolarTable.getOptimalUpwindAngle(gameState.getWindSpeedKnots());
             }
-            optimalHeading = optimalPolarMap.keySet().iterator().next();
 
             if (normalizedHeading > 180) {
                 optimalHeading = 360 - optimalHeading;
@@ -288,7 +303,7 @@ public class ServerYacht {
 
             // Take optimal heading and turn into a boat heading rather than a wind heading.
             optimalHeading =
-                (optimalHeading + GameState.getWindDirection()) % 360;
+                (optimalHeading + gameState.getWindDirection()) % 360;
 
             setAutoPilot(optimalHeading);
         }
@@ -316,7 +331,7 @@ public class ServerYacht {
      * @return The normalized heading accounting for wind direction.
      */
     private Double normalizeHeading() {
-        Double normalizedHeading = heading - GameState.windDirection;
+        Double normalizedHeading = heading - gameState.getWindDirection();
         normalizedHeading = (double) Math.floorMod(normalizedHeading.longValue(), 360L);
         return normalizedHeading;
     }
@@ -448,11 +463,14 @@ public class ServerYacht {
         return legNumber;
     }
 
-    public void setBoatColor(Color color) {
+    /**
+     * @param color The colour of the boat in a format JavaFX's Color.web can read
+     */
+    public void setBoatColor(String color) {
         this.boatColor = color;
     }
 
-    public Color getBoatColor() {
+    public String getBoatColor() {
         return boatColor;
     }
 
@@ -0,0 +1,27 @@
+package seng302.model.stream.decoder;
+
+import seng302.gameServer.messages.BoatAction;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Reads a boat action packet sent by a client in place.
+ */
+public class BoatActionDecoder extends PacketDecoder {
+
+    /**
+     * @param packet A boat action packet
+     * @return this decoder, or null if the packet is not of type BOAT_ACTION
+     */
+    public BoatActionDecoder wrap(StreamPacket packet) {
+        if (packet.getType() != PacketType.BOAT_ACTION) {
+            return null;
+        }
+        wrapBuffer(packet.getPayload(), 0);
+        return this;
+    }
+
+    public BoatAction getAction() {
+        return BoatAction.getType(getUnsignedByte(0));
+    }
+}
@@ -0,0 +1,76 @@
+package seng302.model.stream.decoder;
+
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Reads a boat location message in place, either a whole BOAT_LOCATION packet or one record of a
+ * BOAT_LOCATION_BATCH packet. Values are converted the same way as
+ * {@link seng302.utilities.StreamParser#extractBoatLocation(StreamPacket)}.
+ */
+public class BoatLocationDecoder extends PacketDecoder {
+
+    private static final int YACHT_DEVICE_TYPE = 1;
+    private static final double PACKED_LAT_LON_RANGE = Math.pow(2, 31);
+    private static final double PACKED_HEADING_FACTOR = 360.0 / 0xffff;
+
+    /**
+     * @param packet A boat location packet
+     * @return this decoder, or null if the packet is not of type BOAT_LOCATION
+     */
+    public BoatLocationDecoder wrap(StreamPacket packet) {
+        if (packet.getType() != PacketType.BOAT_LOCATION) {
+            return null;
+        }
+        wrapBuffer(packet.getPayload(), 0);
+        return this;
+    }
+
+    /**
+     * @param payload The payload of a boat location batch packet
+     * @param offset Where the record starts in the payload
+     * @return this decoder
+     */
+    public BoatLocationDecoder wrapRecord(byte[] payload, int offset) {
+        wrapBuffer(payload, offset);
+        return this;
+    }
+
+    public long getTimeValid() {
+        return getUnsigned(1, 6);
+    }
+
+    public int getSourceId() {
+        return getInt(7);
+    }
+
+    public long getSequenceNumber() {
+        return getUnsigned(11, 4);
+    }
+
+    /**
+     * @return true if the location is of a yacht, false if it is of a mark
+     */
+    public boolean isYacht() {
+        return getUnsignedByte(15) == YACHT_DEVICE_TYPE;
+    }
+
+    public double getLat() {
+        return (180d * getUnsigned(16, 4)) / PACKED_LAT_LON_RANGE;
+    }
+
+    public double getLon() {
+        return (180d * getUnsigned(20, 4)) / PACKED_LAT_LON_RANGE;
+    }
+
+    /**
+     * @return The heading in degrees
+     */
+    public double getHeading() {
+        return PACKED_HEADING_FACTOR * getUnsignedShort(28);
+    }
+
+    public double getGroundSpeed() {
+        return getUnsignedShort(38) / 1000.0;
+    }
+}
@@ -0,0 +1,40 @@
+package seng302.model.stream.decoder;
+
+import seng302.gameServer.messages.CustomizeRequestType;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Reads a customization request packet sent by a client in place.
+ */
+public class CustomizeRequestDecoder extends PacketDecoder {
+
+    private static final int DATA_OFFSET = 6;
+
+    /**
+     * @param packet A customization request packet
+     * @return this decoder, or null if the packet is not of type RACE_CUSTOMIZATION_REQUEST
+     */
+    public CustomizeRequestDecoder wrap(StreamPacket packet) {
+        if (packet.getType() != PacketType.RACE_CUSTOMIZATION_REQUEST) {
+            return null;
+        }
+        wrapBuffer(packet.getPayload(), 0);
+        return this;
+    }
+
+    public int getSourceId() {
+        return getInt(0);
+    }
+
+    public CustomizeRequestType getRequestType() {
+        return CustomizeRequestType.getRequestType(getUnsignedShort(4));
+    }
+
+    /**
+     * @return A copy of the customization, such as the name or colour, as it was sent
+     */
+    public byte[] getData() {
+        return copyBytes(DATA_OFFSET, getRemaining() - DATA_OFFSET);
+    }
+}
@@ -0,0 +1,91 @@
+package seng302.model.stream.decoder;
+
+/**
+ * Base for flyweight decoders that read the fields of a packet in place. A decoder is wrapped
+ * around a payload, or a record within one, and its getters read straight from the payload bytes
+ * with absolute little endian reads, so decoding allocates nothing. Decoders are meant to be kept
+ * and rewrapped for each packet, the values they return are only valid until the next wrap.
+ *
+ * Not thread safe, each reader should own its decoders.
+ */
+public abstract class PacketDecoder {
+
+    private byte[] buffer;
+    private int offset;
+
+    /**
+     * Points the decoder at a message within a buffer.
+     *
+     * @param buffer The buffer holding the message
+     * @param offset Where the message starts in the buffer
+     */
+    protected void wrapBuffer(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * @param index Index of the byte relative to the start of the message
+     * @return The byte as an unsigned value
+     */
+    protected int getUnsignedByte(int index) {
+        return buffer[offset + index] & 0xFF;
+    }
+
+    /**
+     * Reads a little endian unsigned value of up to seven bytes.
+     *
+     * @param index Index of the first byte relative to the start of the message
+     * @param length The number of bytes in the value
+     * @return The value
+     */
+    protected long getUnsigned(int index, int length) {
+        long value = 0;
+        int start = offset + index;
+        for (int i = 0; i < length; i++) {
+            value |= (buffer[start + i] & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+
+    /**
+     * @param index Index of the first byte relative to the start of the message
+     * @return The little endian unsigned short at the index
+     */
+    protected int getUnsignedShort(int index) {
+        int start = offset + index;
+        return (buffer[start] & 0xFF) | (buffer[start + 1] & 0xFF) << 8;
+    }
+
+    /**
+     * @param index Index of the first byte relative to the start of the message
+     * @return The little endian int at the index
+     */
+    protected int getInt(int index) {
+        int start = offset + index;
+        return (buffer[start] & 0xFF)
+            | (buffer[start + 1] & 0xFF) << 8
+            | (buffer[start + 2] & 0xFF) << 16
+            | (buffer[start + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * @return The number of bytes from the start of the message to the end of the buffer
+     */
+    protected int getRemaining() {
+        return buffer.length - offset;
+    }
+
+    /**
+     * Copies part of the message, for fields such as text that have to outlive the packet.
+     *
+     * @param index Index of the first byte relative to the start of the message
+     * @param length The number of bytes to copy
+     * @return A copy of the bytes
+     */
+    protected byte[] copyBytes(int index, int length) {
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, offset + index, bytes, 0, length);
+        return bytes;
+    }
+}
@@ -0,0 +1,87 @@
+package seng302.model.stream.decoder;
+
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Reads a race status packet in place. Values are converted the same way as
+ * {@link seng302.model.stream.parser.RaceStatusData}.
+ */
+public class RaceStatusDecoder extends PacketDecoder {
+
+    private static final double WIND_DIR_FACTOR = 0x4000 / 90; //0x4000 is 90 degrees
+    private static final double MS_TO_KNOTS = 1.94384;
+    private static final int RACE_STARTED = 3;
+    private static final int BOATS_OFFSET = 24;
+    private static final int BOAT_RECORD_SIZE = 20;
+
+    /**
+     * @param packet A race status packet
+     * @return this decoder, or null if the packet is not of type RACE_STATUS
+     */
+    public RaceStatusDecoder wrap(StreamPacket packet) {
+        if (packet.getType() != PacketType.RACE_STATUS) {
+            return null;
+        }
+        wrapBuffer(packet.getPayload(), 0);
+        return this;
+    }
+
+    public long getCurrentTime() {
+        return getUnsigned(1, 6);
+    }
+
+    public long getRaceId() {
+        return getUnsigned(7, 4);
+    }
+
+    public boolean isRaceStarted() {
+        return getUnsignedByte(11) == RACE_STARTED;
+    }
+
+    public long getExpectedStartTime() {
+        return getUnsigned(12, 6);
+    }
+
+    /**
+     * @return The wind direction in degrees
+     */
+    public double getWindDirection() {
+        return getUnsignedShort(18) / WIND_DIR_FACTOR;
+    }
+
+    /**
+     * @return The wind speed in knots
+     */
+    public double getWindSpeed() {
+        return getUnsignedShort(20) / 1000 * MS_TO_KNOTS;
+    }
+
+    public int getNumberOfBoats() {
+        return getUnsignedByte(22);
+    }
+
+    /**
+     * @param boat Index of the boat in the packet, from 0 to getNumberOfBoats() - 1
+     * @return The source id of the boat
+     */
+    public int getBoatSourceId(int boat) {
+        return getInt(BOATS_OFFSET + boat * BOAT_RECORD_SIZE);
+    }
+
+    public int getBoatStatus(int boat) {
+        return getUnsignedByte(BOATS_OFFSET + boat * BOAT_RECORD_SIZE + 4);
+    }
+
+    public int getBoatLeg(int boat) {
+        return getUnsignedByte(BOATS_OFFSET + boat * BOAT_RECORD_SIZE + 5);
+    }
+
+    public long getBoatEstTimeAtNextMark(int boat) {
+        return getUnsigned(BOATS_OFFSET + boat * BOAT_RECORD_SIZE + 8, 6);
+    }
+
+    public long getBoatEstTimeAtFinish(int boat) {
+        return getUnsigned(BOATS_OFFSET + boat * BOAT_RECORD_SIZE + 14, 6);
+    }
+}
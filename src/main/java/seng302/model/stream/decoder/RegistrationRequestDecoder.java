@@ -0,0 +1,36 @@
+package seng302.model.stream.decoder;
+
+import seng302.gameServer.messages.ClientType;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Reads a registration request packet sent by a client in place.
+ */
+public class RegistrationRequestDecoder extends PacketDecoder {
+
+    /**
+     * @param packet A registration request packet
+     * @return this decoder, or null if the packet is not of type RACE_REGISTRATION_REQUEST
+     */
+    public RegistrationRequestDecoder wrap(StreamPacket packet) {
+        if (packet.getType() != PacketType.RACE_REGISTRATION_REQUEST) {
+            return null;
+        }
+        wrapBuffer(packet.getPayload(), 0);
+        return this;
+    }
+
+    public ClientType getClientType() {
+        return ClientType.getClientType(getUnsignedByte(0));
+    }
+
+    /**
+     * Clients that predate capabilities send zero, or leave the field out.
+     *
+     * @return The capability flags, see {@link seng302.gameServer.messages.ClientCapability}
+     */
+    public int getCapabilities() {
+        return getRemaining() < 2 ? 0 : getUnsignedByte(1);
+    }
+}
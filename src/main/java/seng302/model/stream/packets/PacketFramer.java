@@ -0,0 +1,179 @@
+package seng302.model.stream.packets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits a stream of bytes into AC35 packets. Bytes are read from the source in large chunks into
+ * a buffer that is reused for the life of the connection, packets are located by their sync bytes
+ * and checked against their CRC in place. The only copy made per packet is of its payload, as
+ * packets are usually handed to another thread.
+ *
+ * Not thread safe, each connection should own its own framer.
+ */
+public class PacketFramer {
+
+    private static final int SYNC_1 = 0x47;
+    private static final int SYNC_2 = 0x83;
+    private static final int HEADER_SIZE = 15;
+    private static final int CRC_SIZE = 4;
+    private static final int MAX_FRAME_SIZE = HEADER_SIZE + 0xFFFF + CRC_SIZE;
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private Logger logger = LoggerFactory.getLogger(PacketFramer.class);
+
+    private InputStream inputStream;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int start = 0;
+    private int end = 0;
+    private CRC32 crc = new CRC32();
+    private long droppedPackets = 0;
+    private long bytesRead = 0;
+
+    /**
+     * Creates a framer which is fed from a channel with {@link #readFrom(ReadableByteChannel)}.
+     */
+    public PacketFramer() {
+    }
+
+    /**
+     * Creates a framer which blocks on the given stream in {@link #readPacket()}.
+     *
+     * @param inputStream The stream to read packets from
+     */
+    public PacketFramer(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Blocks until the next valid packet has been read from the input stream.
+     *
+     * @return the next packet, or null if the stream ended first
+     * @throws IOException if the stream could not be read
+     */
+    public StreamPacket readPacket() throws IOException {
+        StreamPacket packet;
+        while ((packet = nextPacket()) == null) {
+            makeRoom();
+            int read = inputStream.read(buffer, end, buffer.length - end);
+            if (read == -1) {
+                return null;
+            }
+            end += read;
+            bytesRead += read;
+        }
+        return packet;
+    }
+
+    /**
+     * Reads whatever the channel currently has available into the buffer. Complete packets can
+     * then be taken with {@link #nextPacket()}.
+     *
+     * @param channel The channel to read from
+     * @return the number of bytes read, or -1 if the channel has reached end of stream
+     * @throws IOException if the channel could not be read
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        makeRoom();
+        int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+        if (read > 0) {
+            end += read;
+            bytesRead += read;
+        }
+        return read;
+    }
+
+    /**
+     * Takes the next complete packet out of the buffer. Bytes before a sync pattern are skipped and
+     * packets failing their CRC check are dropped.
+     *
+     * @return the next packet, or null if no complete packet is buffered
+     */
+    public StreamPacket nextPacket() {
+        while (true) {
+            while (end - start >= 2 && !isSyncAt(start)) {
+                start++;
+            }
+            if (end - start < HEADER_SIZE) {
+                return null;
+            }
+
+            int payloadLength = (int) readLittleEndian(start + 13, 2);
+            int frameLength = HEADER_SIZE + payloadLength + CRC_SIZE;
+            if (end - start < frameLength) {
+                return null;
+            }
+
+            int frameStart = start;
+            start += frameLength;
+
+            crc.reset();
+            crc.update(buffer, frameStart, HEADER_SIZE + payloadLength);
+            if (crc.getValue() != readLittleEndian(frameStart + HEADER_SIZE + payloadLength, CRC_SIZE)) {
+                droppedPackets++;
+                logger.warn("Packet has been dropped", 1);
+                continue;
+            }
+
+            int type = buffer[frameStart + 2] & 0xFF;
+            long timeStamp = readLittleEndian(frameStart + 3, 6);
+            byte[] payload = Arrays.copyOfRange(
+                buffer, frameStart + HEADER_SIZE, frameStart + HEADER_SIZE + payloadLength
+            );
+            return new StreamPacket(type, payloadLength, timeStamp, payload);
+        }
+    }
+
+    /**
+     * @return the number of packets discarded for failing their CRC check
+     */
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    /**
+     * @return the number of bytes read from the source, including any that were not valid packets
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private boolean isSyncAt(int index) {
+        return (buffer[index] & 0xFF) == SYNC_1 && (buffer[index + 1] & 0xFF) == SYNC_2;
+    }
+
+    private long readLittleEndian(int index, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (buffer[index + i] & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+
+    /**
+     * Makes sure there is free space at the end of the buffer, by first discarding consumed bytes
+     * and then growing the buffer up to the size of the largest possible packet.
+     */
+    private void makeRoom() {
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        if (end < buffer.length) {
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        } else {
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_FRAME_SIZE));
+        }
+    }
+}
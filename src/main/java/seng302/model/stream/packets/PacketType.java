@@ -21,8 +21,11 @@ public enum PacketType {
     RACE_REGISTRATION_RESPONSE,
     RACE_CUSTOMIZATION_REQUEST,
     RACE_CUSTOMIZATION_RESPONSE,
+    BOAT_LOCATION_BATCH,
+    BOAT_STATE_DELTA,
+    TOKEN_UPDATE,
 
-    SERVER_REGISTRATION, ROOM_CODE_REQUEST, LOBBY_REQUEST;
+    SERVER_REGISTRATION, ROOM_CODE_REQUEST, LOBBY_REQUEST, SERVER_HEARTBEAT;
 
     public static PacketType assignPacketType(int packetType, byte[] payload){
         switch(packetType){
@@ -67,10 +70,18 @@ public enum PacketType {
                 return RACE_CUSTOMIZATION_REQUEST;
             case 104:
                 return RACE_CUSTOMIZATION_RESPONSE;
+            case 105:
+                return BOAT_LOCATION_BATCH;
+            case 106:
+                return BOAT_STATE_DELTA;
+            case 107:
+                return TOKEN_UPDATE;
             case 201:
                 return SERVER_REGISTRATION;
             case 202:
                 return ROOM_CODE_REQUEST;
+            case 204:
+                return SERVER_HEARTBEAT;
             default:
         }
         return OTHER;
@@ -0,0 +1,27 @@
+package seng302.model.stream.parser;
+
+import seng302.model.token.Token;
+
+/**
+ * Stores one record parsed from a token update packet
+ */
+public class TokenUpdateData {
+    private boolean spawned;
+    private Token token;
+
+    public TokenUpdateData(boolean spawned, Token token) {
+        this.spawned = spawned;
+        this.token = token;
+    }
+
+    /**
+     * @return true if the token was put on the course, false if it was removed
+     */
+    public boolean isSpawned() {
+        return spawned;
+    }
+
+    public Token getToken() {
+        return token;
+    }
+}
@@ -18,10 +18,20 @@ public class RaceXMLData {
     private Map<Integer, CompoundMark> compoundMarks;
     private List<Corner> markSequence;
     private List<Limit> courseLimit;
+    private Integer maxPlayers;
+    private Boolean tokensEnabled;
 
     public RaceXMLData(List<Integer> participants, List<Token> tokens,
         List<CompoundMark> compoundMarks,
         List<Corner> markSequence, List<Limit> courseLimit) {
+        this(participants, tokens, compoundMarks, markSequence, courseLimit, null, null);
+    }
+
+    public RaceXMLData(List<Integer> participants, List<Token> tokens,
+        List<CompoundMark> compoundMarks, List<Corner> markSequence, List<Limit> courseLimit,
+        Integer maxPlayers, Boolean tokensEnabled) {
+        this.maxPlayers = maxPlayers;
+        this.tokensEnabled = tokensEnabled;
         this.participants = participants;
         this.tokens = tokens;
         this.markSequence = markSequence;
@@ -51,4 +61,18 @@ public class RaceXMLData {
     public List<Limit> getCourseLimit() {
         return courseLimit;
     }
+
+    /**
+     * @return The most players the race allows, null if it was not read from race XML
+     */
+    public Integer getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    /**
+     * @return If tokens are enabled in the race, null if it was not read from race XML
+     */
+    public Boolean getTokensEnabled() {
+        return tokensEnabled;
+    }
 }
@@ -12,6 +12,9 @@ import seng302.model.GeoPoint;
  */
 public class Token extends GeoPoint {
 
+    public static final int NO_ID = -1;
+
+    private int tokenId = NO_ID;
     private TokenType tokenType;
     private Random random = new Random();
 
@@ -21,6 +24,12 @@ public class Token extends GeoPoint {
         this.tokenType = tokenType;
     }
 
+    //Constructor for a token the server has identified, client side
+    public Token(int tokenId, TokenType tokenType, double lat, double lng) {
+        this(tokenType, lat, lng);
+        this.tokenId = tokenId;
+    }
+
     //Making random type server side
     public Token(double lat, double lng) {
         super(lat, lng);
@@ -37,6 +46,17 @@ public class Token extends GeoPoint {
         return tokenType;
     }
 
+    /**
+     * @return The id the server gave this token, unique within a race, or NO_ID if it has none
+     */
+    public int getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(int tokenId) {
+        this.tokenId = tokenId;
+    }
+
     /**
      * Assigns a random type to the token (including the random type token)
      */
@@ -26,6 +26,19 @@ public enum TokenType {
         return value;
     }
 
+    /**
+     * @param value The value of a token type, as sent to clients
+     * @return The token type with the value, null if there is none
+     */
+    public static TokenType getTokenType(int value) {
+        for (TokenType tokenType : values()) {
+            if (tokenType.value == value) {
+                return tokenType;
+            }
+        }
+        return null;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,163 @@
+package seng302.utilities;
+
+import seng302.model.GeoPoint;
+
+/**
+ * Flat earth geometry for the few kilometres around a race course, used by the game server in
+ * place of the spherical trigonometry in {@link GeoUtility}. Around the course a degree of
+ * latitude is a fixed number of metres and a degree of longitude is that times the cosine of the
+ * latitude, so distances and bearings are a square root or an atan2 on primitive doubles.
+ *
+ * The cosine is expanded once around the latitude of the course when the projection is made, so
+ * the per call scale is a multiply and add. Points far from the course fall back to Math.cos.
+ *
+ * Results match GeoUtility to within a few centimetres and a few hundredths of a degree over a
+ * course, see CourseProjectionTest.
+ */
+public class CourseProjection {
+
+    // Same earth radius as GeoUtility, in metres
+    private static final double EARTH_RADIUS = 6378137;
+    private static final double METRES_PER_DEGREE = EARTH_RADIUS * Math.PI / 180;
+    // Beyond this many degrees of latitude from the reference the series is no longer used
+    private static final double MAX_SERIES_LAT_OFFSET = 0.25;
+
+    private final double referenceLat;
+    private final double cosReference;
+    private final double sinReference;
+
+    /**
+     * @param reference A point in the middle of the course
+     */
+    public CourseProjection(GeoPoint reference) {
+        this.referenceLat = reference.getLat();
+        this.cosReference = Math.cos(Math.toRadians(referenceLat));
+        this.sinReference = Math.sin(Math.toRadians(referenceLat));
+    }
+
+    /**
+     * @return The number of metres in a degree of longitude at the given latitude, relative to a
+     * degree of latitude
+     */
+    private double lngScale(double lat) {
+        double offset = lat - referenceLat;
+        if (Math.abs(offset) > MAX_SERIES_LAT_OFFSET) {
+            return Math.cos(Math.toRadians(lat));
+        }
+        double radians = Math.toRadians(offset);
+        // cos(a + b) to second order in b
+        return cosReference * (1 - radians * radians / 2) - sinReference * radians;
+    }
+
+    private static double lngDifference(double from, double to) {
+        double difference = to - from;
+        if (difference > 180) {
+            difference -= 360;
+        } else if (difference < -180) {
+            difference += 360;
+        }
+        return difference;
+    }
+
+    private double eastMetres(GeoPoint from, GeoPoint to) {
+        return lngDifference(from.getLng(), to.getLng()) * METRES_PER_DEGREE
+            * lngScale((from.getLat() + to.getLat()) / 2);
+    }
+
+    private static double northMetres(GeoPoint from, GeoPoint to) {
+        return (to.getLat() - from.getLat()) * METRES_PER_DEGREE;
+    }
+
+    /**
+     * @param p1 first geographical position
+     * @param p2 second geographical position
+     * @return the distance between the two points in metres
+     * @see GeoUtility#getDistance(GeoPoint, GeoPoint)
+     */
+    public double getDistance(GeoPoint p1, GeoPoint p2) {
+        double east = eastMetres(p1, p2);
+        double north = northMetres(p1, p2);
+        return Math.sqrt(east * east + north * north);
+    }
+
+    /**
+     * @param p1 the start point
+     * @param p2 the end point
+     * @return the bearing in degrees from p1 to p2, 0 to 360 clockwise from north
+     * @see GeoUtility#getBearing(GeoPoint, GeoPoint)
+     */
+    public double getBearing(GeoPoint p1, GeoPoint p2) {
+        double bearing = Math.toDegrees(Math.atan2(eastMetres(p1, p2), northMetres(p1, p2)));
+        return bearing < 0 ? bearing + 360 : bearing;
+    }
+
+    /**
+     * @param origin the original position
+     * @param bearing the bearing in degrees from the original position to the new position
+     * @param distance the distance in metres from the original position to the new position
+     * @return the new position
+     * @see GeoUtility#getGeoCoordinate(GeoPoint, Double, Double)
+     */
+    public GeoPoint getGeoCoordinate(GeoPoint origin, double bearing, double distance) {
+        double radians = Math.toRadians(bearing);
+        double latChange = distance * Math.cos(radians) / METRES_PER_DEGREE;
+        double lngChange = distance * Math.sin(radians)
+            / (METRES_PER_DEGREE * lngScale(origin.getLat() + latChange / 2));
+        return new GeoPoint(origin.getLat() + latChange, origin.getLng() + lngChange);
+    }
+
+    /**
+     * A point is clockwise of a line if it is on the right hand side looking from v1 to v2.
+     * Scaling longitude does not change which side a point is on, so this is a cross product.
+     *
+     * @param v1 one end of the line segment
+     * @param v2 another end of the line segment
+     * @param point the point to be tested
+     * @return true if the point is on the RHS of the line
+     * @see GeoUtility#isClockwise(GeoPoint, GeoPoint, GeoPoint)
+     */
+    public boolean isClockwise(GeoPoint v1, GeoPoint v2, GeoPoint point) {
+        double lineEast = lngDifference(v1.getLng(), v2.getLng());
+        double lineNorth = v2.getLat() - v1.getLat();
+        double pointEast = lngDifference(v1.getLng(), point.getLng());
+        double pointNorth = point.getLat() - v1.getLat();
+        double cross = lineEast * pointNorth - lineNorth * pointEast;
+        if (cross == 0) {
+            // In line with the segment, clockwise only if it is in front of v1
+            return lineEast * pointEast + lineNorth * pointNorth >= 0;
+        }
+        return cross < 0;
+    }
+
+    /**
+     * @return true if the point is inside the triangle v1, v2, v3
+     * @see GeoUtility#isPointInTriangle(GeoPoint, GeoPoint, GeoPoint, GeoPoint)
+     */
+    public boolean isPointInTriangle(GeoPoint v1, GeoPoint v2, GeoPoint v3, GeoPoint point) {
+        boolean isCW = isClockwise(v1, v2, point);
+        return isClockwise(v2, v3, point) == isCW && isClockwise(v3, v1, point) == isCW;
+    }
+
+    /**
+     * @param mark1 One mark of the line
+     * @param mark2 The second mark of the line
+     * @param lastLocation The last location of the point crossing this line
+     * @param location The current location of the point crossing this line
+     * @return 0 if the segments don't intersect, 1 if they do and lastLocation is on the RHS of
+     * mark1 to mark2, 2 if they do and lastLocation is on the LHS
+     * @see GeoUtility#checkCrossedLine(GeoPoint, GeoPoint, GeoPoint, GeoPoint)
+     */
+    public int checkCrossedLine(GeoPoint mark1, GeoPoint mark2, GeoPoint lastLocation,
+        GeoPoint location) {
+        boolean enteredDirection = isClockwise(mark1, mark2, lastLocation);
+        boolean exitedDirection = isClockwise(mark1, mark2, location);
+        if (enteredDirection != exitedDirection) {
+            if (!isPointInTriangle(mark1, lastLocation, location, mark2)
+                && !isPointInTriangle(mark2, lastLocation, location, mark1)) {
+
+                return enteredDirection ? 1 : 2;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,33 @@
+package seng302.utilities;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A single scheduler thread shared by the background jobs of a server or client, such as
+ * advertising a game on the local network, so jobs do not each start a thread of their own. Jobs
+ * should be short, as each waits for the one before it to finish. Timed events inside a race are
+ * run by the game instead, see {@link seng302.gameServer.GameEventWheel}.
+ */
+public final class Housekeeping {
+
+    private static class Holder {
+
+        private static final ScheduledExecutorService EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Housekeeping");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    private Housekeeping() {
+    }
+
+    /**
+     * @return The shared scheduler, started the first time it is asked for
+     */
+    public static ScheduledExecutorService getExecutor() {
+        return Holder.EXECUTOR;
+    }
+}
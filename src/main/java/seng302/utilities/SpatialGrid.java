@@ -0,0 +1,211 @@
+package seng302.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import seng302.model.GeoPoint;
+
+/**
+ * A uniform grid over the course used to find objects near a point without checking every object
+ * on the course. Cells are roughly square, cellSize metres a side at the latitude of the course.
+ *
+ * Queries only return candidates, callers still check the exact distance, the game with the
+ * {@link CourseProjection} of its course. Points can be moved between cells as they move, segments
+ * (such as the course boundary) are added to every cell their bounding box covers and stay put.
+ *
+ * The game only changes and queries its grids on the game thread, client threads queue their
+ * changes for the next tick. The one exception is a new course, whose grids are filled on the
+ * thread that received it before the game thread is handed them. The methods are synchronized so
+ * that the game thread sees everything put in by then, and cost little with one thread using them.
+ *
+ * @param <T> The type of object held in the grid
+ */
+public class SpatialGrid<T> {
+
+    private static final double METRES_PER_DEGREE_LAT = Math.PI * 6378137 / 180;
+    // Stops the longitude scale blowing up near the poles
+    private static final double MIN_LNG_SCALE = 0.01;
+
+    private final double cellSize;
+    private final double cellLat;
+    private final double cellLng;
+
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    private final Map<T, Long> pointCells = new IdentityHashMap<>();
+
+    /**
+     * @param cellSize The width and height of a cell in metres
+     * @param referenceLat The latitude of the course, where cells are square
+     */
+    public SpatialGrid(double cellSize, double referenceLat) {
+        this.cellSize = cellSize;
+        this.cellLat = cellSize / METRES_PER_DEGREE_LAT;
+        this.cellLng = cellSize / (METRES_PER_DEGREE_LAT * lngScale(referenceLat));
+    }
+
+    /**
+     * Adds a point object to the grid, or moves it to the cell of its new location.
+     *
+     * @param item The object to add or move
+     * @param location Where the object is now
+     */
+    public synchronized void put(T item, GeoPoint location) {
+        long cell = cellKey(row(location.getLat()), column(location.getLng()));
+        Long previousCell = pointCells.put(item, cell);
+        if (previousCell != null) {
+            if (previousCell == cell) {
+                return;
+            }
+            removeFromCell(previousCell, item);
+        }
+        cells.computeIfAbsent(cell, key -> new ArrayList<>(4)).add(item);
+    }
+
+    /**
+     * Moves an object already in the grid. Objects that were never added are ignored.
+     *
+     * @param item The object which has moved
+     * @param location Where the object is now
+     */
+    public synchronized void move(T item, GeoPoint location) {
+        if (pointCells.containsKey(item)) {
+            put(item, location);
+        }
+    }
+
+    /**
+     * Adds a segment to every cell its bounding box covers.
+     *
+     * @param item The object the segment belongs to
+     * @param start One end of the segment
+     * @param end The other end of the segment
+     */
+    public synchronized void putSegment(T item, GeoPoint start, GeoPoint end) {
+        int minRow = row(Math.min(start.getLat(), end.getLat()));
+        int maxRow = row(Math.max(start.getLat(), end.getLat()));
+        int minColumn = column(Math.min(start.getLng(), end.getLng()));
+        int maxColumn = column(Math.max(start.getLng(), end.getLng()));
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                cells.computeIfAbsent(cellKey(row, column), key -> new ArrayList<>(4)).add(item);
+            }
+        }
+    }
+
+    /**
+     * Removes a point object from the grid.
+     *
+     * @param item The object to remove
+     */
+    public synchronized void remove(T item) {
+        Long cell = pointCells.remove(item);
+        if (cell != null) {
+            removeFromCell(cell, item);
+        }
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+        pointCells.clear();
+    }
+
+    /**
+     * Finds every object in a cell within radius metres of the given point.
+     *
+     * @param centre The point to search around
+     * @param radius The search distance in metres
+     * @return Objects which may be within radius of the point, each at most once
+     */
+    public synchronized List<T> getNearby(GeoPoint centre, double radius) {
+        double latRadius = radius / METRES_PER_DEGREE_LAT;
+        double lngRadius = radius / (METRES_PER_DEGREE_LAT * lngScale(centre.getLat()));
+        return collect(
+            row(centre.getLat() - latRadius), row(centre.getLat() + latRadius),
+            column(centre.getLng() - lngRadius), column(centre.getLng() + lngRadius)
+        );
+    }
+
+    /**
+     * Finds every object in a cell the bounding box of the given segment touches. Any segment
+     * crossing this one will be returned.
+     *
+     * @param start One end of the segment
+     * @param end The other end of the segment
+     * @return Objects which may cross the segment, each at most once
+     */
+    public synchronized List<T> getAlongSegment(GeoPoint start, GeoPoint end) {
+        return collect(
+            row(Math.min(start.getLat(), end.getLat())),
+            row(Math.max(start.getLat(), end.getLat())),
+            column(Math.min(start.getLng(), end.getLng())),
+            column(Math.max(start.getLng(), end.getLng()))
+        );
+    }
+
+    public synchronized int size() {
+        return pointCells.size();
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private List<T> collect(int minRow, int maxRow, int minColumn, int maxColumn) {
+        List<T> first = null;
+        Set<T> found = null;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                List<T> cell = cells.get(cellKey(row, column));
+                if (cell == null) {
+                    continue;
+                }
+                if (first == null) {
+                    first = cell;
+                } else {
+                    if (found == null) {
+                        found = new LinkedHashSet<>(first);
+                    }
+                    found.addAll(cell);
+                }
+            }
+        }
+        if (found != null) {
+            return new ArrayList<>(found);
+        }
+        return first == null ? Collections.emptyList() : new ArrayList<>(first);
+    }
+
+    private void removeFromCell(long cell, T item) {
+        List<T> items = cells.get(cell);
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == item) {
+                items.remove(i);
+                break;
+            }
+        }
+        if (items.isEmpty()) {
+            cells.remove(cell);
+        }
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellLat);
+    }
+
+    private int column(double lng) {
+        return (int) Math.floor(lng / cellLng);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static double lngScale(double lat) {
+        return Math.max(Math.cos(Math.toRadians(lat)), MIN_LNG_SCALE);
+    }
+}
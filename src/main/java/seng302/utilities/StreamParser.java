@@ -1,17 +1,22 @@
 package seng302.utilities;
 
-import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javafx.scene.paint.Color;
 import javafx.util.Pair;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import seng302.gameServer.messages.BoatLocationBatchMessage;
+import seng302.gameServer.messages.BoatState;
+import seng302.gameServer.messages.BoatStateDeltaMessage;
+import seng302.gameServer.messages.TokenUpdateMessage;
+import seng302.model.ClientYacht;
+import seng302.model.Colors;
 import seng302.model.stream.packets.PacketType;
 import seng302.model.stream.packets.StreamPacket;
 import seng302.model.stream.parser.MarkRoundingData;
@@ -19,7 +24,11 @@ import seng302.model.stream.parser.PositionUpdateData;
 import seng302.model.stream.parser.PositionUpdateData.DeviceType;
 import seng302.model.stream.parser.RaceStartData;
 import seng302.model.stream.parser.RaceStatusData;
+import seng302.model.stream.parser.TokenUpdateData;
 import seng302.model.stream.parser.YachtEventData;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
 
 /**
  * StreamParser is a utilities class for taking byte data, formatted according to the AC35 streaming
@@ -70,7 +79,7 @@ public class StreamParser {
             windDir, rawWindSpeed, raceStatus, currentTime, expectedStartTime
         );
 
-        int noBoats = payload[22];
+        int noBoats = payload[22] & 0xFF;
         int raceType = payload[23];
         long boatID, estTimeAtNextMark, estTimeAtFinish;
         int leg, boatStatus;
@@ -116,39 +125,6 @@ public class StreamParser {
         return message;
     }
 
-    /**
-     * Parses and returns an XMLParser containing XML data sent in the given StreamPacket. XML data
-     * can be for races, boats or the regatta.
-     *
-     * @param packet Packet parsed in to use the payload
-     * @return XMLParse containing xmldata. Returns null if the StreamPacket is not of type
-     * XML_MESSAGE.
-     */
-    public static Document extractXmlMessage(StreamPacket packet) {
-        if (packet.getType() != PacketType.RACE_XML &&
-            packet.getType() != PacketType.REGATTA_XML &&
-            packet.getType() != PacketType.BOAT_XML) {
-            return null;
-        }
-
-        byte[] payload = packet.getPayload();
-        int messageType = payload[9];
-        long messageLength = bytesToLong(Arrays.copyOfRange(payload, 12, 14));
-        String xmlMessage = new String(
-            (Arrays.copyOfRange(payload, 14, (int) (14 + messageLength)))).trim();
-        //Create XML document Object
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db;
-        Document doc = null;
-        try {
-            db = dbf.newDocumentBuilder();
-            doc = db.parse(new InputSource(new StringReader(xmlMessage)));
-        } catch (ParserConfigurationException | IOException | SAXException e) {
-            e.printStackTrace();
-        }
-        return doc;
-    }
-
     /**
      * Extracts the race start status from the packet and returns it as a long array.
      *
@@ -266,6 +242,189 @@ public class StreamParser {
         return new PositionUpdateData((int) boatId, type, lat, lon, heading, groundSpeed);
     }
 
+    /**
+     * Applies every record of a boat location batch packet to the matching yachts in one pass.
+     * Records are decoded in place the same way as {@link #extractBoatLocation(StreamPacket)}.
+     * Records for unknown boats or for marks are skipped.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @param yachts The yachts in the race keyed by source id
+     */
+    public static void updateBoatLocations(StreamPacket packet, Map<Integer, ClientYacht> yachts) {
+        if (packet.getType() != PacketType.BOAT_LOCATION_BATCH) {
+            return;
+        }
+        byte[] payload = packet.getPayload();
+        int numberOfBoats = payload[1] & 0xFF;
+        for (int i = 0; i < numberOfBoats; i++) {
+            int offset = 2 + i * BoatLocationBatchMessage.RECORD_SIZE;
+            if (payload[offset + 15] != 1) {
+                continue;
+            }
+            ClientYacht yacht = yachts.get((int) bytesToLong(payload, offset + 7, 4));
+            if (yacht == null) {
+                continue;
+            }
+            double lat = (180d * (double) bytesToLong(payload, offset + 16, 4)) / Math.pow(2, 31);
+            double lon = (180d * (double) bytesToLong(payload, offset + 20, 4)) / Math.pow(2, 31);
+            double heading = 360.0 / 0xffff * bytesToLong(payload, offset + 28, 2);
+            double groundSpeed = bytesToLong(payload, offset + 38, 2) / 1000.0;
+            yacht.updateLocation(lat, lon, heading, groundSpeed);
+        }
+    }
+
+    /**
+     * Applies a boat state delta frame to the last known state of each boat and returns the full
+     * position of every boat in the frame. Values are converted the same way as
+     * {@link #extractBoatLocation(StreamPacket)}. Deltas for boats with no known state are skipped
+     * until the next keyframe.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @param boatStates The last state received for each boat by source id, updated in place
+     * @return The position of each boat included in the frame
+     */
+    public static List<PositionUpdateData> extractBoatStateDeltas(StreamPacket packet,
+        Map<Integer, BoatState> boatStates) {
+        List<PositionUpdateData> positions = new ArrayList<>();
+        if (packet.getType() != PacketType.BOAT_STATE_DELTA) {
+            return positions;
+        }
+        byte[] payload = packet.getPayload();
+        int numberOfRecords = payload[6] & 0xFF;
+        int offset = 7;
+        for (int i = 0; i < numberOfRecords; i++) {
+            int sourceId = (int) bytesToLong(payload, offset, 4);
+            int fieldMask = payload[offset + 4] & 0xFF;
+            int recordEnd = offset + BoatStateDeltaMessage.recordSize(fieldMask);
+            offset += 5;
+
+            BoatState previous = boatStates.get(sourceId);
+            boolean isFullState = (fieldMask & BoatStateDeltaMessage.FIELD_POSITION) != 0
+                && (fieldMask & BoatStateDeltaMessage.FIELD_HEADING) != 0
+                && (fieldMask & BoatStateDeltaMessage.FIELD_SPEED) != 0;
+            if (previous == null && !isFullState) {
+                offset = recordEnd;
+                continue;
+            }
+
+            int lat = previous == null ? 0 : previous.getPackedLat();
+            int lon = previous == null ? 0 : previous.getPackedLon();
+            int heading = previous == null ? 0 : previous.getPackedHeading();
+            int speed = previous == null ? 0 : previous.getPackedSpeed();
+            if ((fieldMask & BoatStateDeltaMessage.FIELD_POSITION_DELTA) != 0) {
+                lat += (short) bytesToLong(payload, offset, 2);
+                lon += (short) bytesToLong(payload, offset + 2, 2);
+                offset += 4;
+            }
+            if ((fieldMask & BoatStateDeltaMessage.FIELD_POSITION) != 0) {
+                lat = (int) bytesToLong(payload, offset, 4);
+                lon = (int) bytesToLong(payload, offset + 4, 4);
+                offset += 8;
+            }
+            if ((fieldMask & BoatStateDeltaMessage.FIELD_HEADING) != 0) {
+                heading = (int) bytesToLong(payload, offset, 2);
+                offset += 2;
+            }
+            if ((fieldMask & BoatStateDeltaMessage.FIELD_SPEED) != 0) {
+                speed = (int) bytesToLong(payload, offset, 2);
+                offset += 2;
+            }
+
+            boatStates.put(sourceId, new BoatState(sourceId, lat, lon, heading, speed));
+            positions.add(new PositionUpdateData(
+                sourceId, DeviceType.YACHT_TYPE,
+                (180d * (double) Integer.toUnsignedLong(lat)) / Math.pow(2, 31),
+                (180d * (double) Integer.toUnsignedLong(lon)) / Math.pow(2, 31),
+                360.0 / 0xffff * heading,
+                speed / 1000.0
+            ));
+        }
+        return positions;
+    }
+
+    /**
+     * Reads the tokens spawned and removed in a token update packet, in the order they should be
+     * applied. Records with an unknown token type are skipped.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return The records of the packet. Returns an empty list if the packet is not of type
+     * TOKEN_UPDATE.
+     */
+    public static List<TokenUpdateData> extractTokenUpdates(StreamPacket packet) {
+        List<TokenUpdateData> updates = new ArrayList<>();
+        if (packet.getType() != PacketType.TOKEN_UPDATE) {
+            return updates;
+        }
+        byte[] payload = packet.getPayload();
+        int numberOfRecords = payload[1] & 0xFF;
+        for (int i = 0; i < numberOfRecords; i++) {
+            int offset = 2 + i * TokenUpdateMessage.RECORD_SIZE;
+            TokenType tokenType = TokenType.getTokenType(payload[offset + 5] & 0xFF);
+            if (tokenType == null) {
+                continue;
+            }
+            Token token = new Token(
+                (int) bytesToLong(payload, offset + 1, 4),
+                tokenType,
+                (180d * (int) bytesToLong(payload, offset + 6, 4)) / Math.pow(2, 31),
+                (180d * (int) bytesToLong(payload, offset + 10, 4)) / Math.pow(2, 31)
+            );
+            updates.add(new TokenUpdateData(
+                payload[offset] == TokenUpdateMessage.ACTION_SPAWN, token
+            ));
+        }
+        return updates;
+    }
+
+    /**
+     * Produces a mapping of boat sourceIDs to boats from a boat XML packet, reading the XML with
+     * {@link XMLStreamParser}.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return Mapping of sourceIds to Boats. Returns null if the packet is not XML or could not be
+     * parsed.
+     */
+    public static Map<Integer, ClientYacht> parseBoats(StreamPacket packet) {
+        XMLStreamReader reader = XMLStreamParser.createReader(packet);
+        if (reader == null) {
+            return null;
+        }
+
+        Map<Integer, ClientYacht> competingBoats = new HashMap<>();
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT
+                    || !reader.getLocalName().equals("Boat")) {
+                    continue;
+                }
+                BoatMeshType boatMeshType;
+                try {
+                    boatMeshType = BoatMeshType.valueOf(reader.getAttributeValue(null, "Type"));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    boatMeshType = BoatMeshType.DINGHY;
+                }
+                String webColor = reader.getAttributeValue(null, "Color");
+                Color color = Color.web(
+                    webColor != null ? webColor : Colors.getWebColor(new Random().nextInt(8))
+                );
+                ClientYacht yacht = new ClientYacht(
+                    boatMeshType,
+                    XMLStreamParser.getAttributeInt(reader, "SourceID"),
+                    reader.getAttributeValue(null, "HullNum"),
+                    reader.getAttributeValue(null, "ShortName"),
+                    reader.getAttributeValue(null, "BoatName"),
+                    reader.getAttributeValue(null, "Country"));
+                yacht.setColour(color);
+                competingBoats.put(yacht.getSourceId(), yacht);
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return competingBoats;
+    }
+
     /**
      * Processes a stream packet for a mark rounding and returns the boatID, markID and timestamp.
      *
@@ -356,6 +515,17 @@ public class StreamParser {
         };
     }
 
+    /**
+     * Reads a little endian unsigned value from part of an array without copying it.
+     */
+    private static long bytesToLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (bytes[offset + i] & 0xFFL) << (i * 8);
+        }
+        return value;
+    }
+
     /**
      * takes an array of up to 7 bytes and returns a positive long constructed from the input bytes
      *
@@ -7,10 +7,8 @@ import seng302.gameServer.messages.XMLMessageSubType;
 import seng302.model.stream.xml.generator.RaceXMLTemplate;
 import seng302.model.stream.xml.generator.RegattaXMLTemplate;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.util.Random;
 
 /**
@@ -21,7 +19,32 @@ public class XMLGenerator {
     private static final String REGATTA_TEMPLATE_NAME = "regatta.ftlh";
     private static final String BOATS_TEMPLATE_NAME = "boats.ftlh";
     private static final String RACE_TEMPLATE_NAME = "race.ftlh";
-    private Configuration configuration;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /**
+     * The sections the race template is made of, in the order they appear in the race XML. The
+     * course is the same for the whole race while participants and tokens change as it runs, so
+     * each section can be rendered on its own and joined with {@link #joinRaceSections(String[])}.
+     */
+    public enum RaceSection {
+        HEADER("race_head.ftlh"),
+        PARTICIPANTS("race_participants.ftlh"),
+        TOKENS("race_tokens.ftlh"),
+        COURSE("race_course.ftlh");
+
+        private final String templateName;
+
+        RaceSection(String templateName) {
+            this.templateName = templateName;
+        }
+    }
+
+    /**
+     * Shared by every generator so each template is only compiled once. The templates are
+     * packaged with the game so they are never checked for changes.
+     */
+    private static final Configuration configuration = setupConfiguration();
+
     private RegattaXMLTemplate regatta;
     private RaceXMLTemplate race;
 
@@ -33,21 +56,16 @@ public class XMLGenerator {
     /**
      * Set up a configuration instance for Apache Freemake
      */
-    private void setupConfiguration() {
-        configuration = new Configuration(Configuration.VERSION_2_3_26);
+    private static Configuration setupConfiguration() {
+        Configuration configuration = new Configuration(Configuration.VERSION_2_3_26);
 
         try {
-            configuration.setClassForTemplateLoading(getClass(), XML_TEMPLATE_DIR);
+            configuration.setClassForTemplateLoading(XMLGenerator.class, XML_TEMPLATE_DIR);
         } catch (NullPointerException e){
             System.out.println("[FATAL] Server could not load XML Template directory, ensure this directory isn't empty");
         }
-    }
-
-    /**
-     * Create an instance of the XML Generator
-     */
-    public XMLGenerator() {
-        setupConfiguration();
+        configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+        return configuration;
     }
 
     /**
@@ -74,11 +92,8 @@ public class XMLGenerator {
      * @param type The XML message sub type
      */
     private String parseToXmlString(String templateName, XMLMessageSubType type) throws IOException, TemplateException {
-        Template template;
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        OutputStreamWriter writer = new OutputStreamWriter(os);
-
-        template = configuration.getTemplate(templateName);
+        Template template = configuration.getTemplate(templateName);
+        StringWriter writer = new StringWriter(INITIAL_BUFFER_SIZE);
 
         switch (type) {
             case REGATTA:
@@ -97,12 +112,7 @@ public class XMLGenerator {
                 throw new UnsupportedOperationException();
         }
 
-        try {
-            return os.toString("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            System.out.println("[FATAL] UTF-8 Not supported");
-            return null;
-        }
+        return writer.toString();
     }
 
     /**
@@ -168,6 +178,46 @@ public class XMLGenerator {
         return result;
     }
 
+    /**
+     * Get one section of the race XML as a string
+     * Note: Race must be set before calling this
+     * @param section The section to generate
+     * @return String containing the section, null if there was an error
+     */
+    public String getRaceSectionAsXml(RaceSection section) {
+        String result = null;
+
+        if (race == null) return null;
+
+        try {
+            result = parseToXmlString(section.templateName, XMLMessageSubType.RACE);
+        } catch (TemplateException e) {
+            System.out.println("[FATAL] Error parsing race " + section);
+        } catch (IOException e) {
+            System.out.println("[FATAL] Error reading race " + section);
+        }
+
+        return result;
+    }
+
+    /**
+     * Join separately generated sections into the race XML, the same as {@link #getRaceAsXml()}
+     * would generate
+     * @param sections Each section of the race, indexed by {@link RaceSection#ordinal()}
+     * @return String containing the race XML
+     */
+    public static String joinRaceSections(String[] sections) {
+        int length = 0;
+        for (String section : sections) {
+            length += section.length();
+        }
+        StringBuilder xml = new StringBuilder(length);
+        for (String section : sections) {
+            xml.append(section);
+        }
+        return xml.toString();
+    }
+
     public static void setDefaultRaceName(String raceName){
         DEFAULT_REGATTA.setRegattaName(raceName);
     }
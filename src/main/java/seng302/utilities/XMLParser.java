@@ -2,13 +2,12 @@ package seng302.utilities;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import javafx.scene.paint.Color;
-import javafx.util.Pair;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -17,27 +16,71 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import seng302.model.ClientYacht;
-import seng302.model.Colors;
+import seng302.gameServer.messages.Message;
 import seng302.model.Limit;
 import seng302.model.mark.CompoundMark;
 import seng302.model.mark.Corner;
 import seng302.model.mark.Mark;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
 import seng302.model.stream.xml.generator.RaceXMLTemplate;
 import seng302.model.stream.xml.generator.RegattaXMLTemplate;
 import seng302.model.stream.xml.parser.RaceXMLData;
 import seng302.model.stream.xml.parser.RegattaXMLData;
 import seng302.model.token.Token;
 import seng302.model.token.TokenType;
-import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
 
 /**
  * Utilities for parsing XML documents
  */
 public class XMLParser {
 
-    private static final int MAX_PLAYERS = 8;
+    static final int MAX_PLAYERS = 8;
+
+    /**
+     * Parses and returns an XMLParser containing XML data sent in the given StreamPacket. XML data
+     * can be for races, boats or the regatta.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return XMLParse containing xmldata. Returns null if the StreamPacket is not of type
+     * XML_MESSAGE.
+     */
+    public static Document extractXmlMessage(StreamPacket packet) {
+        if (packet.getType() != PacketType.RACE_XML &&
+            packet.getType() != PacketType.REGATTA_XML &&
+            packet.getType() != PacketType.BOAT_XML) {
+            return null;
+        }
+
+        byte[] payload = packet.getPayload();
+        int messageType = payload[9];
+        long messageLength = Message.bytesToLong(Arrays.copyOfRange(payload, 12, 14));
+        String xmlMessage = new String(
+            (Arrays.copyOfRange(payload, 14, (int) (14 + messageLength)))).trim();
+        return parseXmlString(xmlMessage);
+    }
+
+    /**
+     * Parses an XML document held in a string.
+     *
+     * @param xmlMessage The XML to parse
+     * @return The parsed document, or null if it could not be parsed
+     */
+    public static Document parseXmlString(String xmlMessage) {
+        //Create XML document Object
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        DocumentBuilder db;
+        Document doc = null;
+        try {
+            db = dbf.newDocumentBuilder();
+            doc = db.parse(new InputSource(new StringReader(xmlMessage)));
+        } catch (ParserConfigurationException | IOException | SAXException e) {
+            e.printStackTrace();
+        }
+        return doc;
+    }
 
     /**
      * Returns the text content of a given child element tag, assuming it exists, as an Integer.
@@ -95,7 +138,7 @@ public class XMLParser {
      * @return The String representation of the text content of an attribute in the given node, else
      * returns null.
      */
-    private static String getNodeAttributeString(Node n, String attr) {
+    public static String getNodeAttributeString(Node n, String attr) {
         Node attrItem = n.getAttributes().getNamedItem(attr);
         if (attrItem != null) {
             return attrItem.getTextContent();
@@ -112,7 +155,7 @@ public class XMLParser {
      * @return The Integer representation of the text content of an attribute in the given node,
      * else returns null.
      */
-    private static Integer getNodeAttributeInt(Node n, String attr) {
+    public static Integer getNodeAttributeInt(Node n, String attr) {
         Node attrItem = n.getAttributes().getNamedItem(attr);
         if (attrItem != null) {
             return Integer.parseInt(attrItem.getTextContent());
@@ -138,47 +181,6 @@ public class XMLParser {
         }
     }
 
-    /**
-     * Produces a mapping of boat sourceIDS to boat objects created from the given xml document.
-     * @param doc XML Document Object
-     * @return Mapping of sourceIds to Boats.
-     */
-    public static Map<Integer, ClientYacht> parseBoats(Document doc) {
-        Map<Integer, ClientYacht> competingBoats = new HashMap<>();
-
-        Element docEle = doc.getDocumentElement();
-
-        NodeList boatsList = docEle.getElementsByTagName("Boats").item(0).getChildNodes();
-        for (int i = 0; i < boatsList.getLength(); i++) {
-            Node currentBoat = boatsList.item(i);
-            if (currentBoat.getNodeName().equals("Boat")) {
-//                    Boat boat = new Boat(currentBoat);
-                BoatMeshType boatMeshType;
-                try {
-                    boatMeshType = BoatMeshType.valueOf(XMLParser.getNodeAttributeString(currentBoat, "Type"));
-                } catch (IllegalArgumentException e){
-                    boatMeshType = BoatMeshType.DINGHY;
-                }
-                Color color;
-                try {
-                    color = Color.web(getNodeAttributeString(currentBoat, "Color"));
-                } catch (NullPointerException npe) {
-                    color = Colors.getColor(new Random().nextInt(8));
-                }
-                ClientYacht yacht = new ClientYacht(
-                    boatMeshType,
-                    XMLParser.getNodeAttributeInt(currentBoat, "SourceID"),
-                    XMLParser.getNodeAttributeString(currentBoat, "HullNum"),
-                    XMLParser.getNodeAttributeString(currentBoat, "ShortName"),
-                    XMLParser.getNodeAttributeString(currentBoat, "BoatName"),
-                    XMLParser.getNodeAttributeString(currentBoat, "Country"));
-                yacht.setColour(color);
-                competingBoats.put(yacht.getSourceId(), yacht);
-            }
-        }
-        return competingBoats;
-    }
-
     /**
      * Returns an object containing the data extracted from the given xml formatted document
      *
@@ -242,7 +244,9 @@ public class XMLParser {
             extractTokens(docEle),
             extractCompoundMarks(docEle),
             extractMarkOrder(docEle),
-            extractCourseLimit(docEle)
+            extractCourseLimit(docEle),
+            getMaxPlayers(doc),
+            tokensEnabled(doc)
         );
     }
 
@@ -259,7 +263,9 @@ public class XMLParser {
                     String tokenType = getNodeAttributeString(tokenNode, "TokenType");
                     Double lat = getNodeAttributeDouble(tokenNode, "TargetLat");
                     Double lng = getNodeAttributeDouble(tokenNode, "TargetLng");
-                    tokens.add(new Token(TokenType.valueOf(tokenType), lat, lng));
+                    Integer tokenId = getNodeAttributeInt(tokenNode, "TokenID");
+                    tokens.add(new Token(tokenId == null ? Token.NO_ID : tokenId,
+                        TokenType.valueOf(tokenType), lat, lng));
                 }
             }
         } catch (NullPointerException npe) {
@@ -388,7 +394,7 @@ public class XMLParser {
      * @param tokensEnabled if tokens are enabled
      * @return a pair which contains regatta string, race string as key, value pair.
      */
-    public static Pair<RegattaXMLTemplate, RaceXMLTemplate> parseRaceDef(
+    public static Map.Entry<RegattaXMLTemplate, RaceXMLTemplate> parseRaceDef(
             String url, String serverName, Integer repetitions, Integer maxPlayers, Boolean tokensEnabled
     ) {
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
@@ -425,7 +431,7 @@ public class XMLParser {
             maxPlayers, tokensEnabled
         );
         xmlGenerator.setRaceTemplate(raceXMLTemplate);
-        return new Pair<>(regattaXMLTemplate, raceXMLTemplate);
+        return new SimpleImmutableEntry<>(regattaXMLTemplate, raceXMLTemplate);
     }
 
     private static List<Corner> extractMarkOrderRaceDef(Element docEle, int repitions){
@@ -0,0 +1,274 @@
+package seng302.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import seng302.gameServer.messages.Message;
+import seng302.model.Limit;
+import seng302.model.mark.CompoundMark;
+import seng302.model.mark.Corner;
+import seng302.model.mark.Mark;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.model.stream.xml.parser.RegattaXMLData;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+
+/**
+ * Parses race and regatta XML packets with a pull parser reading straight from the packet
+ * payload, without building a document as {@link XMLParser} does. Gives the same data as parsing
+ * the packet with {@link XMLParser#extractXmlMessage(StreamPacket)}.
+ */
+public class XMLStreamParser {
+
+    private static final int XML_LENGTH_OFFSET = 12;
+    private static final int XML_OFFSET = 14;
+
+    // Factories are safe to share once configured, creating one is slower than parsing a race
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    static {
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * Opens a reader over the XML held in an XML message packet.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return A reader positioned before the root element. Returns null if the packet is not an
+     * XML message or the XML could not be read.
+     */
+    public static XMLStreamReader createReader(StreamPacket packet) {
+        if (packet.getType() != PacketType.RACE_XML &&
+            packet.getType() != PacketType.REGATTA_XML &&
+            packet.getType() != PacketType.BOAT_XML) {
+            return null;
+        }
+
+        byte[] payload = packet.getPayload();
+        int start = XML_OFFSET;
+        int end = (int) Math.min(
+            payload.length,
+            XML_OFFSET + Message.bytesToLong(
+                new byte[]{payload[XML_LENGTH_OFFSET], payload[XML_LENGTH_OFFSET + 1]}
+            )
+        );
+        // The XML declaration has to come first, the DOM path trims the same whitespace
+        while (start < end && payload[start] <= ' ') {
+            start++;
+        }
+        try {
+            return inputFactory.createXMLStreamReader(
+                new ByteArrayInputStream(payload, start, end - start)
+            );
+        } catch (XMLStreamException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Returns an object containing the data in a race XML packet.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return Object containing race data, null if the packet is not XML or could not be parsed
+     */
+    public static RaceXMLData parseRace(StreamPacket packet) {
+        XMLStreamReader reader = createReader(packet);
+        if (reader == null) {
+            return null;
+        }
+
+        List<Integer> participants = new ArrayList<>();
+        List<Token> tokens = new ArrayList<>();
+        List<CompoundMark> compoundMarks = new ArrayList<>();
+        List<Corner> markSequence = new ArrayList<>();
+        List<Limit> courseLimit = new ArrayList<>();
+        Integer maxPlayers = XMLParser.MAX_PLAYERS;
+        boolean tokensEnabled = false;
+
+        Integer compoundMarkID = null;
+        String compoundMarkName = null;
+        List<Mark> marks = null;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT
+                    && reader.getLocalName().equals("CompoundMark")) {
+                    compoundMarks.add(new CompoundMark(compoundMarkID, compoundMarkName, marks));
+                    marks = null;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                switch (reader.getLocalName()) {
+                    case "Participants":
+                        Integer max = getAttributeInt(reader, "MaxPlayers");
+                        maxPlayers = max == null ? maxPlayers : max;
+                        break;
+                    case "Yacht":
+                        participants.add(getAttributeInt(reader, "SourceID"));
+                        break;
+                    case "Tokens":
+                        tokensEnabled = Boolean.parseBoolean(
+                            reader.getAttributeValue(null, "Enabled")
+                        );
+                        break;
+                    case "Token":
+                        Integer tokenId = getAttributeInt(reader, "TokenID");
+                        tokens.add(new Token(
+                            tokenId == null ? Token.NO_ID : tokenId,
+                            TokenType.valueOf(reader.getAttributeValue(null, "TokenType")),
+                            getAttributeDouble(reader, "TargetLat"),
+                            getAttributeDouble(reader, "TargetLng")
+                        ));
+                        break;
+                    case "CompoundMark":
+                        compoundMarkID = getAttributeInt(reader, "CompoundMarkID");
+                        compoundMarkName = reader.getAttributeValue(null, "Name");
+                        if (compoundMarkName == null || compoundMarkName.equals("")) {
+                            compoundMarkName = "Mark " + compoundMarkID;
+                        }
+                        marks = new ArrayList<>();
+                        break;
+                    case "Mark":
+                        if (marks != null) {
+                            marks.add(readMark(reader, compoundMarkName, marks.size() + 1));
+                        }
+                        break;
+                    case "Corner":
+                        markSequence.add(new Corner(
+                            getAttributeInt(reader, "SeqID"),
+                            getAttributeInt(reader, "CompoundMarkID"),
+                            reader.getAttributeValue(null, "Rounding"),
+                            getAttributeInt(reader, "ZoneSize")
+                        ));
+                        break;
+                    case "Limit":
+                        courseLimit.add(new Limit(
+                            getAttributeInt(reader, "SeqID"),
+                            getAttributeDouble(reader, "Lat"),
+                            getAttributeDouble(reader, "Lon")
+                        ));
+                        break;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return new RaceXMLData(
+            participants, tokens, compoundMarks, markSequence, courseLimit,
+            maxPlayers, tokensEnabled
+        );
+    }
+
+    /**
+     * Reads a mark of a compound mark, filling in what is missing the way {@link XMLParser} does.
+     */
+    private static Mark readMark(XMLStreamReader reader, String compoundMarkName, int index) {
+        Integer seqID = getAttributeInt(reader, "SeqID");
+        Integer sourceID = getAttributeInt(reader, "SourceID");
+        String markName = reader.getAttributeValue(null, "Name");
+        return new Mark(
+            (markName == null || markName.equals("")) ? compoundMarkName + " " + index : markName,
+            seqID == null ? index : seqID,
+            getAttributeDouble(reader, "TargetLat"),
+            getAttributeDouble(reader, "TargetLng"),
+            sourceID == null ? index : sourceID
+        );
+    }
+
+    /**
+     * Returns an object containing the data in a regatta XML packet.
+     *
+     * @param packet Packet parsed in to use the payload
+     * @return Object containing regatta data, null if the packet is not XML or could not be parsed
+     */
+    public static RegattaXMLData parseRegatta(StreamPacket packet) {
+        XMLStreamReader reader = createReader(packet);
+        if (reader == null) {
+            return null;
+        }
+
+        Integer regattaID = null;
+        String regattaName = null;
+        String courseName = null;
+        Double centralLat = null;
+        Double centralLng = null;
+        Integer utcOffset = null;
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "RegattaID":
+                        regattaID = Integer.parseInt(getElementNumber(reader));
+                        break;
+                    case "RegattaName":
+                        regattaName = reader.getElementText();
+                        break;
+                    case "CourseName":
+                        courseName = reader.getElementText();
+                        break;
+                    case "CentralLatitude":
+                        centralLat = Double.parseDouble(getElementNumber(reader));
+                        break;
+                    case "CentralLongitude":
+                        centralLng = Double.parseDouble(getElementNumber(reader));
+                        break;
+                    case "UtcOffset":
+                        utcOffset = Integer.parseInt(getElementNumber(reader));
+                        break;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return new RegattaXMLData(
+            regattaID, regattaName, courseName, centralLat, centralLng, utcOffset
+        );
+    }
+
+    /**
+     * Returns the value of an attribute of the current element as an Integer.
+     *
+     * @param reader A reader positioned on a start element
+     * @param attr The attribute to read
+     * @return The value of the attribute, null if the element does not have it
+     */
+    public static Integer getAttributeInt(XMLStreamReader reader, String attr) {
+        String value = reader.getAttributeValue(null, attr);
+        return value == null ? null : Integer.parseInt(value);
+    }
+
+    /**
+     * Returns the value of an attribute of the current element as a Double.
+     *
+     * @param reader A reader positioned on a start element
+     * @param attr The attribute to read
+     * @return The value of the attribute, null if the element does not have it
+     */
+    public static Double getAttributeDouble(XMLStreamReader reader, String attr) {
+        String value = reader.getAttributeValue(null, attr);
+        return value == null ? null : Double.parseDouble(value);
+    }
+
+    private static String getElementNumber(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().replaceAll("\\s+", "");
+    }
+}
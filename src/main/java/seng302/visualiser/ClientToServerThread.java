@@ -1,25 +1,22 @@
 package seng302.visualiser;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
-import javafx.util.Pair;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import seng302.gameServer.messages.BoatAction;
 import seng302.gameServer.messages.BoatActionMessage;
 import seng302.gameServer.messages.ChatterMessage;
+import seng302.gameServer.messages.ClientCapability;
 import seng302.gameServer.messages.ClientType;
 import seng302.gameServer.messages.CustomizeRequestMessage;
 import seng302.gameServer.messages.CustomizeRequestType;
@@ -28,10 +25,12 @@ import seng302.gameServer.messages.RegistrationRequestMessage;
 import seng302.gameServer.messages.RegistrationResponseStatus;
 import seng302.gameServer.messages.XMLMessage;
 import seng302.gameServer.messages.XMLMessageSubType;
+import seng302.model.stream.packets.PacketFramer;
 import seng302.model.stream.packets.PacketType;
 import seng302.model.stream.packets.StreamPacket;
 import seng302.model.stream.xml.generator.RaceXMLTemplate;
 import seng302.model.stream.xml.generator.RegattaXMLTemplate;
+import seng302.utilities.Housekeeping;
 import seng302.utilities.XMLGenerator;
 import seng302.utilities.XMLParser;
 
@@ -62,12 +61,6 @@ public class ClientToServerThread implements Runnable {
         void notifyConnectionError(String message);
     }
 
-    private class ByteReadException extends Exception {
-        private ByteReadException(String message) {
-            super(message);
-        }
-    }
-
     private Queue<StreamPacket> streamPackets = new ConcurrentLinkedQueue<>();
     private List<ClientSocketListener> listeners = new ArrayList<>();
     private List<DisconnectedFromHostListener> disconnectionListeners = new ArrayList<>();
@@ -75,20 +68,18 @@ public class ClientToServerThread implements Runnable {
     private Thread thread;
 
     private Socket socket;
-    private InputStream is;
+    private PacketFramer packetFramer;
 
     private Logger logger = LoggerFactory.getLogger(ClientToServerThread.class);
 
     //Output stream
     private OutputStream os;
-    private Timer upWindPacketTimer = new Timer();
-    private Timer downWindPacketTimer = new Timer();
-    private boolean upwindTimerFlag = false, downwindTimerFlag = false;
+    // Repeats the held UPWIND or DOWNWIND action on the housekeeping thread, null when not held
+    private ScheduledFuture<?> upWindPacketTask, downWindPacketTask;
     public static final int PACKET_SENDING_INTERVAL_MS = 100;
 
     private int clientId = -1;
 
-    private ByteArrayOutputStream crcBuffer;
     private boolean socketOpen = true;
 
     /**
@@ -105,7 +96,7 @@ public class ClientToServerThread implements Runnable {
      */
     public ClientToServerThread(String ipAddress, Integer portNumber) throws IOException {
         socket = new Socket(ipAddress, portNumber);
-        is = socket.getInputStream();
+        packetFramer = new PacketFramer(socket.getInputStream());
         os = socket.getOutputStream();
 
         sendRegistrationRequest();
@@ -121,50 +112,26 @@ public class ClientToServerThread implements Runnable {
     public void run() {
         isStarted = true;
 
-        int sync1;
-        int sync2;
         // TODO: 14/07/17 wmu16 - Work out how to fix this while loop
         while(!socket.isClosed() && socket.isConnected() && socketOpen) {
-            try {
-                crcBuffer = new ByteArrayOutputStream();
-                sync1 = readByte();
-                sync2 = readByte();
-                //checking if it is the start of the packet
-                if (sync1 == 0x47 && sync2 == 0x83) {
-                    int type = readByte();
-                    //No. of milliseconds since Jan 1st 1970
-                    long timeStamp = Message.bytesToLong(getBytes(6));
-                    skipBytes(4);
-                    long payloadLength = Message.bytesToLong(getBytes(2));
-                    byte[] payload = getBytes((int) payloadLength);
-                    Checksum checksum = new CRC32();
-                    checksum.update(crcBuffer.toByteArray(), 0, crcBuffer.size());
-                    long computedCrc = checksum.getValue();
-                    long packetCrc = Message.bytesToLong(getBytes(4));
-                    if (computedCrc == packetCrc) {
-                        if (streamPackets.size() > 0) {
-                            streamPackets.add(new StreamPacket(type, payloadLength, timeStamp, payload));
-                        } else {
-                            if (PacketType.RACE_REGISTRATION_RESPONSE == PacketType.assignPacketType(type, payload)){
-                                processRegistrationResponse(new StreamPacket(type, payloadLength, timeStamp, payload));
-                            }
-                            else {
-                                if (clientId == -1) continue; // Do not continue if not registered
-                                streamPackets.add(new StreamPacket(type, payloadLength, timeStamp, payload));
-                                synchronized (this) {
-                                    for (ClientSocketListener csl : listeners)
-                                        csl.newPacket();
-                                }
-                            }
-                        }
-                    } else {
-                        logger.warn("Packet has been dropped", 1);
+            StreamPacket packet = readPacket();
+            if (packet == null) {
+                continue;
+            }
+            if (streamPackets.size() > 0) {
+                streamPackets.add(packet);
+            } else {
+                if (PacketType.RACE_REGISTRATION_RESPONSE == packet.getType()){
+                    processRegistrationResponse(packet);
+                }
+                else {
+                    if (clientId == -1) continue; // Do not continue if not registered
+                    streamPackets.add(packet);
+                    synchronized (this) {
+                        for (ClientSocketListener csl : listeners)
+                            csl.newPacket();
                     }
                 }
-            } catch (ByteReadException e) {
-                logger.warn("Byte read exception on ClientToServerThread", 1);
-                notifyDisconnectListeners("Connection to server was interrupted");
-                closeSocket();
             }
         }
         logger.warn("Closed connection to server", 1);
@@ -208,7 +175,11 @@ public class ClientToServerThread implements Runnable {
      * Sends a request to the server asking for a source ID
      */
     private void sendRegistrationRequest() {
-        RegistrationRequestMessage requestMessage = new RegistrationRequestMessage(ClientType.PLAYER, clientId);
+        RegistrationRequestMessage requestMessage = new RegistrationRequestMessage(
+            ClientType.PLAYER, clientId,
+            ClientCapability.BOAT_LOCATION_BATCH, ClientCapability.BOAT_STATE_DELTA,
+            ClientCapability.TOKEN_UPDATE
+        );
 
         try {
             os.write(requestMessage.getBuffer());
@@ -259,41 +230,17 @@ public class ClientToServerThread implements Runnable {
     public void sendBoatAction(BoatAction actionType) {
         switch (actionType) {
             case MAINTAIN_HEADING:
-                if (upwindTimerFlag) {
-                    cancelTimer(upWindPacketTimer);
-                    upwindTimerFlag = false;
-                    upWindPacketTimer = new Timer();
-                }
-                if (downwindTimerFlag) {
-                    cancelTimer(downWindPacketTimer);
-                    downwindTimerFlag = false;
-                    downWindPacketTimer = new Timer();
-                }
+                upWindPacketTask = cancelTask(upWindPacketTask);
+                downWindPacketTask = cancelTask(downWindPacketTask);
                 break;
             case DOWNWIND:
-                if (!downwindTimerFlag) {
-                    downwindTimerFlag = true;
-                    downWindPacketTimer.scheduleAtFixedRate(
-                        new TimerTask() {
-                            @Override
-                            public void run() {
-                                sendBoatActionMessage(new BoatActionMessage(BoatAction.DOWNWIND, clientId));
-                            }
-                        }, 0, PACKET_SENDING_INTERVAL_MS
-                    );
+                if (downWindPacketTask == null) {
+                    downWindPacketTask = repeatBoatAction(BoatAction.DOWNWIND);
                 }
                 break;
             case UPWIND:
-                if (!upwindTimerFlag) {
-                    upwindTimerFlag = true;
-                    upWindPacketTimer.scheduleAtFixedRate(
-                        new TimerTask() {
-                            @Override
-                            public void run() {
-                                sendBoatActionMessage(new BoatActionMessage(BoatAction.UPWIND, clientId));
-                            }
-                        }, 0, PACKET_SENDING_INTERVAL_MS
-                    );
+                if (upWindPacketTask == null) {
+                    upWindPacketTask = repeatBoatAction(BoatAction.UPWIND);
                 }
                 break;
             default:
@@ -303,12 +250,27 @@ public class ClientToServerThread implements Runnable {
     }
 
     /**
-     * Cancels a packet sending timer.
-     * @param timer The timer to cancel.
+     * Sends a boat action every PACKET_SENDING_INTERVAL_MS until the returned task is cancelled.
+     * @param actionType The boat action to send.
+     * @return The repeating task.
+     */
+    private ScheduledFuture<?> repeatBoatAction(BoatAction actionType) {
+        return Housekeeping.getExecutor().scheduleAtFixedRate(
+            () -> sendBoatActionMessage(new BoatActionMessage(actionType, clientId)),
+            0, PACKET_SENDING_INTERVAL_MS, TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Cancels a packet sending task.
+     * @param task The task to cancel, or null if there is none.
+     * @return null, to clear the field holding the task.
      */
-    private void cancelTimer (Timer timer) {
-        timer.cancel();
-        timer.purge();
+    private ScheduledFuture<?> cancelTask(ScheduledFuture<?> task) {
+        if (task != null) {
+            task.cancel(false);
+        }
+        return null;
     }
 
     /**
@@ -380,37 +342,28 @@ public class ClientToServerThread implements Runnable {
         }
     }
 
-    private int readByte() throws ByteReadException {
-        int currentByte = -1;
+    /**
+     * Blocks until the next packet arrives from the server. The socket is closed if it cannot be
+     * read from.
+     *
+     * @return the packet read, or null if the connection was lost
+     */
+    private StreamPacket readPacket() {
         try {
-            currentByte = is.read();
-            crcBuffer.write(currentByte);
+            StreamPacket packet = packetFramer.readPacket();
+            if (packet == null) {
+                notifyDisconnectListeners("Cannot read from server.");
+                logger.warn("InputStream reach end of stream", 1);
+                handleConnectionError("Could not connect to server. Server is no longer available.");
+                closeSocket();
+            }
+            return packet;
         } catch (IOException e) {
-            logger.warn("IOException on readByte Client side", 1);
+            logger.warn("IOException reading from server", 1);
             notifyDisconnectListeners("Cannot read from server.");
             closeSocket();
         }
-        if (currentByte == -1) {
-            notifyDisconnectListeners("Cannot read from server.");
-            logger.warn("InputStream reach end of stream", 1);
-            handleConnectionError("Could not connect to server. Server is no longer available.");
-            closeSocket();
-        }
-        return currentByte;
-    }
-
-    private byte[] getBytes(int n) throws ByteReadException {
-        byte[] bytes = new byte[n];
-        for (int i = 0; i < n; i++) {
-            bytes[i] = (byte) readByte();
-        }
-        return bytes;
-    }
-
-    private void skipBytes(long n) throws ByteReadException {
-        for (int i = 0; i < n; i++) {
-            readByte();
-        }
+        return null;
     }
 
     public int getClientId () {
@@ -418,7 +371,7 @@ public class ClientToServerThread implements Runnable {
     }
 
     public void sendXML(String path, String serverName, Integer legRepeats, Integer maxPlayers, Boolean tokensEnabled) {
-        Pair<RegattaXMLTemplate, RaceXMLTemplate> regattaRace = XMLParser.parseRaceDef(
+        Map.Entry<RegattaXMLTemplate, RaceXMLTemplate> regattaRace = XMLParser.parseRaceDef(
             path, serverName, legRepeats, maxPlayers, tokensEnabled
         );
         XMLGenerator xmlGenerator = new XMLGenerator();
@@ -6,10 +6,11 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -17,30 +18,34 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.util.Pair;
-import seng302.gameServer.GameStages;
 import seng302.gameServer.GameState;
 import seng302.gameServer.MainServerThread;
 import seng302.gameServer.ServerDescription;
 import seng302.gameServer.messages.BoatAction;
+import seng302.gameServer.messages.BoatState;
 import seng302.gameServer.messages.BoatStatus;
 import seng302.gameServer.messages.YachtEventType;
 import seng302.model.ClientYacht;
 import seng302.model.GameKeyBind;
 import seng302.model.KeyAction;
 import seng302.model.RaceState;
+import seng302.model.stream.decoder.BoatLocationDecoder;
+import seng302.model.stream.decoder.RaceStatusDecoder;
 import seng302.model.stream.packets.StreamPacket;
 import seng302.model.stream.parser.MarkRoundingData;
 import seng302.model.stream.parser.PositionUpdateData;
 import seng302.model.stream.parser.PositionUpdateData.DeviceType;
-import seng302.model.stream.parser.RaceStatusData;
+import seng302.model.stream.parser.TokenUpdateData;
 import seng302.model.stream.parser.YachtEventData;
 import seng302.model.stream.xml.parser.RaceXMLData;
 import seng302.model.stream.xml.parser.RegattaXMLData;
+import seng302.model.token.Token;
 import seng302.model.token.TokenType;
+import seng302.utilities.Housekeeping;
 import seng302.utilities.Sounds;
 import seng302.utilities.StreamParser;
 import seng302.utilities.XMLGenerator;
-import seng302.utilities.XMLParser;
+import seng302.utilities.XMLStreamParser;
 import seng302.visualiser.controllers.LobbyController;
 import seng302.visualiser.controllers.RaceViewController;
 import seng302.visualiser.controllers.ViewManager;
@@ -58,6 +63,10 @@ public class GameClient {
     private RaceViewController raceView;
 
     private Map<Integer, ClientYacht> allBoatsMap;
+    private Map<Integer, BoatState> boatStates = new HashMap<>();
+    // Reused for every packet, packets are parsed one at a time
+    private BoatLocationDecoder boatLocationDecoder = new BoatLocationDecoder();
+    private RaceStatusDecoder raceStatusDecoder = new RaceStatusDecoder();
     private RegattaXMLData regattaData;
     private RaceXMLData courseData;
     private RaceState raceState = new RaceState();
@@ -180,7 +189,9 @@ public class GameClient {
         lobbyController.setPortNumber(""+server.getPortNumber());
 
         ViewManager.getInstance().setPlayerList(clientLobbyList);
-        return new ServerDescription(serverName, regattaData.getCourseName(), GameState.getNumberOfPlayers(), GameState.getCapacity(),
+        GameState gameState = server.getGameState();
+        return new ServerDescription(serverName, regattaData.getCourseName(),
+            gameState.getNumberOfPlayers(), gameState.getCapacity(),
             "localhost", server.getPortNumber());
     }
 
@@ -218,7 +229,7 @@ public class GameClient {
             StreamPacket packet = socketThread.getPacketQueue().poll();
             switch (packet.getType()) {
                 case RACE_STATUS:
-                    processRaceStatusUpdate(StreamParser.extractRaceStatus(packet));
+                    processRaceStatusUpdate(raceStatusDecoder.wrap(packet));
 
                     if (raceState.getTimeTillStart() <= 5000) {
                         startRaceIfAllDataReceived();
@@ -227,9 +238,7 @@ public class GameClient {
                     break;
 
                 case REGATTA_XML:
-                    regattaData = XMLParser.parseRegatta(
-                        StreamParser.extractXmlMessage(packet)
-                    );
+                    regattaData = XMLStreamParser.parseRegatta(packet);
 
                     raceState.setTimeZone(
                         TimeZone.getTimeZone(
@@ -239,9 +248,7 @@ public class GameClient {
                     break;
 
                 case RACE_XML:
-                    RaceXMLData raceXMLData = XMLParser.parseRace(
-                        StreamParser.extractXmlMessage(packet)
-                    );
+                    RaceXMLData raceXMLData = XMLStreamParser.parseRace(packet);
                     if (courseData == null) { //workaround for object comparisons. Avoid recreating
                         courseData = raceXMLData;
                     }
@@ -251,9 +258,7 @@ public class GameClient {
                     break;
 
                 case BOAT_XML:
-                    allBoatsMap = XMLParser.parseBoats(
-                        StreamParser.extractXmlMessage(packet)
-                    );
+                    allBoatsMap = StreamParser.parseBoats(packet);
                     clientLobbyList.clear();
                     allBoatsMap.forEach((id, boat) ->
                         clientLobbyList.add(boat.getBoatName())
@@ -270,7 +275,24 @@ public class GameClient {
                     break;
 
                 case BOAT_LOCATION:
-                    updatePosition(StreamParser.extractBoatLocation(packet));
+                    updatePosition(boatLocationDecoder.wrap(packet));
+                    break;
+
+                case BOAT_STATE_DELTA:
+                    for (PositionUpdateData positionData
+                        : StreamParser.extractBoatStateDeltas(packet, boatStates)) {
+                        updatePosition(positionData);
+                    }
+                    break;
+
+                case TOKEN_UPDATE:
+                    processTokenUpdates(StreamParser.extractTokenUpdates(packet));
+                    break;
+
+                case BOAT_LOCATION_BATCH:
+                    if (allXMLReceived()) {
+                        StreamParser.updateBoatLocations(packet, allBoatsMap);
+                    }
                     break;
 
                 case MARK_ROUNDING:
@@ -294,6 +316,27 @@ public class GameClient {
         }
     }
 
+    /**
+     * Applies token updates to the race view, or to the course the race view will be loaded with
+     * if it has not been loaded yet.
+     *
+     * @param updates The tokens spawned and removed, in order
+     */
+    private void processTokenUpdates(List<TokenUpdateData> updates) {
+        if (raceView != null) {
+            raceView.applyTokenUpdates(updates);
+        } else if (courseData != null) {
+            List<Token> tokens = courseData.getTokens();
+            for (TokenUpdateData update : updates) {
+                int tokenId = update.getToken().getTokenId();
+                tokens.removeIf(token -> token.getTokenId() == tokenId);
+                if (update.isSpawned()) {
+                    tokens.add(update.getToken());
+                }
+            }
+        }
+    }
+
     private void startRaceIfAllDataReceived() {
         if (allXMLReceived() && raceView == null) {
             raceView = ViewManager.getInstance().loadRaceView();
@@ -315,6 +358,19 @@ public class GameClient {
         return courseData != null && allBoatsMap != null && regattaData != null;
     }
 
+    /**
+     * Updates the position of a boat from a boat location packet.
+     */
+    private void updatePosition(BoatLocationDecoder location) {
+        if (location.isYacht() && allXMLReceived()) {
+            ClientYacht yacht = allBoatsMap.get(location.getSourceId());
+            if (yacht != null) {
+                yacht.updateLocation(location.getLat(), location.getLon(),
+                    location.getHeading(), location.getGroundSpeed());
+            }
+        }
+    }
+
     /**
      * Updates the position of a boat. Boat and position are given in the provided data.
      */
@@ -346,7 +402,7 @@ public class GameClient {
         updatePlayerPositions();
     }
 
-    private void processRaceStatusUpdate(RaceStatusData data) {
+    private void processRaceStatusUpdate(RaceStatusDecoder data) {
         if (allXMLReceived()) {
             raceState.updateState(data);
             boolean raceFinished = true;
@@ -359,11 +415,13 @@ public class GameClient {
                 }
             }
 
-            for (long[] boatData : data.getBoatData()) {
-                ClientYacht clientYacht = allBoatsMap.get((int) boatData[0]);
-                clientYacht.setEstimateTimeTillNextMark(raceState.getRaceTime() - boatData[1]);
-                clientYacht.setEstimateTimeAtFinish(boatData[2]);
-                clientYacht.setBoatStatus((int) boatData[4]);
+            for (int i = 0; i < data.getNumberOfBoats(); i++) {
+                ClientYacht clientYacht = allBoatsMap.get(data.getBoatSourceId(i));
+                clientYacht.setEstimateTimeTillNextMark(
+                    raceState.getRaceTime() - data.getBoatEstTimeAtNextMark(i)
+                );
+                clientYacht.setEstimateTimeAtFinish(data.getBoatEstTimeAtFinish(i));
+                clientYacht.setBoatStatus(data.getBoatStatus(i));
             }
 
             if (raceFinished && !raceState.getRaceFinished()) {
@@ -476,13 +534,10 @@ public class GameClient {
         Color originalColor = yacht.getColour();
         yacht.setColour(Color.BLACK);
 
-        Timer disableTimer = new Timer("Disable Timer");
-        disableTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                yacht.setColour(originalColor);
-            }
-        }, GameState.BUMPER_DISABLE_TIME);
+        Housekeeping.getExecutor().schedule(
+            () -> yacht.setColour(originalColor),
+            GameState.BUMPER_DISABLE_TIME, TimeUnit.MILLISECONDS
+        );
     }
 
     /**
@@ -511,7 +566,6 @@ public class GameClient {
     }
 
     public void stopGame() {
-        GameState.setCurrentStage(GameStages.CANCELLED);
         if (server != null) server.terminate();
         if (socketThread != null) socketThread.setSocketToClose();
         server = null;
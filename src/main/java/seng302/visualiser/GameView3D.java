@@ -32,6 +32,7 @@ import seng302.model.ScaledPoint;
 import seng302.model.mark.CompoundMark;
 import seng302.model.mark.Corner;
 import seng302.model.mark.Mark;
+import seng302.model.stream.parser.TokenUpdateData;
 import seng302.model.token.Token;
 import seng302.utilities.GeoUtility;
 import seng302.visualiser.cameras.ChaseCamera;
@@ -69,7 +70,8 @@ public class GameView3D extends GameView {
     private Map<ClientYacht, BoatObject> boatObjects = new HashMap<>();
     private Group wakesGroup = new Group();
     private Group boatObjectGroup = new Group();
-    private List<Node> mapTokens;
+    // Token models on the course by token id, only changed on the FX thread
+    private Map<Integer, Node> tokenNodes = new HashMap<>();
     private AnimationTimer playerBoatAnimationTimer;
     private Group trail = new Group();
     private Double windDir;
@@ -466,40 +468,74 @@ public class GameView3D extends GameView {
      * @param newTokens the tokens to be put on the course.
      */
     public void updateTokens(List<Token> newTokens) {
-        mapTokens = new ArrayList<>();
+        List<Node> mapTokens = new ArrayList<>();
+        Map<Integer, Node> newTokenNodes = new HashMap<>();
         for (Token token : newTokens) {
-            Point2D location = scaledPoint.findScaledXY(token.getLat(), token.getLng());
-
-            ModelType modelType = null;
-            switch (token.getTokenType()) {
-                case BOOST:
-                    modelType = ModelType.VELOCITY_PICKUP;
-                    break;
-                case HANDLING:
-                    modelType = ModelType.HANDLING_PICKUP;
-                    break;
-                case BUMPER:
-                    modelType = ModelType.BUMPER_PICKUP;
-                    break;
-                case RANDOM:
-                    modelType = ModelType.RANDOM_PICKUP;
-                    break;
-                case WIND_WALKER:
-                    modelType = ModelType.WIND_WALKER_PICKUP;
-                    break;
-            }
-
-            Node tokenObject = ModelFactory.importModel(modelType).getAssets();
-            tokenObject.setLayoutX(location.getX());
-            tokenObject.setLayoutY(location.getY());
+            Node tokenObject = makeTokenObject(token);
             mapTokens.add(tokenObject);
+            newTokenNodes.put(token.getTokenId(), tokenObject);
         }
 
         Platform.runLater(() -> {
+            tokenNodes = newTokenNodes;
             tokens.getChildren().setAll(mapTokens);
         });
     }
 
+    /**
+     * Adds and removes tokens on the course, leaving the models of other tokens as they are.
+     *
+     * @param updates the tokens spawned and removed, in the order they happened.
+     */
+    public void applyTokenUpdates(List<TokenUpdateData> updates) {
+        List<Node> spawnedObjects = new ArrayList<>();
+        for (TokenUpdateData update : updates) {
+            spawnedObjects.add(update.isSpawned() ? makeTokenObject(update.getToken()) : null);
+        }
+
+        Platform.runLater(() -> {
+            for (int i = 0; i < updates.size(); i++) {
+                int tokenId = updates.get(i).getToken().getTokenId();
+                Node removed = tokenNodes.remove(tokenId);
+                if (removed != null) {
+                    tokens.getChildren().remove(removed);
+                }
+                if (spawnedObjects.get(i) != null) {
+                    tokenNodes.put(tokenId, spawnedObjects.get(i));
+                    tokens.getChildren().add(spawnedObjects.get(i));
+                }
+            }
+        });
+    }
+
+    private Node makeTokenObject(Token token) {
+        Point2D location = scaledPoint.findScaledXY(token.getLat(), token.getLng());
+
+        ModelType modelType = null;
+        switch (token.getTokenType()) {
+            case BOOST:
+                modelType = ModelType.VELOCITY_PICKUP;
+                break;
+            case HANDLING:
+                modelType = ModelType.HANDLING_PICKUP;
+                break;
+            case BUMPER:
+                modelType = ModelType.BUMPER_PICKUP;
+                break;
+            case RANDOM:
+                modelType = ModelType.RANDOM_PICKUP;
+                break;
+            case WIND_WALKER:
+                modelType = ModelType.WIND_WALKER_PICKUP;
+                break;
+        }
+
+        Node tokenObject = ModelFactory.importModel(modelType).getAssets();
+        tokenObject.setLayoutX(location.getX());
+        tokenObject.setLayoutY(location.getY());
+        return tokenObject;
+    }
+
     public void setBoatAsPlayer (ClientYacht playerYacht) {
         playerBoat.updateMarkIndicator(scaledPoint.findScaledXY(course.get(0).getMidPoint()));
         playerYacht.toggleSail();
@@ -27,8 +27,6 @@ import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Scale;
 import javafx.scene.transform.Translate;
 import seng302.discoveryServer.DiscoveryServerClient;
-import seng302.gameServer.GameStages;
-import seng302.gameServer.GameState;
 import seng302.model.ClientYacht;
 import seng302.model.Colors;
 import seng302.model.Limit;
@@ -88,7 +86,7 @@ public class LobbyController implements Initializable {
         this.playerBoats = ViewManager.getInstance().getGameClient().getAllBoatsMap();
 
         if (this.playersColor == null) {
-            this.playersColor = Colors.getColor(ViewManager.getInstance().getGameClient().getServerThread().getClientId() - 1);
+            this.playersColor = Color.web(Colors.getWebColor(ViewManager.getInstance().getGameClient().getServerThread().getClientId() - 1));
         }
 
         leaveLobbyButton.setOnMouseReleased(event -> leaveLobby());
@@ -136,7 +134,7 @@ public class LobbyController implements Initializable {
         Platform.runLater(() -> {
             Integer playerId = ViewManager.getInstance().getGameClient().getServerThread().getClientId();
 
-            playersColor = Colors.getColor(playerId - 1);
+            playersColor = Color.web(Colors.getWebColor(playerId - 1));
         });
 
         leaveLobbyButton.setOnMouseEntered(e -> Sounds.playHoverSound());
@@ -306,8 +304,6 @@ public class LobbyController implements Initializable {
     private void beginRace() {
         beginRaceButton.setDisable(true);
         customizeButton.setDisable(true);
-        GameState.setCurrentStage(GameStages.PRE_RACE);
-        GameState.resetStartTime();
         Platform.runLater(()-> ViewManager.getInstance().getGameClient().startGame());
     }
 
@@ -4,9 +4,10 @@ import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXDialog;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.fxml.FXML;
@@ -28,8 +29,10 @@ import javafx.scene.text.Text;
 import seng302.model.ClientYacht;
 import seng302.model.RaceState;
 import seng302.model.mark.CompoundMark;
+import seng302.model.stream.parser.TokenUpdateData;
 import seng302.model.stream.xml.parser.RaceXMLData;
 import seng302.model.token.TokenType;
+import seng302.utilities.Housekeeping;
 import seng302.utilities.Sounds;
 import seng302.visualiser.GameView3D;
 import seng302.visualiser.MiniMap;
@@ -102,11 +105,10 @@ public class RaceViewController extends Thread {
     private GameView3D gameView;
     private RaceState raceState;
     private ChatHistory chatHistory;
-    private Timer timer = new Timer();
     private ClientYacht player;
     private JFXDialog finishScreenDialog;
     private FinishDialogController finishDialogController;
-    private Timer blinkingTimer = new Timer();
+    private ScheduledFuture<?> blinkingTask;
     private ImageView iconToDisplay;
     private Double lastWindDirection;
     private MiniMap miniMap;
@@ -344,25 +346,23 @@ public class RaceViewController extends Thread {
             iconToDisplay.setVisible(true);
 
             //Start blinking icon towards end
-            if (blinkingTimer != null) {
-                blinkingTimer.cancel();
+            if (blinkingTask != null) {
+                blinkingTask.cancel(false);
             }
-            blinkingTimer = new Timer("Blinking Timer");
-            blinkingTimer.schedule(new TimerTask() {
-                Boolean isVisible = true;
-
-                @Override
-                public void run() {
-                    isVisible = !isVisible;
-                    iconToDisplay.setVisible(isVisible);
-                }
-            }, (int) (tokenType.getTimeout() * ICON_BLINK_TIMEOUT_RATIO), ICON_BLINK_PERIOD);
+            ImageView blinkingIcon = iconToDisplay;
+            blinkingTask = Housekeeping.getExecutor().scheduleWithFixedDelay(
+                () -> blinkingIcon.setVisible(!blinkingIcon.isVisible()),
+                (long) (tokenType.getTimeout() * ICON_BLINK_TIMEOUT_RATIO), ICON_BLINK_PERIOD,
+                TimeUnit.MILLISECONDS
+            );
         }
     }
 
     private void removeIcon(ClientYacht yacht) {
         if (yacht == player) {
-            blinkingTimer.cancel();
+            if (blinkingTask != null) {
+                blinkingTask.cancel(false);
+            }
             iconToDisplay.setVisible(false);
         }
     }
@@ -373,15 +373,12 @@ public class RaceViewController extends Thread {
      * Updates of each of these attributes are called ONCE EACH SECOND
      */
     private void initializeUpdateTimer() {
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                Platform.runLater(() -> updatePosition());
-                Platform.runLater(() -> updateBoatSpeed());
-                Platform.runLater(() -> updateBoatHeading());
-                Platform.runLater(() -> updateRaceTime());
-            }
-        }, 0, 1000);
+        Housekeeping.getExecutor().scheduleAtFixedRate(() -> {
+            Platform.runLater(() -> updatePosition());
+            Platform.runLater(() -> updateBoatSpeed());
+            Platform.runLater(() -> updateBoatHeading());
+            Platform.runLater(() -> updateRaceTime());
+        }, 0, 1000, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -470,6 +467,10 @@ public class RaceViewController extends Thread {
         gameView.updateTokens(raceData.getTokens());
     }
 
+    public void applyTokenUpdates(List<TokenUpdateData> updates) {
+        gameView.applyTokenUpdates(updates);
+    }
+
     public ReadOnlyBooleanProperty getSendPressedProperty() {
         return chatSend.pressedProperty();
     }
@@ -69,6 +69,8 @@ public class ServerListController implements Initializable, ServerListenerDelega
     private JFXButton autoSelectGame;
     //---------FXML END---------//
 
+    private static final String MATCHMAKING_UNAVAILABLE = "You do not appear to be able to connect to the internet. Matchmaking will be unavailable.";
+
     private Label noServersFound;
     private Logger logger = LoggerFactory.getLogger(ServerListController.class);
     private JFXDialog directConnectDialog;
@@ -132,6 +134,7 @@ public class ServerListController implements Initializable, ServerListenerDelega
             }
 
             if (client.didFail()){
+                ViewManager.getInstance().showErrorSnackBar(MATCHMAKING_UNAVAILABLE);
                 return;
             }
 
@@ -262,6 +265,7 @@ public class ServerListController implements Initializable, ServerListenerDelega
         ServerListing serverListing;
 
         if (client.didFail()){
+            ViewManager.getInstance().showErrorSnackBar(MATCHMAKING_UNAVAILABLE);
             return;
         }
 
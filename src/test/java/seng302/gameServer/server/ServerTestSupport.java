@@ -0,0 +1,47 @@
+package seng302.gameServer.server;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import seng302.gameServer.messages.Message;
+import seng302.model.stream.packets.StreamPacket;
+
+/**
+ * Helpers shared by the server tests.
+ */
+final class ServerTestSupport {
+
+    private static final long TIMEOUT = 5000;
+    private static final int HEADER_SIZE = 15;
+    private static final int TYPE_OFFSET = 2;
+    private static final int CRC_SIZE = 4;
+
+    private ServerTestSupport() {
+    }
+
+    /**
+     * Polls a condition until it holds or five seconds have passed.
+     *
+     * @param condition The condition to wait for
+     * @return true if the condition held in time
+     */
+    static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    /**
+     * @param message An encoded message
+     * @return The packet a client would read for the message
+     */
+    static StreamPacket toPacket(Message message) {
+        byte[] buffer = message.getBuffer();
+        byte[] payload = Arrays.copyOfRange(buffer, HEADER_SIZE, buffer.length - CRC_SIZE);
+        return new StreamPacket(buffer[TYPE_OFFSET] & 0xFF, payload.length, 0, payload);
+    }
+}
@@ -0,0 +1,64 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static seng302.gameServer.server.ServerTestSupport.toPacket;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import seng302.gameServer.messages.BoatLocationBatchMessage;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.model.ClientYacht;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.parser.PositionUpdateData;
+import seng302.utilities.StreamParser;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+public class TestBoatLocationBatch {
+
+    /**
+     * A batch should move each yacht to exactly where the individual location messages would.
+     */
+    @Test
+    public void testBatchMatchesIndividualLocations() {
+        List<BoatLocationMessage> locations = Arrays.asList(
+            new BoatLocationMessage(101, 0, 57.67, 11.83, 45.0, 4200),
+            new BoatLocationMessage(102, 0, 57.68, 11.84, 270.5, 0)
+        );
+        BoatLocationBatchMessage batch = new BoatLocationBatchMessage(locations);
+
+        Map<Integer, ClientYacht> yachts = new HashMap<>();
+        yachts.put(101, new ClientYacht(BoatMeshType.DINGHY, 101, "101", "P1", "Player 1", "NZ"));
+        yachts.put(102, new ClientYacht(BoatMeshType.DINGHY, 102, "102", "P2", "Player 2", "NZ"));
+
+        StreamPacket batchPacket = toPacket(batch);
+        assertEquals(PacketType.BOAT_LOCATION_BATCH, batchPacket.getType());
+        StreamParser.updateBoatLocations(batchPacket, yachts);
+
+        for (BoatLocationMessage location : locations) {
+            PositionUpdateData expected = StreamParser.extractBoatLocation(
+                toPacket(location)
+            );
+            ClientYacht yacht = yachts.get(expected.getDeviceId());
+            assertEquals(expected.getLat(), yacht.getLocation().getLat(), 0);
+            assertEquals(expected.getLon(), yacht.getLocation().getLng(), 0);
+            assertEquals(expected.getHeading(), yacht.getHeading(), 0);
+            assertEquals(expected.getGroundSpeed(), yacht.getCurrentVelocity(), 0);
+        }
+    }
+
+    @Test
+    public void testUnknownBoatsAreSkipped() {
+        BoatLocationBatchMessage batch = new BoatLocationBatchMessage(Arrays.asList(
+            new BoatLocationMessage(999, 0, 57.67, 11.83, 45.0, 4200)
+        ));
+        Map<Integer, ClientYacht> yachts = new HashMap<>();
+
+        StreamParser.updateBoatLocations(toPacket(batch), yachts);
+
+        assertEquals(0, yachts.size());
+    }
+}
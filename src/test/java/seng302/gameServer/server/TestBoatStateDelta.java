@@ -0,0 +1,132 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static seng302.gameServer.server.ServerTestSupport.toPacket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import seng302.gameServer.messages.BoatLocationBatchMessage;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.BoatState;
+import seng302.gameServer.messages.BoatStateDeltaMessage;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.parser.PositionUpdateData;
+import seng302.utilities.StreamParser;
+
+public class TestBoatStateDelta {
+
+    private static final int TICKS = 120;
+
+    /**
+     * Boat 1 sails in a straight line, boat 2 turns and speeds up, boat 3 sits still.
+     */
+    private static BoatLocationMessage locationAt(int boat, int tick) {
+        switch (boat) {
+            case 1:
+                return new BoatLocationMessage(1, 0, -36.84 + tick * 1e-6, 174.76, 12.0, 6000);
+            case 2:
+                return new BoatLocationMessage(2, 0, -36.85, 174.77 + tick * 2e-6,
+                    (tick * 3.0) % 360, 4000 + tick * 10);
+            default:
+                return new BoatLocationMessage(3, 0, -36.86, 174.78, 90.0, 0);
+        }
+    }
+
+    private static BoatState stateAt(int boat, int tick) {
+        switch (boat) {
+            case 1:
+                return new BoatState(1, -36.84 + tick * 1e-6, 174.76, 12.0, 6000);
+            case 2:
+                return new BoatState(2, -36.85, 174.77 + tick * 2e-6, (tick * 3.0) % 360,
+                    4000 + tick * 10);
+            default:
+                return new BoatState(3, -36.86, 174.78, 90.0, 0);
+        }
+    }
+
+    /**
+     * Every tick the client should rebuild exactly what a full boat location would have given it,
+     * while using fewer bytes than the batched full locations.
+     */
+    @Test
+    public void testDeltasRebuildFullState() {
+        Map<Integer, BoatState> serverBaseline = new HashMap<>();
+        Map<Integer, BoatState> clientStates = new HashMap<>();
+        Map<Integer, PositionUpdateData> clientView = new HashMap<>();
+        int deltaBytes = 0;
+        int batchBytes = 0;
+
+        for (int tick = 0; tick < TICKS; tick++) {
+            List<BoatState> states = new ArrayList<>();
+            List<BoatLocationMessage> locations = new ArrayList<>();
+            for (int boat = 1; boat <= 3; boat++) {
+                states.add(stateAt(boat, tick));
+                locations.add(locationAt(boat, tick));
+            }
+
+            BoatStateDeltaMessage frame = new BoatStateDeltaMessage(
+                tick, tick % 60 == 0, states, serverBaseline
+            );
+            serverBaseline.clear();
+            for (BoatState state : states) {
+                serverBaseline.put(state.getSourceId(), state);
+            }
+            deltaBytes += frame.getBuffer().length;
+            batchBytes += new BoatLocationBatchMessage(locations).getBuffer().length;
+
+            for (PositionUpdateData position
+                : StreamParser.extractBoatStateDeltas(toPacket(frame), clientStates)) {
+                clientView.put(position.getDeviceId(), position);
+            }
+
+            for (BoatLocationMessage location : locations) {
+                PositionUpdateData expected = StreamParser.extractBoatLocation(
+                    toPacket(location)
+                );
+                PositionUpdateData actual = clientView.get(expected.getDeviceId());
+                assertEquals(expected.getLat(), actual.getLat(), 0);
+                assertEquals(expected.getLon(), actual.getLon(), 0);
+                assertEquals(expected.getHeading(), actual.getHeading(), 0);
+                assertEquals(expected.getGroundSpeed(), actual.getGroundSpeed(), 0);
+            }
+        }
+
+        assertTrue(deltaBytes * 2 < batchBytes);
+    }
+
+    @Test
+    public void testUnchangedBoatsAreLeftOut() {
+        Map<Integer, BoatState> baseline = new HashMap<>();
+        baseline.put(3, stateAt(3, 0));
+
+        BoatStateDeltaMessage frame = new BoatStateDeltaMessage(
+            1, false, Arrays.asList(stateAt(3, 1)), baseline
+        );
+
+        assertEquals(0, toPacket(frame).getPayload()[6]);
+    }
+
+    @Test
+    public void testDeltasWaitForKeyframe() {
+        Map<Integer, BoatState> baseline = new HashMap<>();
+        baseline.put(1, stateAt(1, 0));
+        Map<Integer, BoatState> lateClient = new HashMap<>();
+
+        BoatStateDeltaMessage delta = new BoatStateDeltaMessage(
+            1, false, Arrays.asList(stateAt(1, 1)), baseline
+        );
+        assertEquals(0, StreamParser.extractBoatStateDeltas(
+            toPacket(delta), lateClient).size());
+
+        BoatStateDeltaMessage keyframe = new BoatStateDeltaMessage(
+            2, true, Arrays.asList(stateAt(1, 2)), baseline
+        );
+        assertEquals(1, StreamParser.extractBoatStateDeltas(
+            toPacket(keyframe), lateClient).size());
+    }
+}
@@ -0,0 +1,109 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import seng302.gameServer.GameState;
+import seng302.gameServer.messages.BoatAction;
+import seng302.gameServer.messages.CustomizeRequestType;
+import seng302.model.GeoPoint;
+import seng302.model.ServerYacht;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+/**
+ * Tests inputs from clients, and yachts joining and leaving, only change the game when it ticks.
+ */
+public class TestClientInputQueue {
+
+    private GameState gameState;
+    private ServerYacht yacht;
+
+    @Before
+    public void setUp() {
+        gameState = new GameState();
+        yacht = new ServerYacht(BoatMeshType.DINGHY, 1, "1", "Y1", "Yacht1", "NZ");
+        gameState.addYacht(1, yacht);
+    }
+
+    /**
+     * Waits until a tick is due and runs it.
+     */
+    private void runTick() throws InterruptedException {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(1) / GameState.getTickRate() + 1);
+        gameState.runDueTicks();
+    }
+
+    @Test
+    public void testBoatActionIsAppliedOnTick() throws InterruptedException {
+        gameState.updateBoat(1, BoatAction.SAILS_IN);
+        assertFalse(yacht.getSailIn());
+
+        runTick();
+        assertTrue(yacht.getSailIn());
+    }
+
+    @Test
+    public void testInputsAreAppliedInOrder() throws InterruptedException {
+        gameState.updateBoat(1, BoatAction.SAILS_IN);
+        gameState.updateBoat(1, BoatAction.SAILS_OUT);
+        gameState.updateBoat(1, BoatAction.SAILS_IN);
+
+        runTick();
+        assertTrue(yacht.getSailIn());
+    }
+
+    @Test
+    public void testCustomizationSetsFlagOnTick() throws InterruptedException {
+        gameState.customizePlayer(1, CustomizeRequestType.NAME, "Boaty".getBytes());
+        assertFalse(gameState.getCustomizationFlag());
+        assertEquals("Yacht1", yacht.getBoatName());
+
+        runTick();
+        assertTrue(gameState.getCustomizationFlag());
+        assertEquals("Boaty", yacht.getBoatName());
+    }
+
+    @Test
+    public void testInputForUnknownYachtIsIgnored() throws InterruptedException {
+        gameState.updateBoat(9, BoatAction.VMG);
+        gameState.updateBoat(1, BoatAction.SAILS_IN);
+
+        runTick();
+        assertTrue(yacht.getSailIn());
+    }
+
+    @Test
+    public void testYachtCollidesFromTickAfterJoining() throws InterruptedException {
+        GeoPoint start = new GeoPoint(50.0, 50.0);
+        yacht.setLocation(start);
+        gameState.addYacht(2, new ServerYacht(BoatMeshType.DINGHY, 2, "2", "Y2", "Yacht2", "NZ"));
+        gameState.getYachts().get(2).setLocation(start);
+        assertEquals(2, gameState.getYachts().size());
+
+        runTick();
+        gameState.checkCollision(yacht);
+        assertNotEquals(start, yacht.getLocation());
+    }
+
+    @Test
+    public void testYachtStopsCollidingAfterLeaving() throws InterruptedException {
+        GeoPoint start = new GeoPoint(50.0, 50.0);
+        ServerYacht leaving = new ServerYacht(BoatMeshType.DINGHY, 2, "2", "Y2", "Yacht2", "NZ");
+        leaving.setLocation(start);
+        gameState.addYacht(2, leaving);
+        runTick();
+
+        gameState.removeYacht(2);
+        assertFalse(gameState.getYachts().containsKey(2));
+        runTick();
+
+        yacht.setLocation(start);
+        gameState.checkCollision(yacht);
+        assertEquals(start, yacht.getLocation());
+    }
+}
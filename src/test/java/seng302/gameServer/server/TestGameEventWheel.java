@@ -0,0 +1,98 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import seng302.gameServer.GameEventWheel;
+import seng302.gameServer.GameEventWheel.GameEvent;
+
+/**
+ * Tests events on the game event wheel run on the tick they are due, including ones further away
+ * than one turn of the wheel.
+ */
+public class TestGameEventWheel {
+
+    private static void advance(GameEventWheel wheel, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.advance();
+        }
+    }
+
+    @Test
+    public void testEventRunsWhenDue() {
+        GameEventWheel wheel = new GameEventWheel(8);
+        List<Long> runAt = new ArrayList<>();
+        wheel.schedule(3, () -> runAt.add(wheel.getCurrentTick()));
+        // Two turns and a bit of the wheel away
+        wheel.schedule(21, () -> runAt.add(wheel.getCurrentTick()));
+
+        advance(wheel, 30);
+        assertEquals(Arrays.asList(3L, 21L), runAt);
+    }
+
+    @Test
+    public void testEventsRunInOrderScheduled() {
+        GameEventWheel wheel = new GameEventWheel(4);
+        List<String> order = new ArrayList<>();
+        wheel.schedule(2, () -> order.add("a"));
+        wheel.schedule(2, () -> order.add("b"));
+        wheel.schedule(0, () -> order.add("next tick"));
+
+        advance(wheel, 2);
+        assertEquals(Arrays.asList("next tick", "a", "b"), order);
+    }
+
+    @Test
+    public void testFixedRateRepeatsUntilCancelled() {
+        GameEventWheel wheel = new GameEventWheel(16);
+        List<Long> runAt = new ArrayList<>();
+        GameEvent event = wheel.scheduleAtFixedRate(1, 5, () -> runAt.add(wheel.getCurrentTick()));
+
+        advance(wheel, 12);
+        event.cancel();
+        advance(wheel, 20);
+        assertEquals(Arrays.asList(1L, 6L, 11L), runAt);
+    }
+
+    @Test
+    public void testClearCancelsEverything() {
+        GameEventWheel wheel = new GameEventWheel(8);
+        List<String> runs = new ArrayList<>();
+        GameEvent once = wheel.schedule(4, () -> runs.add("once"));
+        GameEvent repeating = wheel.scheduleAtFixedRate(2, 2, () -> runs.add("repeating"));
+
+        advance(wheel, 2);
+        wheel.clear();
+        advance(wheel, 20);
+        assertEquals(Arrays.asList("repeating"), runs);
+        assertTrue(once.isCancelled());
+        assertTrue(repeating.isCancelled());
+    }
+
+    @Test
+    public void testEventCanScheduleAnother() {
+        GameEventWheel wheel = new GameEventWheel(8);
+        List<Long> runAt = new ArrayList<>();
+        wheel.schedule(2, () -> wheel.schedule(8, () -> runAt.add(wheel.getCurrentTick())));
+
+        advance(wheel, 12);
+        assertEquals(Arrays.asList(10L), runAt);
+    }
+
+    @Test
+    public void testFailingEventDoesNotStopOthers() {
+        GameEventWheel wheel = new GameEventWheel(8);
+        List<Long> runAt = new ArrayList<>();
+        wheel.schedule(3, () -> {
+            throw new IllegalStateException("Broken event");
+        });
+        wheel.scheduleAtFixedRate(3, 3, () -> runAt.add(wheel.getCurrentTick()));
+
+        advance(wheel, 7);
+        assertEquals(Arrays.asList(3L, 6L), runAt);
+    }
+}
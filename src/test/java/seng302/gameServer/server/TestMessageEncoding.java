@@ -0,0 +1,235 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.junit.Test;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.BoatStatus;
+import seng302.gameServer.messages.BoatSubMessage;
+import seng302.gameServer.messages.ChatterMessage;
+import seng302.gameServer.messages.Heartbeat;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RaceStatus;
+import seng302.gameServer.messages.RaceStatusMessage;
+import seng302.gameServer.messages.RaceType;
+import seng302.gameServer.messages.RegistrationResponseMessage;
+import seng302.gameServer.messages.RegistrationResponseStatus;
+import seng302.gameServer.messages.XMLMessage;
+import seng302.gameServer.messages.XMLMessageSubType;
+
+/**
+ * Checks messages are encoded byte for byte the same as the original field by field encoder, which
+ * is kept here as a reference. Time stamps are read back out of the encoded message so both
+ * encoders write the same values.
+ */
+public class TestMessageEncoding {
+
+    private static final int HEADER_SIZE = 15;
+
+    /**
+     * The encoder messages used before fields were written directly into the message buffer.
+     */
+    private static class LegacyEncoder {
+        private ByteBuffer buffer;
+        private int bufferPosition = 0;
+
+        LegacyEncoder(int type, long headerTimeStamp, int sourceId, int payloadSize) {
+            buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize + 4);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            putInHeader(ByteBuffer.allocate(1).put((byte) 0x47).array());
+            putInHeader(ByteBuffer.allocate(1).put((byte) 0x83).array());
+            putInHeader(ByteBuffer.allocate(1).put((byte) type).array());
+            putInHeader(Message.intToByteArray((int) headerTimeStamp, 6));
+            putInHeader(Message.intToByteArray(sourceId, 4));
+            putInHeader(Message.intToByteArray((short) payloadSize, 2));
+        }
+
+        private void putInHeader(byte[] bytes) {
+            byte[] tmp = bytes.clone();
+            Message.reverse(tmp);
+            buffer.put(tmp);
+            bufferPosition += tmp.length;
+        }
+
+        void putByte(byte b) {
+            buffer.put(ByteBuffer.allocate(1).put(b).array());
+            bufferPosition += 1;
+        }
+
+        void putUnsignedInt(long val, int size) {
+            if (size <= 1) {
+                putByte((byte) (val & 0xff));
+            } else if (size < 4) {
+                putInt(val, size);
+            } else {
+                bufferPosition += size;
+                buffer.position(bufferPosition);
+            }
+        }
+
+        void putInt(long val, int size) {
+            byte[] tmp = Message.intToByteArray(val, size);
+            Message.reverse(tmp);
+            buffer.put(tmp);
+            bufferPosition += size;
+        }
+
+        void putBytes(byte[] bytes) {
+            buffer.put(bytes);
+            bufferPosition += bytes.length;
+        }
+
+        void putBoatSubMessage(long sourceId, BoatStatus status, long leg, long awarded,
+            long served, long timeAtFinish, long timeAtNextMark) {
+            putInt(sourceId, 4);
+            putByte((byte) (status.getCode() & 0xff));
+            putByte((byte) (leg & 0xff));
+            putByte((byte) (awarded & 0xff));
+            putByte((byte) (served & 0xff));
+            putInt((int) timeAtNextMark, 6);
+            putInt((int) timeAtFinish, 6);
+        }
+
+        byte[] finish() {
+            CRC32 crc = new CRC32();
+            crc.update(Arrays.copyOfRange(buffer.array(), 0, buffer.array().length - 4));
+            buffer.position(bufferPosition);
+            putInt((int) crc.getValue(), 4);
+            return buffer.array();
+        }
+    }
+
+    private static long readLong(byte[] bytes, int from, int length) {
+        return Message.bytesToLong(Arrays.copyOfRange(bytes, from, from + length));
+    }
+
+    private static long headerTimeStamp(byte[] bytes) {
+        return readLong(bytes, 3, 6);
+    }
+
+    @Test
+    public void testHeartbeatMatchesLegacyEncoding() {
+        byte[] encoded = new Heartbeat(7).getBuffer();
+
+        LegacyEncoder legacy = new LegacyEncoder(1, headerTimeStamp(encoded), 1, 4);
+        legacy.putUnsignedInt(7, 4);
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testBoatLocationMatchesLegacyEncoding() {
+        byte[] encoded = new BoatLocationMessage(3, 9, -36.84, 174.76, 123.4, 5000).getBuffer();
+        long time = readLong(encoded, HEADER_SIZE + 1, 6);
+
+        LegacyEncoder legacy = new LegacyEncoder(37, headerTimeStamp(encoded), 1, 56);
+        legacy.putByte((byte) 1);
+        legacy.putInt(time, 6);
+        legacy.putInt(3, 4);
+        legacy.putUnsignedInt(9, 4);
+        legacy.putByte((byte) 1);
+        legacy.putInt((int) BoatLocationMessage.latLonToBinaryPackedLong(-36.84), 4);
+        legacy.putInt((int) BoatLocationMessage.latLonToBinaryPackedLong(174.76), 4);
+        legacy.putInt(0, 4);
+        legacy.putInt((long) ((123.4 / 360.0) * 65535.0), 2);
+        legacy.putInt(0, 2);
+        legacy.putInt(0, 2);
+        legacy.putInt(5000, 2);
+        legacy.putUnsignedInt(2, 2);
+        legacy.putUnsignedInt(5000, 2);
+        for (int i = 0; i < 8; i++) {
+            legacy.putInt(0, 2);
+        }
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testXmlMessageMatchesLegacyEncoding() {
+        String content = "<Race><RaceID>1</RaceID></Race>";
+        byte[] encoded = new XMLMessage(content, XMLMessageSubType.RACE, 4).getBuffer();
+        long timeStamp = readLong(encoded, HEADER_SIZE + 3, 6);
+
+        LegacyEncoder legacy = new LegacyEncoder(26, headerTimeStamp(encoded), 1, 14 + content.length());
+        legacy.putUnsignedInt(1, 1);
+        legacy.putInt(0, 2);
+        legacy.putInt((int) timeStamp, 6);
+        legacy.putByte((byte) XMLMessageSubType.RACE.getType());
+        legacy.putInt(4, 2);
+        legacy.putInt(content.length(), 2);
+        legacy.putBytes(content.getBytes());
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testRaceStatusMatchesLegacyEncoding() {
+        List<BoatSubMessage> boats = new ArrayList<>();
+        boats.add(new BoatSubMessage(101, BoatStatus.RACING, 2, 0, 0, 1504000000000L, 1503999999000L));
+        boats.add(new BoatSubMessage(102, BoatStatus.FINISHED, 5, 1, 1, 1504000001000L, 0));
+        byte[] encoded = new RaceStatusMessage(
+            7, RaceStatus.STARTED, 1503990000000L, 135.0, 6000, 2, RaceType.FLEET_RACE, 1, boats
+        ).getBuffer();
+        long currentTime = readLong(encoded, HEADER_SIZE + 1, 6);
+
+        LegacyEncoder legacy = new LegacyEncoder(12, headerTimeStamp(encoded), 1, 24 + 40);
+        legacy.putByte((byte) 2);
+        legacy.putInt(currentTime, 6);
+        legacy.putInt(7, 4);
+        legacy.putByte((byte) RaceStatus.STARTED.getCode());
+        legacy.putInt(1503990000000L, 6);
+        legacy.putInt((int) (135.0 * (0x4000 / 90) + 100.0), 2);
+        legacy.putInt(6000, 2);
+        legacy.putByte((byte) 2);
+        legacy.putByte((byte) RaceType.FLEET_RACE.getCode());
+        legacy.putBoatSubMessage(101, BoatStatus.RACING, 2, 0, 0, 1504000000000L, 1503999999000L);
+        legacy.putBoatSubMessage(102, BoatStatus.FINISHED, 5, 1, 1, 1504000001000L, 0);
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testRegistrationResponseMatchesLegacyEncoding() {
+        byte[] encoded = new RegistrationResponseMessage(
+            12, RegistrationResponseStatus.SUCCESS_PLAYING).getBuffer();
+
+        LegacyEncoder legacy = new LegacyEncoder(102, headerTimeStamp(encoded), 1, 5);
+        legacy.putInt(12, 4);
+        legacy.putInt(0x01, 1);
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testChatterMatchesLegacyEncoding() {
+        String text = "[Player 1] hello";
+        byte[] encoded = new ChatterMessage(2, text).getBuffer();
+
+        LegacyEncoder legacy = new LegacyEncoder(36, headerTimeStamp(encoded), 1, 3 + text.length());
+        legacy.putByte((byte) 1);
+        legacy.putInt(2, 1);
+        legacy.putInt(text.length(), 1);
+        legacy.putBytes(text.getBytes());
+
+        assertArrayEquals(legacy.finish(), encoded);
+    }
+
+    @Test
+    public void testByteBufferViewsAreIndependent() {
+        Message message = new Heartbeat(1);
+        ByteBuffer first = message.getByteBuffer();
+        ByteBuffer second = message.getByteBuffer();
+
+        first.position(first.limit());
+
+        assertEquals(0, second.position());
+        assertEquals(message.getBuffer().length, second.remaining());
+    }
+}
@@ -0,0 +1,92 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static seng302.gameServer.server.ServerTestSupport.waitFor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import seng302.gameServer.GameStages;
+import seng302.gameServer.RaceHost;
+import seng302.gameServer.RaceInstance;
+import seng302.visualiser.ClientToServerThread;
+
+/**
+ * Tests races on a shared host are kept apart and are each given a share of the host's threads.
+ */
+public class TestRaceHost {
+
+    private RaceHost raceHost;
+    private ClientToServerThread client1;
+    private ClientToServerThread client2;
+
+    @Before
+    public void setup() throws Exception {
+        raceHost = new RaceHost(2);
+    }
+
+    @After
+    public void teardown() {
+        if (client1 != null) {
+            client1.setSocketToClose();
+        }
+        if (client2 != null) {
+            client2.setSocketToClose();
+        }
+        raceHost.shutdown();
+    }
+
+    @Test
+    public void testRacesAreSeparate() throws Exception {
+        RaceInstance race1 = raceHost.openRace(0);
+        RaceInstance race2 = raceHost.openRace(0);
+        assertNotEquals(race1.getPortNumber(), race2.getPortNumber());
+        assertEquals(2, raceHost.getRaces().size());
+
+        client1 = new ClientToServerThread("localhost", race1.getPortNumber());
+        client2 = new ClientToServerThread("localhost", race2.getPortNumber());
+        // The clients only send once they have been registered
+        assertTrue(waitFor(() -> client1.getClientId() != -1 && client2.getClientId() != -1));
+        client1.sendXML("/maps/default.xml", "race1", 1, 6, false);
+        client2.sendXML("/maps/default.xml", "race2", 1, 8, false);
+
+        assertTrue(waitFor(() -> race1.getGameState().getPlayers().size() == 1));
+        assertTrue(waitFor(() -> race2.getGameState().getPlayers().size() == 1));
+        assertTrue(waitFor(() -> race1.getGameState().getCapacity() == 6));
+        assertTrue(waitFor(() -> race2.getGameState().getCapacity() == 8));
+
+        race1.getGameState().setCurrentStage(GameStages.RACING);
+        assertEquals(GameStages.LOBBYING, race2.getGameState().getCurrentStage());
+    }
+
+    @Test
+    public void testUsageIsMeasuredPerRace() throws Exception {
+        RaceInstance race1 = raceHost.openRace(0);
+        RaceInstance race2 = raceHost.openRace(0);
+
+        assertTrue(waitFor(() -> race1.getUsage().getRuns() > 60));
+        assertTrue(waitFor(() -> race2.getUsage().getRuns() > 60));
+        assertTrue(race1.getGameState().getTickStats().getTicks() > 0);
+        assertTrue(race1.getUsage().getWallNanos() > 0);
+    }
+
+    @Test
+    public void testClosedRaceIsRemoved() throws Exception {
+        RaceInstance race1 = raceHost.openRace(0);
+        RaceInstance race2 = raceHost.openRace(0);
+
+        raceHost.closeRace(race1);
+        assertTrue(race1.isTerminated());
+        assertFalse(race2.isTerminated());
+        assertEquals(1, raceHost.getRaces().size());
+        assertEquals(race2, raceHost.getRaces().get(0));
+
+        Thread.sleep(50); // Let any update that was already running finish
+        long runs = race1.getUsage().getRuns();
+        Thread.sleep(100);
+        assertEquals(runs, race1.getUsage().getRuns());
+    }
+}
@@ -0,0 +1,113 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import seng302.gameServer.messages.Heartbeat;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.recording.RaceRecorder;
+import seng302.gameServer.recording.RecordingReader;
+
+/**
+ * Tests frames written by the race recorder are read back in order, across segments and from a
+ * seek.
+ */
+public class TestRaceRecorder {
+
+    // Room for a few heartbeats per segment so recordings span many segments
+    private static final int SEGMENT_SIZE = 256;
+    private static final int FRAMES = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<Message> record(File directory) throws Exception {
+        RaceRecorder recorder = RaceRecorder.open(directory, SEGMENT_SIZE);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++) {
+            Message heartbeat = new Heartbeat(i);
+            messages.add(heartbeat);
+            recorder.record(heartbeat);
+        }
+        recorder.close();
+        assertEquals(FRAMES, recorder.getRecordedFrames());
+        assertEquals(0, recorder.getDroppedFrames());
+        return messages;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testFramesAreReadBackInOrder() throws Exception {
+        File directory = folder.newFolder("race");
+        List<Message> messages = record(directory);
+        assertTrue(new File(directory, "segment-00002.rec").exists());
+
+        try (RecordingReader reader = new RecordingReader(directory)) {
+            long lastNanos = -1;
+            for (Message message : messages) {
+                assertTrue(reader.next());
+                assertArrayEquals(message.getBuffer(), bytes(reader.getFrame()));
+                assertTrue(reader.getFrameNanos() >= lastNanos);
+                lastNanos = reader.getFrameNanos();
+            }
+            assertFalse(reader.next());
+            assertTrue(reader.getStartMillis() <= System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    public void testSeekFindsFirstFrameAtTime() throws Exception {
+        File directory = folder.newFolder("race");
+        record(directory);
+
+        List<Long> times = new ArrayList<>();
+        List<byte[]> frames = new ArrayList<>();
+        try (RecordingReader reader = new RecordingReader(directory)) {
+            while (reader.next()) {
+                times.add(reader.getFrameNanos());
+                frames.add(bytes(reader.getFrame()));
+            }
+
+            int target = FRAMES * 2 / 3;
+            reader.seek(times.get(target));
+            assertTrue(reader.next());
+            int first = times.indexOf(times.get(target));
+            assertArrayEquals(frames.get(first), bytes(reader.getFrame()));
+
+            reader.seek(0);
+            assertTrue(reader.next());
+            assertArrayEquals(frames.get(0), bytes(reader.getFrame()));
+
+            reader.seek(Long.MAX_VALUE);
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void testNothingIsRecordedAfterClose() throws Exception {
+        File directory = folder.newFolder("race");
+        RaceRecorder recorder = RaceRecorder.open(directory, SEGMENT_SIZE);
+        recorder.record(new Heartbeat(1));
+        recorder.close();
+        recorder.record(new Heartbeat(2));
+
+        try (RecordingReader reader = new RecordingReader(directory)) {
+            assertTrue(reader.next());
+            assertFalse(reader.next());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import seng302.gameServer.GameState;
+import seng302.gameServer.MessageFactory;
+import seng302.gameServer.messages.XMLMessage;
+import seng302.model.ServerYacht;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+import seng302.utilities.XMLGenerator;
+import seng302.utilities.XMLGenerator.RaceSection;
+import seng302.utilities.XMLParser;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+/**
+ * Tests the race XML joined from separately generated sections matches the whole template and
+ * that the message factory only makes new XML messages when what they contain has changed.
+ */
+public class TestRaceXMLCache {
+
+    private static final int XML_MESSAGE_TYPE = 26;
+    private static final int HEADER_SIZE = 15;
+    private static final int CRC_SIZE = 4;
+
+    private XMLGenerator xmlGenerator;
+    private MessageFactory messageFactory;
+
+    @Before
+    public void setUp() {
+        xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRaceTemplate(
+            XMLParser.parseRaceDef("/maps/horseshoe.xml", "test", 2, null, false).getValue()
+        );
+        RaceXMLData race = XMLParser.parseRace(
+            XMLParser.parseXmlString(xmlGenerator.getRaceAsXml())
+        );
+        GameState gameState = new GameState();
+        messageFactory = gameState.getMessageFactory();
+        messageFactory.updateXMLGenerator(race, XMLParser.parseRegatta(
+            XMLParser.parseXmlString(new XMLGenerator().getRegattaAsXml())
+        ));
+    }
+
+    private static RaceXMLData parse(XMLMessage message) {
+        byte[] buffer = message.getBuffer();
+        byte[] payload = Arrays.copyOfRange(buffer, HEADER_SIZE, buffer.length - CRC_SIZE);
+        return XMLParser.parseRace(XMLParser.extractXmlMessage(
+            new StreamPacket(XML_MESSAGE_TYPE, payload.length, 0, payload)
+        ));
+    }
+
+    private static List<ServerYacht> yachts(int count) {
+        List<ServerYacht> yachts = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            yachts.add(new ServerYacht(BoatMeshType.DINGHY, i, Integer.toString(i), "Y" + i,
+                "Yacht" + i, "NZ"));
+        }
+        return yachts;
+    }
+
+    @Test
+    public void testJoinedSectionsMatchWholeTemplate() {
+        xmlGenerator.getRace().setBoats(yachts(3));
+        xmlGenerator.getRace().setTokens(Collections.singletonList(
+            new Token(TokenType.BOOST, 57.1, 11.2)
+        ));
+
+        String[] sections = new String[RaceSection.values().length];
+        for (RaceSection section : RaceSection.values()) {
+            sections[section.ordinal()] = xmlGenerator.getRaceSectionAsXml(section);
+        }
+        assertEquals(xmlGenerator.getRaceAsXml(), XMLGenerator.joinRaceSections(sections));
+    }
+
+    @Test
+    public void testRaceXMLHasCurrentBoatsAndTokens() {
+        messageFactory.updateBoats(yachts(2));
+        List<Token> tokens = new ArrayList<>();
+        tokens.add(new Token(TokenType.BOOST, 57.1, 11.2));
+        tokens.add(new Token(TokenType.BUMPER, 57.2, 11.3));
+        messageFactory.updateTokens(tokens);
+
+        RaceXMLData race = parse(messageFactory.getRaceXML());
+        assertEquals(Arrays.asList(1, 2), race.getParticipants());
+        assertEquals(2, race.getTokens().size());
+
+        tokens.remove(0);
+        messageFactory.updateTokens(tokens);
+        race = parse(messageFactory.getRaceXML());
+        assertEquals(1, race.getTokens().size());
+        assertEquals(TokenType.BUMPER, race.getTokens().get(0).getTokenType());
+        assertEquals(course(), race.getCompoundMarks().keySet());
+    }
+
+    @Test
+    public void testMessagesAreKeptUntilChanged() {
+        messageFactory.updateBoats(yachts(2));
+        XMLMessage race = messageFactory.getRaceXML();
+        XMLMessage boats = messageFactory.getBoatXML();
+        assertSame(race, messageFactory.getRaceXML());
+        assertSame(boats, messageFactory.getBoatXML());
+
+        messageFactory.updateTokens(Collections.singletonList(new Token(TokenType.BOOST, 57, 11)));
+        assertNotSame(race, messageFactory.getRaceXML());
+        assertSame(boats, messageFactory.getBoatXML());
+
+        race = messageFactory.getRaceXML();
+        messageFactory.updateBoats(yachts(3));
+        assertNotSame(boats, messageFactory.getBoatXML());
+        assertNotSame(race, messageFactory.getRaceXML());
+    }
+
+    private Set<Integer> course() {
+        return XMLParser.parseRace(XMLParser.parseXmlString(xmlGenerator.getRaceAsXml()))
+            .getCompoundMarks().keySet();
+    }
+}
@@ -0,0 +1,111 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static seng302.gameServer.server.ServerTestSupport.waitFor;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import seng302.gameServer.messages.Heartbeat;
+import seng302.gameServer.messages.XMLMessage;
+import seng302.gameServer.messages.XMLMessageSubType;
+import seng302.gameServer.recording.RaceRecorder;
+import seng302.gameServer.recording.RecordingReader;
+import seng302.gameServer.recording.ReplayServer;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.visualiser.ClientToServerThread;
+
+/**
+ * Tests game clients can register with a replay server and are sent the recording, with the XML
+ * current at the time they start from.
+ */
+public class TestReplayServer {
+
+    private static final int SOURCE_ID = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ReplayServer replayServer;
+    private ClientToServerThread client;
+
+    @After
+    public void teardown() {
+        if (client != null) {
+            client.setSocketToClose();
+        }
+        if (replayServer != null) {
+            replayServer.terminate();
+        }
+    }
+
+    /**
+     * Records a course, ten heartbeats, a changed course then ten more heartbeats.
+     */
+    private File record() throws Exception {
+        File directory = folder.newFolder("race");
+        RaceRecorder recorder = RaceRecorder.open(directory);
+        recorder.record(new XMLMessage("<first/>", XMLMessageSubType.RACE, 1));
+        for (int i = 0; i < 10; i++) {
+            recorder.record(new Heartbeat(i));
+        }
+        Thread.sleep(20);
+        recorder.record(new XMLMessage("<second/>", XMLMessageSubType.RACE, 2));
+        Thread.sleep(20);
+        for (int i = 10; i < 20; i++) {
+            recorder.record(new Heartbeat(i));
+        }
+        recorder.close();
+        return directory;
+    }
+
+    private List<StreamPacket> receive(int packets) throws Exception {
+        client = new ClientToServerThread("localhost", replayServer.getPortNumber());
+        assertTrue(waitFor(() -> client.getClientId() == SOURCE_ID));
+        assertTrue(waitFor(() -> client.getPacketQueue().size() >= packets));
+        return new ArrayList<>(client.getPacketQueue());
+    }
+
+    private static String payload(StreamPacket packet) {
+        return new String(packet.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWholeRecordingIsReplayed() throws Exception {
+        replayServer = new ReplayServer(record(), 0, 0, 0, SOURCE_ID);
+
+        List<StreamPacket> packets = receive(22);
+        assertEquals(22, packets.size());
+        assertEquals(PacketType.RACE_XML, packets.get(0).getType());
+        assertTrue(payload(packets.get(0)).contains("<first/>"));
+        assertEquals(PacketType.HEARTBEAT, packets.get(1).getType());
+        assertTrue(payload(packets.get(11)).contains("<second/>"));
+    }
+
+    @Test
+    public void testStartingLaterSendsCurrentCourse() throws Exception {
+        File recording = record();
+        long secondHalf = 0;
+        try (RecordingReader reader = new RecordingReader(recording)) {
+            for (int i = 0; i < 13; i++) {
+                reader.next();
+            }
+            secondHalf = reader.getFrameNanos();
+        }
+        replayServer = new ReplayServer(recording, 0, 0, secondHalf / 1e9, SOURCE_ID);
+
+        List<StreamPacket> packets = receive(11);
+        assertEquals(11, packets.size());
+        assertTrue(payload(packets.get(0)).contains("<second/>"));
+        for (StreamPacket packet : packets.subList(1, packets.size())) {
+            assertEquals(PacketType.HEARTBEAT, packet.getType());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static seng302.gameServer.server.ServerTestSupport.waitFor;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import seng302.gameServer.GameStages;
+import seng302.gameServer.RaceHost;
+import seng302.gameServer.RaceInstance;
+import seng302.gameServer.metrics.DurationHistogram;
+import seng302.gameServer.metrics.RaceMetrics;
+import seng302.visualiser.ClientToServerThread;
+
+/**
+ * Tests the metrics of a race count its clients traffic and stage changes and are published over
+ * JMX for as long as the race is open.
+ */
+public class TestServerMetrics {
+
+    private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private RaceHost raceHost;
+    private ClientToServerThread client;
+
+    @Before
+    public void setup() throws Exception {
+        raceHost = new RaceHost(2);
+    }
+
+    @After
+    public void teardown() {
+        if (client != null) {
+            client.setSocketToClose();
+        }
+        raceHost.shutdown();
+    }
+
+    @Test
+    public void testClientTrafficIsCounted() throws Exception {
+        RaceInstance race = raceHost.openRace(0);
+        RaceMetrics metrics = race.getMetrics();
+        client = new ClientToServerThread("localhost", race.getPortNumber());
+        assertTrue(waitFor(() -> client.getClientId() != -1));
+        client.sendXML("/maps/default.xml", "metrics", 1, 6, false);
+
+        assertTrue(waitFor(() -> metrics.getConnectedPlayers() == 1));
+        assertTrue(waitFor(() -> metrics.getPacketsOut() > 0));
+        // Registration request, race XML and regatta XML
+        assertTrue(waitFor(() -> metrics.getPacketsIn() >= 3));
+        assertTrue(metrics.getBytesIn() > 0);
+        assertTrue(metrics.getBytesOut() > 0);
+        assertEquals(0, metrics.getCrcDrops());
+        assertTrue(waitFor(() -> metrics.getBroadcasts() > 0));
+    }
+
+    @Test
+    public void testStageTransitionsAreCounted() throws Exception {
+        RaceInstance race = raceHost.openRace(0);
+        RaceMetrics metrics = race.getMetrics();
+
+        race.getGameState().setCurrentStage(GameStages.PRE_RACE);
+        race.getGameState().setCurrentStage(GameStages.PRE_RACE);
+        race.getGameState().setCurrentStage(GameStages.RACING);
+
+        assertEquals(2, metrics.getStageTransitionCount());
+        assertEquals(1, metrics.getStageTransitions(GameStages.PRE_RACE));
+        assertEquals("PRE_RACE=1 RACING=1", metrics.getStageTransitions());
+    }
+
+    @Test
+    public void testRaceIsPublishedWhileOpen() throws Exception {
+        RaceInstance race = raceHost.openRace(0);
+        ObjectName name = new ObjectName("seng302:type=Race,port=" + race.getPortNumber());
+        assertTrue(mBeanServer.isRegistered(name));
+        assertTrue(waitFor(() -> race.getMetrics().getTicks() > 0));
+        assertTrue((Long) mBeanServer.getAttribute(name, "Ticks") > 0);
+        assertEquals("LOBBYING", mBeanServer.getAttribute(name, "Stage"));
+
+        String report = race.getMetrics().report(System.currentTimeMillis());
+        assertTrue(report.startsWith("race " + race.getPortNumber() + " LOBBYING"));
+
+        raceHost.closeRace(race);
+        assertFalse(mBeanServer.isRegistered(name));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100_000); // 0.1 ms
+        }
+        histogram.record(50_000_000); // 50 ms
+        DurationHistogram.Snapshot before = histogram.snapshot();
+
+        assertEquals(100, histogram.getCount());
+        assertTrue(histogram.getPercentileMillis(50) >= 0.1);
+        assertTrue(histogram.getPercentileMillis(50) < 0.2);
+        assertTrue(histogram.getPercentileMillis(100) >= 50);
+        assertEquals(50, histogram.getMaxMillis(), 1e-9);
+
+        histogram.record(2_000_000);
+        DurationHistogram.Snapshot interval = histogram.snapshot().since(before);
+        assertEquals(1, interval.getCount());
+        assertEquals(2, interval.getMeanMillis(), 1e-9);
+    }
+}
@@ -0,0 +1,46 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import seng302.gameServer.TickStats;
+
+/**
+ * Tests the game loop timing records overruns and lateness in the right buckets.
+ */
+public class TestTickStats {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testOverrunsAndHistogram() {
+        TickStats stats = new TickStats(16 * MS);
+
+        stats.recordTick(2 * MS, 0);
+        stats.recordTick(4 * MS, 3 * MS);
+        stats.recordTick(20 * MS, 70 * MS);
+
+        assertEquals(3, stats.getTicks());
+        assertEquals(1, stats.getOverruns());
+        assertEquals(20 * MS, stats.getMaxUpdateNanos());
+        assertEquals(20 * MS, stats.getLastUpdateNanos());
+        assertEquals(26 * MS / 3.0, stats.getMeanUpdateNanos(), 1);
+        assertArrayEquals(new long[]{1, 0, 1, 0, 0, 0, 1}, stats.getLatenessHistogram());
+        assertEquals(
+            TickStats.getLatenessBucketLabels().length, stats.getLatenessHistogram().length
+        );
+    }
+
+    @Test
+    public void testSkippedTicks() {
+        TickStats stats = new TickStats(16 * MS);
+        stats.recordSkippedTicks(3);
+        stats.recordSkippedTicks(2);
+
+        assertEquals(5, stats.getSkippedTicks());
+        assertEquals(0, stats.getTicks());
+        assertEquals(0, stats.getMeanUpdateNanos(), 0);
+    }
+}
@@ -0,0 +1,78 @@
+package seng302.gameServer.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static seng302.gameServer.server.ServerTestSupport.toPacket;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import seng302.gameServer.messages.TokenUpdateMessage;
+import seng302.model.stream.packets.PacketType;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.parser.TokenUpdateData;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+import seng302.utilities.StreamParser;
+import seng302.utilities.XMLGenerator;
+import seng302.utilities.XMLParser;
+
+/**
+ * Tests token updates are decoded as the server encoded them, and that the race XML identifies
+ * tokens the same way so updates can be applied to tokens received on joining.
+ */
+public class TestTokenUpdate {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void testUpdateIsDecodedInOrder() {
+        Token pickedUp = new Token(3, TokenType.BUMPER, 57.6701, 11.8423);
+        Token spawned = new Token(4, TokenType.WIND_WALKER, -14.0687, 47.0562);
+        StreamPacket packet = toPacket(new TokenUpdateMessage(
+            Collections.singletonList(pickedUp), Collections.singletonList(spawned)
+        ));
+        assertEquals(PacketType.TOKEN_UPDATE, packet.getType());
+
+        List<TokenUpdateData> updates = StreamParser.extractTokenUpdates(packet);
+        assertEquals(2, updates.size());
+
+        assertFalse(updates.get(0).isSpawned());
+        assertEquals(3, updates.get(0).getToken().getTokenId());
+        assertEquals(TokenType.BUMPER, updates.get(0).getToken().getTokenType());
+
+        Token decoded = updates.get(1).getToken();
+        assertTrue(updates.get(1).isSpawned());
+        assertEquals(4, decoded.getTokenId());
+        assertEquals(TokenType.WIND_WALKER, decoded.getTokenType());
+        assertEquals(spawned.getLat(), decoded.getLat(), DELTA);
+        assertEquals(spawned.getLng(), decoded.getLng(), DELTA);
+    }
+
+    @Test
+    public void testEmptyUpdateHasNoRecords() {
+        StreamPacket packet = toPacket(new TokenUpdateMessage(
+            Collections.emptyList(), Collections.emptyList()
+        ));
+        assertTrue(StreamParser.extractTokenUpdates(packet).isEmpty());
+    }
+
+    @Test
+    public void testRaceXMLIdentifiesTokens() {
+        XMLGenerator xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRaceTemplate(
+            XMLParser.parseRaceDef("/maps/horseshoe.xml", "test", 2, null, true).getValue()
+        );
+        Token token = new Token(TokenType.HANDLING, -14.07, 47.06);
+        token.setTokenId(12);
+        xmlGenerator.getRace().setTokens(Collections.singletonList(token));
+
+        List<Token> tokens = XMLParser.parseRace(
+            XMLParser.parseXmlString(xmlGenerator.getRaceAsXml())
+        ).getTokens();
+        assertEquals(1, tokens.size());
+        assertEquals(12, tokens.get(0).getTokenId());
+        assertEquals(TokenType.HANDLING, tokens.get(0).getTokenType());
+    }
+}
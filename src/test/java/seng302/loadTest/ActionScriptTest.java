@@ -0,0 +1,40 @@
+package seng302.loadTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+import seng302.gameServer.messages.BoatAction;
+
+/**
+ * Checks load test scripts are read and looped over as written.
+ */
+public class ActionScriptTest {
+
+    @Test
+    public void testScriptLoops() {
+        ActionScript script = ActionScript.parse("UPWIND:1500, sails_in,MAINTAIN_HEADING:200");
+        Random random = new Random(302);
+
+        ActionScript.Step step = script.getStep(0, random);
+        assertEquals(BoatAction.UPWIND, step.getAction());
+        assertEquals(1500, step.getHoldMillis());
+        assertTrue(step.isHeld());
+
+        step = script.getStep(1, random);
+        assertEquals(BoatAction.SAILS_IN, step.getAction());
+        assertEquals(0, step.getHoldMillis());
+        assertFalse(step.isHeld());
+
+        step = script.getStep(2, random);
+        assertFalse(step.isSent());
+        assertEquals(BoatAction.UPWIND, script.getStep(3, random).getAction());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAction() {
+        ActionScript.parse("UPWIND:100,JIBE");
+    }
+}
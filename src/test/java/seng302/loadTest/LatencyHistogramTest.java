@@ -0,0 +1,40 @@
+package seng302.loadTest;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks latency percentiles are read correctly from the histogram's buckets.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(90, histogram.getPercentile(90));
+        assertEquals(99, histogram.getPercentile(99));
+        assertEquals(100, histogram.getPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testOutOfRangeLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram(10);
+        histogram.record(-5);
+        histogram.record(5000);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(5000, histogram.getPercentile(100));
+        assertEquals(5000, histogram.getMax());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+}
@@ -0,0 +1,78 @@
+package seng302.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the compiled polars agree with the parsed table at its data points and interpolate between
+ * them.
+ */
+public class PolarTableTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Before
+    public void setUp() {
+        PolarTable.parsePolarFile(getClass().getResourceAsStream("/server_config/acc_polars.csv"));
+    }
+
+    @Test
+    public void testTableValuesAreExact() {
+        for (Map.Entry<Double, HashMap<Double, Double>> row : PolarTable.getPolarTable().entrySet()) {
+            for (Map.Entry<Double, Double> entry : row.getValue().entrySet()) {
+                assertEquals(entry.getValue(),
+                    PolarTable.getBoatSpeed(row.getKey(), entry.getKey()), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testInterpolatesBetweenAngles() {
+        // 8 knots: 75 degrees is 11, 90 degrees is 11, 115 degrees is 12
+        assertEquals(11.5, PolarTable.getBoatSpeed(8, 102.5), DELTA);
+        // 8 knots: 0 degrees is 0, 30 degrees is 7
+        assertEquals(3.5, PolarTable.getBoatSpeed(8, 15), DELTA);
+    }
+
+    @Test
+    public void testInterpolatesBetweenWindSpeeds() {
+        // 90 degrees: 12 knots is 23, 16 knots is 31
+        assertEquals(27, PolarTable.getBoatSpeed(14, 90), DELTA);
+        assertEquals(25, PolarTable.getBoatSpeed(13, 90), DELTA);
+    }
+
+    @Test
+    public void testClampsOutsideTable() {
+        assertEquals(PolarTable.getBoatSpeed(4, 90), PolarTable.getBoatSpeed(1, 90), DELTA);
+        assertEquals(PolarTable.getBoatSpeed(30, 90), PolarTable.getBoatSpeed(45, 90), DELTA);
+        assertEquals(PolarTable.getBoatSpeed(16, 175), PolarTable.getBoatSpeed(16, 270), DELTA);
+        assertEquals(0, PolarTable.getBoatSpeed(16, -5), DELTA);
+    }
+
+    @Test
+    public void testSpeedCurveIsContinuous() {
+        double previous = PolarTable.getBoatSpeed(17.3, 0);
+        for (double angle = 0.25; angle <= 180; angle += 0.25) {
+            double speed = PolarTable.getBoatSpeed(17.3, angle);
+            assertTrue(Math.abs(speed - previous) < 1);
+            previous = speed;
+        }
+    }
+
+    @Test
+    public void testOptimalAnglesMatchTableRows() {
+        for (Double windSpeed : PolarTable.getPolarTable().keySet()) {
+            assertEquals(PolarTable.getUpwindOptimal().get(windSpeed).keySet().iterator().next(),
+                PolarTable.getOptimalUpwindAngle(windSpeed), DELTA);
+            assertEquals(PolarTable.getDownwindOptimal().get(windSpeed).keySet().iterator().next(),
+                PolarTable.getOptimalDownwindAngle(windSpeed), DELTA);
+        }
+        // Upwind is 43 degrees at 12 knots and 42 at 16 knots
+        assertEquals(42.5, PolarTable.getOptimalUpwindAngle(14), DELTA);
+    }
+}
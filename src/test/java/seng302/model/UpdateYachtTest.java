@@ -1,7 +1,5 @@
 package seng302.model;
 
-import static seng302.gameServer.GameState.checkCollision;
-
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,12 +31,13 @@ public class UpdateYachtTest {
         "Yacht" + 2, "Test2");
     private GeoPoint geoPoint1 = new GeoPoint(50.0, 50.0);
     private GeoPoint geoPoint2 = GeoUtility.getGeoCoordinate(geoPoint1, 90.0, 50.0);
+    private GameState gameState;
 
     @Before
     public void setUpRace() {
-        new GameState();
-        GameState.addYacht(1, yacht1);
-        GameState.addYacht(2, yacht2);
+        gameState = new GameState();
+        gameState.addYacht(1, yacht1);
+        gameState.addYacht(2, yacht2);
         XMLGenerator xmlGenerator = new XMLGenerator();
         xmlGenerator.setRaceTemplate(
                 XMLParser.parseRaceDef(
@@ -54,7 +53,7 @@ public class UpdateYachtTest {
         } catch (ParserConfigurationException | IOException | SAXException e) {
             e.printStackTrace();
         }
-        GameState.setRace(XMLParser.parseRace(doc));
+        gameState.setRace(XMLParser.parseRace(doc));
         PolarTable.parsePolarFile(getClass().getResourceAsStream("/server_config/acc_polars.csv"));
     }
 
@@ -70,7 +69,7 @@ public class UpdateYachtTest {
         if (!yacht1.getSailIn()) {
             yacht1.toggleSailIn();
         }
-        checkCollision(yacht1);
+        gameState.checkCollision(yacht1);
         double moved = GeoUtility.getDistance(yacht1.getLocation(), geoPoint1);
         Assert.assertEquals(GameState.BOUNCE_DISTANCE_YACHT, moved, 0.1);
     }
@@ -88,7 +87,7 @@ public class UpdateYachtTest {
             yacht1.toggleSailIn();
         }
 
-        checkCollision(yacht1);
+        gameState.checkCollision(yacht1);
 
         Assert.assertTrue(
             GameState.YACHT_COLLISION_DISTANCE < GeoUtility.getDistance(geoPoint1, geoPoint2
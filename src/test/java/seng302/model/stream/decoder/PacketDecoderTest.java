@@ -0,0 +1,119 @@
+package seng302.model.stream.decoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+import seng302.gameServer.messages.BoatActionMessage;
+import seng302.gameServer.messages.BoatAction;
+import seng302.gameServer.messages.BoatLocationMessage;
+import seng302.gameServer.messages.BoatStatus;
+import seng302.gameServer.messages.BoatSubMessage;
+import seng302.gameServer.messages.ClientCapability;
+import seng302.gameServer.messages.ClientType;
+import seng302.gameServer.messages.CustomizeRequestMessage;
+import seng302.gameServer.messages.CustomizeRequestType;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RaceStatus;
+import seng302.gameServer.messages.RaceStatusMessage;
+import seng302.gameServer.messages.RaceType;
+import seng302.gameServer.messages.RegistrationRequestMessage;
+import seng302.model.stream.packets.PacketFramer;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.parser.PositionUpdateData;
+import seng302.model.stream.parser.RaceStatusData;
+import seng302.utilities.StreamParser;
+
+/**
+ * Tests the flyweight decoders read the same values as the parsers they replace, and can be
+ * reused from one packet to the next.
+ */
+public class PacketDecoderTest {
+
+    private static StreamPacket toPacket(Message message) throws IOException {
+        return new PacketFramer(new ByteArrayInputStream(message.getBuffer())).readPacket();
+    }
+
+    @Test
+    public void testBoatLocationMatchesStreamParser() throws IOException {
+        BoatLocationDecoder decoder = new BoatLocationDecoder();
+        for (BoatLocationMessage message : Arrays.asList(
+            new BoatLocationMessage(101, 3, 57.67, 11.83, 45.0, 4200),
+            new BoatLocationMessage(102, 4, 57.68, 11.84, 270.5, 0)
+        )) {
+            StreamPacket packet = toPacket(message);
+            PositionUpdateData expected = StreamParser.extractBoatLocation(packet);
+
+            assertSame(decoder, decoder.wrap(packet));
+            assertTrue(decoder.isYacht());
+            assertEquals(expected.getDeviceId(), decoder.getSourceId());
+            assertEquals(expected.getLat(), decoder.getLat(), 0);
+            assertEquals(expected.getLon(), decoder.getLon(), 0);
+            assertEquals(expected.getHeading(), decoder.getHeading(), 0);
+            assertEquals(expected.getGroundSpeed(), decoder.getGroundSpeed(), 0);
+        }
+    }
+
+    @Test
+    public void testRaceStatusMatchesStreamParser() throws IOException {
+        StreamPacket packet = toPacket(new RaceStatusMessage(1, RaceStatus.STARTED, 5000, 90,
+            6000, 2, RaceType.MATCH_RACE, 1, Arrays.asList(
+                new BoatSubMessage(101, BoatStatus.RACING, 2, 0, 0, 120000, 30000),
+                new BoatSubMessage(102, BoatStatus.FINISHED, 5, 0, 0, 90000, 0)
+            )));
+        RaceStatusData expected = StreamParser.extractRaceStatus(packet);
+        RaceStatusDecoder decoder = new RaceStatusDecoder().wrap(packet);
+
+        assertEquals(expected.getCurrentTime(), decoder.getCurrentTime());
+        assertEquals(expected.getExpectedStartTime(), decoder.getExpectedStartTime());
+        assertEquals(expected.isRaceStarted(), decoder.isRaceStarted());
+        assertEquals(expected.getWindDirection(), decoder.getWindDirection(), 0);
+        assertEquals(expected.getWindSpeed(), decoder.getWindSpeed(), 0);
+        assertEquals(expected.getBoatData().size(), decoder.getNumberOfBoats());
+        for (int i = 0; i < decoder.getNumberOfBoats(); i++) {
+            long[] boat = expected.getBoatData().get(i);
+            assertEquals(boat[0], decoder.getBoatSourceId(i));
+            assertEquals(boat[1], decoder.getBoatEstTimeAtNextMark(i));
+            assertEquals(boat[2], decoder.getBoatEstTimeAtFinish(i));
+            assertEquals(boat[3], decoder.getBoatLeg(i));
+            assertEquals(boat[4], decoder.getBoatStatus(i));
+        }
+    }
+
+    @Test
+    public void testClientPackets() throws IOException {
+        BoatActionDecoder boatAction = new BoatActionDecoder();
+        assertEquals(BoatAction.TACK_GYBE,
+            boatAction.wrap(toPacket(new BoatActionMessage(BoatAction.TACK_GYBE, 5))).getAction());
+        assertEquals(BoatAction.SAILS_IN,
+            boatAction.wrap(toPacket(new BoatActionMessage(BoatAction.SAILS_IN, 5))).getAction());
+
+        RegistrationRequestDecoder registration = new RegistrationRequestDecoder().wrap(toPacket(
+            new RegistrationRequestMessage(ClientType.PLAYER, -1, ClientCapability.TOKEN_UPDATE)
+        ));
+        assertEquals(ClientType.PLAYER, registration.getClientType());
+        assertEquals(ClientCapability.TOKEN_UPDATE.getFlag(), registration.getCapabilities());
+
+        byte[] name = "Boaty".getBytes();
+        CustomizeRequestDecoder customization = new CustomizeRequestDecoder().wrap(toPacket(
+            new CustomizeRequestMessage(CustomizeRequestType.NAME, 7, name)
+        ));
+        assertEquals(7, customization.getSourceId());
+        assertEquals(CustomizeRequestType.NAME, customization.getRequestType());
+        assertArrayEquals(name, customization.getData());
+    }
+
+    @Test
+    public void testOtherPacketsAreNotWrapped() throws IOException {
+        StreamPacket boatAction = toPacket(new BoatActionMessage(BoatAction.VMG, 5));
+        assertNull(new BoatLocationDecoder().wrap(boatAction));
+        assertNull(new RaceStatusDecoder().wrap(boatAction));
+        assertNull(new RegistrationRequestDecoder().wrap(boatAction));
+    }
+}
@@ -0,0 +1,116 @@
+package seng302.model.stream.packets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.junit.Test;
+import seng302.gameServer.messages.ClientType;
+import seng302.gameServer.messages.Heartbeat;
+import seng302.gameServer.messages.Message;
+import seng302.gameServer.messages.RegistrationRequestMessage;
+import seng302.gameServer.messages.XMLMessage;
+import seng302.gameServer.messages.XMLMessageSubType;
+
+public class PacketFramerTest {
+
+    private static final int HEADER_SIZE = 15;
+
+    /**
+     * An input stream that only ever returns a single byte per read, like a slow socket.
+     */
+    private static class TrickleInputStream extends InputStream {
+        private InputStream source;
+
+        TrickleInputStream(byte[] bytes) {
+            source = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source.read(b, off, Math.min(len, 1));
+        }
+    }
+
+    private static byte[] concat(byte[]... arrays) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            out.write(array);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] payloadOf(Message message) {
+        byte[] buffer = message.getBuffer();
+        return Arrays.copyOfRange(buffer, HEADER_SIZE, buffer.length - 4);
+    }
+
+    @Test
+    public void testPacketsAreSplitFromOneStream() throws Exception {
+        Message heartbeat = new Heartbeat(3);
+        Message registration = new RegistrationRequestMessage(ClientType.PLAYER, 0);
+        PacketFramer framer = new PacketFramer(new ByteArrayInputStream(
+            concat(heartbeat.getBuffer(), registration.getBuffer())
+        ));
+
+        StreamPacket first = framer.readPacket();
+        assertEquals(PacketType.HEARTBEAT, first.getType());
+        assertArrayEquals(payloadOf(heartbeat), first.getPayload());
+
+        StreamPacket second = framer.readPacket();
+        assertEquals(PacketType.RACE_REGISTRATION_REQUEST, second.getType());
+        assertArrayEquals(payloadOf(registration), second.getPayload());
+
+        assertNull(framer.readPacket());
+    }
+
+    @Test
+    public void testBytesBeforeSyncAreSkipped() throws Exception {
+        Message heartbeat = new Heartbeat(1);
+        byte[] noise = {0x01, 0x47, 0x02, 0x03};
+        PacketFramer framer = new PacketFramer(new ByteArrayInputStream(
+            concat(noise, heartbeat.getBuffer())
+        ));
+
+        assertEquals(PacketType.HEARTBEAT, framer.readPacket().getType());
+    }
+
+    @Test
+    public void testCorruptPacketIsDropped() throws Exception {
+        byte[] corrupt = new Heartbeat(1).getBuffer();
+        corrupt[HEADER_SIZE] ^= 0xFF;
+        Message registration = new RegistrationRequestMessage(ClientType.PLAYER, 0);
+        PacketFramer framer = new PacketFramer(new ByteArrayInputStream(
+            concat(corrupt, registration.getBuffer())
+        ));
+
+        assertEquals(PacketType.RACE_REGISTRATION_REQUEST, framer.readPacket().getType());
+        assertEquals(1, framer.getDroppedPackets());
+    }
+
+    @Test
+    public void testPacketsArriveAcrossManyReads() throws Exception {
+        char[] content = new char[20000];
+        Arrays.fill(content, 'a');
+        Message xml = new XMLMessage(new String(content), XMLMessageSubType.RACE, 1);
+        Message heartbeat = new Heartbeat(2);
+        PacketFramer framer = new PacketFramer(new TrickleInputStream(
+            concat(xml.getBuffer(), heartbeat.getBuffer())
+        ));
+
+        StreamPacket xmlPacket = framer.readPacket();
+        assertEquals(PacketType.RACE_XML, xmlPacket.getType());
+        assertArrayEquals(payloadOf(xml), xmlPacket.getPayload());
+        assertEquals(PacketType.HEARTBEAT, framer.readPacket().getType());
+    }
+}
@@ -7,6 +7,9 @@ import seng302.discoveryServer.util.ServerTable;
 
 import java.util.Objects;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ServerTableTest {
@@ -42,17 +45,75 @@ public class ServerTableTest {
     }
 
     @Test
-    public void testServersRemovedOnExpiry() throws InterruptedException {
+    public void testServersRemovedOnExpiry() {
+        ServerTable table = new ServerTable(1000);
         ServerListing listing = new ServerListing("432", "221", "", 12, 12);
-        listing.setTtl(1);
+        listing.setRoomCode(table.getNextRoomCode().toString());
+        table.addServer(listing);
 
-        serverTable.addServer(listing);
+        table.removeExpiredServers(System.currentTimeMillis());
+        assertTrue(table.getAllServers().contains(listing));
+
+        table.removeExpiredServers(System.currentTimeMillis() + 1000);
+        assertTrue(!table.getAllServers().contains(listing));
+        assertNull(table.getServerByRoomCode(listing.getRoomCode()));
+        assertNull(table.getRandomFreeServer());
+    }
+
+    @Test
+    public void testRefreshedServerIsKept() throws InterruptedException {
+        ServerTable table = new ServerTable(1000);
+        ServerListing listing = new ServerListing("432", "221", "", 12, 12);
+        table.addServer(listing);
+
+        Thread.sleep(20);
+        table.addServer(new ServerListing("432", "221", "", 12, 12));
+        table.removeExpiredServers(listing.getExpiryTime() - 1);
 
-        listing.decrementTtl();
-        listing.decrementTtl();
+        assertEquals(1, table.size());
+    }
 
-        Thread.sleep(1500);
+    @Test
+    public void testRegisterKeepsRoomCode() {
+        ServerTable table = new ServerTable();
+        ServerListing first = table.register(new ServerListing("a", "map", "1.2.3.4", 12, 4));
+        ServerListing again = table.register(
+            new ServerListing("a", "map", "1.2.3.4", 12, 4).setNumberOfPlayers(3)
+        );
+
+        assertSame(first, again);
+        assertEquals(3, again.getNumberOfPlayers());
+        assertSame(first, table.getServerByRoomCode(first.getRoomCode()));
+    }
 
-        assertTrue(!serverTable.getAllServers().contains(listing));
+    @Test
+    public void testHeartbeatRefreshesByRoomCode() throws InterruptedException {
+        ServerTable table = new ServerTable(1000);
+        ServerListing listing = table.register(new ServerListing("a", "map", "1.2.3.4", 12, 4));
+        long firstExpiry = listing.getExpiryTime();
+
+        Thread.sleep(20);
+        assertTrue(table.refreshServer(listing.getRoomCode()));
+        table.removeExpiredServers(firstExpiry);
+        assertEquals(1, table.size());
+
+        table.removeExpiredServers(listing.getExpiryTime());
+        assertTrue(!table.refreshServer(listing.getRoomCode()));
+    }
+
+    @Test
+    public void testRandomFreeServerSkipsFullServers() {
+        ServerTable table = new ServerTable();
+        ServerListing free = table.register(new ServerListing("free", "", "", 1, 4));
+        for (int i = 2; i < 50; i++) {
+            table.register(new ServerListing("full", "", "", i, 4).setNumberOfPlayers(4));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(free, table.getRandomFreeServer());
+        }
+
+        table.register(new ServerListing("free", "", "", 1, 4).setNumberOfPlayers(4));
+        assertNull(table.getRandomFreeServer());
     }
 }
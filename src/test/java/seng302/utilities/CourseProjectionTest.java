@@ -0,0 +1,135 @@
+package seng302.utilities;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+import seng302.model.GeoPoint;
+
+/**
+ * Compares the flat course geometry against the spherical results of GeoUtility for points spread
+ * over a few kilometres around courses at different latitudes.
+ */
+public class CourseProjectionTest {
+
+    private static final double COURSE_RADIUS = 3000;
+    private static final int SAMPLES = 2000;
+
+    // Gothenburg, Auckland and somewhere well north to stretch the longitude scale
+    private GeoPoint[] courseCentres = {
+        new GeoPoint(57.670333, 11.827833),
+        new GeoPoint(-36.84, 174.76),
+        new GeoPoint(68.0, -20.0)
+    };
+
+    private GeoPoint randomPoint(Random random, GeoPoint centre) {
+        return GeoUtility.getGeoCoordinate(
+            centre, random.nextDouble() * 360, random.nextDouble() * COURSE_RADIUS
+        );
+    }
+
+    private static double angleBetween(double bearing1, double bearing2) {
+        double difference = Math.abs(bearing1 - bearing2) % 360;
+        return Math.min(difference, 360 - difference);
+    }
+
+    @Test
+    public void testDistanceMatchesGeoUtility() {
+        Random random = new Random(302);
+        for (GeoPoint centre : courseCentres) {
+            CourseProjection projection = new CourseProjection(centre);
+            for (int i = 0; i < SAMPLES; i++) {
+                GeoPoint p1 = randomPoint(random, centre);
+                GeoPoint p2 = randomPoint(random, centre);
+                double expected = GeoUtility.getDistance(p1, p2);
+                // Within 0.05% or 1 cm, whichever is larger
+                assertEquals(expected, projection.getDistance(p1, p2),
+                    Math.max(0.01, expected * 0.0005));
+            }
+        }
+    }
+
+    @Test
+    public void testBearingMatchesGeoUtility() {
+        Random random = new Random(302);
+        for (GeoPoint centre : courseCentres) {
+            CourseProjection projection = new CourseProjection(centre);
+            for (int i = 0; i < SAMPLES; i++) {
+                GeoPoint p1 = randomPoint(random, centre);
+                GeoPoint p2 = randomPoint(random, centre);
+                if (GeoUtility.getDistance(p1, p2) < 1) {
+                    continue;
+                }
+                assertEquals(0,
+                    angleBetween(GeoUtility.getBearing(p1, p2), projection.getBearing(p1, p2)),
+                    0.1);
+            }
+        }
+    }
+
+    @Test
+    public void testGeoCoordinateMatchesGeoUtility() {
+        Random random = new Random(302);
+        for (GeoPoint centre : courseCentres) {
+            CourseProjection projection = new CourseProjection(centre);
+            for (int i = 0; i < SAMPLES; i++) {
+                GeoPoint origin = randomPoint(random, centre);
+                double bearing = random.nextDouble() * 360;
+                // Anything from one tick of movement up to a bounce
+                double distance = random.nextDouble() * 30;
+                GeoPoint expected = GeoUtility.getGeoCoordinate(origin, bearing, distance);
+                GeoPoint actual = projection.getGeoCoordinate(origin, bearing, distance);
+                assertEquals(0, GeoUtility.getDistance(expected, actual), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void testGeoCoordinateAwayFromCourse() {
+        CourseProjection projection = new CourseProjection(courseCentres[0]);
+        GeoPoint origin = new GeoPoint(50.0, 50.0);
+        GeoPoint moved = projection.getGeoCoordinate(origin, 45d, 30d);
+        assertEquals(30, GeoUtility.getDistance(origin, moved), 0.01);
+    }
+
+    @Test
+    public void testClockwiseMatchesGeoUtility() {
+        Random random = new Random(302);
+        for (GeoPoint centre : courseCentres) {
+            CourseProjection projection = new CourseProjection(centre);
+            for (int i = 0; i < SAMPLES; i++) {
+                GeoPoint v1 = randomPoint(random, centre);
+                GeoPoint v2 = randomPoint(random, centre);
+                GeoPoint point = randomPoint(random, centre);
+                double lineBearing = GeoUtility.getBearing(v1, v2);
+                double pointBearing = GeoUtility.getBearing(v1, point);
+                // Skip points too close to in line for the two to be expected to agree
+                double offLine = angleBetween(lineBearing, pointBearing);
+                if (offLine < 0.5 || offLine > 179.5) {
+                    continue;
+                }
+                assertEquals(GeoUtility.isClockwise(v1, v2, point),
+                    projection.isClockwise(v1, v2, point));
+            }
+        }
+    }
+
+    @Test
+    public void testCrossedLine() {
+        GeoPoint centre = courseCentres[0];
+        CourseProjection projection = new CourseProjection(centre);
+        GeoPoint mark1 = GeoUtility.getGeoCoordinate(centre, 0d, 100d);
+        GeoPoint mark2 = GeoUtility.getGeoCoordinate(centre, 180d, 100d);
+        GeoPoint west = GeoUtility.getGeoCoordinate(centre, 270d, 5d);
+        GeoPoint east = GeoUtility.getGeoCoordinate(centre, 90d, 5d);
+        GeoPoint farNorthWest = GeoUtility.getGeoCoordinate(west, 0d, 200d);
+        GeoPoint farNorthEast = GeoUtility.getGeoCoordinate(east, 0d, 200d);
+
+        assertEquals((int) GeoUtility.checkCrossedLine(mark1, mark2, west, east),
+            projection.checkCrossedLine(mark1, mark2, west, east));
+        assertEquals((int) GeoUtility.checkCrossedLine(mark1, mark2, east, west),
+            projection.checkCrossedLine(mark1, mark2, east, west));
+        assertNotEquals(0, projection.checkCrossedLine(mark1, mark2, west, east));
+        assertEquals(0, projection.checkCrossedLine(mark1, mark2, farNorthWest, farNorthEast));
+    }
+}
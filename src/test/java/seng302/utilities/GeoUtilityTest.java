@@ -2,10 +2,8 @@ package seng302.utilities;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
-import javafx.geometry.Point2D;
 import org.junit.Test;
 import seng302.model.GeoPoint;
 
@@ -19,14 +17,6 @@ import seng302.model.GeoPoint;
 public class GeoUtilityTest {
 
 
-    //Line in x = y
-    private Point2D linePoint1 = new Point2D(0, 0);
-    private Point2D linePoint2 = new Point2D(1, 1);
-
-    private Point2D arbitraryPoint1 = new Point2D(1, 0);     //Point below x = y
-    private Point2D arbitraryPoint2 = new Point2D(0, 1);     //Point above x = y
-    private Point2D arbitraryPoint3 = new Point2D(2, 2);     //Point on x = y
-
     private GeoPoint p1 = new GeoPoint(57.670333, 11.827833);
     private GeoPoint p2 = new GeoPoint(57.671524, 11.844495);
     private GeoPoint p3 = new GeoPoint(57.670822, 11.843392);
@@ -92,41 +82,6 @@ public class GeoUtilityTest {
 
     }
 
-    @Test
-    public void testLineFunction() {
-
-        Integer lineFunctionResult1 = GeoUtility
-            .lineFunction(linePoint1, linePoint2, arbitraryPoint1);
-        Integer lineFunctionResult2 = GeoUtility
-            .lineFunction(linePoint1, linePoint2, arbitraryPoint2);
-        Integer lineFunctionResult3 = GeoUtility
-            .lineFunction(linePoint1, linePoint2, arbitraryPoint3);
-
-        //Point1 and Point2 are on opposite sides
-        assertEquals(Math.abs(lineFunctionResult1), Math.abs(lineFunctionResult2));
-        assertNotEquals(lineFunctionResult1, lineFunctionResult2);
-
-        //Point3 is on the line
-        assertEquals((long) lineFunctionResult3, 0L);
-    }
-
-    @Test
-    public void testMakeArbitraryVectorPoint() {
-
-        //Make a point (1,0) from point (0,0)
-        Point2D newPoint = GeoUtility.makeArbitraryVectorPoint(linePoint1, 0d, 1d);
-        Point2D expected = new Point2D(1, 0);
-
-        assertEquals(expected.getX(), newPoint.getX(), 1E-6);
-        assertEquals(expected.getY(), newPoint.getY(), 1E-6);
-
-        newPoint = GeoUtility.makeArbitraryVectorPoint(linePoint1, 90d, 1d);
-        expected = new Point2D(0, 1);
-
-        assertEquals(expected.getX(), newPoint.getX(), 1E-6);
-        assertEquals(expected.getY(), newPoint.getY(), 1E-6);
-    }
-
     @Test
     public void testIsPointInTriangle() {
         GeoPoint v1 = new GeoPoint(57.670333, 11.842833);
@@ -0,0 +1,90 @@
+package seng302.utilities;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import seng302.model.GeoPoint;
+
+/**
+ * Checks the collision grid never misses an object a full scan would have found.
+ */
+public class SpatialGridTest {
+
+    private static final double CELL_SIZE = 50d;
+
+    private GeoPoint centre = new GeoPoint(57.670333, 11.827833);
+    private SpatialGrid<GeoPoint> grid;
+
+    @Before
+    public void setup() {
+        grid = new SpatialGrid<>(CELL_SIZE, centre.getLat());
+    }
+
+    @Test
+    public void testNearbyFindsEverythingInRange() {
+        Random random = new Random(302);
+        List<GeoPoint> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            GeoPoint point = GeoUtility.getGeoCoordinate(
+                centre, random.nextDouble() * 360, random.nextDouble() * 500
+            );
+            points.add(point);
+            grid.put(point, point);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            GeoPoint query = GeoUtility.getGeoCoordinate(
+                centre, random.nextDouble() * 360, random.nextDouble() * 500
+            );
+            List<GeoPoint> nearby = grid.getNearby(query, 15);
+            for (GeoPoint point : points) {
+                if (GeoUtility.getDistance(point, query) <= 15) {
+                    assertTrue(nearby.contains(point));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMovedObjectsChangeCell() {
+        GeoPoint item = new GeoPoint(0, 0);
+        GeoPoint far = GeoUtility.getGeoCoordinate(centre, 90d, 1000d);
+        grid.put(item, centre);
+        assertTrue(grid.getNearby(centre, 10).contains(item));
+
+        grid.move(item, far);
+        assertFalse(grid.getNearby(centre, 10).contains(item));
+        assertTrue(grid.getNearby(far, 10).contains(item));
+        assertEquals(1, grid.size());
+
+        grid.remove(item);
+        assertTrue(grid.getNearby(far, 10).isEmpty());
+    }
+
+    @Test
+    public void testMoveIgnoresObjectsNotInGrid() {
+        GeoPoint item = new GeoPoint(0, 0);
+        grid.move(item, centre);
+        assertEquals(0, grid.size());
+    }
+
+    @Test
+    public void testSegmentsFoundAlongCrossingPath() {
+        GeoPoint start = GeoUtility.getGeoCoordinate(centre, 0d, 400d);
+        GeoPoint end = GeoUtility.getGeoCoordinate(centre, 180d, 400d);
+        SpatialGrid<Integer> boundary = new SpatialGrid<>(CELL_SIZE, centre.getLat());
+        boundary.putSegment(0, start, end);
+
+        GeoPoint before = GeoUtility.getGeoCoordinate(centre, 270d, 2d);
+        GeoPoint after = GeoUtility.getGeoCoordinate(centre, 90d, 2d);
+        assertEquals(1, boundary.getAlongSegment(before, after).size());
+
+        GeoPoint away = GeoUtility.getGeoCoordinate(centre, 90d, 300d);
+        GeoPoint furtherAway = GeoUtility.getGeoCoordinate(centre, 90d, 304d);
+        assertTrue(boundary.getAlongSegment(away, furtherAway).isEmpty());
+    }
+}
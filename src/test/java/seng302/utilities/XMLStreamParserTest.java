@@ -0,0 +1,130 @@
+package seng302.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import seng302.gameServer.messages.XMLMessage;
+import seng302.gameServer.messages.XMLMessageSubType;
+import seng302.model.ClientYacht;
+import seng302.model.ServerYacht;
+import seng302.model.mark.CompoundMark;
+import seng302.model.mark.Mark;
+import seng302.model.stream.packets.StreamPacket;
+import seng302.model.stream.xml.parser.RaceXMLData;
+import seng302.model.stream.xml.parser.RegattaXMLData;
+import seng302.model.token.Token;
+import seng302.model.token.TokenType;
+import seng302.visualiser.fxObjects.assets_3D.BoatMeshType;
+
+/**
+ * Tests the streaming XML parser reads the same data from a packet as the DOM parser.
+ */
+public class XMLStreamParserTest {
+
+    private static final String[] MAPS = {"default", "horseshoe", "loop", "madagascar", "waiheke"};
+    private static final int XML_MESSAGE_TYPE = 26;
+    private static final int HEADER_SIZE = 15;
+    private static final int CRC_SIZE = 4;
+
+    private static StreamPacket toPacket(String xml, XMLMessageSubType type) {
+        byte[] buffer = new XMLMessage(xml, type, 0).getBuffer();
+        byte[] payload = Arrays.copyOfRange(buffer, HEADER_SIZE, buffer.length - CRC_SIZE);
+        return new StreamPacket(XML_MESSAGE_TYPE, payload.length, 0, payload);
+    }
+
+    private static XMLGenerator createGenerator(String map) {
+        XMLGenerator xmlGenerator = new XMLGenerator();
+        xmlGenerator.setRaceTemplate(
+            XMLParser.parseRaceDef("/maps/" + map + ".xml", "test", 2, 6, true).getValue()
+        );
+        List<ServerYacht> yachts = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            yachts.add(new ServerYacht(BoatMeshType.DINGHY, i, Integer.toString(i), "Y" + i,
+                "Yacht" + i, "NZ"));
+        }
+        xmlGenerator.getRace().setBoats(yachts);
+        Token token = new Token(TokenType.BOOST, 57.67, 11.84);
+        token.setTokenId(7);
+        xmlGenerator.getRace().setTokens(Arrays.asList(token));
+        return xmlGenerator;
+    }
+
+    /**
+     * Writes out everything parsed from a race so two parses can be compared.
+     */
+    private static String describe(RaceXMLData race) {
+        StringBuilder description = new StringBuilder();
+        description.append(race.getParticipants()).append(race.getMaxPlayers())
+            .append(race.getTokensEnabled());
+        for (Token token : race.getTokens()) {
+            description.append(token.getTokenId()).append(token.getTokenType())
+                .append(token.getLat()).append(token.getLng());
+        }
+        for (CompoundMark compoundMark : race.getCompoundMarks().values()) {
+            description.append(compoundMark.getId()).append(compoundMark.getName());
+            for (Mark mark : compoundMark.getMarks()) {
+                description.append(mark.getName()).append(mark.getSeqID())
+                    .append(mark.getSourceID()).append(mark.getLat()).append(mark.getLng());
+            }
+        }
+        description.append(race.getMarkSequence()).append(race.getCourseLimit());
+        return description.toString();
+    }
+
+    @Test
+    public void testRaceMatchesDOMParser() {
+        for (String map : MAPS) {
+            StreamPacket packet = toPacket(
+                createGenerator(map).getRaceAsXml(), XMLMessageSubType.RACE
+            );
+            RaceXMLData dom = XMLParser.parseRace(XMLParser.extractXmlMessage(packet));
+            RaceXMLData stax = XMLStreamParser.parseRace(packet);
+
+            assertEquals(map, describe(dom), describe(stax));
+            assertEquals(3, stax.getParticipants().size());
+            assertEquals(6, (int) stax.getMaxPlayers());
+            assertEquals(true, stax.getTokensEnabled());
+            assertEquals(7, stax.getTokens().get(0).getTokenId());
+        }
+    }
+
+    @Test
+    public void testRegattaMatchesDOMParser() {
+        StreamPacket packet = toPacket(
+            createGenerator("default").getRegattaAsXml(), XMLMessageSubType.REGATTA
+        );
+        RegattaXMLData dom = XMLParser.parseRegatta(XMLParser.extractXmlMessage(packet));
+        RegattaXMLData stax = XMLStreamParser.parseRegatta(packet);
+
+        assertEquals(dom.getRegattaID(), stax.getRegattaID());
+        assertEquals(dom.getRegattaName(), stax.getRegattaName());
+        assertEquals(dom.getCourseName(), stax.getCourseName());
+        assertEquals(dom.getCentralLat(), stax.getCentralLat());
+        assertEquals(dom.getCentralLng(), stax.getCentralLng());
+        assertEquals(dom.getUtcOffset(), stax.getUtcOffset());
+    }
+
+    @Test
+    public void testBoatsAreParsed() {
+        StreamPacket packet = toPacket(
+            createGenerator("default").getBoatsAsXml(), XMLMessageSubType.BOAT
+        );
+        Map<Integer, ClientYacht> boats = StreamParser.parseBoats(packet);
+
+        assertEquals(3, boats.size());
+        assertEquals("Yacht2", boats.get(2).getBoatName());
+        assertEquals("Y2", boats.get(2).getShortName());
+        assertEquals(BoatMeshType.DINGHY, boats.get(2).getBoatType());
+    }
+
+    @Test
+    public void testMalformedXMLIsNotParsed() {
+        StreamPacket packet = toPacket("<Race><Participants>", XMLMessageSubType.RACE);
+        assertNull(XMLStreamParser.parseRace(packet));
+    }
+}
@@ -4,7 +4,6 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import seng302.gameServer.GameStages;
-import seng302.gameServer.GameState;
 import seng302.gameServer.MainServerThread;
 import seng302.visualiser.ClientToServerThread;
 
@@ -18,10 +17,9 @@ public class RegularPacketsTest {
 
     @Before
     public void setup() throws Exception {
-        new GameState();
         serverThread = new MainServerThread();
         clientThread = new ClientToServerThread("localhost", serverThread.getPortNumber());
-        GameState.setCurrentStage(GameStages.RACING);
+        serverThread.getGameState().setCurrentStage(GameStages.RACING);
     }
 
     @Test
@@ -76,7 +74,6 @@ public class RegularPacketsTest {
         try {
             clientThread.setSocketToClose();
             serverThread.terminate();
-            GameState.setCurrentStage(GameStages.LOBBYING);
         } catch (Exception e) {
             System.out.println("Caught expected exception.");
         }
@@ -9,7 +9,6 @@ import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import seng302.gameServer.GameStages;
-import seng302.gameServer.GameState;
 import seng302.gameServer.MainServerThread;
 import seng302.model.mark.CompoundMark;
 import seng302.model.stream.packets.StreamPacket;
@@ -83,7 +82,7 @@ public class SendChatSteps {
 
     @When("^the first client has sent the message \"([^\"]*)\"$")
     public void the_user_has_pressed_sends_the_message_in_a_text_box(String arg1) throws Throwable {
-        GameState.setCurrentStage(GameStages.LOBBYING);
+        mst.getGameState().setCurrentStage(GameStages.LOBBYING);
         try {
             Thread.sleep(100);
         } catch (InterruptedException ie) {
@@ -12,7 +12,6 @@ import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import seng302.gameServer.GameStages;
-import seng302.gameServer.GameState;
 import seng302.gameServer.MainServerThread;
 import seng302.gameServer.messages.BoatAction;
 import seng302.model.ServerYacht;
@@ -56,10 +55,10 @@ public class ToggleSailSteps {
                         "/maps/default.xml", "test", 2, null, false
                 ).getValue()
         );
-        GameState.setCurrentStage(GameStages.RACING);
-        GameState.addYacht(1, new ServerYacht(BoatMeshType.DINGHY, 1, "0", "", "", ""));
+        mst.getGameState().setCurrentStage(GameStages.RACING);
+        mst.getGameState().addYacht(1, new ServerYacht(BoatMeshType.DINGHY, 1, "0", "", "", ""));
         Thread.sleep(200); // Sleep needed to help the threads all be up to speed with each other
-        ServerYacht yacht = (new ArrayList<>(GameState.getYachts().values())).get(0);
+        ServerYacht yacht = (new ArrayList<>(mst.getGameState().getYachts().values())).get(0);
         Assert.assertFalse(yacht.getSailIn());
     }
 
@@ -75,7 +74,7 @@ public class ToggleSailSteps {
     @Then("^the sails are \"([^\"]*)\"$")
     public void the_sails_are(String arg1) throws Throwable {
         Thread.sleep(200); // Sleep needed to help the threads all be up to speed with each other
-        ServerYacht yacht = (new ArrayList<>(GameState.getYachts().values())).get(0);
+        ServerYacht yacht = (new ArrayList<>(mst.getGameState().getYachts().values())).get(0);
         if (arg1 == "in") {
             Assert.assertTrue(yacht.getSailIn());
         } else {